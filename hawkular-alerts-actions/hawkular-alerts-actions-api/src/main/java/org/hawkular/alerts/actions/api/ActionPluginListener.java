@@ -51,4 +51,13 @@ public interface ActionPluginListener {
      * @throws Exception any problem
      */
     void process(ActionMessage msg) throws Exception;
+
+    /**
+     * This method is invoked when the plugin is unregistered, on shutdown.
+     * Plugins holding resources, i.e. threads or connections, release them here.
+     *
+     * @throws Exception any problem
+     */
+    default void close() throws Exception {
+    }
 }
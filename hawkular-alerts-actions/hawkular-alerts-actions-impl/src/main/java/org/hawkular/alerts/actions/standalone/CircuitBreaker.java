@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.actions.standalone;
+
+/**
+ * Circuit breaker of an action destination.
+ *
+ * The circuit opens after failureThreshold consecutive failures, and requests are rejected while it is open. After
+ * openTime ms a single trial request is allowed: a success closes the circuit, a failure opens it again.
+ *
+ * A failureThreshold <= 0 disables the breaker.
+ *
+ * @author Lucas Ponce
+ */
+class CircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openTime;
+    private State state = State.CLOSED;
+    private int failures = 0;
+    private long openedAt = 0;
+
+    /**
+     * @param failureThreshold consecutive failures that open the circuit
+     * @param openTime time in ms the circuit stays open before a trial request
+     */
+    CircuitBreaker(int failureThreshold, long openTime) {
+        this.failureThreshold = failureThreshold;
+        this.openTime = openTime;
+    }
+
+    /**
+     * @return true if the request can be sent to the destination
+     */
+    synchronized boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        // A trial without outcome does not block the destination, a new trial is allowed after openTime
+        long now = System.currentTimeMillis();
+        if (now - openedAt >= openTime) {
+            state = State.HALF_OPEN;
+            openedAt = now;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if this success closed the circuit
+     */
+    synchronized boolean onSuccess() {
+        boolean closed = state != State.CLOSED;
+        failures = 0;
+        state = State.CLOSED;
+        return closed;
+    }
+
+    /**
+     * @return true if this failure opened the circuit
+     */
+    synchronized boolean onFailure() {
+        if (failureThreshold <= 0) {
+            return false;
+        }
+        failures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            return true;
+        }
+        return false;
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+}
@@ -61,4 +61,13 @@ public interface MsgLogger extends BasicLogger {
     @Message(id = 270008, value = "ActionResponse message without payload")
     void warnActionResponseMessageWithoutPayload();
 
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 270009, value = "Plugin [%s] circuit opened for action [%s] after consecutive failures. " +
+            "Actions are rejected for [%s] ms")
+    void warnCircuitOpened(String actionPlugin, String actionId, long openTime);
+
+    @LogMessage(level = Logger.Level.INFO)
+    @Message(id = 270010, value = "Plugin [%s] circuit closed for action [%s]")
+    void infoCircuitClosed(String actionPlugin, String actionId);
+
 }
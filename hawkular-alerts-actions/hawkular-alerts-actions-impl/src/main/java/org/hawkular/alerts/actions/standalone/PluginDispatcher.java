@@ -0,0 +1,378 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.actions.standalone;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.hawkular.alerts.actions.api.ActionPluginListener;
+import org.hawkular.alerts.api.model.action.Action;
+import org.hawkular.alerts.api.services.ActionsService;
+import org.jboss.logging.Logger;
+
+/**
+ * Isolated dispatch of the actions of a plugin.
+ *
+ * Each plugin has its own pool of worker threads and bounded queue, so a slow or hung destination only delays the
+ * actions of its plugin. Actions are rejected instead of queued when the queue is full.
+ *
+ * Each destination, i.e. an action definition of a tenant, has a token bucket rate limit and a circuit breaker. The
+ * breaker counts as failures the exceptions of the plugin and the FAILED results it reports, and rejects the actions
+ * of the destination while it is open. The outcome of a plugin that reports results is its reported result, which
+ * can arrive after the plugin returns, i.e. from an asynchronous client. A rejected action is not sent to the plugin
+ * and its result is set to FAILED.
+ *
+ * Properties are read from system properties, with a per plugin override suffixed by ".&lt;actionPlugin&gt;", i.e.
+ * hawkular-alerts.standalone-actions-threads.email:
+ *
+ * <ul>
+ * <li>hawkular-alerts.standalone-actions-threads: worker threads (10)</li>
+ * <li>hawkular-alerts.standalone-actions-queue-size: max number of queued actions (1000)</li>
+ * <li>hawkular-alerts.standalone-actions-rate: max actions per second per destination, 0 for no limit (0)</li>
+ * <li>hawkular-alerts.standalone-actions-burst: max burst of actions per destination (the rate)</li>
+ * <li>hawkular-alerts.standalone-actions-failures: consecutive failures that open a circuit, 0 disables it (5)</li>
+ * <li>hawkular-alerts.standalone-actions-open-time: time in ms a circuit stays open (30000)</li>
+ * </ul>
+ *
+ * Queue depth, latency from dispatch until the plugin returns (ms) and rejections are exposed through JMX.
+ *
+ * @author Lucas Ponce
+ */
+public class PluginDispatcher implements PluginDispatcherMXBean {
+    private final MsgLogger msgLog = MsgLogger.LOGGER;
+    private final Logger log = Logger.getLogger(PluginDispatcher.class);
+
+    public static final String OBJECT_NAME = "org.hawkular.alerts:type=ActionPlugin,name=";
+
+    private static final String NUM_THREADS = "hawkular-alerts.standalone-actions-threads";
+    private static final String QUEUE_SIZE = "hawkular-alerts.standalone-actions-queue-size";
+    private static final String RATE = "hawkular-alerts.standalone-actions-rate";
+    private static final String BURST = "hawkular-alerts.standalone-actions-burst";
+    private static final String FAILURES = "hawkular-alerts.standalone-actions-failures";
+    private static final String OPEN_TIME = "hawkular-alerts.standalone-actions-open-time";
+
+    private static final String FAILED_RESULT = "FAILED";
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private static final Map<String, PluginDispatcher> dispatchers = new ConcurrentHashMap<>();
+
+    private final String actionPlugin;
+    private final ActionPluginListener plugin;
+    private final ActionsService actions;
+    private final boolean reportsResults;
+    private final ThreadPoolExecutor executor;
+    private final double rate;
+    private final double burst;
+    private final int failures;
+    private final long openTime;
+    private final Map<String, Destination> destinations = new ConcurrentHashMap<>();
+
+    private final Histogram latency = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    private final Histogram processingTime = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    private final AtomicLong dispatched = new AtomicLong(0);
+    private final AtomicLong rejectedQueue = new AtomicLong(0);
+    private final AtomicLong rejectedRate = new AtomicLong(0);
+    private final AtomicLong rejectedCircuit = new AtomicLong(0);
+    private final AtomicLong failed = new AtomicLong(0);
+
+    /**
+     * @param actionPlugin the name of the plugin
+     * @param plugin the plugin
+     * @param actions the service where the results of the rejected actions are updated, it can be null
+     * @param reportsResults true if the plugin reports the results of its actions, maybe asynchronously
+     */
+    public PluginDispatcher(String actionPlugin, ActionPluginListener plugin, ActionsService actions,
+            boolean reportsResults) {
+        this.actionPlugin = actionPlugin;
+        this.plugin = plugin;
+        this.actions = actions;
+        this.reportsResults = reportsResults;
+        int numThreads = Integer.parseInt(getProperty(NUM_THREADS, "10"));
+        int queueSize = Integer.parseInt(getProperty(QUEUE_SIZE, "1000"));
+        rate = Double.parseDouble(getProperty(RATE, "0"));
+        burst = Math.max(1, Double.parseDouble(getProperty(BURST, String.valueOf(rate))));
+        failures = Integer.parseInt(getProperty(FAILURES, "5"));
+        openTime = Long.parseLong(getProperty(OPEN_TIME, "30000"));
+        executor = new ThreadPoolExecutor(numThreads, numThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), new PluginThreadFactory(actionPlugin));
+        // Threads of idle plugins are released
+        executor.allowCoreThreadTimeOut(true);
+        dispatchers.put(actionPlugin, this);
+        registerMBean();
+    }
+
+    /**
+     * Queue an action for the plugin, or reject it if the queue is full or its destination is rate limited or down.
+     *
+     * @param action the action to process
+     */
+    public void dispatch(Action action) {
+        Destination destination = destination(action);
+        if (!destination.breaker.allowRequest()) {
+            reject(action, rejectedCircuit, "circuit open");
+            return;
+        }
+        if (destination.limiter != null && !destination.limiter.tryAcquire()) {
+            reject(action, rejectedRate, "rate limit exceeded");
+            return;
+        }
+        long queued = System.currentTimeMillis();
+        try {
+            executor.execute(() -> process(action, destination, queued));
+            dispatched.incrementAndGet();
+        } catch (RejectedExecutionException e) {
+            reject(action, rejectedQueue, "queue full");
+        }
+    }
+
+    /**
+     * Record the result reported by a plugin on the circuit breaker of its destination.
+     *
+     * @param action the action with the result reported
+     */
+    public static void report(Action action) {
+        if (action == null || action.getActionPlugin() == null || action.getResult() == null) {
+            return;
+        }
+        PluginDispatcher dispatcher = dispatchers.get(action.getActionPlugin());
+        if (dispatcher == null) {
+            return;
+        }
+        dispatcher.onOutcome(action, dispatcher.destination(action), !FAILED_RESULT.equals(action.getResult()));
+    }
+
+    public void close() {
+        executor.shutdown();
+        dispatchers.remove(actionPlugin, this);
+        unregisterMBean();
+        try {
+            plugin.close();
+        } catch (Exception e) {
+            log.debug("Error closing plugin: " + actionPlugin, e);
+        }
+    }
+
+    private void process(Action action, Destination destination, long queued) {
+        long start = System.currentTimeMillis();
+        boolean success = true;
+        try {
+            plugin.process(new StandaloneActionMessage(action));
+        } catch (Exception e) {
+            success = false;
+            failed.incrementAndGet();
+            log.debug("Error processing action: " + action.getActionPlugin(), e);
+            msgLog.errorProcessingAction(e.getMessage());
+        } finally {
+            long end = System.currentTimeMillis();
+            record(processingTime, end - start);
+            record(latency, end - queued);
+        }
+        // A plugin that does not report results succeeds if it does not fail
+        if (!success || !reportsResults) {
+            onOutcome(action, destination, success);
+        }
+    }
+
+    private void onOutcome(Action action, Destination destination, boolean success) {
+        if (success) {
+            if (destination.breaker.onSuccess()) {
+                msgLog.infoCircuitClosed(actionPlugin, action.getActionId());
+            }
+        } else if (destination.breaker.onFailure()) {
+            msgLog.warnCircuitOpened(actionPlugin, action.getActionId(), openTime);
+        }
+    }
+
+    private void reject(Action action, AtomicLong counter, String reason) {
+        counter.incrementAndGet();
+        if (log.isDebugEnabled()) {
+            log.debug("Action " + action + " rejected: " + reason);
+        }
+        if (actions == null) {
+            return;
+        }
+        try {
+            action.setResult(FAILED_RESULT);
+            actions.updateResult(action);
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            msgLog.errorProcessingAction(e.getMessage());
+        }
+    }
+
+    private Destination destination(Action action) {
+        return destinations.computeIfAbsent(action.getTenantId() + "|" + action.getActionId(),
+                key -> new Destination(rate > 0 ? new TokenBucket(rate, burst) : null,
+                        new CircuitBreaker(failures, openTime)));
+    }
+
+    private String getProperty(String key, String defaultValue) {
+        return System.getProperty(key + "." + actionPlugin, System.getProperty(key, defaultValue));
+    }
+
+    private void record(Histogram histogram, long value) {
+        // Clock adjustments could produce negative latencies
+        histogram.recordValue(Math.max(0, value));
+    }
+
+    private String summary(Histogram histogram) {
+        Histogram copy = histogram.copy();
+        return String.format("count=%d,mean=%.2f,p50=%d,p90=%d,p99=%d,max=%d",
+                copy.getTotalCount(), copy.getMean(), copy.getValueAtPercentile(50.0),
+                copy.getValueAtPercentile(90.0), copy.getValueAtPercentile(99.0), copy.getMaxValue());
+    }
+
+    @Override
+    public Map<String, String> getMetrics() {
+        Map<String, String> metrics = new HashMap<>();
+        metrics.put("queue-depth", String.valueOf(getQueueDepth()));
+        metrics.put("active-threads", String.valueOf(getActiveThreads()));
+        metrics.put("dispatched", String.valueOf(dispatched.get()));
+        metrics.put("failed", String.valueOf(failed.get()));
+        metrics.put("rejected-queue", String.valueOf(rejectedQueue.get()));
+        metrics.put("rejected-rate", String.valueOf(rejectedRate.get()));
+        metrics.put("rejected-circuit", String.valueOf(rejectedCircuit.get()));
+        metrics.put("open-circuits", String.valueOf(getOpenCircuits()));
+        metrics.put("latency", summary(latency));
+        metrics.put("processing-time", summary(processingTime));
+        return metrics;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public int getActiveThreads() {
+        return executor.getActiveCount();
+    }
+
+    @Override
+    public long getDispatched() {
+        return dispatched.get();
+    }
+
+    @Override
+    public long getRejected() {
+        return rejectedQueue.get() + rejectedRate.get() + rejectedCircuit.get();
+    }
+
+    @Override
+    public long getFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public int getOpenCircuits() {
+        int open = 0;
+        for (Destination destination : destinations.values()) {
+            if (destination.breaker.getState() != CircuitBreaker.State.CLOSED) {
+                open++;
+            }
+        }
+        return open;
+    }
+
+    @Override
+    public long getLatencyMax() {
+        return latency.getMaxValue();
+    }
+
+    @Override
+    public double getLatencyP99() {
+        return latency.getValueAtPercentile(99.0);
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        processingTime.reset();
+        dispatched.set(0);
+        failed.set(0);
+        rejectedQueue.set(0);
+        rejectedRate.set(0);
+        rejectedCircuit.set(0);
+    }
+
+    /*
+        A previous registration, i.e. on redeploy, is replaced
+     */
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME + ObjectName.quote(actionPlugin));
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (Exception e) {
+            log.warnf("Metrics of plugin [%s] cannot be registered on JMX: %s", actionPlugin, e.getMessage());
+        }
+    }
+
+    private void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME + ObjectName.quote(actionPlugin));
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            log.debugf("Metrics of plugin [%s] cannot be unregistered from JMX: %s", actionPlugin, e.getMessage());
+        }
+    }
+
+    private static class Destination {
+        private final TokenBucket limiter;
+        private final CircuitBreaker breaker;
+
+        Destination(TokenBucket limiter, CircuitBreaker breaker) {
+            this.limiter = limiter;
+            this.breaker = breaker;
+        }
+    }
+
+    private static class PluginThreadFactory implements ThreadFactory {
+        private static final String PREFIX = "standalone-action-";
+        private final String actionPlugin;
+        private final AtomicInteger counter = new AtomicInteger(0);
+
+        PluginThreadFactory(String actionPlugin) {
+            this.actionPlugin = actionPlugin;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(r, PREFIX + actionPlugin + "-" + counter.getAndIncrement());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.actions.standalone;
+
+import java.util.Map;
+
+/**
+ * JMX view of a {@link PluginDispatcher}, registered as
+ * <code>org.hawkular.alerts:type=ActionPlugin,name=&lt;actionPlugin&gt;</code>.
+ *
+ * @author Lucas Ponce
+ */
+public interface PluginDispatcherMXBean {
+
+    /**
+     * @return Map of metric name to its current value
+     */
+    Map<String, String> getMetrics();
+
+    int getQueueDepth();
+
+    int getActiveThreads();
+
+    long getDispatched();
+
+    long getRejected();
+
+    long getFailed();
+
+    int getOpenCircuits();
+
+    long getLatencyMax();
+
+    double getLatencyP99();
+
+    void reset();
+}
@@ -18,76 +18,53 @@ package org.hawkular.alerts.actions.standalone;
 
 import static org.hawkular.alerts.actions.standalone.ServiceNames.Service.DEFINITIONS_SERVICE;
 
-import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
-
 import javax.naming.InitialContext;
 
-import org.hawkular.alerts.actions.api.ActionMessage;
 import org.hawkular.alerts.actions.api.ActionPluginListener;
 import org.hawkular.alerts.api.model.action.Action;
 import org.hawkular.alerts.api.services.ActionListener;
+import org.hawkular.alerts.api.services.ActionsService;
 import org.hawkular.alerts.api.services.DefinitionsService;
 import org.jboss.logging.Logger;
 
 /**
  * Main standalone listener for plugins implementation.
  *
+ * There is a listener per plugin, it dispatches the actions of its plugin through an isolated
+ * {@link PluginDispatcher}.
+ *
  * @author Lucas Ponce
  */
 public class StandaloneActionPluginListener implements ActionListener {
-    private static final String NUM_THREADS = "hawkular-alerts.standalone-actions-threads";
     private final MsgLogger msgLog = MsgLogger.LOGGER;
     private final Logger log = Logger.getLogger(StandaloneActionPluginListener.class);
 
     private InitialContext ctx;
     private DefinitionsService definitions;
 
-    ExecutorService executorService;
+    private final String actionPlugin;
 
-    private Map<String, ActionPluginListener> plugins;
+    PluginDispatcher dispatcher;
 
-    public StandaloneActionPluginListener(Map<String, ActionPluginListener> plugins) {
-        this.plugins = plugins;
-        int numThreads = Integer.parseInt(System.getProperty(NUM_THREADS, "10"));
-        executorService = Executors.newFixedThreadPool(numThreads, new StandaloneThreadFactory());
+    public StandaloneActionPluginListener(String actionPlugin, ActionPluginListener plugin, ActionsService actions,
+            boolean reportsResults) {
+        this.actionPlugin = actionPlugin;
+        dispatcher = new PluginDispatcher(actionPlugin, plugin, actions, reportsResults);
     }
 
     @Override
     public void process(Action action) {
         try {
             init();
-            if (plugins.isEmpty()) {
-                msgLog.warnNoPluginsFound();
-                return;
-            }
             if (action == null || action.getActionPlugin() == null) {
                 msgLog.warnMessageReceivedWithoutPluginInfo();
                 return;
             }
-            String actionPlugin = action.getActionPlugin();
-            final ActionPluginListener plugin = plugins.get(actionPlugin);
-            if (plugin == null) {
-                if (log.isDebugEnabled()) {
-                    log.debug("Received action [" + actionPlugin +
-                            "] but no ActionPluginListener found on this deployment");
-                }
+            // Actions of other plugins are dispatched by their own listeners
+            if (!actionPlugin.equals(action.getActionPlugin())) {
                 return;
             }
-
-            ActionMessage pluginMessage = new StandaloneActionMessage(action);
-            if (plugin != null) {
-                executorService.execute(() -> {
-                    try {
-                        plugin.process(pluginMessage);
-                    } catch (Exception e) {
-                        log.debug("Error processing action: " + action.getActionPlugin(), e);
-                        msgLog.errorProcessingAction(e.getMessage());
-                    }
-                });
-            }
+            dispatcher.dispatch(action);
         } catch (Exception e) {
             log.debug("Error processing action: " + action.getActionPlugin(), e);
             msgLog.errorProcessingAction(e.getMessage());
@@ -104,18 +81,8 @@ public class StandaloneActionPluginListener implements ActionListener {
     }
 
     public void close() {
-        if (executorService != null) {
-            executorService.shutdown();
-        }
-    }
-
-    public class StandaloneThreadFactory implements ThreadFactory {
-        private int counter = 0;
-        private static final String PREFIX = "standalone-action-";
-
-        @Override
-        public Thread newThread(Runnable r) {
-            return new Thread(r, PREFIX + counter++);
+        if (dispatcher != null) {
+            dispatcher.close();
         }
     }
 }
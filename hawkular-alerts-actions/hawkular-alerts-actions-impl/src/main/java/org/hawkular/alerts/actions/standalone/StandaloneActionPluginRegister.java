@@ -75,7 +75,8 @@ public class StandaloneActionPluginRegister {
                 } else {
                     definitions.addActionPlugin(actionPlugin, properties);
                 }
-                ActionListener actionListener = new StandaloneActionPluginListener(ActionPlugins.getPlugins());
+                ActionListener actionListener = new StandaloneActionPluginListener(actionPlugin,
+                        actionPluginListener, actions, ActionPlugins.getSenders().containsKey(actionPlugin));
                 actions.addListener(actionListener);
                 actionListeners.add(actionListener);
                 msgLog.infoActionPluginRegistration(actionPlugin);
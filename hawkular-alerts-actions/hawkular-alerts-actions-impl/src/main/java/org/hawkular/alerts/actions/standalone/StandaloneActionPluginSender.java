@@ -57,6 +57,7 @@ public class StandaloneActionPluginSender implements ActionPluginSender {
             String jsonAction = msg.getPayload().get("action");
             Action updatedAction = JsonUtil.fromJson(jsonAction, Action.class);
             actions.updateResult(updatedAction);
+            PluginDispatcher.report(updatedAction);
             if (log.isDebugEnabled()) {
                 log.debug("Operation message received from plugin [" + updatedAction.getActionPlugin() + "] with " +
                     "payload [" + updatedAction.getResult() + "]");
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.actions.standalone;
+
+/**
+ * Token bucket rate limit.
+ *
+ * The bucket holds up to capacity tokens and is refilled at rate tokens per second. A request takes a token or it is
+ * rejected, it never waits.
+ *
+ * @author Lucas Ponce
+ */
+class TokenBucket {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final double rate;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param rate tokens per second
+     * @param capacity max number of tokens, the max burst of requests
+     */
+    TokenBucket(double rate, double capacity) {
+        this.rate = rate;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * @return true if a token was taken, false if the request exceeds the rate
+     */
+    synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * rate / NANOS_PER_SECOND);
+        lastRefill = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.actions.standalone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.hawkular.alerts.actions.standalone.CircuitBreaker.State;
+import org.junit.Test;
+
+/**
+ * @author Lucas Ponce
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void transitionsTest() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(2, 100);
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+
+        // The circuit opens after failureThreshold consecutive failures
+        assertFalse(breaker.onFailure());
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.onFailure());
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        // A single trial is allowed after openTime, its failure opens the circuit again
+        Thread.sleep(150);
+        assertTrue(breaker.allowRequest());
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertTrue(breaker.onFailure());
+        assertEquals(State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        // A successful trial closes the circuit
+        Thread.sleep(150);
+        assertTrue(breaker.allowRequest());
+        assertEquals(State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.onSuccess());
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.onSuccess());
+    }
+
+    @Test
+    public void successResetsFailuresTest() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(2, 100);
+        assertFalse(breaker.onFailure());
+        assertFalse(breaker.onSuccess());
+
+        // Failures must be consecutive
+        assertFalse(breaker.onFailure());
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.onFailure());
+        assertEquals(State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void disabledTest() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(0, 100);
+        for (int i = 0; i < 10; i++) {
+            assertFalse(breaker.onFailure());
+        }
+        assertEquals(State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+}
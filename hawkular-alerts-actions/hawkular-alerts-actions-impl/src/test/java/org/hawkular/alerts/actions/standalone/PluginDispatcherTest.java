@@ -0,0 +1,182 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.actions.standalone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.hawkular.alerts.actions.api.ActionMessage;
+import org.hawkular.alerts.actions.api.ActionPluginListener;
+import org.hawkular.alerts.api.model.action.Action;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.services.ActionsService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Lucas Ponce
+ */
+public class PluginDispatcherTest {
+
+    private static final String PLUGIN = "test-plugin";
+    private static final String NUM_THREADS = "hawkular-alerts.standalone-actions-threads." + PLUGIN;
+    private static final String QUEUE_SIZE = "hawkular-alerts.standalone-actions-queue-size." + PLUGIN;
+    private static final String FAILURES = "hawkular-alerts.standalone-actions-failures." + PLUGIN;
+    private static final String OPEN_TIME = "hawkular-alerts.standalone-actions-open-time." + PLUGIN;
+
+    private List<String> processed;
+    private List<Action> updated;
+    private CountDownLatch release;
+    private AtomicBoolean failing;
+    private PluginDispatcher dispatcher;
+
+    @Before
+    public void before() {
+        System.setProperty(NUM_THREADS, "1");
+        System.setProperty(QUEUE_SIZE, "1");
+        System.setProperty(FAILURES, "2");
+        System.setProperty(OPEN_TIME, "60000");
+        processed = new CopyOnWriteArrayList<>();
+        updated = new CopyOnWriteArrayList<>();
+        release = new CountDownLatch(0);
+        failing = new AtomicBoolean(false);
+    }
+
+    @After
+    public void after() {
+        release.countDown();
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+        System.clearProperty(NUM_THREADS);
+        System.clearProperty(QUEUE_SIZE);
+        System.clearProperty(FAILURES);
+        System.clearProperty(OPEN_TIME);
+    }
+
+    private ActionPluginListener plugin() {
+        return (ActionPluginListener) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{ActionPluginListener.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("process")) {
+                        release.await();
+                        Action action = ((ActionMessage) args[0]).getAction();
+                        processed.add(action.getEventId());
+                        if (failing.get()) {
+                            throw new Exception("Destination not available");
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    private ActionsService actionsService() {
+        return (ActionsService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{ActionsService.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("updateResult")) {
+                        updated.add((Action) args[0]);
+                    }
+                    return null;
+                });
+    }
+
+    private Action newAction(String eventId) {
+        return new Action("tenant", PLUGIN, "action-1", new Event("tenant", eventId, "category", "text"));
+    }
+
+    private void waitFor(int expected) throws Exception {
+        for (int i = 0; i < 100 && processed.size() < expected; i++) {
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void queueFullTest() throws Exception {
+        release = new CountDownLatch(1);
+        dispatcher = new PluginDispatcher(PLUGIN, plugin(), actionsService(), false);
+
+        // The single worker is blocked on the first action, the second one is queued and the third one rejected
+        dispatcher.dispatch(newAction("event-1"));
+        dispatcher.dispatch(newAction("event-2"));
+        Action rejected = newAction("event-3");
+        dispatcher.dispatch(rejected);
+
+        assertEquals(2, dispatcher.getDispatched());
+        assertEquals(1, dispatcher.getRejected());
+        assertEquals(1, updated.size());
+        assertEquals("event-3", updated.get(0).getEventId());
+        assertEquals("FAILED", rejected.getResult());
+
+        release.countDown();
+        waitFor(2);
+        assertEquals(2, processed.size());
+        assertFalse(processed.contains("event-3"));
+    }
+
+    @Test
+    public void circuitOpenTest() throws Exception {
+        failing.set(true);
+        dispatcher = new PluginDispatcher(PLUGIN, plugin(), actionsService(), false);
+
+        // Two consecutive failures open the circuit of the destination
+        dispatcher.dispatch(newAction("event-1"));
+        waitFor(1);
+        dispatcher.dispatch(newAction("event-2"));
+        waitFor(2);
+        for (int i = 0; i < 100 && dispatcher.getOpenCircuits() == 0; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, dispatcher.getOpenCircuits());
+        assertEquals(2, dispatcher.getFailed());
+
+        // Actions of an open circuit are not sent to the plugin
+        Action rejected = newAction("event-3");
+        dispatcher.dispatch(rejected);
+        assertEquals(1, dispatcher.getRejected());
+        assertEquals("FAILED", rejected.getResult());
+        assertEquals(1, updated.size());
+        Thread.sleep(100);
+        assertEquals(2, processed.size());
+    }
+
+    @Test
+    public void reportedFailuresTest() throws Exception {
+        dispatcher = new PluginDispatcher(PLUGIN, plugin(), actionsService(), true);
+
+        // A plugin that reports results is judged by its reported results, not by returning
+        dispatcher.dispatch(newAction("event-1"));
+        waitFor(1);
+        assertEquals(0, dispatcher.getOpenCircuits());
+
+        Action failed = newAction("event-1");
+        failed.setResult("FAILED");
+        PluginDispatcher.report(failed);
+        PluginDispatcher.report(failed);
+        assertEquals(1, dispatcher.getOpenCircuits());
+
+        Action rejected = newAction("event-2");
+        dispatcher.dispatch(rejected);
+        assertEquals(1, dispatcher.getRejected());
+        assertEquals("FAILED", rejected.getResult());
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.actions.standalone;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Lucas Ponce
+ */
+public class TokenBucketTest {
+
+    @Test
+    public void burstTest() throws Exception {
+        TokenBucket bucket = new TokenBucket(1, 3);
+
+        // A full bucket allows a burst of capacity requests, then requests are rejected without waiting
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void refillTest() throws Exception {
+        TokenBucket bucket = new TokenBucket(10, 1);
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        // A token is refilled every 100 ms
+        Thread.sleep(150);
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void refillUpToCapacityTest() throws Exception {
+        TokenBucket bucket = new TokenBucket(100, 2);
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        // An idle bucket does not accumulate more than capacity tokens
+        Thread.sleep(200);
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+}
@@ -86,6 +86,9 @@ public class PluginMessageDescription {
     /** Shortcut for PluginMessage.getAction().alert */
     private Alert alert;
 
+    /** Shortcut for PluginMessage.getAction().events, only present when the action is a digest of several events */
+    private List<Event> events;
+
     /** Shortcut for PluginMessage.getAction().alert.getStatus().name().toLowercase() */
     private String status;
 
@@ -205,6 +208,9 @@ public class PluginMessageDescription {
      *
      * If not Trigger.context properties found, Trigger.name will be used in the email subject description.
      *
+     * A digest of aggregated actions describes its first event, all its events are listed by the templates and
+     * counted in the email subject.
+     *
      * @param pm the PluginMessage
      */
     public PluginMessageDescription(ActionMessage pm) {
@@ -262,6 +268,12 @@ public class PluginMessageDescription {
             }
         }
 
+        if (pm.getAction().getEvents() != null && pm.getAction().getEvents().size() > 1) {
+            events = pm.getAction().getEvents();
+            boolean allAlerts = events.stream().allMatch(e -> e instanceof Alert);
+            emailSubject = "Digest [" + events.size() + (allAlerts ? " alerts" : " events") + "] message";
+        }
+
         baseUrl = props != null ? props.get(EmailPlugin.PROP_TEMPLATE_HAWKULAR_URL) : null;
         baseUrl = baseUrl == null ? System.getenv(EmailPlugin.HAWKULAR_BASE_URL) : baseUrl;
     }
@@ -779,6 +791,14 @@ public class PluginMessageDescription {
         this.alert = alert;
     }
 
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    public void setEvents(List<Event> events) {
+        this.events = events;
+    }
+
     public String getStatus() {
         return status;
     }
@@ -42,6 +42,14 @@ Notes:
 <#if note.text?? && note.user??>${note.text} (${note.user}, ${note.ctime?number_to_datetime})</#if>
 </#list>
 
+</#if>
+<#if events??>
+Digest of ${events?size}:
+
+<#list events as e>
+${e.ctime?number_to_datetime} <#if e.status??>[${e.status?lower_case}] </#if><#if e.trigger??>${e.trigger.name}<#else>${e.id}</#if>
+</#list>
+
 </#if>
 <#if baseUrl??>
 To view metrics of this alert, access your Hawkular account:
@@ -18,8 +18,10 @@ package org.hawkular.alerts.actions.email;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -115,4 +117,24 @@ public class EmailTemplateTest {
         properties.remove("template.locale");
     }
 
+    @Test
+    public void digestTest() throws Exception {
+        Alert openAlert = JvmGarbageCollectionData.getOpenAlert();
+        Alert otherAlert = JvmGarbageCollectionData.getOpenAlert();
+        Alert resolvedAlert = JvmGarbageCollectionData.resolveAlert(JvmGarbageCollectionData.getOpenAlert());
+        Action digest = new Action(openAlert.getTriggerId(), "email", "email-to-test", openAlert);
+        digest.setEvents(Arrays.asList(openAlert, otherAlert, resolvedAlert));
+        digest.setProperties(properties);
+        ActionMessage digestMessage = new TestActionMessage(digest);
+
+        EmailTemplate template = new EmailTemplate();
+        Map<String, String> processed = template.processTemplate(digestMessage);
+
+        assertEquals("Digest [3 alerts] message", processed.get("emailSubject"));
+        String plain = processed.get("emailBodyPlain");
+        assertTrue(plain, plain.contains("Digest of 3:"));
+        assertEquals(3, plain.split("\\[open\\]", -1).length);
+        assertTrue(plain, plain.contains("[resolved]"));
+        assertTrue(processed.get("emailBodyHtml").contains("Digest of 3:"));
+    }
 }
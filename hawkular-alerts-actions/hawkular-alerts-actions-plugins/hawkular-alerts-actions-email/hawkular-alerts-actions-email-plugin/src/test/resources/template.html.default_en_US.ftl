@@ -189,6 +189,22 @@
                                                  </#if>
                                                 </#list>
                                             </#if>
+                                            <#if events??>
+                                                <tr>
+                                                    <td align="center" style="color:#333333; font-family:Open sans,sans-serif; font-size:13px; line-height:21px; padding-top:15px;">
+                                                        Digest of ${events?size}:
+                                                    </td>
+                                                </tr>
+                                                <#list events as e>
+                                                    <tr>
+                                                        <td align="center" style="color:#999999; font-family:Open sans,sans-serif; font-size:13px; line-height:21px;">
+                                                            ${e.ctime?number_to_datetime}
+                                                            <#if e.status??>[${e.status?lower_case}]</#if>
+                                                            <#if e.trigger??>${e.trigger.name}<#else>${e.id}</#if>
+                                                        </td>
+                                                    </tr>
+                                                </#list>
+                                            </#if>
                                         </table>
                                     </td>
                                 </tr>
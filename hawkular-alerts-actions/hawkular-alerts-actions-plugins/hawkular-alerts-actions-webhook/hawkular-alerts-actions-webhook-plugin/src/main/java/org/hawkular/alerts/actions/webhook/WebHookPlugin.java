@@ -16,12 +16,18 @@
  */
 package org.hawkular.alerts.actions.webhook;
 
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hawkular.alerts.actions.api.ActionMessage;
 import org.hawkular.alerts.actions.api.ActionPluginListener;
@@ -32,13 +38,31 @@ import org.hawkular.alerts.actions.api.Plugin;
 import org.hawkular.alerts.actions.api.Sender;
 import org.hawkular.alerts.api.json.JsonUtil;
 import org.hawkular.alerts.api.model.action.Action;
+import org.hawkular.alerts.api.model.event.Event;
 import org.jboss.logging.Logger;
 
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
 /**
  * Action Webhook plugin.
  *
  * An example of listener for basic webhook processing.
  *
+ * Webhooks are invoked asynchronously with a shared HTTP client, which keeps a pool of alive connections per host and
+ * negotiates HTTP/2 with the servers that support it. The result of an action is sent when its requests complete, so
+ * a slow webhook does not hold a plugin thread. Requests in flight are bounded by
+ * hawkular-alerts.webhook-max-requests, further actions wait for a request to complete. The client is released when
+ * the plugin is closed.
+ *
  * @author Jay Shaughnessy
  * @author Lucas Ponce
  */
@@ -48,8 +72,18 @@ public class WebHookPlugin implements ActionPluginListener {
     private static final String DEFAULT_URL = "http://localhost:8080/hawkular/actions/webhook/ping";
     private static final String DEFAULT_METHOD = "POST";
     private static final String DEFAULT_TIMEOUT = "5000";
-    private static final String CONTENT_TYPE = "Content-Type";
-    private static final String APPLICATION_JSON = "application/json";
+    private static final String DEFAULT_BATCH = "false";
+    private static final MediaType APPLICATION_JSON = MediaType.parse("application/json");
+
+    /*
+        Settings of the shared HTTP client, defined as system properties.
+        MAX_REQUESTS bounds the requests in flight, MAX_REQUESTS_PER_HOST the ones to a single host.
+        MAX_IDLE_CONNECTIONS and KEEP_ALIVE (ms) bound the idle connections kept in the pool.
+     */
+    private static final String MAX_REQUESTS = "hawkular-alerts.webhook-max-requests";
+    private static final String MAX_REQUESTS_PER_HOST = "hawkular-alerts.webhook-max-requests-per-host";
+    private static final String MAX_IDLE_CONNECTIONS = "hawkular-alerts.webhook-max-idle-connections";
+    private static final String KEEP_ALIVE = "hawkular-alerts.webhook-keep-alive";
 
     /*
         This is the list of properties supported for the WebHook plugin.
@@ -73,6 +107,13 @@ public class WebHookPlugin implements ActionPluginListener {
      */
     public static final String PROP_TIMEOUT = "timeout";
 
+    /**
+     * "batch" property defines if the events of an action are sent as a JSON array in a single request, for webhooks
+     * that accept it. Otherwise each event is sent in its own request. An action carries several events when actions
+     * are aggregated, i.e. with hawkular-alerts.actions-aggregation-window.webhook.
+     */
+    public static final String PROP_BATCH = "batch";
+
     private final MsgLogger msgLog = MsgLogger.LOGGER;
     private static final Logger log = Logger.getLogger(WebHookPlugin.class);
     Map<String, String> defaultProperties = new HashMap<>();
@@ -83,10 +124,34 @@ public class WebHookPlugin implements ActionPluginListener {
     private static final String MESSAGE_PROCESSED = "PROCESSED";
     private static final String MESSAGE_FAILED = "FAILED";
 
+    private final OkHttpClient client;
+
+    /*
+        Clients per timeout, they share the connection pool and the dispatcher of the client
+     */
+    private final Map<Integer, OkHttpClient> clients = new ConcurrentHashMap<>();
+
+    final Semaphore inFlight;
+
     public WebHookPlugin() {
         defaultProperties.put(PROP_URL, DEFAULT_URL);
         defaultProperties.put(PROP_METHOD, DEFAULT_METHOD);
         defaultProperties.put(PROP_TIMEOUT, DEFAULT_TIMEOUT);
+        defaultProperties.put(PROP_BATCH, DEFAULT_BATCH);
+
+        int maxRequests = Integer.parseInt(System.getProperty(MAX_REQUESTS, "64"));
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(Integer.parseInt(System.getProperty(MAX_REQUESTS_PER_HOST, "16")));
+        ConnectionPool connectionPool = new ConnectionPool(
+                Integer.parseInt(System.getProperty(MAX_IDLE_CONNECTIONS, "16")),
+                Long.parseLong(System.getProperty(KEEP_ALIVE, "300000")), TimeUnit.MILLISECONDS);
+        client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(connectionPool)
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .build();
+        inFlight = new Semaphore(maxRequests);
     }
 
     @Override
@@ -108,10 +173,25 @@ public class WebHookPlugin implements ActionPluginListener {
         } catch (Exception e) {
             msgLog.errorCannotProcessMessage("webhook", e.getMessage());
             receivedAction.setResult(MESSAGE_FAILED);
+            sendResult(receivedAction);
         }
-        sendResult(receivedAction);
     }
 
+    /**
+     * Stop the threads of the shared HTTP client and close its idle connections.
+     */
+    @Override
+    public void close() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    /**
+     * Queue the requests of an action, its result is sent when all of them complete.
+     *
+     * @param action the action to send
+     * @throws Exception if the requests cannot be built, then no request is sent
+     */
     public void invokeWebhook(Action action) throws Exception {
 
         if (action.getProperties() == null) {
@@ -122,31 +202,51 @@ public class WebHookPlugin implements ActionPluginListener {
                 action.getProperties().get(PROP_METHOD);
         int timeout = isEmpty(action.getProperties().get(PROP_TIMEOUT)) ? Integer.parseInt(DEFAULT_TIMEOUT) :
                 Integer.parseInt(action.getProperties().get(PROP_TIMEOUT));
+        boolean batch = Boolean.parseBoolean(isEmpty(action.getProperties().get(PROP_BATCH)) ? DEFAULT_BATCH :
+                action.getProperties().get(PROP_BATCH));
 
-        String jsonEvent = JsonUtil.toJson(action.getEvent());
-        URL webHookUrl = new URL(url);
-        HttpURLConnection conn = (HttpURLConnection)webHookUrl.openConnection();
-        conn.setDoOutput(true);
-        conn.setRequestMethod(method);
-        conn.setRequestProperty(CONTENT_TYPE, APPLICATION_JSON);
-        conn.setConnectTimeout(timeout);
-        conn.setReadTimeout(timeout);
-
-        OutputStream os = conn.getOutputStream();
-        os.write(jsonEvent.getBytes());
-        os.flush();
-        os.close();
-        if (conn.getResponseCode() < 400) {
-            action.setResult(MESSAGE_PROCESSED);
-            if (log.isDebugEnabled()) {
-                log.debug("Webhook for " + url + " . Request code: " + conn.getResponseCode());
-            }
+        List<Event> events = action.getEvents() != null && !action.getEvents().isEmpty() ? action.getEvents() :
+                Collections.singletonList(action.getEvent());
+        List<String> jsonBodies = new ArrayList<>();
+        if (batch) {
+            jsonBodies.add(JsonUtil.toJson(events));
         } else {
-            action.setResult(MESSAGE_FAILED);
-            log.errorf("Webhook for %s. Failed with: [%s]. Response code: %s", url, conn.getResponseCode(),
-                    conn.getResponseMessage());
+            for (Event event : events) {
+                jsonBodies.add(JsonUtil.toJson(event));
+            }
+        }
+
+        OkHttpClient webHookClient = clients.computeIfAbsent(timeout, t -> client.newBuilder()
+                .connectTimeout(t, TimeUnit.MILLISECONDS)
+                .readTimeout(t, TimeUnit.MILLISECONDS)
+                .writeTimeout(t, TimeUnit.MILLISECONDS)
+                .build());
+        List<Request> requests = new ArrayList<>();
+        for (String jsonBody : jsonBodies) {
+            requests.add(new Request.Builder()
+                    .url(url)
+                    .method(method, permitsBody(method) ? RequestBody.create(APPLICATION_JSON, jsonBody) : null)
+                    .build());
+        }
+        WebHookCallback callback = new WebHookCallback(action, url, requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            boolean acquired = false;
+            try {
+                inFlight.acquire();
+                acquired = true;
+                webHookClient.newCall(requests.get(i)).enqueue(callback);
+            } catch (InterruptedException | RuntimeException e) {
+                if (acquired) {
+                    inFlight.release();
+                }
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                // Requests already queued complete the action
+                callback.abort(requests.size() - i, e);
+                return;
+            }
         }
-        conn.disconnect();
     }
 
     private void sendResult(Action action) {
@@ -169,4 +269,67 @@ public class WebHookPlugin implements ActionPluginListener {
         return s == null || s.isEmpty();
     }
 
+    private boolean permitsBody(String method) {
+        return !method.equalsIgnoreCase("GET") && !method.equalsIgnoreCase("HEAD");
+    }
+
+    /*
+        Completion of the requests of an action, the action fails if any of them fails
+     */
+    private class WebHookCallback implements Callback {
+        private final Action action;
+        private final String url;
+        private final AtomicInteger pending;
+        private volatile boolean failed = false;
+
+        WebHookCallback(Action action, String url, int requests) {
+            this.action = action;
+            this.url = url;
+            this.pending = new AtomicInteger(requests);
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            inFlight.release();
+            failed = true;
+            log.errorf("Webhook for %s. Failed with: [%s]", url, e.getMessage());
+            complete();
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) throws IOException {
+            inFlight.release();
+            try {
+                if (response.code() < 400) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Webhook for " + url + " . Request code: " + response.code());
+                    }
+                } else {
+                    failed = true;
+                    log.errorf("Webhook for %s. Failed with: [%s]. Response code: %s", url, response.code(),
+                            response.message());
+                }
+            } finally {
+                response.body().close();
+            }
+            complete();
+        }
+
+        void abort(int requests, Exception e) {
+            failed = true;
+            log.errorf("Webhook for %s. Failed with: [%s]", url, e.getMessage());
+            complete(requests);
+        }
+
+        private void complete() {
+            complete(1);
+        }
+
+        private void complete(int requests) {
+            if (pending.addAndGet(-requests) == 0) {
+                action.setResult(failed ? MESSAGE_FAILED : MESSAGE_PROCESSED);
+                sendResult(action);
+            }
+        }
+    }
 }
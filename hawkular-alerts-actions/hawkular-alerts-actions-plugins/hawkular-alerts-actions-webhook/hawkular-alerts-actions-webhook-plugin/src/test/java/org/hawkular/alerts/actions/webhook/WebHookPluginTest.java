@@ -0,0 +1,208 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.actions.webhook;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.alerts.actions.api.ActionPluginSender;
+import org.hawkular.alerts.actions.api.ActionResponseMessage;
+import org.hawkular.alerts.api.json.JsonUtil;
+import org.hawkular.alerts.api.model.action.Action;
+import org.hawkular.alerts.api.model.event.Event;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * @author Lucas Ponce
+ */
+public class WebHookPluginTest {
+
+    private static final String MAX_REQUESTS = "hawkular-alerts.webhook-max-requests";
+
+    private MockWebServer server;
+    private BlockingQueue<Action> results;
+    private WebHookPlugin plugin;
+
+    @Before
+    public void before() throws Exception {
+        // Fewer permits than requests per action, a permit not released would block the next actions
+        System.setProperty(MAX_REQUESTS, "2");
+        server = new MockWebServer();
+        server.start();
+        results = new LinkedBlockingQueue<>();
+        plugin = new WebHookPlugin();
+        plugin.sender = new TestActionSender();
+    }
+
+    @After
+    public void after() throws Exception {
+        plugin.close();
+        server.shutdown();
+        System.clearProperty(MAX_REQUESTS);
+    }
+
+    private Action newAction(String url, boolean batch) {
+        Event event1 = new Event("tenant", "event-1", "category", "text");
+        Event event2 = new Event("tenant", "event-2", "category", "text");
+        Event event3 = new Event("tenant", "event-3", "category", "text");
+        Action action = new Action("tenant", "webhook", "action-1", event1);
+        action.setEvents(Arrays.asList(event1, event2, event3));
+        action.getProperties().put(WebHookPlugin.PROP_URL, url);
+        action.getProperties().put(WebHookPlugin.PROP_BATCH, String.valueOf(batch));
+        return action;
+    }
+
+    private Action nextResult() throws Exception {
+        Action result = results.poll(5, TimeUnit.SECONDS);
+        assertNotNull(result);
+        // A single result is sent per action
+        assertNull(results.poll(200, TimeUnit.MILLISECONDS));
+        return result;
+    }
+
+    @Test
+    public void perEventTest() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setResponseCode(200));
+        }
+        plugin.invokeWebhook(newAction(server.url("/hook").toString(), false));
+
+        // Each event is sent in its own request
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+            assertNotNull(request);
+            assertEquals("POST", request.getMethod());
+            Map<String, Object> event = JsonUtil.fromJson(request.getBody().readUtf8(), Map.class);
+            ids.add((String) event.get("id"));
+        }
+        assertEquals(new HashSet<>(Arrays.asList("event-1", "event-2", "event-3")), ids);
+
+        assertEquals("PROCESSED", nextResult().getResult());
+        assertEquals(2, plugin.inFlight.availablePermits());
+    }
+
+    @Test
+    public void batchTest() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200));
+        plugin.invokeWebhook(newAction(server.url("/hook").toString(), true));
+
+        // The events are sent as a JSON array in a single request
+        RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+        assertNotNull(request);
+        List<Object> events = JsonUtil.fromJson(request.getBody().readUtf8(), List.class);
+        assertEquals(3, events.size());
+
+        assertEquals("PROCESSED", nextResult().getResult());
+        assertEquals(1, server.getRequestCount());
+        assertEquals(2, plugin.inFlight.availablePermits());
+    }
+
+    @Test
+    public void errorResponseTest() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setResponseCode(200));
+        plugin.invokeWebhook(newAction(server.url("/hook").toString(), false));
+
+        // The action fails if any of its requests fails, once all of them complete
+        assertEquals("FAILED", nextResult().getResult());
+        assertEquals(3, server.getRequestCount());
+        assertEquals(2, plugin.inFlight.availablePermits());
+    }
+
+    @Test(timeout = 30000)
+    public void failuresReleasePermitsTest() throws Exception {
+        MockWebServer down = new MockWebServer();
+        down.start();
+        String downUrl = down.url("/hook").toString();
+        down.shutdown();
+
+        // Requests that cannot connect release their permits
+        plugin.invokeWebhook(newAction(downUrl, false));
+        assertEquals("FAILED", nextResult().getResult());
+        assertEquals(2, plugin.inFlight.availablePermits());
+
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setResponseCode(503));
+        }
+        plugin.invokeWebhook(newAction(server.url("/hook").toString(), false));
+        assertEquals("FAILED", nextResult().getResult());
+        assertEquals(2, plugin.inFlight.availablePermits());
+
+        // Next actions are not blocked by the failed ones
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setResponseCode(200));
+        }
+        plugin.invokeWebhook(newAction(server.url("/hook").toString(), false));
+        assertEquals("PROCESSED", nextResult().getResult());
+        assertEquals(2, plugin.inFlight.availablePermits());
+        assertEquals(6, server.getRequestCount());
+    }
+
+    public class TestActionResponseMessage implements ActionResponseMessage {
+
+        ActionResponseMessage.Operation operation;
+
+        Map<String, String> payload;
+
+        public TestActionResponseMessage(ActionResponseMessage.Operation operation) {
+            this.operation = operation;
+            this.payload = new HashMap<>();
+        }
+
+        @Override
+        public Operation getOperation() {
+            return operation;
+        }
+
+        @Override
+        public Map<String, String> getPayload() {
+            return payload;
+        }
+    }
+
+    public class TestActionSender implements ActionPluginSender {
+
+        @Override
+        public ActionResponseMessage createMessage(ActionResponseMessage.Operation operation) {
+            return new TestActionResponseMessage(operation);
+        }
+
+        @Override
+        public void send(ActionResponseMessage msg) throws Exception {
+            results.add(JsonUtil.fromJson(msg.getPayload().get("action"), Action.class));
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package org.hawkular.alerts.api.model.action;
 
 import java.io.Serializable;
+import java.util.List;
 
 import org.hawkular.alerts.api.model.event.Event;
 import org.hawkular.alerts.api.model.event.Thin;
@@ -34,6 +35,7 @@ import io.swagger.annotations.ApiModelProperty;
  * Action objects are generated by the Alerts engine and processed by plugins.
  * An Action object stores the eventId property and optionally may contain the full Event object.
  * An Action may store the result of the processing by a plugin.
+ * An Action may aggregate several events of the same action definition, then it is a digest of all of them.
  *
  * @author Jay Shaughnessy
  * @author Lucas Ponce
@@ -43,7 +45,9 @@ import io.swagger.annotations.ApiModelProperty;
         "An Action object represents a particular action linked with a specific event. + \n" +
         "Action objects are generated by the Alerting engine and processed by plugins. + \n" +
         "An Action object stores the eventId property and optionally may contain the full Event object. + \n" +
-        "An Action may store the result of the processing by a plugin. + \n")
+        "An Action may store the result of the processing by a plugin. + \n" +
+        "An Action may aggregate several events of the same action definition, then it is a digest of all of " +
+        "them. + \n")
 public class Action extends ActionDefinition implements Serializable {
 
     @ApiModelProperty(value = "Event id from where this action is generated.",
@@ -67,6 +71,19 @@ public class Action extends ActionDefinition implements Serializable {
     @JsonInclude(Include.NON_NULL)
     private String result;
 
+    @ApiModelProperty(value = "Events aggregated into this action by an aggregation window, the first one is the " +
+            "attached Event. Empty if the action was not aggregated.",
+            position = 4)
+    @Thin
+    @JsonInclude(Include.NON_EMPTY)
+    private List<Event> events;
+
+    @ApiModelProperty(value = "Ids of the events aggregated into this action by an aggregation window, the actions " +
+            "history stores them instead of the events. Empty if the action was not aggregated.",
+            position = 5)
+    @JsonInclude(Include.NON_EMPTY)
+    private List<String> eventIds;
+
     public Action() {
     }
 
@@ -111,6 +128,22 @@ public class Action extends ActionDefinition implements Serializable {
         this.result = result;
     }
 
+    public List<Event> getEvents() {
+        return events;
+    }
+
+    public void setEvents(List<Event> events) {
+        this.events = events;
+    }
+
+    public List<String> getEventIds() {
+        return eventIds;
+    }
+
+    public void setEventIds(List<String> eventIds) {
+        this.eventIds = eventIds;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -122,6 +155,8 @@ public class Action extends ActionDefinition implements Serializable {
         if (ctime != action.ctime) return false;
         if (eventId != null ? !eventId.equals(action.eventId) : action.eventId != null) return false;
         if (event != null ? !event.equals(action.event) : action.event != null) return false;
+        if (events != null ? !events.equals(action.events) : action.events != null) return false;
+        if (eventIds != null ? !eventIds.equals(action.eventIds) : action.eventIds != null) return false;
         return result != null ? result.equals(action.result) : action.result == null;
 
     }
@@ -132,6 +167,8 @@ public class Action extends ActionDefinition implements Serializable {
         result1 = 31 * result1 + (eventId != null ? eventId.hashCode() : 0);
         result1 = 31 * result1 + (int) (ctime ^ (ctime >>> 32));
         result1 = 31 * result1 + (event != null ? event.hashCode() : 0);
+        result1 = 31 * result1 + (events != null ? events.hashCode() : 0);
+        result1 = 31 * result1 + (eventIds != null ? eventIds.hashCode() : 0);
         result1 = 31 * result1 + (result != null ? result.hashCode() : 0);
         return result1;
     }
@@ -143,6 +180,7 @@ public class Action extends ActionDefinition implements Serializable {
                 ", ctime=" + ctime +
                 ", event=" + event +
                 ", result='" + result + '\'' +
+                ", events=" + (events != null ? events.size() : 0) +
                 ']';
     }
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.api.model.event;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hawkular.alerts.api.model.Severity;
+import org.hawkular.alerts.api.model.event.Alert.Status;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+/**
+ * Number of unresolved alerts of a tenant by status and severity, and optionally by trigger.
+ *
+ * @author Lucas Ponce
+ */
+@ApiModel(description = "Number of unresolved alerts by status and severity. + \n" +
+        "Resolved alerts are not counted.")
+public class AlertsSummary {
+
+    @ApiModelProperty(value = "Number of unresolved alerts.",
+            position = 0)
+    private long total;
+
+    @ApiModelProperty(value = "Number of unresolved alerts by status.",
+            position = 1)
+    @JsonInclude(Include.NON_EMPTY)
+    private Map<Status, Long> statuses = new HashMap<>();
+
+    @ApiModelProperty(value = "Number of unresolved alerts by severity.",
+            position = 2)
+    @JsonInclude(Include.NON_EMPTY)
+    private Map<Severity, Long> severities = new HashMap<>();
+
+    @ApiModelProperty(value = "Number of unresolved alerts by status and severity.",
+            position = 3)
+    @JsonInclude(Include.NON_EMPTY)
+    private Map<Status, Map<Severity, Long>> counts = new HashMap<>();
+
+    @ApiModelProperty(value = "Summary of the requested triggers, by triggerId.",
+            position = 4)
+    @JsonInclude(Include.NON_EMPTY)
+    private Map<String, AlertsSummary> triggers = new HashMap<>();
+
+    public AlertsSummary() {
+    }
+
+    /**
+     * @param status the status of the alerts
+     * @param severity the severity of the alerts
+     * @param count the number of alerts to add
+     */
+    public void add(Status status, Severity severity, long count) {
+        if (count == 0) {
+            return;
+        }
+        total += count;
+        statuses.merge(status, count, Long::sum);
+        severities.merge(severity, count, Long::sum);
+        counts.computeIfAbsent(status, s -> new HashMap<>()).merge(severity, count, Long::sum);
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public Map<Status, Long> getStatuses() {
+        return statuses;
+    }
+
+    public void setStatuses(Map<Status, Long> statuses) {
+        this.statuses = statuses;
+    }
+
+    public Map<Severity, Long> getSeverities() {
+        return severities;
+    }
+
+    public void setSeverities(Map<Severity, Long> severities) {
+        this.severities = severities;
+    }
+
+    public Map<Status, Map<Severity, Long>> getCounts() {
+        return counts;
+    }
+
+    public void setCounts(Map<Status, Map<Severity, Long>> counts) {
+        this.counts = counts;
+    }
+
+    public Map<String, AlertsSummary> getTriggers() {
+        return triggers;
+    }
+
+    public void setTriggers(Map<String, AlertsSummary> triggers) {
+        this.triggers = triggers;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        AlertsSummary that = (AlertsSummary) o;
+
+        if (total != that.total) return false;
+        if (!counts.equals(that.counts)) return false;
+        return triggers.equals(that.triggers);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (total ^ (total >>> 32));
+        result = 31 * result + counts.hashCode();
+        result = 31 * result + triggers.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "AlertsSummary{" +
+                "total=" + total +
+                ", statuses=" + statuses +
+                ", severities=" + severities +
+                ", triggers=" + triggers +
+                '}';
+    }
+}
@@ -36,14 +36,28 @@ import java.util.stream.Stream;
  * @since 0.0.1
  */
 public final class Page<T> implements List<T> {
+    public static final long UNKNOWN_SIZE = -1;
+
     private final List<T> wrapped;
     private final PageContext pageContext;
     private final long totalSize;
+    private final String nextCursor;
 
     public Page(List<T> wrapped, PageContext pageContext, long totalSize) {
+        this(wrapped, pageContext, totalSize, null);
+    }
+
+    /**
+     * @param wrapped the elements of the page
+     * @param pageContext the position of the page
+     * @param totalSize the total number of results, {@link #UNKNOWN_SIZE} if not counted
+     * @param nextCursor the cursor of the next page, null if this is the last page or not paging by cursor
+     */
+    public Page(List<T> wrapped, PageContext pageContext, long totalSize, String nextCursor) {
         this.wrapped = wrapped;
         this.pageContext = pageContext;
         this.totalSize = totalSize;
+        this.nextCursor = nextCursor;
     }
 
     /**
@@ -54,12 +68,20 @@ public final class Page<T> implements List<T> {
     }
 
     /**
-     * @return the total number of results of which this page is a subset of
+     * @return the total number of results of which this page is a subset of, {@link #UNKNOWN_SIZE} on cursor pages
+     *         as the results are not counted
      */
     public long getTotalSize() {
         return totalSize;
     }
 
+    /**
+     * @return the cursor to fetch the next page, null if there are no more results or not paging by cursor
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
     @Override
     public boolean add(T t) {
         throw new UnsupportedOperationException();
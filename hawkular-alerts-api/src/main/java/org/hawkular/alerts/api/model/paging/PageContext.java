@@ -30,8 +30,20 @@ public class PageContext {
     private final int pageSize;
     private final int pageNumber;
     private final List<Order> order;
+    private final String cursor;
 
     public PageContext(int pageNumber, int pageSize, Order... orders) {
+        this(pageNumber, pageSize, null, orders);
+    }
+
+    /**
+     * @param pageNumber the number of the page, ignored on cursor paging
+     * @param pageSize the number of elements on the page
+     * @param cursor the position after the previous page on cursor paging, empty for the first page, null for
+     *               paging by page number
+     * @param orders the ordering of the results
+     */
+    public PageContext(int pageNumber, int pageSize, String cursor, Order... orders) {
         if (orders.length == 0) {
             throw new IllegalArgumentException("At least one order specification must be supplied.");
         }
@@ -40,9 +52,14 @@ public class PageContext {
         List<Order> tmp = new ArrayList<>();
         Collections.addAll(tmp, orders);
         this.order = Collections.unmodifiableList(tmp);
+        this.cursor = cursor;
     }
 
     public PageContext(int pageNumber, int pageSize, Iterable<Order> orders) {
+        this(pageNumber, pageSize, null, orders);
+    }
+
+    public PageContext(int pageNumber, int pageSize, String cursor, Iterable<Order> orders) {
         this.pageNumber = pageSize >= 0 ? pageNumber : 0;
         this.pageSize = pageSize;
         List<Order> tmp = new ArrayList<>();
@@ -52,6 +69,7 @@ public class PageContext {
         }
 
         this.order = Collections.unmodifiableList(tmp);
+        this.cursor = cursor;
     }
 
     /**
@@ -113,6 +131,23 @@ public class PageContext {
         return order;
     }
 
+    /**
+     * On cursor paging the page starts after the position encoded by the cursor, instead of on a page number.
+     * The cursor of the following page is returned by {@link Page#getNextCursor()}.
+     *
+     * @return the opaque position of the page, empty for the first page, null if not paging by cursor
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * @return true if this context pages by cursor
+     */
+    public boolean isCursor() {
+        return cursor != null;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -120,7 +155,8 @@ public class PageContext {
 
         PageContext that = (PageContext) o;
 
-        return pageSize == that.pageSize && pageNumber == that.pageNumber && this.order.equals(that.order);
+        return pageSize == that.pageSize && pageNumber == that.pageNumber && this.order.equals(that.order)
+                && (cursor == null ? that.cursor == null : cursor.equals(that.cursor));
 
     }
 
@@ -133,7 +169,7 @@ public class PageContext {
 
     @Override public String toString() {
         return "PagingState[" + "order=" + order + ", pageNumber=" + pageNumber + ", pageSize=" +
-                pageSize + ']';
+                pageSize + (cursor == null ? "" : ", cursor=" + cursor) + ']';
     }
 
 }
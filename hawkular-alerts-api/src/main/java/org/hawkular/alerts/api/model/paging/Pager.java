@@ -69,6 +69,24 @@ public final class Pager extends PageContext {
         super(pageNumber, pageSize, orders);
     }
 
+    /**
+     * @param pageSize the number of the elements on the page
+     * @param cursor the cursor returned with the previous page, empty for the first page
+     * @param orders the ordering of the results required
+     * @see PageContext#getCursor()
+     */
+    public Pager(int pageSize, String cursor, Iterable<Order> orders) {
+        super(0, pageSize, cursor, orders);
+    }
+
+    /**
+     * @param nextCursor the cursor returned with the current page
+     * @return a new pager instance for the page after the cursor
+     */
+    public Pager nextPage(String nextCursor) {
+        return new Pager(getPageSize(), nextCursor, getOrder());
+    }
+
     /**
      * If this is a limited pager ({@link #isLimited()}), returns the pager pointing to the next page of the results.
      *
@@ -106,6 +124,7 @@ public final class Pager extends PageContext {
         private int pageNumber;
         private int pageSize;
         private List<Order> order = new ArrayList<>();
+        private String cursor;
 
         private Builder() {
         }
@@ -120,6 +139,11 @@ public final class Pager extends PageContext {
             return this;
         }
 
+        public Builder withCursor(String cursor) {
+            this.cursor = cursor;
+            return this;
+        }
+
         public Builder orderBy(String field, Order.Direction direction) {
             order.add(Order.by(field, direction));
             return this;
@@ -139,7 +163,7 @@ public final class Pager extends PageContext {
         }
 
         public Pager build() {
-            return new Pager(pageNumber, pageSize, order);
+            return cursor == null ? new Pager(pageNumber, pageSize, order) : new Pager(pageSize, cursor, order);
         }
     }
 }
@@ -24,6 +24,7 @@ import java.util.Set;
 import org.hawkular.alerts.api.model.condition.ConditionEval;
 import org.hawkular.alerts.api.model.data.Data;
 import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.AlertsSummary;
 import org.hawkular.alerts.api.model.event.Event;
 import org.hawkular.alerts.api.model.paging.Page;
 import org.hawkular.alerts.api.model.paging.Pager;
@@ -129,7 +130,8 @@ public interface AlertsService {
     /**
      * @param tenantId Tenant where alerts are stored
      * @param criteria If null returns all alerts (not recommended)
-     * @param pager Paging requirement for fetching alerts. Optional. Return all if null.
+     * @param pager Paging requirement for fetching alerts. Optional. Return all if null. A pager with a cursor
+     *              streams the alerts in ctime order, a page at a time, see {@link Pager#getCursor()}.
      * @return NotNull, can be empty.
      * @throws Exception any problem
      */
@@ -138,12 +140,23 @@ public interface AlertsService {
     /**
      * @param tenantIds Collection of tenants where alerts are stored
      * @param criteria If null returns all alerts (not recommended)
-     * @param pager Paging requirement for fetching alerts. Optional. Return all if null.
+     * @param pager Paging requirement for fetching alerts. Optional. Return all if null. A pager with a cursor
+     *              streams the alerts in ctime order, a page at a time, see {@link Pager#getCursor()}.
      * @return NotNull, can be empty.
      * @throws Exception any problem
      */
     Page<Alert> getAlerts(Set<String> tenantIds, AlertsCriteria criteria, Pager pager) throws Exception;
 
+    /**
+     * Number of unresolved alerts by status and severity, read from counters maintained on every alert write
+     * instead of querying the alerts.
+     * @param tenantId Tenant where alerts are stored
+     * @param triggerIds Optional. Triggers to summarize individually, in addition to the whole tenant.
+     * @return NotNull, the summary of the tenant with the summary of the requested triggers.
+     * @throws Exception any problem
+     */
+    AlertsSummary getAlertsSummary(String tenantId, Collection<String> triggerIds) throws Exception;
+
     /**
      * @param tenantId Tenant where events are stored
      * @param eventId the Event to get.
@@ -156,7 +169,8 @@ public interface AlertsService {
     /**
      * @param tenantId Tenant where events are stored
      * @param criteria If null returns all events (not recommended)
-     * @param pager Paging requirement for fetching events. Optional. Return all if null.
+     * @param pager Paging requirement for fetching events. Optional. Return all if null. A pager with a cursor
+     *              streams the events in ctime order, a page at a time, see {@link Pager#getCursor()}.
      * @return NotNull, can be empty.
      * @throws Exception any problem
      */
@@ -165,7 +179,8 @@ public interface AlertsService {
     /**
      * @param tenantIds Collection of tenants where alerts are stored
      * @param criteria If null returns all events (not recommended)
-     * @param pager Paging requirement for fetching events. Optional. Return all if null.
+     * @param pager Paging requirement for fetching events. Optional. Return all if null. A pager with a cursor
+     *              streams the events in ctime order, a page at a time, see {@link Pager#getCursor()}.
      * @return NotNull, can be empty.
      * @throws Exception any problem
      */
@@ -49,4 +49,29 @@ public interface StatusService {
      * @return Map with currentNode and members information for distributed scenarios
      */
     Map<String, String> getDistributedStatus();
+
+    /**
+     * Show information about the engine ingestion on this node.
+     *  - getEngineStatus().get("ingestion-capacity") returns the max number of data and events accepted and not
+     *    yet evaluated, a value &lt;= 0 means unbounded
+     *  - getEngineStatus().get("ingestion-policy") returns the policy applied when capacity is exhausted
+     *  - getEngineStatus().get("ingestion-in-flight") returns the number of data and events accepted and not yet
+     *    evaluated
+     *  - getEngineStatus().get("ingestion-pending") returns the number of data and events waiting for evaluation
+     *  - getEngineStatus().get("ingestion-rejected") returns the number of data and events rejected
+     *  - getEngineStatus().get("ingestion-dropped") returns the number of data dropped
+     * And about the engine firing cycles on this node, since start. Histograms are summarized as
+     * "count=..,mean=..,p50=..,p90=..,p99=..,max=..":
+     *  - getEngineStatus().get("metrics-ingestion-delay") returns the wait (ms) of the oldest data or event per cycle
+     *  - getEngineStatus().get("metrics-firing-time") returns the rules engine firing time (ms) per cycle
+     *  - getEngineStatus().get("metrics-batching-time") returns the data batching time (ms) per session and cycle
+     *  - getEngineStatus().get("metrics-deferred-data") returns the data deferred to the next cycle per session
+     *  - getEngineStatus().get("metrics-alerts") returns the alerts generated per cycle
+     *  - getEngineStatus().get("metrics-events") returns the events generated per cycle
+     *  - getEngineStatus().get("metrics-persistence-time") returns the persistence time (ms) per cycle
+     *  - getEngineStatus().get("metrics-facts") returns the facts in the rules engine after the last cycle
+     *
+     * @return Map with engine ingestion and firing information
+     */
+    Map<String, String> getEngineStatus();
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.benchmarks;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.filter.CacheClient;
+import org.hawkular.alerts.filter.CacheKey;
+import org.infinispan.manager.DefaultCacheManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Front-line processing of incoming Data, as performed by IncomingDataManagerImpl: filtering of raw Data with the
+ * published dataIds {@link CacheClient} and natural ordering of the filtered batch.
+ *
+ * The shared ISPN publish cache is replaced by a local in-memory cache.
+ *
+ * @author Lucas Ponce
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class IncomingDataBenchmark {
+    private static final String TENANT = "tenant";
+
+    @Param({"1000", "10000"})
+    int batchSize;
+
+    @Param({"1000"})
+    int dataIds;
+
+    /*
+        Percentage of dataIds published, i.e. used on conditions
+     */
+    @Param({"10", "100"})
+    int published;
+
+    DefaultCacheManager cacheManager;
+    CacheClient cacheClient;
+    List<Data> rawData;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        cacheManager = new DefaultCacheManager();
+        cacheClient = new CacheClient();
+        Field cache = CacheClient.class.getDeclaredField("cache");
+        cache.setAccessible(true);
+        cache.set(cacheClient, cacheManager.getCache());
+        int numPublished = dataIds * published / 100;
+        for (int i = 0; i < numPublished; i++) {
+            cacheClient.addTestKey(new CacheKey(TENANT, "data-" + i), Collections.singleton("trigger-" + i));
+        }
+
+        // Random dataIds and timestamps
+        Random random = new Random(batchSize);
+        long now = System.currentTimeMillis();
+        rawData = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            rawData.add(Data.forNumeric(TENANT, "data-" + random.nextInt(dataIds),
+                    now + random.nextInt(batchSize) * 100L, random.nextDouble()));
+        }
+    }
+
+    @Benchmark
+    public Collection<Data> filterData() {
+        return cacheClient.filterData(rawData);
+    }
+
+    @Benchmark
+    public TreeSet<Data> filterAndOrderData() {
+        return new TreeSet<>(cacheClient.filterData(rawData));
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        cacheManager.stop();
+    }
+}
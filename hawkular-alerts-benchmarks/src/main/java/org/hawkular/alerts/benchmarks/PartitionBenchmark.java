@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.alerts.engine.impl.PartitionManagerImpl;
+import org.hawkular.alerts.engine.impl.PartitionManagerImpl.PartitionEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Distribution of triggers across nodes by {@link PartitionManagerImpl}, as performed by the coordinator node on
+ * every topology change. No cluster is needed, the nodes table is calculated from a list of fake node codes.
+ *
+ * @author Lucas Ponce
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PartitionBenchmark {
+
+    @Param({"1000", "100000"})
+    int triggers;
+
+    @Param({"10"})
+    int tenants;
+
+    @Param({"2", "10"})
+    int nodes;
+
+    PartitionManagerImpl partitionManager;
+    List<PartitionEntry> entries;
+    Map<Integer, Integer> buckets;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        partitionManager = new PartitionManagerImpl();
+        entries = new ArrayList<>(triggers);
+        for (int i = 0; i < triggers; i++) {
+            entries.add(new PartitionEntry("tenant-" + (i % tenants), "trigger-" + i));
+        }
+        List<Integer> members = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            members.add(("node-" + i).hashCode());
+        }
+        buckets = partitionManager.updateBuckets(null, members);
+    }
+
+    @Benchmark
+    public Map<PartitionEntry, Integer> calculatePartition() {
+        return partitionManager.calculatePartition(entries, buckets);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.alerts.api.json.JsonUtil;
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.ThresholdCondition;
+import org.hawkular.alerts.api.model.condition.ThresholdConditionEval;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.engine.impl.PayloadCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization of the alerts and events payload column, as performed by CassAlertsServiceImpl with
+ * {@link JsonUtil} on writes and on full or thin reads, compared with the binary encoding of {@link PayloadCodec}.
+ *
+ * @author Lucas Ponce
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PayloadJsonBenchmark {
+    private static final String TENANT = "tenant";
+
+    /*
+        Number of ConditionEval sets held by the dampening, i.e. strict dampening of N evaluations
+     */
+    @Param({"1", "10"})
+    int evalSets;
+
+    Alert alert;
+    Event event;
+    String alertJson;
+    String eventJson;
+    PayloadCodec smileCodec;
+    ByteBuffer alertSmile;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Map<String, String> context = new HashMap<>();
+        context.put("resourceType", "App Server");
+        context.put("resourceName", "thevault~Local");
+        Map<String, String> tags = new HashMap<>();
+        tags.put("app", "thevault");
+        tags.put("environment", "production");
+        Trigger trigger = new Trigger(TENANT, "trigger-1", "Heap used over threshold", context, tags);
+        trigger.setDescription("Response time and heap usage of thevault application");
+        trigger.setEnabled(true);
+
+        ThresholdCondition c1 = new ThresholdCondition(TENANT, trigger.getId(), 2, 1, "thevault~heap-used",
+                ThresholdCondition.Operator.GT, 300.0);
+        ThresholdCondition c2 = new ThresholdCondition(TENANT, trigger.getId(), 2, 2, "thevault~response-time",
+                ThresholdCondition.Operator.GT, 1000.0);
+        Dampening dampening = Dampening.forStrict(TENANT, trigger.getId(),
+                org.hawkular.alerts.api.model.trigger.Mode.FIRING, evalSets);
+
+        long now = System.currentTimeMillis();
+        List<Set<ConditionEval>> sets = new ArrayList<>(evalSets);
+        for (int i = 0; i < evalSets; i++) {
+            Set<ConditionEval> evals = new HashSet<>();
+            evals.add(new ThresholdConditionEval(c1, Data.forNumeric(TENANT, c1.getDataId(), now + i, 350.0)));
+            evals.add(new ThresholdConditionEval(c2, Data.forNumeric(TENANT, c2.getDataId(), now + i, 1500.0)));
+            sets.add(evals);
+        }
+
+        alert = new Alert(TENANT, trigger, dampening, sets);
+        event = new Event(TENANT, trigger, dampening, sets);
+        alertJson = JsonUtil.toJson(alert);
+        eventJson = JsonUtil.toJson(event);
+        smileCodec = new PayloadCodec(PayloadCodec.Format.SMILE);
+        alertSmile = (ByteBuffer) smileCodec.encode(alert);
+    }
+
+    @Benchmark
+    public String alertToJson() {
+        return JsonUtil.toJson(alert);
+    }
+
+    @Benchmark
+    public Alert alertFromJson() {
+        return JsonUtil.fromJson(alertJson, Alert.class, false);
+    }
+
+    @Benchmark
+    public Alert alertFromJsonThin() {
+        return JsonUtil.fromJson(alertJson, Alert.class, true);
+    }
+
+    @Benchmark
+    public String eventToJson() {
+        return JsonUtil.toJson(event);
+    }
+
+    @Benchmark
+    public Event eventFromJson() {
+        return JsonUtil.fromJson(eventJson, Event.class, false);
+    }
+
+    @Benchmark
+    public Event eventFromJsonThin() {
+        return JsonUtil.fromJson(eventJson, Event.class, true);
+    }
+
+    @Benchmark
+    public Object alertToSmile() {
+        return smileCodec.encode(alert);
+    }
+
+    @Benchmark
+    public Alert alertFromSmile() {
+        return smileCodec.decode(alertSmile.duplicate(), null, Alert.class, false);
+    }
+
+    @Benchmark
+    public Alert alertFromSmileThin() {
+        return smileCodec.decode(alertSmile.duplicate(), null, Alert.class, true);
+    }
+}
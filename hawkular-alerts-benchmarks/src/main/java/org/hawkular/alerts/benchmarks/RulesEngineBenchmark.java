@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.ThresholdCondition;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.engine.StandaloneAlerts.StandaloneExecutorService;
+import org.hawkular.alerts.engine.impl.DroolsRulesEngineImpl;
+import org.hawkular.alerts.engine.service.RulesEngine;
+import org.jboss.logging.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Firing cycle of {@link DroolsRulesEngineImpl} at varying trigger and data counts.
+ *
+ * Every trigger has a single ThresholdCondition on its own dataId. Each invocation adds dataPerTrigger Data for
+ * every dataId, half of them matching, and fires until all of them are processed.
+ *
+ * @author Lucas Ponce
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RulesEngineBenchmark {
+    private static final Logger log = Logger.getLogger(RulesEngineBenchmark.class);
+    private static final String TENANT = "tenant";
+
+    private static final String RULES_SESSIONS = "hawkular-alerts.rules-sessions";
+    private static final String RULES_FAST_PATH = "hawkular-alerts.rules-fast-path";
+
+    @Param({"100", "1000", "10000"})
+    int triggers;
+
+    @Param({"1", "10"})
+    int dataPerTrigger;
+
+    @Param({"1", "4"})
+    String sessions;
+
+    @Param({"true", "false"})
+    String fastPath;
+
+    RulesEngine rulesEngine;
+    List<Alert> alerts = new ArrayList<>();
+    List<Event> events = new ArrayList<>();
+    Set<Dampening> pendingTimeouts = new HashSet<>();
+    Map<Trigger, List<Set<ConditionEval>>> autoResolvedTriggers = new HashMap<>();
+    Set<Trigger> disabledTriggers = new HashSet<>();
+
+    long timestamp;
+    StandaloneExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void loadTriggers() {
+        System.setProperty(RULES_SESSIONS, sessions);
+        System.setProperty(RULES_FAST_PATH, fastPath);
+        try {
+            rulesEngine = new DroolsRulesEngineImpl();
+            executor = new StandaloneExecutorService(Integer.parseInt(sessions));
+            ((DroolsRulesEngineImpl) rulesEngine).setExecutor(executor);
+        } finally {
+            System.clearProperty(RULES_SESSIONS);
+            System.clearProperty(RULES_FAST_PATH);
+        }
+        rulesEngine.addGlobal("log", log);
+        rulesEngine.addGlobal("alerts", alerts);
+        rulesEngine.addGlobal("events", events);
+        rulesEngine.addGlobal("pendingTimeouts", pendingTimeouts);
+        rulesEngine.addGlobal("autoResolvedTriggers", autoResolvedTriggers);
+        rulesEngine.addGlobal("disabledTriggers", disabledTriggers);
+
+        for (int i = 0; i < triggers; i++) {
+            Trigger t = new Trigger(TENANT, "trigger-" + i, "Threshold-" + i);
+            t.setEnabled(true);
+            rulesEngine.addFact(t);
+            rulesEngine.addFact(new ThresholdCondition(TENANT, t.getId(), "data-" + i,
+                    ThresholdCondition.Operator.GT, 10.0));
+        }
+        timestamp = System.currentTimeMillis();
+    }
+
+    @Setup(Level.Invocation)
+    public void addData() {
+        alerts.clear();
+        events.clear();
+        TreeSet<Data> data = new TreeSet<>();
+        for (int j = 0; j < dataPerTrigger; j++) {
+            // Spaced to not violate the default minReportingInterval
+            timestamp += 1000;
+            double value = (j % 2 == 0) ? 15.0 : 5.0;
+            for (int i = 0; i < triggers; i++) {
+                data.add(Data.forNumeric(TENANT, "data-" + i, timestamp, value));
+            }
+        }
+        rulesEngine.addData(data);
+    }
+
+    @Benchmark
+    public int fire() {
+        rulesEngine.fire();
+        return alerts.size();
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        rulesEngine.reset();
+        executor.shutdown();
+    }
+}
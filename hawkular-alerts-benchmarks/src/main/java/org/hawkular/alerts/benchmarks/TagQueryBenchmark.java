@@ -0,0 +1,171 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.benchmarks;
+
+import static org.hawkular.alerts.engine.tags.ExpressionTagQueryParser.ExpressionTagResolver.EQ;
+import static org.hawkular.alerts.engine.tags.ExpressionTagQueryParser.ExpressionTagResolver.IN;
+import static org.hawkular.alerts.engine.tags.ExpressionTagQueryParser.ExpressionTagResolver.NEQ;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.hawkular.alerts.engine.tags.ExpressionTagQueryParser;
+import org.hawkular.alerts.engine.tags.ExpressionTagQueryParser.ExpressionTagResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resolution of tag query expressions by {@link ExpressionTagQueryParser}.
+ *
+ * The tags tables of Cassandra are replaced by an in-memory resolver, following the token handling of
+ * CassAlertsServiceImpl, so parsing and set operations are measured without database latency.
+ *
+ * @author Lucas Ponce
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TagQueryBenchmark {
+
+    @Param({"1000", "100000"})
+    int ids;
+
+    @Param({
+            "tagA",
+            "tagA = 'value1' and not tagB",
+            "tagA in ['value1', 'value2'] or tagB != 'value3'",
+            "(tagA = 'value.*' and tagB) or (tagC not in ['value1', 'value2'] and not tagD)"
+    })
+    String expression;
+
+    ExpressionTagQueryParser parser;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        parser = new ExpressionTagQueryParser(new InMemoryTagResolver(ids));
+    }
+
+    @Benchmark
+    public Set<String> resolve() throws Exception {
+        return parser.resolve(expression);
+    }
+
+    /*
+        id-i is tagged with TAGS[j] when i is a multiple of j + 2, tag values are value0..value9.
+     */
+    static class InMemoryTagResolver implements ExpressionTagResolver {
+        private static final String[] TAGS = {"tagA", "tagB", "tagC", "tagD"};
+
+        private final Set<String> allIds = new HashSet<>();
+        private final Map<String, Map<String, String>> valuesByTag = new HashMap<>();
+
+        InMemoryTagResolver(int ids) {
+            for (String tag : TAGS) {
+                valuesByTag.put(tag, new HashMap<>());
+            }
+            for (int i = 0; i < ids; i++) {
+                String id = "id-" + i;
+                allIds.add(id);
+                for (int j = 0; j < TAGS.length; j++) {
+                    if (i % (j + 2) == 0) {
+                        valuesByTag.get(TAGS[j]).put(id, "value" + (i % 10));
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Set<String> resolve(List<String> tokens) throws Exception {
+            Set<String> result = new HashSet<>();
+            if (tokens == null) {
+                return result;
+            }
+            if (tokens.size() == 1) {
+                // tag
+                result.addAll(getTagValues(tokens.get(0)).keySet());
+            } else if (tokens.size() == 2) {
+                // not tag
+                result.addAll(allIds);
+                result.removeAll(getTagValues(tokens.get(1)).keySet());
+            } else {
+                String op;
+                String regexp;
+                if (tokens.size() == 3) {
+                    op = tokens.get(1);
+                    regexp = tokens.get(2);
+                } else {
+                    // not in [array]
+                    op = tokens.get(1) + tokens.get(2);
+                    regexp = tokens.get(3);
+                }
+                result = getTagValues(tokens.get(0)).entrySet().stream()
+                        .filter(e -> filterTagValue(op, regexp, e.getValue()))
+                        .map(Map.Entry::getKey)
+                        .collect(Collectors.toSet());
+            }
+            return result;
+        }
+
+        private Map<String, String> getTagValues(String tag) {
+            Map<String, String> values = valuesByTag.get(tag);
+            return values == null ? new HashMap<>() : values;
+        }
+
+        private boolean filterTagValue(String op, String regexps, String value) {
+            if (op.equals(EQ) || op.equals(NEQ)) {
+                boolean matches;
+                if (regexps.equals("'*'")) {
+                    matches = true;
+                } else if (regexps.charAt(0) == '\'') {
+                    matches = value.matches(regexps.substring(1, regexps.length() - 1));
+                } else {
+                    matches = value.equals(regexps);
+                }
+                return op.equals(EQ) ? matches : !matches;
+            }
+            String[] items = regexps.substring(1, regexps.length() - 1).split(",");
+            for (String item : items) {
+                if (item.equals("'*'")) {
+                    return op.equals(IN);
+                }
+                String regexp = item.charAt(0) == '\'' ? item.substring(1, item.length() - 1) : item;
+                if (value.matches(regexp)) {
+                    return op.equals(IN);
+                }
+            }
+            return !op.equals(IN);
+        }
+    }
+}
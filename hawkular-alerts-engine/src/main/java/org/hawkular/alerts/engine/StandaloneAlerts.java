@@ -31,6 +31,8 @@ import javax.enterprise.concurrent.ManagedExecutorService;
 import org.hawkular.alerts.api.services.ActionsService;
 import org.hawkular.alerts.api.services.AlertsService;
 import org.hawkular.alerts.api.services.DefinitionsService;
+import org.hawkular.alerts.engine.impl.ActionsAggregator;
+import org.hawkular.alerts.engine.impl.ActionsHistoryWriter;
 import org.hawkular.alerts.engine.impl.AlertsContext;
 import org.hawkular.alerts.engine.impl.AlertsEngineImpl;
 import org.hawkular.alerts.engine.impl.CassActionsServiceImpl;
@@ -58,6 +60,8 @@ public class StandaloneAlerts {
     private PropertiesServiceImpl propertiesService = null;
     private AlertsContext alertsContext = null;
     private CassActionsServiceImpl actions = null;
+    private ActionsHistoryWriter historyWriter = null;
+    private ActionsAggregator actionsAggregator = null;
     private CassAlertsServiceImpl alerts = null;
     private CassDefinitionsServiceImpl definitions = null;
     private AlertsEngineImpl engine = null;
@@ -67,6 +71,7 @@ public class StandaloneAlerts {
     private StandaloneAlerts(Session session) {
         actions = new CassActionsServiceImpl();
         rules = new DroolsRulesEngineImpl();
+        rules.setExecutor(executor);
         engine = new AlertsEngineImpl();
         definitions = new CassDefinitionsServiceImpl();
         propertiesService = new PropertiesServiceImpl();
@@ -83,10 +88,23 @@ public class StandaloneAlerts {
         definitions.setProperties(propertiesService);
         definitions.init();
 
+        historyWriter = new ActionsHistoryWriter();
+        historyWriter.setSession(session);
+        historyWriter.setExecutor(executor);
+        historyWriter.init();
+
+        actionsAggregator = new ActionsAggregator();
+        actionsAggregator.setAlertsContext(alertsContext);
+        actionsAggregator.setHistoryWriter(historyWriter);
+        actionsAggregator.setExecutor(executor);
+        actionsAggregator.init();
+
         actions.setSession(session);
         actions.setAlertsContext(alertsContext);
         actions.setDefinitions(definitions);
         actions.setExecutor(executor);
+        actions.setHistoryWriter(historyWriter);
+        actions.setActionsAggregator(actionsAggregator);
 
         engine.setDefinitions(definitions);
         engine.setActions(actions);
@@ -132,6 +150,10 @@ public class StandaloneAlerts {
             executor = Executors.newSingleThreadExecutor();
         }
 
+        public StandaloneExecutorService(int nThreads) {
+            executor = Executors.newFixedThreadPool(nThreads);
+        }
+
         @Override
         public void shutdown() {
             executor.shutdown();
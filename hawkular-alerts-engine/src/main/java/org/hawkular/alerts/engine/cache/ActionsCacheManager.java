@@ -19,11 +19,14 @@ package org.hawkular.alerts.engine.cache;
 import static org.hawkular.alerts.api.services.DefinitionsEvent.Type.ACTION_DEFINITION_CREATE;
 import static org.hawkular.alerts.api.services.DefinitionsEvent.Type.ACTION_DEFINITION_REMOVE;
 import static org.hawkular.alerts.api.services.DefinitionsEvent.Type.ACTION_DEFINITION_UPDATE;
+import static org.hawkular.alerts.api.services.DefinitionsEvent.Type.ACTION_PLUGIN_CHANGE;
 
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
@@ -40,7 +43,12 @@ import org.infinispan.Cache;
 import org.jboss.logging.Logger;
 
 /**
- * It manages the cache of global actions.
+ * It manages the cache of action definitions, global actions and default properties of action plugins, so actions
+ * are dispatched without reading the definitions.
+ *
+ * Caches are loaded on startup and kept current from the definitions events of the node performing the change. On a
+ * cluster they are replicated, so the change reaches the rest of the nodes. The startup load does not overwrite the
+ * entries already updated by an event. A definition not found in the cache is read from the backend.
  *
  * @author Jay Shaughnessy
  * @author Lucas Ponce
@@ -58,13 +66,19 @@ public class ActionsCacheManager {
     @Resource(lookup = "java:jboss/infinispan/cache/hawkular-alerts/globalActions")
     private Cache<ActionKey, ActionDefinition> globalActionsCache;
 
+    @Resource(lookup = "java:jboss/infinispan/cache/hawkular-alerts/actions")
+    private Cache<ActionKey, ActionDefinition> actionsCache;
+
+    @Resource(lookup = "java:jboss/infinispan/cache/hawkular-alerts/actionPlugins")
+    private Cache<String, HashMap<String, String>> actionPluginsCache;
+
     @PostConstruct
     public void init() {
         msgLog.infoInitActionsCache();
 
         globalActionsCache.clear();
-
-        initialCacheUpdate();
+        actionsCache.clear();
+        actionPluginsCache.clear();
 
         definitions.registerListener(events -> {
             events.stream().forEach(event -> {
@@ -73,15 +87,24 @@ public class ActionsCacheManager {
                     case ACTION_DEFINITION_CREATE:
                     case ACTION_DEFINITION_UPDATE:
                         ActionDefinition actionDefinition = event.getActionDefinition();
+                        actionsCache.put(key, actionDefinition);
                         if (actionDefinition.isGlobal()) {
                             globalActionsCache.put(key, actionDefinition);
+                        } else {
+                            globalActionsCache.remove(key);
                         }
                         break;
                     case ACTION_DEFINITION_REMOVE:
+                        actionsCache.remove(key);
                         globalActionsCache.remove(key);
+                        break;
+                    case ACTION_PLUGIN_CHANGE:
+                        updateActionPlugin(event.getActionPlugin());
                 }
             });
-        }, ACTION_DEFINITION_CREATE, ACTION_DEFINITION_REMOVE, ACTION_DEFINITION_UPDATE);
+        }, ACTION_DEFINITION_CREATE, ACTION_DEFINITION_REMOVE, ACTION_DEFINITION_UPDATE, ACTION_PLUGIN_CHANGE);
+
+        initialCacheUpdate();
     }
 
     public boolean hasGlobalActions() {
@@ -98,26 +121,84 @@ public class ActionsCacheManager {
         return globalActions;
     }
 
+    /**
+     * @param tenantId the tenant of the action
+     * @param actionPlugin the plugin of the action
+     * @param actionId the action
+     * @return the ActionDefinition, null if it does not exist
+     * @throws Exception on any problem reading a definition not cached
+     */
+    public ActionDefinition getActionDefinition(String tenantId, String actionPlugin, String actionId)
+            throws Exception {
+        ActionKey key = new ActionKey(tenantId, actionPlugin, actionId);
+        ActionDefinition actionDefinition = actionsCache.get(key);
+        if (actionDefinition == null) {
+            actionDefinition = definitions.getActionDefinition(tenantId, actionPlugin, actionId);
+            if (actionDefinition != null) {
+                actionsCache.putForExternalRead(key, actionDefinition);
+            }
+        }
+        return actionDefinition;
+    }
+
+    /**
+     * @param actionPlugin the plugin
+     * @return the default properties of the plugin, null if it does not exist
+     * @throws Exception on any problem reading a plugin not cached
+     */
+    public Map<String, String> getDefaultActionPlugin(String actionPlugin) throws Exception {
+        Map<String, String> defaultProperties = actionPluginsCache.get(actionPlugin);
+        if (defaultProperties == null) {
+            defaultProperties = definitions.getDefaultActionPlugin(actionPlugin);
+            if (defaultProperties != null) {
+                actionPluginsCache.putForExternalRead(actionPlugin, new HashMap<>(defaultProperties));
+            }
+        }
+        return defaultProperties;
+    }
+
+    private void updateActionPlugin(String actionPlugin) {
+        try {
+            Map<String, String> defaultProperties = definitions.getDefaultActionPlugin(actionPlugin);
+            if (defaultProperties == null) {
+                actionPluginsCache.remove(actionPlugin);
+            } else {
+                actionPluginsCache.put(actionPlugin, new HashMap<>(defaultProperties));
+            }
+        } catch (Exception e) {
+            log.error("Failed to load action plugin " + actionPlugin, e);
+            actionPluginsCache.remove(actionPlugin);
+        }
+    }
+
+    /*
+        Events received during the load are already in the caches, the load only adds the missing entries
+     */
     private void initialCacheUpdate() {
         try {
             log.debug("Initial ActionsCacheManager update in progress..");
 
-            globalActionsCache.startBatch();
             Collection<ActionDefinition> actionDefinitions = definitions.getAllActionDefinitions();
             for (ActionDefinition actionDefinition : actionDefinitions) {
+                ActionKey key = new ActionKey(actionDefinition.getTenantId(),
+                        actionDefinition.getActionPlugin(),
+                        actionDefinition.getActionId());
+                actionsCache.putIfAbsent(key, actionDefinition);
                 if (actionDefinition.isGlobal()) {
-                    ActionKey key = new ActionKey(actionDefinition.getTenantId(),
-                            actionDefinition.getActionPlugin(),
-                            actionDefinition.getActionId());
-                    globalActionsCache.put(key, actionDefinition);
+                    globalActionsCache.putIfAbsent(key, actionDefinition);
+                }
+            }
+            for (String actionPlugin : definitions.getActionPlugins()) {
+                Map<String, String> defaultProperties = definitions.getDefaultActionPlugin(actionPlugin);
+                if (defaultProperties != null) {
+                    actionPluginsCache.putIfAbsent(actionPlugin, new HashMap<>(defaultProperties));
                 }
             }
-            globalActionsCache.endBatch(true);
         } catch (Exception e) {
-            log.error("Failed to load global actions", e);
-            globalActionsCache.endBatch(false);
+            log.error("Failed to load actions", e);
             return;
         }
+        log.debug("Initial ActionsCacheManager update finished..");
     }
 
     public static class ActionKey implements Serializable {
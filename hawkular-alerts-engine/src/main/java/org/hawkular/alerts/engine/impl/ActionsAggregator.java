@@ -0,0 +1,263 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.EJB;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
+
+import org.hawkular.alerts.api.model.action.Action;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.services.ActionListener;
+import org.hawkular.alerts.engine.log.MsgLogger;
+import org.jboss.logging.Logger;
+
+/**
+ * Aggregation of the actions sent to the listeners and stored in the history.
+ *
+ * With an aggregation window, the first action of a tenant, plugin and actionId opens a window of AGGREGATION_WINDOW
+ * ms. The actions of the same tenant, plugin and actionId sent during the window are collapsed into the first one,
+ * which is sent at the end of the window as a digest carrying all their events in {@link Action#getEvents()}. Events
+ * already in the digest are discarded, an alert is discarded only if it is already in the digest with the same status
+ * so its lifecycle changes are kept. A digest is sent before its window ends if it reaches AGGREGATION_MAX_EVENTS
+ * events. A window with a single action sends it as is. The history stores the ids of the events of a digest, see
+ * {@link Action#getEventIds()}.
+ *
+ * AGGREGATION_WINDOW can be overridden per plugin with the property suffixed by ".&lt;actionPlugin&gt;", i.e.
+ * hawkular-alerts.actions-aggregation-window.email. Without window, the default, actions are sent immediately.
+ *
+ * A digest is a single call to the listeners and a single row of the history, so a storm of events on many triggers
+ * sharing an action produces a notification per window instead of one per event. Digests are delayed up to the
+ * window, and the ones pending on shutdown are sent before stopping.
+ *
+ * @author Lucas Ponce
+ */
+@Singleton
+@Startup
+@Lock(LockType.READ)
+@TransactionAttribute(value = TransactionAttributeType.NOT_SUPPORTED)
+public class ActionsAggregator {
+    private final MsgLogger msgLog = MsgLogger.LOGGER;
+    private final Logger log = Logger.getLogger(ActionsAggregator.class);
+
+    /*
+        AGGREGATION_WINDOW defines the time in milliseconds the actions of an actionId are aggregated, 0 disables it
+     */
+    private static final String AGGREGATION_WINDOW = "hawkular-alerts.actions-aggregation-window";
+    private static final String AGGREGATION_WINDOW_ENV = "ACTIONS_AGGREGATION_WINDOW";
+    private static final String AGGREGATION_WINDOW_DEFAULT = "0";
+
+    /*
+        AGGREGATION_MAX_EVENTS defines the max number of events of a digest
+     */
+    private static final String AGGREGATION_MAX_EVENTS = "hawkular-alerts.actions-aggregation-max-events";
+    private static final String AGGREGATION_MAX_EVENTS_ENV = "ACTIONS_AGGREGATION_MAX_EVENTS";
+    private static final String AGGREGATION_MAX_EVENTS_DEFAULT = "1000";
+
+    private long window;
+    private int maxEvents;
+    private final Map<String, Long> pluginWindows = new ConcurrentHashMap<>();
+    private final Map<DigestKey, Digest> digests = new ConcurrentHashMap<>();
+    private Timer windowTimer;
+
+    @EJB
+    AlertsContext alertsContext;
+
+    @EJB
+    ActionsHistoryWriter historyWriter;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    public void setAlertsContext(AlertsContext alertsContext) {
+        this.alertsContext = alertsContext;
+    }
+
+    public void setHistoryWriter(ActionsHistoryWriter historyWriter) {
+        this.historyWriter = historyWriter;
+    }
+
+    public void setExecutor(ManagedExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @PostConstruct
+    public void init() {
+        window = Long.parseLong(AlertProperties.getProperty(AGGREGATION_WINDOW, AGGREGATION_WINDOW_ENV,
+                AGGREGATION_WINDOW_DEFAULT));
+        maxEvents = Integer.parseInt(AlertProperties.getProperty(AGGREGATION_MAX_EVENTS, AGGREGATION_MAX_EVENTS_ENV,
+                AGGREGATION_MAX_EVENTS_DEFAULT));
+        windowTimer = new Timer("ActionsAggregator-Timer", true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (windowTimer != null) {
+            windowTimer.cancel();
+        }
+        for (DigestKey key : new ArrayList<>(digests.keySet())) {
+            close(key, digests.get(key));
+        }
+    }
+
+    /**
+     * Send an action to the listeners and the history, or aggregate it if its plugin has an aggregation window.
+     *
+     * @param action the action to send
+     */
+    public void send(Action action) {
+        long pluginWindow = pluginWindows.computeIfAbsent(action.getActionPlugin(),
+                plugin -> Long.parseLong(AlertProperties.getProperty(AGGREGATION_WINDOW + "." + plugin,
+                        String.valueOf(window))));
+        if (pluginWindow <= 0 || windowTimer == null) {
+            process(action);
+            return;
+        }
+        DigestKey key = new DigestKey(action);
+        Digest[] full = new Digest[1];
+        Digest[] opened = new Digest[1];
+        digests.compute(key, (k, digest) -> {
+            if (digest == null) {
+                opened[0] = new Digest(action);
+                return opened[0];
+            }
+            digest.add(action);
+            if (digest.events.size() >= maxEvents) {
+                full[0] = digest;
+                return null;
+            }
+            return digest;
+        });
+        if (opened[0] != null) {
+            Digest digest = opened[0];
+            windowTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    if (executor != null) {
+                        executor.submit(() -> close(key, digest));
+                    } else {
+                        close(key, digest);
+                    }
+                }
+            }, pluginWindow);
+        }
+        if (full[0] != null) {
+            process(full[0].toAction());
+        }
+    }
+
+    /*
+        The digest is sent only if it is still open, a digest sent when full is not sent again at the end of its window
+     */
+    private void close(DigestKey key, Digest digest) {
+        if (digest != null && digests.remove(key, digest)) {
+            process(digest.toAction());
+        }
+    }
+
+    private void process(Action action) {
+        try {
+            for (ActionListener listener : alertsContext.getActionsListeners()) {
+                listener.process(action);
+            }
+            historyWriter.insert(action);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            msgLog.errorCannotUpdateAction(e.getMessage());
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            msgLog.errorCannotUpdateAction(e.getMessage());
+        }
+    }
+
+    private static class Digest {
+        private final Action action;
+        private final Map<String, Event> events = new LinkedHashMap<>();
+
+        Digest(Action action) {
+            this.action = action;
+            add(action);
+        }
+
+        void add(Action aggregated) {
+            events.putIfAbsent(key(aggregated.getEvent()), aggregated.getEvent());
+        }
+
+        Action toAction() {
+            if (events.size() > 1) {
+                action.setEvents(new ArrayList<>(events.values()));
+                action.setEventIds(events.values().stream().map(Event::getId).distinct().collect(Collectors.toList()));
+            }
+            return action;
+        }
+
+        private static String key(Event event) {
+            if (event instanceof Alert) {
+                return event.getId() + ":" + ((Alert) event).getStatus();
+            }
+            return event.getId();
+        }
+    }
+
+    private static class DigestKey {
+        private final String tenantId;
+        private final String actionPlugin;
+        private final String actionId;
+
+        DigestKey(Action action) {
+            this.tenantId = action.getTenantId();
+            this.actionPlugin = action.getActionPlugin();
+            this.actionId = action.getActionId();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            DigestKey that = (DigestKey) o;
+            return tenantId.equals(that.tenantId) && actionPlugin.equals(that.actionPlugin)
+                    && actionId.equals(that.actionId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenantId, actionPlugin, actionId);
+        }
+    }
+}
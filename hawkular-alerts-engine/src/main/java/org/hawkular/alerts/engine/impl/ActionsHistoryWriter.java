@@ -0,0 +1,464 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.inject.Inject;
+
+import org.hawkular.alerts.api.json.JsonUtil;
+import org.hawkular.alerts.api.model.action.Action;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.engine.log.MsgLogger;
+import org.jboss.logging.Logger;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Micro-batched writes of the actions history.
+ *
+ * Inserts of new actions and updates of their results are queued and written every FLUSH_PERIOD ms, or as soon as
+ * BATCH_SIZE actions are pending. A flush groups the statements of all the pending actions by partition with a
+ * {@link PartitionWriter}, so the index rows of a tenant are written as a few unlogged batches instead of four writes
+ * per action, and the time buckets are registered once per flush.
+ *
+ * Updates of an action still pending are merged into it, so an action inserted and updated before the next flush is
+ * written once with its last result. The result last written of the recent actions is kept to update the results
+ * index without reading the history row back.
+ *
+ * At most QUEUE_SIZE actions are pending, further inserts and updates wait for a flush. A failed flush is logged and
+ * its actions are not retried, as the history writes were not retried before.
+ *
+ * Digests of aggregated actions are stored with the ids of their events, not the events, and are indexed under each
+ * of their events, so the history of any alert of a digest finds it.
+ *
+ * @author Lucas Ponce
+ */
+@Singleton
+@Startup
+@Lock(LockType.READ)
+@TransactionAttribute(value = TransactionAttributeType.NOT_SUPPORTED)
+public class ActionsHistoryWriter {
+    private final MsgLogger msgLog = MsgLogger.LOGGER;
+    private final Logger log = Logger.getLogger(ActionsHistoryWriter.class);
+
+    private static final String WAITING_RESULT = "WAITING";
+    private static final String UNKNOWN_RESULT = "UNKNOWN";
+
+    /*
+        FLUSH_PERIOD defines the max time in milliseconds an action is pending before it is written
+     */
+    private static final String FLUSH_PERIOD = "hawkular-alerts.action-history-flush-period";
+    private static final String FLUSH_PERIOD_ENV = "ACTION_HISTORY_FLUSH_PERIOD";
+    private static final String FLUSH_PERIOD_DEFAULT = "100";
+
+    /*
+        BATCH_SIZE defines the number of pending actions that triggers a flush before the FLUSH_PERIOD
+     */
+    private static final String BATCH_SIZE = "hawkular-alerts.action-history-batch-size";
+    private static final String BATCH_SIZE_ENV = "ACTION_HISTORY_BATCH_SIZE";
+    private static final String BATCH_SIZE_DEFAULT = "500";
+
+    /*
+        QUEUE_SIZE defines the max number of pending actions
+     */
+    private static final String QUEUE_SIZE = "hawkular-alerts.action-history-queue-size";
+    private static final String QUEUE_SIZE_ENV = "ACTION_HISTORY_QUEUE_SIZE";
+    private static final String QUEUE_SIZE_DEFAULT = "10000";
+
+    /*
+        Max number of statements of a partition written as a single batch
+     */
+    private static final String PARTITION_BATCH_SIZE = "hawkular-alerts.batch-size";
+    private static final String PARTITION_BATCH_SIZE_ENV = "BATCH_SIZE";
+    private static final String PARTITION_BATCH_SIZE_DEFAULT = "10";
+
+    /*
+        Max number of results last written kept to update the results index
+     */
+    private static final int MAX_RESULTS = 10000;
+
+    private static final ObjectMapper historyMapper = JsonUtil.getMapper().copy()
+            .addMixIn(Action.class, HistoryAction.class);
+
+    private long flushPeriod;
+    private int batchSize;
+    private int partitionBatchSize;
+    private int queueSize;
+    private Semaphore queue;
+    private Timer flushTimer;
+
+    private final Object pendingLock = new Object();
+    private Map<ActionKey, Pending> pending = new LinkedHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    /*
+        Only accessed by the flush in progress
+     */
+    private final Object flushLock = new Object();
+    private final Map<ActionKey, String> results = new LinkedHashMap<ActionKey, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ActionKey, String> eldest) {
+            return size() > MAX_RESULTS;
+        }
+    };
+
+    private final Retention retention = Retention.getInstance();
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    @Inject
+    @CassClusterSession
+    Session session;
+
+    public void setExecutor(ManagedExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public void setSession(Session session) {
+        this.session = session;
+    }
+
+    @PostConstruct
+    public void init() {
+        flushPeriod = Long.parseLong(AlertProperties.getProperty(FLUSH_PERIOD, FLUSH_PERIOD_ENV,
+                FLUSH_PERIOD_DEFAULT));
+        batchSize = Integer.parseInt(AlertProperties.getProperty(BATCH_SIZE, BATCH_SIZE_ENV, BATCH_SIZE_DEFAULT));
+        partitionBatchSize = Integer.parseInt(AlertProperties.getProperty(PARTITION_BATCH_SIZE,
+                PARTITION_BATCH_SIZE_ENV, PARTITION_BATCH_SIZE_DEFAULT));
+        queueSize = Integer.parseInt(AlertProperties.getProperty(QUEUE_SIZE, QUEUE_SIZE_ENV, QUEUE_SIZE_DEFAULT));
+        queue = new Semaphore(queueSize);
+        flushTimer = new Timer("ActionsHistoryWriter-Timer", true);
+        flushTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, flushPeriod, flushPeriod);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (flushTimer != null) {
+            flushTimer.cancel();
+        }
+        flush();
+    }
+
+    /**
+     * Queue the insert of a new action into the history.
+     *
+     * @param action the action sent, without result it is stored as WAITING
+     * @throws InterruptedException if interrupted while the queue is full
+     */
+    public void insert(Action action) throws InterruptedException {
+        if (action.getResult() == null) {
+            action.setResult(WAITING_RESULT);
+        }
+        queue(action, true);
+    }
+
+    /**
+     * Queue the update of the result of an action of the history.
+     *
+     * @param action the action updated, without result it is stored as UNKNOWN
+     * @throws InterruptedException if interrupted while the queue is full
+     */
+    public void update(Action action) throws InterruptedException {
+        if (action.getResult() == null) {
+            action.setResult(UNKNOWN_RESULT);
+        }
+        queue(action, false);
+    }
+
+    /**
+     * Write the pending actions and wait for completion.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Map<ActionKey, Pending> flushed;
+            synchronized (pendingLock) {
+                flushed = pending;
+                pending = new LinkedHashMap<>();
+                flushScheduled.set(false);
+            }
+            if (flushed.isEmpty()) {
+                return;
+            }
+            try {
+                write(flushed);
+            } catch (Exception e) {
+                log.debug(e.getMessage(), e);
+                msgLog.errorDatabaseException(e.getMessage());
+            } finally {
+                queue.release(flushed.size());
+            }
+        }
+    }
+
+    /**
+     * @return number of actions pending of a flush, counted against QUEUE_SIZE
+     */
+    public int getPending() {
+        return queue == null ? 0 : queueSize - queue.availablePermits();
+    }
+
+    private void queue(Action action, boolean insert) throws InterruptedException {
+        ActionKey key = new ActionKey(action);
+        queue.acquire();
+        boolean merged;
+        boolean full;
+        synchronized (pendingLock) {
+            Pending previous = pending.get(key);
+            merged = previous != null;
+            if (merged) {
+                // A result reported before the insert of its action, i.e. by a synchronous plugin, is kept
+                if (insert) {
+                    previous.insert = true;
+                } else {
+                    previous.action = action;
+                }
+            } else {
+                pending.put(key, new Pending(action, insert));
+            }
+            full = pending.size() >= batchSize;
+        }
+        if (merged) {
+            queue.release();
+        }
+        if (full && flushScheduled.compareAndSet(false, true)) {
+            if (executor != null) {
+                executor.submit(this::flush);
+            } else {
+                flush();
+            }
+        }
+    }
+
+    private static String toHistoryJson(Action action) {
+        try {
+            return historyMapper.writeValueAsString(action);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void write(Map<ActionKey, Pending> flushed) throws Exception {
+        readResults(flushed);
+        writeHistory(flushed);
+        flushed.forEach((key, p) -> results.put(key, p.action.getResult()));
+        if (log.isDebugEnabled()) {
+            log.debug("Written " + flushed.size() + " actions of the history");
+        }
+    }
+
+    /*
+        Write the statements of the flushed actions. An update of an action with a known result moves it in the results
+        index, otherwise it is written as an insert.
+     */
+    void writeHistory(Map<ActionKey, Pending> flushed) throws Exception {
+        PreparedStatement insertActionHistory = CassStatement.get(session, CassStatement.INSERT_ACTION_HISTORY);
+        PreparedStatement insertActionHistoryAction = CassStatement.get(session,
+                CassStatement.INSERT_ACTION_HISTORY_ACTION);
+        PreparedStatement insertActionHistoryAlert = CassStatement.get(session,
+                CassStatement.INSERT_ACTION_HISTORY_ALERT);
+        PreparedStatement insertActionHistoryDigestAlert = CassStatement.get(session,
+                CassStatement.INSERT_ACTION_HISTORY_DIGEST_ALERT);
+        PreparedStatement insertActionHistoryCtime = CassStatement.get(session,
+                CassStatement.INSERT_ACTION_HISTORY_CTIME);
+        PreparedStatement insertActionHistoryResult = CassStatement.get(session,
+                CassStatement.INSERT_ACTION_HISTORY_RESULT);
+        PreparedStatement deleteActionHistoryResult = CassStatement.get(session,
+                CassStatement.DELETE_ACTION_HISTORY_RESULT);
+        PreparedStatement updateActionHistory = CassStatement.get(session, CassStatement.UPDATE_ACTION_HISTORY);
+
+        TimeBuckets.Registration buckets = new TimeBuckets.Registration(session);
+        PartitionWriter writer = new PartitionWriter(session, partitionBatchSize);
+        for (Map.Entry<ActionKey, Pending> entry : flushed.entrySet()) {
+            ActionKey key = entry.getKey();
+            Action action = entry.getValue().action;
+            String oldResult = entry.getValue().oldResult;
+            int ttl = retention.getTtl(key.tenantId, Retention.Type.ACTIONS, key.ctime);
+            if (entry.getValue().insert || oldResult == null) {
+                buckets.add(key.tenantId, TimeBuckets.ACTIONS_HISTORY_CTIMES, key.ctime);
+                // Conditional insert, it is sent alone
+                writer.addSingle(insertActionHistory.bind(key.tenantId, key.actionPlugin, key.actionId,
+                        key.alertId, key.ctime, toHistoryJson(action), ttl));
+                writer.add(insertActionHistoryAction.bind(key.tenantId, key.actionId, key.actionPlugin,
+                        key.alertId, key.ctime, ttl));
+                writer.add(insertActionHistoryAlert.bind(key.tenantId, key.alertId, key.actionPlugin,
+                        key.actionId, key.ctime, ttl));
+                for (String eventId : digestEventIds(key.alertId, action)) {
+                    writer.add(insertActionHistoryDigestAlert.bind(key.tenantId, eventId, key.actionPlugin,
+                            key.actionId, key.ctime, key.alertId, ttl));
+                }
+                writer.add(insertActionHistoryCtime.bind(key.tenantId, TimeBuckets.bucket(key.ctime), key.ctime,
+                        key.actionPlugin, key.actionId, key.alertId, ttl));
+            } else {
+                if (!oldResult.equals(action.getResult())) {
+                    writer.add(deleteActionHistoryResult.bind(key.tenantId, oldResult, key.actionPlugin,
+                            key.actionId, key.alertId, key.ctime));
+                }
+                writer.add(updateActionHistory.bind(key.tenantId, key.actionPlugin, key.actionId, key.alertId,
+                        key.ctime, toHistoryJson(action), ttl));
+            }
+            writer.add(insertActionHistoryResult.bind(key.tenantId, action.getResult(), key.actionPlugin,
+                    key.actionId, key.alertId, key.ctime, ttl));
+        }
+        buckets.execute();
+        writer.execute();
+    }
+
+    /*
+        Ids of the events of a digest other than the one of its history row
+     */
+    static List<String> digestEventIds(String alertId, Action action) {
+        List<String> eventIds = new ArrayList<>();
+        if (action.getEventIds() != null) {
+            for (String eventId : action.getEventIds()) {
+                if (!eventId.equals(alertId)) {
+                    eventIds.add(eventId);
+                }
+            }
+        }
+        return eventIds;
+    }
+
+    /*
+        Updates need the result stored to move the action in the results index. Results not written recently are read
+        back in parallel, an update of an action not found is written as an insert.
+     */
+    private void readResults(Map<ActionKey, Pending> flushed) throws Exception {
+        List<ActionKey> unknownKeys = new ArrayList<>();
+        List<Pending> unknown = new ArrayList<>();
+        for (Map.Entry<ActionKey, Pending> entry : flushed.entrySet()) {
+            if (entry.getValue().insert) {
+                continue;
+            }
+            String result = results.get(entry.getKey());
+            if (result != null) {
+                entry.getValue().oldResult = result;
+            } else {
+                unknownKeys.add(entry.getKey());
+                unknown.add(entry.getValue());
+            }
+        }
+        if (unknownKeys.isEmpty()) {
+            return;
+        }
+        List<String> stored = readStoredResults(unknownKeys);
+        for (int i = 0; i < unknown.size(); i++) {
+            unknown.get(i).oldResult = stored.get(i);
+        }
+    }
+
+    /*
+        Results stored of the actions, null for the actions not found
+     */
+    List<String> readStoredResults(List<ActionKey> keys) throws Exception {
+        PreparedStatement selectActionHistory = CassStatement.get(session, CassStatement.SELECT_ACTION_HISTORY);
+        List<ResultSetFuture> futures = new ArrayList<>(keys.size());
+        for (ActionKey key : keys) {
+            futures.add(session.executeAsync(selectActionHistory.bind(key.tenantId, key.actionPlugin,
+                    key.actionId, key.alertId, key.ctime)));
+        }
+        List<String> stored = new ArrayList<>(keys.size());
+        for (ResultSetFuture future : futures) {
+            Row row = future.get().one();
+            stored.add(row != null ? JsonUtil.fromJson(row.getString("payload"), Action.class).getResult() : null);
+        }
+        return stored;
+    }
+
+    static class Pending {
+        Action action;
+        boolean insert;
+        String oldResult;
+
+        Pending(Action action, boolean insert) {
+            this.action = action;
+            this.insert = insert;
+        }
+    }
+
+    static class ActionKey {
+        final String tenantId;
+        final String actionPlugin;
+        final String actionId;
+        final String alertId;
+        final long ctime;
+
+        ActionKey(Action action) {
+            this.tenantId = action.getTenantId();
+            this.actionPlugin = action.getActionPlugin();
+            this.actionId = action.getActionId();
+            this.alertId = action.getEvent().getId();
+            this.ctime = action.getCtime();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ActionKey that = (ActionKey) o;
+            return ctime == that.ctime && tenantId.equals(that.tenantId) && actionPlugin.equals(that.actionPlugin)
+                    && actionId.equals(that.actionId) && alertId.equals(that.alertId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenantId, actionPlugin, actionId, alertId, ctime);
+        }
+    }
+
+    /*
+        Jackson mix-in of the history payload, the events of a digest are stored as eventIds
+     */
+    private abstract static class HistoryAction {
+        @JsonIgnore
+        public abstract List<Event> getEvents();
+    }
+}
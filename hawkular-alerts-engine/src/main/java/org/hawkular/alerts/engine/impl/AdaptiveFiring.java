@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Adaptive firing of the rules engine.
+ *
+ * The periodic firing is kept to process dampening timeouts and missing states, but new data or events schedule an
+ * additional one-shot firing on the same timer, so firings remain serialized. A firing is requested immediately when
+ * the pending size reaches firingSize, otherwise when pending work is firingAge ms old. In both cases firings are
+ * spaced at least firingMinInterval ms to preserve batching.
+ *
+ * At most one one-shot firing is scheduled at a time, a request only schedules a new one if it is due earlier than
+ * the scheduled one, which is cancelled. The scheduled firing is released only by the one-shot task itself, so a
+ * periodic firing running in between does not let requests pile up one-shot firings.
+ *
+ * @author Lucas Ponce
+ */
+public class AdaptiveFiring {
+    private final Logger log = Logger.getLogger(AdaptiveFiring.class);
+
+    private final Timer timer;
+    private final Runnable firing;
+    private final int firingSize;
+    private final int firingAge;
+    private final int firingMinInterval;
+
+    /*
+        Next scheduled one-shot firing, null when none is scheduled
+     */
+    private final AtomicReference<OneShot> nextFiring = new AtomicReference<>();
+    private volatile long lastFiring = 0;
+
+    /**
+     * @param timer the timer of the periodic firing
+     * @param firing the firing run by the one-shot tasks
+     * @param firingSize pending size that requests an immediate firing
+     * @param firingAge max ms pending work waits for a firing, &lt;= 0 disables adaptive firing
+     * @param firingMinInterval min ms between two firings
+     */
+    public AdaptiveFiring(Timer timer, Runnable firing, int firingSize, int firingAge, int firingMinInterval) {
+        this.timer = timer;
+        this.firing = firing;
+        this.firingSize = firingSize;
+        this.firingAge = firingAge;
+        this.firingMinInterval = firingMinInterval;
+    }
+
+    /**
+     * Request a firing for the pending work.
+     *
+     * @param pendingSize size of the pending data or events
+     * @return true if a new one-shot firing was scheduled
+     */
+    public boolean request(int pendingSize) {
+        if (firingAge <= 0 || pendingSize == 0) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        long minWait = Math.max(0, firingMinInterval - (now - lastFiring));
+        long wait = pendingSize >= firingSize ? minWait : Math.max(firingAge, minWait);
+        OneShot oneShot = new OneShot(now + wait);
+        OneShot scheduled = nextFiring.get();
+        while (scheduled == null || oneShot.target < scheduled.target) {
+            if (nextFiring.compareAndSet(scheduled, oneShot)) {
+                if (scheduled != null) {
+                    scheduled.cancel();
+                }
+                try {
+                    timer.schedule(oneShot, wait);
+                    log.tracef("Firing requested in [%s] ms for [%s] pending", wait, pendingSize);
+                    return true;
+                } catch (IllegalStateException e) {
+                    // Timer cancelled on shutdown
+                    nextFiring.compareAndSet(oneShot, null);
+                    log.debugf("Firing cannot be requested: %s", e.getMessage());
+                    return false;
+                }
+            }
+            scheduled = nextFiring.get();
+        }
+        return false;
+    }
+
+    /**
+     * Invoked at the start of every firing, periodic or one-shot, to space the next ones.
+     */
+    public void fired() {
+        lastFiring = System.currentTimeMillis();
+    }
+
+    /**
+     * @return true if a one-shot firing is scheduled
+     */
+    public boolean isScheduled() {
+        return nextFiring.get() != null;
+    }
+
+    private class OneShot extends TimerTask {
+        private final long target;
+
+        OneShot(long target) {
+            this.target = target;
+        }
+
+        @Override
+        public void run() {
+            // New data arriving from now on will request a new firing
+            nextFiring.compareAndSet(this, null);
+            firing.run();
+        }
+    }
+}
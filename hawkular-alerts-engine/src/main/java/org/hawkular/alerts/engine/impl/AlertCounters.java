@@ -0,0 +1,163 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.hawkular.alerts.api.model.Severity;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Alert.Status;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.google.common.util.concurrent.Futures;
+
+/**
+ * Deltas of the counters of unresolved alerts, by tenant and by trigger, for status and severity.
+ *
+ * The deltas of a write are aggregated per counter, so a write of many alerts updates each counter once. Resolved
+ * alerts are not counted: a resolve discounts the alert from its previous status.
+ *
+ * Counters are not idempotent and they are updated after the alerts are written, so they are approximate: a failed
+ * update or concurrent lifecycle updates of the same alert are not reflected. Alerts deleted by the purge are
+ * discounted. Alerts expire by their TTL after the purge had the chance to delete them, only the unresolved alerts
+ * expired while the periodic purge is disabled are not discounted.
+ *
+ * @author Lucas Ponce
+ */
+class AlertCounters {
+
+    private final Map<Counter, Long> deltas = new HashMap<>();
+
+    /**
+     * @param alert a new alert
+     * @return this counters
+     */
+    AlertCounters add(Alert alert) {
+        return add(alert, alert.getStatus(), 1);
+    }
+
+    /**
+     * @param alert an alert after a lifecycle update
+     * @param previous the status of the alert before the update
+     * @return this counters
+     */
+    AlertCounters move(Alert alert, Status previous) {
+        if (previous != alert.getStatus()) {
+            add(alert, previous, -1);
+            add(alert, alert.getStatus(), 1);
+        }
+        return this;
+    }
+
+    /**
+     * @param alert a deleted alert
+     * @return this counters
+     */
+    AlertCounters remove(Alert alert) {
+        return add(alert, alert.getStatus(), -1);
+    }
+
+    /**
+     * @return the deltas of the counters by trigger, deltas of the tenant counters are their sum
+     */
+    Map<Counter, Long> getDeltas() {
+        return deltas;
+    }
+
+    /**
+     * Update the counters and wait for completion.
+     *
+     * @param session the Cassandra session
+     * @throws Exception on any problem
+     */
+    void execute(Session session) throws Exception {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        PreparedStatement updateCounter = CassStatement.get(session, CassStatement.UPDATE_ALERT_COUNTER);
+        PreparedStatement updateTriggerCounter = CassStatement.get(session,
+                CassStatement.UPDATE_ALERT_TRIGGER_COUNTER);
+        Map<Counter, Long> tenantDeltas = new HashMap<>();
+        List<ResultSetFuture> futures = new ArrayList<>();
+        try {
+            deltas.forEach((counter, delta) -> {
+                tenantDeltas.merge(new Counter(counter.tenantId, null, counter.status, counter.severity), delta,
+                        Long::sum);
+                futures.add(session.executeAsync(updateTriggerCounter.bind(delta, counter.tenantId,
+                        counter.triggerId, counter.status.name(), counter.severity.name())));
+            });
+            tenantDeltas.forEach((counter, delta) -> {
+                if (delta != 0) {
+                    futures.add(session.executeAsync(updateCounter.bind(delta, counter.tenantId,
+                            counter.status.name(), counter.severity.name())));
+                }
+            });
+        } finally {
+            deltas.clear();
+        }
+        Futures.allAsList(futures).get();
+    }
+
+    private AlertCounters add(Alert alert, Status status, long delta) {
+        if (status == null || status == Status.RESOLVED || alert.getSeverity() == null) {
+            return this;
+        }
+        Counter counter = new Counter(alert.getTenantId(), alert.getTriggerId(), status, alert.getSeverity());
+        if (deltas.merge(counter, delta, Long::sum) == 0) {
+            deltas.remove(counter);
+        }
+        return this;
+    }
+
+    static class Counter {
+        final String tenantId;
+        final String triggerId;
+        final Status status;
+        final Severity severity;
+
+        Counter(String tenantId, String triggerId, Status status, Severity severity) {
+            this.tenantId = tenantId;
+            this.triggerId = triggerId;
+            this.status = status;
+            this.severity = severity;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Counter counter = (Counter) o;
+            return tenantId.equals(counter.tenantId) && Objects.equals(triggerId, counter.triggerId)
+                    && status == counter.status && severity == counter.severity;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenantId, triggerId, status, severity);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.nio.ByteBuffer;
+
+import org.hawkular.alerts.api.model.event.Alert;
+import org.infinispan.Cache;
+
+/**
+ * Write-through cache of the payloads of the open Alerts, in front of the alerts table.
+ *
+ * Alerts are cached on creation and on every update of their payload, and removed when they are resolved or deleted.
+ * Alerts read from Cassandra are cached only if they are open. Entries hold the encoded payload, so every lookup
+ * decodes a new Alert that the caller can modify.
+ *
+ * Size and age of the entries are bounded by the eviction and expiration of the hawkular-alerts/alerts cache. On a
+ * cluster it is an invalidation cache: a write removes the entry on the rest of the nodes, and a read from Cassandra
+ * only populates the local node.
+ *
+ * Without a cache, i.e. out of the container, every method is a no-op.
+ *
+ * @author Lucas Ponce
+ */
+class AlertsCache {
+
+    private final Cache<String, Object> cache;
+    private final PayloadCodec codec;
+
+    /**
+     * @param cache the hawkular-alerts/alerts cache, null to disable the cache
+     * @param codec the codec of the payloads
+     */
+    AlertsCache(Cache<String, Object> cache, PayloadCodec codec) {
+        this.cache = cache;
+        this.codec = codec;
+    }
+
+    /**
+     * @param tenantId the tenant
+     * @param alertId the alert
+     * @param thin true to skip the evalSets and resolvedEvalSets
+     * @return the cached Alert, null if it is not cached
+     */
+    Alert get(String tenantId, String alertId, boolean thin) {
+        if (cache == null) {
+            return null;
+        }
+        Object value = cache.get(key(tenantId, alertId));
+        if (value == null) {
+            return null;
+        }
+        return value instanceof byte[]
+                ? codec.decode(ByteBuffer.wrap((byte[]) value), null, Alert.class, thin)
+                : codec.decode(null, (String) value, Alert.class, thin);
+    }
+
+    /**
+     * Cache an Alert just written.
+     *
+     * @param alert the Alert written
+     * @param payload the payload written, as returned by {@link PayloadCodec#encode}
+     */
+    void put(Alert alert, Object payload) {
+        if (cache == null) {
+            return;
+        }
+        if (alert.getStatus() == Alert.Status.RESOLVED) {
+            cache.remove(key(alert.getTenantId(), alert.getAlertId()));
+        } else {
+            cache.put(key(alert.getTenantId(), alert.getAlertId()), value(payload));
+        }
+    }
+
+    /**
+     * Cache an Alert just read, only if it is open.
+     *
+     * @param alert the Alert decoded
+     * @param payloadBin the payloadBin column
+     * @param payload the payload column
+     */
+    void putForExternalRead(Alert alert, ByteBuffer payloadBin, String payload) {
+        if (cache == null || alert.getStatus() == Alert.Status.RESOLVED) {
+            return;
+        }
+        Object value = payloadBin == null || !payloadBin.hasRemaining() ? payload : value(payloadBin);
+        if (value != null) {
+            cache.putForExternalRead(key(alert.getTenantId(), alert.getAlertId()), value);
+        }
+    }
+
+    /**
+     * @param tenantId the tenant
+     * @param alertId the alert updated or deleted
+     */
+    void remove(String tenantId, String alertId) {
+        if (cache == null) {
+            return;
+        }
+        cache.remove(key(tenantId, alertId));
+    }
+
+    private static String key(String tenantId, String alertId) {
+        return tenantId + "|" + alertId;
+    }
+
+    /*
+        ByteBuffers are not serializable and can be consumed by the driver, they are cached as a copy of their bytes
+     */
+    private static Object value(Object payload) {
+        if (payload instanceof ByteBuffer) {
+            ByteBuffer source = ((ByteBuffer) payload).duplicate();
+            byte[] bytes = new byte[source.remaining()];
+            source.get(bytes);
+            return bytes;
+        }
+        return payload;
+    }
+}
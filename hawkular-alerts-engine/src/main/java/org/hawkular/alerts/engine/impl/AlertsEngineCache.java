@@ -16,8 +16,11 @@
  */
 package org.hawkular.alerts.engine.impl;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Auxiliary cache for AlertsEngine implementation.
@@ -25,6 +28,11 @@ import java.util.Set;
  * It stores a lightweight cache with active dataIds and pointers to triggerIds and conditionIds for the current node.
  * This cache allows to filter unnecessary data that is processed by the RulesEngine.
  *
+ * The cache is an inverted index from (tenantId, dataId) to the DataEntry (triggerId, conditionId) referencing it,
+ * so checking a dataId and looking up the triggers and conditions referencing it are O(1). The dataIds of every
+ * trigger are kept to release its entries when it is removed. Lookups can be performed concurrently with updates,
+ * updates are serialized.
+ *
  * This scenario works on single or distributed deployments.
  * In distributed deployments this helps to avoid unnecessary processing.
  *
@@ -34,19 +42,20 @@ import java.util.Set;
 public class AlertsEngineCache {
 
     /**
-     * It represents the Triggers -> Conditions relation hold on this node.
+     * It represents the DataId -> (Triggers, Conditions) relation hold on this node.
      * A single dataId can be part of several triggers or even several conditions.
+     * Sets are immutable, replaced on every update.
      */
-    private Set<DataEntry> activeDataEntries;
+    private final Map<DataId, Set<DataEntry>> activeDataEntries;
 
     /**
-     * A cache of the dataIds hold. Used to filter if a data has a dataId on this node or not.
+     * DataIds referenced by a trigger, by tenantId:triggerId.
      */
-    private Set<DataId> activeDataIds;
+    private final Map<String, Set<DataId>> triggerDataIds;
 
     public AlertsEngineCache() {
-        activeDataEntries = new HashSet<>();
-        activeDataIds = new HashSet<>();
+        activeDataEntries = new ConcurrentHashMap<>();
+        triggerDataIds = new ConcurrentHashMap<>();
     }
 
     /**
@@ -58,7 +67,22 @@ public class AlertsEngineCache {
      *         false otherwise
      */
     public boolean isDataIdActive(String tenantId, String dataId) {
-        return tenantId != null && dataId != null && activeDataIds.contains(new DataId(tenantId, dataId));
+        return tenantId != null && dataId != null && activeDataEntries.containsKey(new DataId(tenantId, dataId));
+    }
+
+    /**
+     * Get the DataEntries (triggerId,conditionId) referencing a specific dataId on this node
+     *
+     * @param tenantId of the dataId
+     * @param dataId to look up
+     * @return an unmodifiable set of DataEntry, empty if the dataId is not active
+     */
+    public Set<DataEntry> getDataEntries(String tenantId, String dataId) {
+        if (tenantId == null || dataId == null) {
+            return Collections.emptySet();
+        }
+        Set<DataEntry> dataEntries = activeDataEntries.get(new DataId(tenantId, dataId));
+        return dataEntries == null ? Collections.emptySet() : dataEntries;
     }
 
     /**
@@ -66,12 +90,15 @@ public class AlertsEngineCache {
      *
      * @param dataEntry to register on this node
      */
-    public void add(DataEntry dataEntry) {
-        activeDataEntries.add(dataEntry);
-        DataId newDataId = new DataId(dataEntry.getTenantId(), dataEntry.getDataId());
-        if (!activeDataIds.contains(newDataId)) {
-            activeDataIds.add(newDataId);
-        }
+    public synchronized void add(DataEntry dataEntry) {
+        DataId dataId = new DataId(dataEntry.getTenantId(), dataEntry.getDataId());
+        activeDataEntries.compute(dataId, (k, entries) -> {
+            Set<DataEntry> newEntries = entries == null ? new HashSet<>() : new HashSet<>(entries);
+            newEntries.add(dataEntry);
+            return Collections.unmodifiableSet(newEntries);
+        });
+        triggerDataIds.computeIfAbsent(triggerKey(dataEntry.getTenantId(), dataEntry.getTriggerId()),
+                k -> new HashSet<>()).add(dataId);
     }
 
     /**
@@ -79,47 +106,36 @@ public class AlertsEngineCache {
      *
      * @param triggerId to remove
      */
-    public void remove(String tenantId, String triggerId) {
+    public synchronized void remove(String tenantId, String triggerId) {
         if (tenantId == null) {
             throw new IllegalArgumentException("tenantId must be not null");
         }
         if (triggerId == null) {
             throw new IllegalArgumentException("triggerId must be not null");
         }
-        Set<DataEntry> dataEntriesToRemove = new HashSet<>();
-        activeDataEntries.stream().forEach(e -> {
-            if (e.getTenantId().equals(tenantId) && e.getTriggerId().equals(triggerId)) {
-                dataEntriesToRemove.add(e);
-            }
-        });
-        activeDataEntries.removeAll(dataEntriesToRemove);
-        Set<DataId> dataIdToCheck = new HashSet<>();
-        dataEntriesToRemove.stream().forEach(e -> {
-            dataIdToCheck.add(new DataId(e.getTenantId(), e.getDataId()));
-        });
-        Set<DataId> dataIdToRemove = new HashSet<>();
-        dataIdToCheck.stream().forEach(dataId -> {
-            boolean found = false;
-            for (DataEntry entry : activeDataEntries) {
-                DataId currentDataId = new DataId(entry.getTenantId(), entry.getDataId());
-                if (currentDataId.equals(dataId)) {
-                    found = true;
-                    break;
-                }
-            }
-            if (!found) {
-                dataIdToRemove.add(dataId);
-            }
+        Set<DataId> dataIdsToRemove = triggerDataIds.remove(triggerKey(tenantId, triggerId));
+        if (dataIdsToRemove == null) {
+            return;
+        }
+        dataIdsToRemove.stream().forEach(dataId -> {
+            activeDataEntries.computeIfPresent(dataId, (k, entries) -> {
+                Set<DataEntry> newEntries = new HashSet<>(entries);
+                newEntries.removeIf(e -> e.getTriggerId().equals(triggerId));
+                return newEntries.isEmpty() ? null : Collections.unmodifiableSet(newEntries);
+            });
         });
-        activeDataIds.removeAll(dataIdToRemove);
     }
 
     /**
      * Clear all cache entries.
      */
-    public void clear() {
+    public synchronized void clear() {
         activeDataEntries.clear();
-        activeDataIds.clear();
+        triggerDataIds.clear();
+    }
+
+    private static String triggerKey(String tenantId, String triggerId) {
+        return tenantId + ":" + triggerId;
     }
 
     public static class DataId {
@@ -179,7 +195,13 @@ public class AlertsEngineCache {
         String triggerId;
         String dataId;
 
+        String conditionId;
+
         public DataEntry(String tenantId, String triggerId, String dataId) {
+            this(tenantId, triggerId, null, dataId);
+        }
+
+        public DataEntry(String tenantId, String triggerId, String conditionId, String dataId) {
             if (tenantId == null) {
                 throw new NullPointerException("triggerId must be not null");
             }
@@ -191,6 +213,7 @@ public class AlertsEngineCache {
             }
             this.tenantId = tenantId;
             this.triggerId = triggerId;
+            this.conditionId = conditionId;
             this.dataId = dataId;
         }
 
@@ -210,6 +233,14 @@ public class AlertsEngineCache {
             this.triggerId = triggerId;
         }
 
+        public String getConditionId() {
+            return conditionId;
+        }
+
+        public void setConditionId(String conditionId) {
+            this.conditionId = conditionId;
+        }
+
         public String getDataId() {
             return dataId;
         }
@@ -227,6 +258,9 @@ public class AlertsEngineCache {
 
             if (tenantId != null ? !tenantId.equals(dataEntry.tenantId) : dataEntry.tenantId != null) return false;
             if (triggerId != null ? !triggerId.equals(dataEntry.triggerId) : dataEntry.triggerId != null) return false;
+            if (conditionId != null ? !conditionId.equals(dataEntry.conditionId) : dataEntry.conditionId != null) {
+                return false;
+            }
             return !(dataId != null ? !dataId.equals(dataEntry.dataId) : dataEntry.dataId != null);
 
         }
@@ -235,6 +269,7 @@ public class AlertsEngineCache {
         public int hashCode() {
             int result = tenantId != null ? tenantId.hashCode() : 0;
             result = 31 * result + (triggerId != null ? triggerId.hashCode() : 0);
+            result = 31 * result + (conditionId != null ? conditionId.hashCode() : 0);
             result = 31 * result + (dataId != null ? dataId.hashCode() : 0);
             return result;
         }
@@ -244,6 +279,7 @@ public class AlertsEngineCache {
             return "DataEntry" + '[' +
                     "tenantId='" + tenantId + '\'' +
                     ", triggerId='" + triggerId + '\'' +
+                    ", conditionId='" + conditionId + '\'' +
                     ", dataId='" + dataId + '\'' +
                     ']';
         }
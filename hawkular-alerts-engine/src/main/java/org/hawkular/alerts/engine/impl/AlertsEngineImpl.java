@@ -28,6 +28,9 @@ import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -66,7 +69,9 @@ import org.hawkular.alerts.engine.service.PartitionManager;
 import org.hawkular.alerts.engine.service.PartitionManager.Operation;
 import org.hawkular.alerts.engine.service.PartitionTriggerListener;
 import org.hawkular.alerts.engine.service.RulesEngine;
+import org.hawkular.alerts.engine.util.EngineMetrics;
 import org.hawkular.alerts.engine.util.MissingState;
+import org.hawkular.alerts.engine.util.PendingQueue;
 import org.jboss.logging.Logger;
 
 /**
@@ -98,11 +103,48 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
      */
     private static final String ENGINE_PERIOD = "hawkular-alerts.engine-period";
 
+    /*
+        ENGINE_FIRING_SIZE defines the number of pending data or events that triggers an immediate firing
+     */
+    private static final String ENGINE_FIRING_SIZE = "hawkular-alerts.engine-firing-size";
+    private static final String ENGINE_FIRING_SIZE_ENV = "ENGINE_FIRING_SIZE";
+    private static final String ENGINE_FIRING_SIZE_DEFAULT = "1000";
+
+    /*
+        ENGINE_FIRING_AGE defined in milliseconds, max time pending data or events wait before a firing.
+        A value <= 0 disables adaptive firing and the engine only fires every ENGINE_PERIOD.
+     */
+    private static final String ENGINE_FIRING_AGE = "hawkular-alerts.engine-firing-age";
+    private static final String ENGINE_FIRING_AGE_ENV = "ENGINE_FIRING_AGE";
+    private static final String ENGINE_FIRING_AGE_DEFAULT = "50";
+
+    /*
+        ENGINE_FIRING_MIN_INTERVAL defined in milliseconds, min time between two adaptive firings
+     */
+    private static final String ENGINE_FIRING_MIN_INTERVAL = "hawkular-alerts.engine-firing-min-interval";
+    private static final String ENGINE_FIRING_MIN_INTERVAL_ENV = "ENGINE_FIRING_MIN_INTERVAL";
+    private static final String ENGINE_FIRING_MIN_INTERVAL_DEFAULT = "20";
+
     private int delay;
     private int period;
 
-    private TreeSet<Data> pendingData;
-    private TreeSet<Event> pendingEvents;
+    private int firingSize;
+
+    private final AdaptiveFiring adaptiveFiring;
+
+    /*
+        Pending Data are shed by the rules thread, the only consumer of the pending queues
+     */
+    private final AtomicBoolean shedRequested = new AtomicBoolean(false);
+    private final AtomicLong shedSize = new AtomicLong(0);
+
+    private final PendingQueue<Data> pendingData;
+    private final PendingQueue<Event> pendingEvents;
+
+    /*
+        Callbacks run by the rules thread once the Data and Events sent before them are drained for evaluation
+     */
+    private final ConcurrentLinkedQueue<Runnable> evaluationCallbacks = new ConcurrentLinkedQueue<>();
 
     private final List<Alert> alerts;
     private final List<Event> events;
@@ -115,11 +157,11 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
     private TimerTask rulesTask;
 
     /*
-        All incoming Data and Events go through front-line global filtering (via IncomingDataManager)
-        and therefore, in a non-distributed env the global filtering is equivalent to node-specific
-        filtering. As such we don't need to filter via nodeSpecificDataIdCache.
+        Index of the dataIds referenced by the conditions loaded on this node, maintained on trigger reload/removal.
+        In a distributed env it filters incoming Data and Events before the extensions, as other nodes notify all
+        their data. In a non-distributed env it filters after the extensions, so extensions keep receiving all data.
      */
-    private AlertsEngineCache alertsEngineCache = null;
+    private final AlertsEngineCache alertsEngineCache = new AlertsEngineCache();
     boolean distributed = false;
 
     private static final String ENGINE_EXTENSIONS = "hawkular-alerts.engine-extensions";
@@ -127,6 +169,34 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
     private static final String ENGINE_EXTENSIONS_DEFAULT = "true";
     private boolean engineExtensions;
 
+    /*
+        Max number of firing cycles being persisted asynchronously, a value <= 0 persists on the rules thread
+     */
+    private static final String ENGINE_PERSISTENCE_IN_FLIGHT = "hawkular-alerts.engine-persistence-in-flight";
+    private static final String ENGINE_PERSISTENCE_IN_FLIGHT_ENV = "ENGINE_PERSISTENCE_IN_FLIGHT";
+    private static final String ENGINE_PERSISTENCE_IN_FLIGHT_DEFAULT = "4";
+    private int persistenceInFlight;
+
+    /*
+        Retries of a failed firing cycle persistence, the delay (ms) is doubled on each retry
+     */
+    private static final String ENGINE_PERSISTENCE_RETRIES = "hawkular-alerts.engine-persistence-retries";
+    private static final String ENGINE_PERSISTENCE_RETRIES_ENV = "ENGINE_PERSISTENCE_RETRIES";
+    private static final String ENGINE_PERSISTENCE_RETRIES_DEFAULT = "3";
+    private int persistenceRetries;
+
+    private static final String ENGINE_PERSISTENCE_RETRY_DELAY = "hawkular-alerts.engine-persistence-retry-delay";
+    private static final String ENGINE_PERSISTENCE_RETRY_DELAY_ENV = "ENGINE_PERSISTENCE_RETRY_DELAY";
+    private static final String ENGINE_PERSISTENCE_RETRY_DELAY_DEFAULT = "500";
+    private long persistenceRetryDelay;
+
+    /*
+        Max time (ms) to wait for the persistence of the cycles in flight before resolving alerts or shutting down
+     */
+    private static final long PERSISTENCE_AWAIT = 30 * 1000;
+
+    private PersistenceStage persistenceStage;
+
     @EJB
     RulesEngine rules;
 
@@ -149,8 +219,8 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
     private ManagedExecutorService executor;
 
     public AlertsEngineImpl() {
-        pendingData = new TreeSet<>();
-        pendingEvents = new TreeSet<>();
+        pendingData = new PendingQueue<>();
+        pendingEvents = new PendingQueue<>();
         alerts = new ArrayList<>();
         events = new ArrayList<>();
         pendingTimeouts = new HashSet<>();
@@ -162,8 +232,22 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
 
         delay = new Integer(AlertProperties.getProperty(ENGINE_DELAY, "1000"));
         period = new Integer(AlertProperties.getProperty(ENGINE_PERIOD, "2000"));
+        firingSize = new Integer(AlertProperties.getProperty(ENGINE_FIRING_SIZE, ENGINE_FIRING_SIZE_ENV,
+                ENGINE_FIRING_SIZE_DEFAULT));
+        int firingAge = new Integer(AlertProperties.getProperty(ENGINE_FIRING_AGE, ENGINE_FIRING_AGE_ENV,
+                ENGINE_FIRING_AGE_DEFAULT));
+        int firingMinInterval = new Integer(AlertProperties.getProperty(ENGINE_FIRING_MIN_INTERVAL,
+                ENGINE_FIRING_MIN_INTERVAL_ENV, ENGINE_FIRING_MIN_INTERVAL_DEFAULT));
+        adaptiveFiring = new AdaptiveFiring(wakeUpTimer, () -> new RulesInvoker().run(), firingSize, firingAge,
+                firingMinInterval);
         engineExtensions = Boolean.parseBoolean(AlertProperties.getProperty(ENGINE_EXTENSIONS, ENGINE_EXTENSIONS_ENV,
                 ENGINE_EXTENSIONS_DEFAULT));
+        persistenceInFlight = new Integer(AlertProperties.getProperty(ENGINE_PERSISTENCE_IN_FLIGHT,
+                ENGINE_PERSISTENCE_IN_FLIGHT_ENV, ENGINE_PERSISTENCE_IN_FLIGHT_DEFAULT));
+        persistenceRetries = new Integer(AlertProperties.getProperty(ENGINE_PERSISTENCE_RETRIES,
+                ENGINE_PERSISTENCE_RETRIES_ENV, ENGINE_PERSISTENCE_RETRIES_DEFAULT));
+        persistenceRetryDelay = new Long(AlertProperties.getProperty(ENGINE_PERSISTENCE_RETRY_DELAY,
+                ENGINE_PERSISTENCE_RETRY_DELAY_ENV, ENGINE_PERSISTENCE_RETRY_DELAY_DEFAULT));
     }
 
     public RulesEngine getRules() {
@@ -201,10 +285,12 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
     @PostConstruct
     public void initServices() {
         try {
+            EngineMetrics.getInstance().registerMBean();
+            persistenceStage = new PersistenceStage(alertsService, actions, executor, persistenceInFlight,
+                    persistenceRetries, persistenceRetryDelay);
             distributed = partitionManager.isDistributed();
             if (distributed) {
                 log.debug("Registering PartitionManager listeners...");
-                alertsEngineCache = new AlertsEngineCache();
                 partitionManager.registerDataListener(this);
                 partitionManager.registerTriggerListener(this);
             }
@@ -228,6 +314,10 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
     public void shutdown() {
         rulesTask.cancel();
         wakeUpTimer.cancel();
+        if (persistenceStage != null && !persistenceStage.await(PERSISTENCE_AWAIT)) {
+            log.warnf("Shutdown with [%d] firing cycles not persisted", persistenceStage.getInFlight());
+        }
+        EngineMetrics.getInstance().unregisterMBean();
     }
 
     @Override
@@ -253,9 +343,7 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
     public void reload() {
         log.debug("Start a full reload of the AlertsEngine");
         rules.reset();
-        if (distributed) {
-            alertsEngineCache.clear();
-        }
+        alertsEngineCache.clear();
         if (rulesTask != null) {
             rulesTask.cancel();
         }
@@ -284,7 +372,8 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         }
 
         rules.addGlobal("log", log);
-        rules.addGlobal("actions", actions);
+        // Actions are sent once the alerts and events of the firing are persisted
+        rules.addGlobal("actions", persistenceStage != null ? persistenceStage.getActions() : actions);
         rules.addGlobal("alerts", alerts);
         rules.addGlobal("events", events);
         rules.addGlobal("pendingTimeouts", pendingTimeouts);
@@ -392,14 +481,14 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
                     Cache dataId from conditions, Handle MissingCondition's MissingState
                  */
                 for (Condition c : conditionSet) {
-                    if (distributed) {
-                        DataEntry entry = new DataEntry(c.getTenantId(), c.getTriggerId(), c.getDataId());
-                        alertsEngineCache.add(entry);
-                        if (Condition.Type.COMPARE == c.getType()) {
-                            String data2Id = ((CompareCondition) c).getData2Id();
-                            DataEntry entry2 = new DataEntry(c.getTenantId(), c.getTriggerId(), data2Id);
-                            alertsEngineCache.add(entry2);
-                        }
+                    DataEntry entry = new DataEntry(c.getTenantId(), c.getTriggerId(), c.getConditionId(),
+                            c.getDataId());
+                    alertsEngineCache.add(entry);
+                    if (Condition.Type.COMPARE == c.getType()) {
+                        String data2Id = ((CompareCondition) c).getData2Id();
+                        DataEntry entry2 = new DataEntry(c.getTenantId(), c.getTriggerId(), c.getConditionId(),
+                                data2Id);
+                        alertsEngineCache.add(entry2);
                     }
                     if (c instanceof MissingCondition) {
                         // MissingState keeps a reference to the Trigger fact to check active trigger mode
@@ -488,9 +577,7 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         }
 
         // Remove dataId associated from cache
-        if (distributed) {
-            alertsEngineCache.remove(trigger.getTenantId(), trigger.getId());
-        }
+        alertsEngineCache.remove(trigger.getTenantId(), trigger.getId());
         // Remove any MissingState being managed for the trigger
         synchronized (missingStates) {
             Iterator<MissingState> it = missingStates.iterator();
@@ -504,8 +591,8 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         }
     }
 
-    // We allow concurrent threads to make this call in order to process distributed data in parallel. We
-    // use synchronized blocks to protect pendingData.
+    // We allow concurrent threads to make this call in order to process distributed data in parallel.
+    // pendingData is a lock-free queue, ordering is applied when it is drained.
     @Override
     @Lock(LockType.READ)
     public void sendData(TreeSet<Data> data) {
@@ -532,10 +619,14 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
             data = processDataExtensions(data);
         }
 
-        synchronized (pendingData) {
-            log.debugf("Adding [%s] to pendingData [%s]", data, pendingData);
-            pendingData.addAll(data);
+        if (!distributed) {
+            data = filterIncomingDataForNode(data);
         }
+
+        log.debugf("Adding [%s] to pendingData [%s]", data, pendingData);
+        int pendingSize = pendingData.addAll(data);
+
+        requestFiring(pendingSize);
     }
 
     private TreeSet<Data> filterIncomingDataForNode(TreeSet<Data> data) {
@@ -559,8 +650,8 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         return data;
     }
 
-    // We allow concurrent threads to make this call in order to process distributed data in parallel. We
-    // use synchronized blocks to protect pendingEvents.
+    // We allow concurrent threads to make this call in order to process distributed data in parallel.
+    // pendingEvents is a lock-free queue, ordering is applied when it is drained.
     @Override
     @Lock(LockType.READ)
     public void sendEvents(TreeSet<Event> events) {
@@ -587,10 +678,21 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
             events = processEventsExtensions(events);
         }
 
-        synchronized (pendingEvents) {
-            log.debugf("Adding [%s] to pendingEvents [%s]", events, pendingEvents);
-            pendingEvents.addAll(events);
+        if (!distributed) {
+            events = filterIncomingEventsForNode(events);
         }
+
+        log.debugf("Adding [%s] to pendingEvents [%s]", events, pendingEvents);
+        int pendingSize = pendingEvents.addAll(events);
+
+        requestFiring(pendingSize);
+    }
+
+    /*
+        Adaptive firing, the periodic RulesInvoker is complemented with one-shot firings on the same timer
+     */
+    private void requestFiring(int pendingSize) {
+        adaptiveFiring.request(pendingSize);
     }
 
     private TreeSet<Event> filterIncomingEventsForNode(TreeSet<Event> events) {
@@ -614,32 +716,102 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         return events;
     }
 
-    private TreeSet<Data> getAndClearPendingData() {
-        TreeSet<Data> result;
-        synchronized (pendingData) {
-            result = pendingData;
-            pendingData = new TreeSet<>();
+    @Override
+    @Lock(LockType.READ)
+    public int getPendingSize() {
+        return pendingData.size() + pendingEvents.size();
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public void requestShed() {
+        if (shedRequested.compareAndSet(false, true)) {
+            requestFiring(firingSize);
         }
-        return result;
     }
 
-    private TreeSet<Event> getAndClearPendingEvents() {
-        TreeSet<Event> result;
-        synchronized (pendingEvents) {
-            result = pendingEvents;
-            pendingEvents = new TreeSet<>();
+    @Override
+    @Lock(LockType.READ)
+    public long getShedSize() {
+        return shedSize.get();
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public void afterEvaluation(Runnable callback) {
+        evaluationCallbacks.add(callback);
+        // A batch filtered out entirely does not request a firing, callbacks should not wait for the periodic one
+        requestFiring(1);
+    }
+
+    /*
+        Invoked only from the rules thread before the pending queues are drained.
+        Only Data are shed, Events are discrete occurrences and a newer Event does not supersede an older one.
+     */
+    private void shedPending() {
+        if (!shedRequested.compareAndSet(true, false)) {
+            return;
+        }
+        int shed = pendingData.shed((d1, d2) -> d1.same(d2));
+        if (shed > 0) {
+            shedSize.addAndGet(shed);
+            log.debugf("Shed [%d] pending Data", shed);
+        }
+    }
+
+    /*
+        Invoked only from the rules thread before the pending queues are drained, the Data and Events sent before
+        the callbacks are part of the drain
+     */
+    private List<Runnable> pollEvaluationCallbacks() {
+        List<Runnable> callbacks = new ArrayList<>();
+        Runnable callback;
+        while ((callback = evaluationCallbacks.poll()) != null) {
+            callbacks.add(callback);
+        }
+        return callbacks;
+    }
+
+    private void runEvaluationCallbacks(List<Runnable> callbacks) {
+        for (Runnable callback : callbacks) {
+            try {
+                callback.run();
+            } catch (Exception e) {
+                log.debugf("Error on evaluation callback: %s", e.getMessage());
+            }
         }
-        return result;
+    }
+
+    private TreeSet<Data> getAndClearPendingData() {
+        return pendingData.drain();
+    }
+
+    private TreeSet<Event> getAndClearPendingEvents() {
+        return pendingEvents.drain();
     }
 
     private class RulesInvoker extends TimerTask {
         @Override
         public void run() {
+            adaptiveFiring.fired();
+            List<Runnable> callbacks = pollEvaluationCallbacks();
+            try {
+                evaluate();
+            } finally {
+                runEvaluationCallbacks(callbacks);
+            }
+        }
+
+        private void evaluate() {
             int numTimeouts = checkPendingTimeouts();
 
             int numMissingEvals = checkMissingStates();
 
+            shedPending();
+
             if (!pendingData.isEmpty() || !pendingEvents.isEmpty() || numTimeouts > 0 || numMissingEvals > 0) {
+                EngineMetrics metrics = EngineMetrics.getInstance();
+                recordIngestionDelay(metrics);
                 TreeSet<Data> newData = getAndClearPendingData();
                 TreeSet<Event> newEvents = getAndClearPendingEvents();
 
@@ -665,9 +837,11 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
                         rules.fire();
                     }
 
-                    alertsService.addAlerts(alerts);
+                    metrics.recordAlerts(alerts.size());
+                    metrics.recordEvents(events.size());
+
+                    persistenceStage.submit(alerts, events);
                     alerts.clear();
-                    alertsService.persistEvents(events);
                     if (distributed && !events.isEmpty()) {
                         /*
                             Generated events on a node should be notified to other nodes for chained triggers
@@ -676,6 +850,11 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
                     }
                     events.clear();
                     handleDisabledTriggers();
+                    if (!autoResolvedTriggers.isEmpty() && !persistenceStage.await(PERSISTENCE_AWAIT)) {
+                        // Alerts of the previous cycles are still pending, they will not be resolved
+                        log.warnf("Resolving alerts with [%d] firing cycles not persisted",
+                                persistenceStage.getInFlight());
+                    }
                     handleAutoResolvedTriggers();
 
                 } catch (Exception e) {
@@ -691,6 +870,19 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
             }
         }
 
+        /*
+            Delay of the oldest pending Data or Event, taken before they are drained for evaluation
+         */
+        private void recordIngestionDelay(EngineMetrics metrics) {
+            long oldestData = pendingData.getOldestAddTime();
+            long oldestEvent = pendingEvents.getOldestAddTime();
+            long oldest = oldestData == 0 ? oldestEvent
+                    : (oldestEvent == 0 ? oldestData : Math.min(oldestData, oldestEvent));
+            if (oldest > 0) {
+                metrics.recordIngestionDelay(System.currentTimeMillis() - oldest);
+            }
+        }
+
         private int checkPendingTimeouts() {
             if (pendingTimeouts.isEmpty()) {
                 return 0;
@@ -806,8 +998,7 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         Data incoming from a different node.  This has already been globally filtered but not locally filtered.
         It does not need to be re-propagated.
 
-        We allow concurrent threads to make this call in order to process distributed data in parallel. We
-        use synchronized blocks to protect pendingData.
+        We allow concurrent threads to make this call in order to process distributed data in parallel.
      */
     @Override
     @Lock(LockType.READ)
@@ -819,8 +1010,7 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
         Events incoming from a different node.  This has already been globally filtered but not locally filtered.
         It does not need to be re-propagated.
 
-        We allow concurrent threads to make this call in order to process distributed data in parallel. We
-        use synchronized blocks to protect pendingEvents.
+        We allow concurrent threads to make this call in order to process distributed data in parallel.
      */
     @Override
     @Lock(LockType.READ)
@@ -872,8 +1062,8 @@ public class AlertsEngineImpl implements AlertsEngine, PartitionTriggerListener,
             if (!pendingData.isEmpty()) {
                 log.warn("Pending Data onPartitionChange: " + pendingData);
             }
-            if (!!pendingEvents.isEmpty()) {
-                log.warn("Pending Events onPartitionChange: " + pendingData);
+            if (!pendingEvents.isEmpty()) {
+                log.warn("Pending Events onPartitionChange: " + pendingEvents);
             }
         }
 
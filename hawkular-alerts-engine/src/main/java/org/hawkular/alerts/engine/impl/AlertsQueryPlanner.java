@@ -0,0 +1,402 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.hawkular.alerts.engine.tags.ExpressionTagQueryParser.ExpressionTagResolver.EQ;
+import static org.hawkular.alerts.engine.tags.ExpressionTagQueryParser.ExpressionTagResolver.IN;
+import static org.hawkular.alerts.engine.tags.ExpressionTagQueryParser.ExpressionTagResolver.NEQ;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Alert.Status;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.services.AlertsCriteria;
+import org.hawkular.alerts.api.services.EventsCriteria;
+import org.hawkular.alerts.engine.tags.ExpressionTagQueryParser;
+
+/**
+ * Planning of the AlertsCriteria queries.
+ *
+ * Every indexed criterion can produce the candidate alertIds from its index table, but only one of them is needed:
+ * the plan drives the query from the most selective index and checks the rest of the criteria on the fetched Alerts,
+ * as all the indexed fields are part of the Alert payload. So the cost of a query follows the size of the smallest
+ * candidate set instead of the size of every index involved.
+ *
+ * The selectivity of an index is estimated by the caller probing the first page of its query, see
+ * {@link #chooseDriver(Map)}.
+ *
+ * @author Lucas Ponce
+ */
+class AlertsQueryPlanner {
+
+    /**
+     * Indexed criteria, in order of preference when estimations are equal.
+     */
+    enum Index {
+        ALERT_IDS,      // explicit list, no query involved
+        TRIGGERS,       // alerts_triggers
+        STATUS_TIME,    // alerts_stimes
+        RESOLVED_TIME,  // alerts_lifecycle
+        ACK_TIME,       // alerts_lifecycle
+        CTIME,          // alerts_ctimes
+        TAGS            // tags, several queries per expression, cost not estimated
+    }
+
+    /**
+     * Estimation for indexes whose size is not known
+     */
+    static final long UNKNOWN = Long.MAX_VALUE;
+
+    private static final int MAX_PATTERNS = 1000;
+    private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
+
+    /**
+     * The driver index of a query with the alertIds it produced.
+     */
+    static class Plan {
+        final Index driver;
+        final Collection<String> alertIds;
+
+        Plan(Index driver, Collection<String> alertIds) {
+            this.driver = driver;
+            this.alertIds = alertIds;
+        }
+    }
+
+    interface TagValueFilter {
+        boolean test(String op, String regexps, String value);
+    }
+
+    private AlertsQueryPlanner() {
+    }
+
+    /**
+     * @param criteria the query criteria
+     * @return the indexed criteria present in the query
+     */
+    static List<Index> getIndexes(AlertsCriteria criteria) {
+        List<Index> indexes = new ArrayList<>();
+        if (criteria.hasAlertIdCriteria()) {
+            indexes.add(Index.ALERT_IDS);
+        }
+        if (criteria.hasTriggerIdCriteria()) {
+            indexes.add(Index.TRIGGERS);
+        }
+        if (criteria.hasStatusTimeCriteria()) {
+            indexes.add(Index.STATUS_TIME);
+        }
+        if (criteria.hasResolvedTimeCriteria()) {
+            indexes.add(Index.RESOLVED_TIME);
+        }
+        if (criteria.hasAckTimeCriteria()) {
+            indexes.add(Index.ACK_TIME);
+        }
+        if (criteria.hasCTimeCriteria()) {
+            indexes.add(Index.CTIME);
+        }
+        if (criteria.hasTagQueryCriteria()) {
+            indexes.add(Index.TAGS);
+        }
+        return indexes;
+    }
+
+    /**
+     * @param estimations estimated number of alertIds per index
+     * @return the index with the lowest estimation, on equal estimations the first in {@link Index} order
+     */
+    static Index chooseDriver(Map<Index, Long> estimations) {
+        Index driver = null;
+        long min = UNKNOWN;
+        for (Index index : Index.values()) {
+            Long estimation = estimations.get(index);
+            if (estimation == null) {
+                continue;
+            }
+            if (driver == null || estimation < min) {
+                driver = index;
+                min = estimation;
+            }
+        }
+        return driver;
+    }
+
+    /**
+     * Check the indexed criteria not used to drive the query, tags excluded, see
+     * {@link #filterByTagQuery(Collection, String, TagValueFilter)}.
+     *
+     * @param alert a fetched Alert
+     * @param criteria the query criteria
+     * @param driver the index that produced the alertIds
+     * @return true if the Alert matches the rest of the indexed criteria
+     */
+    static boolean matches(Alert alert, AlertsCriteria criteria, Index driver) {
+        if (driver != Index.ALERT_IDS && criteria.hasAlertIdCriteria()) {
+            Collection<String> alertIds = isEmpty(criteria.getAlertIds())
+                    ? Collections.singleton(criteria.getAlertId()) : criteria.getAlertIds();
+            if (!alertIds.contains(alert.getAlertId())) {
+                return false;
+            }
+        }
+        if (driver != Index.TRIGGERS && criteria.hasTriggerIdCriteria()) {
+            Collection<String> triggerIds = isEmpty(criteria.getTriggerIds())
+                    ? Collections.singleton(criteria.getTriggerId()) : criteria.getTriggerIds();
+            if (alert.getTrigger() == null || !triggerIds.contains(alert.getTriggerId())) {
+                return false;
+            }
+        }
+        if (driver != Index.CTIME && criteria.hasCTimeCriteria()
+                && !inRange(alert.getCtime(), criteria.getStartTime(), criteria.getEndTime())) {
+            return false;
+        }
+        if (driver != Index.STATUS_TIME && criteria.hasStatusTimeCriteria()
+                && !hasLifecycle(alert, null, criteria.getStartStatusTime(), criteria.getEndStatusTime())) {
+            return false;
+        }
+        if (driver != Index.RESOLVED_TIME && criteria.hasResolvedTimeCriteria()
+                && !hasLifecycle(alert, Status.RESOLVED, criteria.getStartResolvedTime(),
+                        criteria.getEndResolvedTime())) {
+            return false;
+        }
+        if (driver != Index.ACK_TIME && criteria.hasAckTimeCriteria()
+                && !hasLifecycle(alert, Status.ACKNOWLEDGED, criteria.getStartAckTime(), criteria.getEndAckTime())) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Check the indexed criteria of an events query on a fetched Event, tags excluded. Used on cursor queries, driven
+     * by the events_ctimes index.
+     *
+     * @param event a fetched Event
+     * @param criteria the query criteria
+     * @return true if the Event matches the criteria
+     */
+    static boolean matches(Event event, EventsCriteria criteria) {
+        if (criteria.hasEventIdCriteria()) {
+            Collection<String> eventIds = isEmpty(criteria.getEventIds())
+                    ? Collections.singleton(criteria.getEventId()) : criteria.getEventIds();
+            if (!eventIds.contains(event.getId())) {
+                return false;
+            }
+        }
+        if (criteria.hasTriggerIdCriteria()) {
+            Collection<String> triggerIds = isEmpty(criteria.getTriggerIds())
+                    ? Collections.singleton(criteria.getTriggerId()) : criteria.getTriggerIds();
+            if (event.getTrigger() == null || !triggerIds.contains(event.getTrigger().getId())) {
+                return false;
+            }
+        }
+        if (criteria.hasCategoryCriteria()) {
+            Collection<String> categories = isEmpty(criteria.getCategories())
+                    ? Collections.singleton(criteria.getCategory()) : criteria.getCategories();
+            if (!categories.contains(event.getCategory())) {
+                return false;
+            }
+        }
+        return !criteria.hasCTimeCriteria()
+                || inRange(event.getCtime(), criteria.getStartTime(), criteria.getEndTime());
+    }
+
+    /**
+     * Resolve a tag query on fetched Alerts or Events, with the same semantics of the tags table resolution.
+     *
+     * @param events fetched Alerts or Events, the ones not matching the tag query are removed
+     * @param tagQuery the tag query expression
+     * @param filter the tag value filter for operators
+     */
+    static <T extends Event> void filterByTagQuery(Collection<T> events, String tagQuery, TagValueFilter filter)
+            throws Exception {
+        if (events.isEmpty()) {
+            return;
+        }
+        ExpressionTagQueryParser parser = new ExpressionTagQueryParser(tokens -> {
+            Set<String> result = new HashSet<>();
+            if (tokens == null) {
+                return result;
+            }
+            if (tokens.size() == 1) {
+                // tag
+                String tag = tokens.get(0);
+                result = events.stream()
+                        .filter(a -> a.getTags().containsKey(tag))
+                        .map(Event::getId)
+                        .collect(Collectors.toSet());
+            } else if (tokens.size() == 2) {
+                // not tag
+                String tag = tokens.get(1);
+                result = events.stream()
+                        .filter(a -> !a.getTags().containsKey(tag))
+                        .map(Event::getId)
+                        .collect(Collectors.toSet());
+            } else {
+                String tag = tokens.get(0);
+                String op;
+                String regexp;
+                if (tokens.size() == 3) {
+                    op = tokens.get(1);
+                    regexp = tokens.get(2);
+                } else {
+                    // not in [array]
+                    op = tokens.get(1) + tokens.get(2);
+                    regexp = tokens.get(3);
+                }
+                result = events.stream()
+                        .filter(a -> a.getTags().containsKey(tag)
+                                && filter.test(op, regexp, a.getTags().get(tag)))
+                        .map(Event::getId)
+                        .collect(Collectors.toSet());
+            }
+            return result;
+        });
+        Set<String> ids = parser.resolve(tagQuery);
+        events.removeIf(a -> !ids.contains(a.getId()));
+    }
+
+    /**
+     * Compile a tag query once, to test it on many events without parsing it again.
+     *
+     * @param tagQuery the tag query
+     * @return a predicate of the events matching the tag query
+     * @throws Exception if the tag query is malformed
+     */
+    static Predicate<Event> compileTagQuery(String tagQuery) throws Exception {
+        return ExpressionTagQueryParser.compile(tagQuery, tokens -> {
+            if (tokens == null) {
+                return e -> false;
+            }
+            if (tokens.size() == 1) {
+                // tag
+                String tag = tokens.get(0);
+                return e -> e.getTags().containsKey(tag);
+            }
+            if (tokens.size() == 2) {
+                // not tag
+                String tag = tokens.get(1);
+                return e -> !e.getTags().containsKey(tag);
+            }
+            String tag = tokens.get(0);
+            Predicate<String> value;
+            if (tokens.size() == 3) {
+                value = compileTagValue(tokens.get(1), tokens.get(2));
+            } else {
+                // not in [array]
+                value = compileTagValue(tokens.get(1) + tokens.get(2), tokens.get(3));
+            }
+            return e -> e.getTags().containsKey(tag) && value.test(e.getTags().get(tag));
+        });
+    }
+
+    /**
+     * @param op the operator of a tag query expression
+     * @param regexps the value or values of the expression
+     * @param value the tag value
+     * @return true if the tag value matches the expression
+     */
+    static boolean filterTagValue(String op, String regexps, String value) {
+        return compileTagValue(op, regexps).test(value);
+    }
+
+    /**
+     * Compile a tag value expression once, to test it on many tag values.
+     *
+     * @param op the operator of a tag query expression
+     * @param regexps the value or values of the expression
+     * @return a predicate of the tag values matching the expression
+     */
+    static Predicate<String> compileTagValue(String op, String regexps) {
+        if (op.equals(EQ) || op.equals(NEQ)) {
+            Predicate<String> matches;
+            if (regexps.equals("'*'")) {
+                matches = value -> true;
+            } else if (regexps.charAt(0) == '\'') {
+                Pattern pattern = getPattern(regexps.substring(1, regexps.length() - 1));
+                matches = value -> pattern.matcher(value).matches();
+            } else {
+                matches = value -> value.equals(regexps);
+            }
+            return op.equals(EQ) ? matches : matches.negate();
+        } else {
+            boolean in = op.equals(IN);
+            String array = regexps.substring(1, regexps.length() - 1);
+            String[] items = array.split(",");
+            List<Pattern> patterns = new ArrayList<>(items.length);
+            for (String item : items) {
+                if (item.equals("'*'")) {
+                    return value -> in;
+                }
+                patterns.add(getPattern(item.charAt(0) == '\'' ? item.substring(1, item.length() - 1) : item));
+            }
+            return value -> {
+                for (Pattern pattern : patterns) {
+                    if (pattern.matcher(value).matches()) {
+                        return in;
+                    }
+                }
+                return !in;
+            };
+        }
+    }
+
+    /*
+        Tag queries are repeated by clients and watchers, compiled patterns are shared. The cache is bounded, it is
+        reset when full.
+     */
+    private static Pattern getPattern(String regexp) {
+        Pattern pattern = PATTERNS.get(regexp);
+        if (pattern == null) {
+            if (PATTERNS.size() >= MAX_PATTERNS) {
+                PATTERNS.clear();
+            }
+            pattern = Pattern.compile(regexp);
+            PATTERNS.put(regexp, pattern);
+        }
+        return pattern;
+    }
+
+    private static boolean hasLifecycle(Alert alert, Status status, Long start, Long end) {
+        if (alert.getLifecycle() == null) {
+            return false;
+        }
+        for (Alert.LifeCycle lifeCycle : alert.getLifecycle()) {
+            if ((status == null || status == lifeCycle.getStatus())
+                    && inRange(lifeCycle.getStime(), start, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean inRange(long time, Long start, Long end) {
+        return (start == null || time >= start) && (end == null || time <= end);
+    }
+
+    private static boolean isEmpty(Collection<?> c) {
+        return null == c || c.isEmpty();
+    }
+}
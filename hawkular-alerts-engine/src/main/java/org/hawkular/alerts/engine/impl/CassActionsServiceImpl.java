@@ -56,7 +56,6 @@ import org.hawkular.alerts.engine.log.MsgLogger;
 import org.hawkular.alerts.engine.util.ActionsValidator;
 import org.jboss.logging.Logger;
 
-import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.ResultSetFuture;
@@ -77,9 +76,6 @@ public class CassActionsServiceImpl implements ActionsService {
     private final MsgLogger msgLog = MsgLogger.LOGGER;
     private final Logger log = Logger.getLogger(CassActionsServiceImpl.class);
 
-    private static final String WAITING_RESULT = "WAITING";
-    private static final String UNKNOWN_RESULT = "UNKNOWN";
-
     @EJB
     AlertsContext alertsContext;
 
@@ -89,6 +85,12 @@ public class CassActionsServiceImpl implements ActionsService {
     @EJB
     ActionsCacheManager actionsCacheManager;
 
+    @EJB
+    ActionsHistoryWriter historyWriter;
+
+    @EJB
+    ActionsAggregator actionsAggregator;
+
     @Resource
     private ManagedExecutorService executor;
 
@@ -108,6 +110,14 @@ public class CassActionsServiceImpl implements ActionsService {
         this.definitions = definitions;
     }
 
+    public void setHistoryWriter(ActionsHistoryWriter historyWriter) {
+        this.historyWriter = historyWriter;
+    }
+
+    public void setActionsAggregator(ActionsAggregator actionsAggregator) {
+        this.actionsAggregator = actionsAggregator;
+    }
+
     public void setExecutor(ManagedExecutorService executor) {
         this.executor = executor;
     }
@@ -149,10 +159,10 @@ public class CassActionsServiceImpl implements ActionsService {
             Action action = new Action(triggerAction.getTenantId(), triggerAction.getActionPlugin(),
                     triggerAction.getActionId(), event);
             try {
-                ActionDefinition actionDefinition = definitions.getActionDefinition(triggerAction.getTenantId(),
-                        triggerAction.getActionPlugin(), triggerAction.getActionId());
+                ActionDefinition actionDefinition = actionsCacheManager.getActionDefinition(
+                        triggerAction.getTenantId(), triggerAction.getActionPlugin(), triggerAction.getActionId());
                 Map<String, String> defaultProperties =
-                        definitions.getDefaultActionPlugin(triggerAction.getActionPlugin());
+                        actionsCacheManager.getDefaultActionPlugin(triggerAction.getActionPlugin());
                 if (actionDefinition != null && defaultProperties != null) {
                     Map<String, String> mixedProps = mixProperties(actionDefinition.getProperties(), defaultProperties);
                     action.setProperties(mixedProps);
@@ -170,10 +180,7 @@ public class CassActionsServiceImpl implements ActionsService {
                     }
                 }
                 if (ActionsValidator.validate(triggerAction, event)) {
-                    for (ActionListener listener : alertsContext.getActionsListeners()) {
-                        listener.process(action);
-                    }
-                    insertActionHistory(action);
+                    actionsAggregator.send(action);
                 }
             } catch (Exception e) {
                 log.debug(e.getMessage(), e);
@@ -200,7 +207,7 @@ public class CassActionsServiceImpl implements ActionsService {
                     globalTriggerAction.getActionId(), event);
             try {
                 Map<String, String> defaultProperties =
-                        definitions.getDefaultActionPlugin(globalTriggerAction.getActionPlugin());
+                        actionsCacheManager.getDefaultActionPlugin(globalTriggerAction.getActionPlugin());
                 if (defaultProperties != null) {
                     Map<String, String> mixedProps = mixProperties(globalActionDefinition.getProperties(),
                             defaultProperties);
@@ -209,10 +216,7 @@ public class CassActionsServiceImpl implements ActionsService {
                 globalTriggerAction.setStates(globalActionDefinition.getStates());
                 globalTriggerAction.setCalendar(globalActionDefinition.getCalendar());
                 if (ActionsValidator.validate(globalTriggerAction, event)) {
-                    for (ActionListener listener : alertsContext.getActionsListeners()) {
-                        listener.process(action);
-                    }
-                    insertActionHistory(action);
+                    actionsAggregator.send(action);
                 }
             } catch (Exception e) {
                 log.debug(e.getMessage(), e);
@@ -231,102 +235,11 @@ public class CassActionsServiceImpl implements ActionsService {
         if (action.getEvent() == null) {
             throw new IllegalArgumentException("Action must have an alert");
         }
-        executor.submit(() -> {
-            updateActionHistory(action);
-        });
-    }
-
-    private void insertActionHistory(Action action) {
-        if (action.getResult() == null) {
-            action.setResult(WAITING_RESULT);
-        }
-        try {
-            PreparedStatement insertActionHistory = CassStatement.get(session,
-                    CassStatement.INSERT_ACTION_HISTORY);
-            PreparedStatement insertActionHistoryAction = CassStatement.get(session,
-                    CassStatement.INSERT_ACTION_HISTORY_ACTION);
-            PreparedStatement insertActionHistoryAlert = CassStatement.get(session,
-                    CassStatement.INSERT_ACTION_HISTORY_ALERT);
-            PreparedStatement insertActionHistoryCtime = CassStatement.get(session,
-                    CassStatement.INSERT_ACTION_HISTORY_CTIME);
-            PreparedStatement insertActionHistoryResult = CassStatement.get(session,
-                    CassStatement.INSERT_ACTION_HISTORY_RESULT);
-
-            List<ResultSetFuture> futures = new ArrayList<>();
-
-            futures.add(session.executeAsync(insertActionHistory.bind(action.getTenantId(), action.getActionPlugin(),
-                    action.getActionId(), action.getEvent().getId(), action.getCtime(), JsonUtil.toJson(action))));
-            futures.add(session.executeAsync(insertActionHistoryAction.bind(action.getTenantId(),
-                    action.getActionId(), action.getActionPlugin(), action.getEvent().getId(),
-                    action.getCtime())));
-            futures.add(session.executeAsync(insertActionHistoryAlert.bind(action.getTenantId(),
-                    action.getEvent().getId(), action.getActionPlugin(), action.getActionId(),
-                    action.getCtime())));
-            futures.add(session.executeAsync(insertActionHistoryCtime.bind(action.getTenantId(),
-                    action.getCtime(), action.getActionPlugin(), action.getActionId(),
-                    action.getEvent().getId())));
-            futures.add(session.executeAsync(insertActionHistoryResult.bind(action.getTenantId(),
-                    action.getResult(), action.getActionPlugin(), action.getActionId(), action.getEvent().getId(),
-                    action.getCtime())));
-
-            Futures.allAsList(futures).get();
-        } catch (Exception e) {
-            msgLog.errorDatabaseException(e.getMessage());
-        }
-    }
-
-    private Action selectActionHistory(String tenantId, String actionPlugin, String actionId, String alertId,
-            long ctime) {
-        Action actionHistory = null;
-        try {
-            PreparedStatement selectActionHistory = CassStatement.get(session, CassStatement.SELECT_ACTION_HISTORY);
-            ResultSet rsActionHistory = session.execute(selectActionHistory.bind(tenantId, actionPlugin, actionId,
-                    alertId, ctime));
-            Iterator<Row> itActionHistory = rsActionHistory.iterator();
-            if (itActionHistory.hasNext()) {
-                Row row = itActionHistory.next();
-                actionHistory = JsonUtil.fromJson(row.getString("payload"), Action.class);
-            }
-        } catch (Exception e) {
-            msgLog.errorDatabaseException(e.getMessage());
-        }
-        return actionHistory;
-    }
-
-    private void updateActionHistory(Action action) {
-        if (action.getResult() == null) {
-            action.setResult(UNKNOWN_RESULT);
-        }
         try {
-            Action oldActionHistory = selectActionHistory(action.getTenantId(), action.getActionPlugin(),
-                    action.getActionId(), action.getEvent().getId(), action.getCtime());
-            if (oldActionHistory == null) {
-                insertActionHistory(action);
-                return;
-            }
-            String oldResult = oldActionHistory.getResult();
-            PreparedStatement deleteActionHistoryResult = CassStatement.get(session,
-                    CassStatement.DELETE_ACTION_HISTORY_RESULT);
-            PreparedStatement insertActionHistoryResult = CassStatement.get(session,
-                    CassStatement.INSERT_ACTION_HISTORY_RESULT);
-            PreparedStatement updateActionHistory = CassStatement.get(session, CassStatement.UPDATE_ACTION_HISTORY);
-
-            List<ResultSetFuture> futures = new ArrayList<>();
-
-            futures.add(session.executeAsync(deleteActionHistoryResult.bind(action.getTenantId(), oldResult,
-                    action.getActionPlugin(), action.getActionId(), action.getEvent().getId(),
-                    action.getCtime())));
-            futures.add(session.executeAsync(insertActionHistoryResult.bind(action.getTenantId(),
-                    action.getResult(), action.getActionPlugin(), action.getActionId(), action.getEvent().getId(),
-                    action.getCtime())));
-
-            futures.add(session.executeAsync(updateActionHistory.bind(JsonUtil.toJson(action), action.getTenantId(),
-                    action.getActionPlugin(), action.getActionId(), action.getEvent().getId(),
-                    action.getCtime())));
-
-            Futures.allAsList(futures).get();
-        } catch (Exception e) {
-            msgLog.errorDatabaseException(e.getMessage());
+            historyWriter.update(action);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            msgLog.errorCannotUpdateAction(e.getMessage());
         }
     }
 
@@ -462,33 +375,27 @@ public class CassActionsServiceImpl implements ActionsService {
         if (criteria.getStartTime() != null || criteria.getEndTime() != null) {
             filterByCtime = true;
 
-            BoundStatement boundCtime;
-            if (criteria.getStartTime() != null && criteria.getEndTime() != null) {
-                PreparedStatement selectActionHistoryCTimeStartEnd = CassStatement.get(session,
-                        CassStatement.SELECT_ACTION_HISTORY_CTIME_START_END);
-                boundCtime = selectActionHistoryCTimeStartEnd.bind(tenantId, criteria.getStartTime(),
-                        criteria.getEndTime());
-            } else if (criteria.getStartTime() != null) {
-                PreparedStatement selectActionHistoryCTimeStart = CassStatement.get(session,
-                        CassStatement.SELECT_ACTION_HISTORY_CTIME_START);
-                boundCtime = selectActionHistoryCTimeStart.bind(tenantId, criteria.getStartTime());
-            } else {
-                PreparedStatement selectActionHistoryCTimeEnd = CassStatement.get(session,
-                        CassStatement.SELECT_ACTION_HISTORY_CTIME_END);
-                boundCtime = selectActionHistoryCTimeEnd.bind(tenantId, criteria.getEndTime());
+            // One query per time bucket of the range, in parallel
+            PreparedStatement selectActionHistoryCTimeStartEnd = CassStatement.get(session,
+                    CassStatement.SELECT_ACTION_HISTORY_CTIME_START_END);
+            List<ResultSetFuture> futures = new ArrayList<>();
+            for (long bucket : TimeBuckets.getBuckets(session, tenantId, TimeBuckets.ACTIONS_HISTORY_CTIMES,
+                    criteria.getStartTime(), criteria.getEndTime())) {
+                futures.add(session.executeAsync(selectActionHistoryCTimeStartEnd.bind(tenantId, bucket,
+                        TimeBuckets.start(bucket, criteria.getStartTime()),
+                        TimeBuckets.end(bucket, criteria.getEndTime()))));
             }
 
-            ResultSet rsActionHistoryCtimes = session.execute(boundCtime);
-            Iterator<Row> itActionHistoryCtimes = rsActionHistoryCtimes.iterator();
-            while (itActionHistoryCtimes.hasNext()) {
-                Row row = itActionHistoryCtimes.next();
-                ActionHistoryPK actionHistoryPK = new ActionHistoryPK();
-                actionHistoryPK.tenantId = tenantId;
-                actionHistoryPK.actionPlugin = row.getString("actionPlugin");
-                actionHistoryPK.actionId = row.getString("actionId");
-                actionHistoryPK.alertId = row.getString("alertId");
-                actionHistoryPK.ctime = row.getLong("ctime");
-                actionPks.add(actionHistoryPK);
+            for (ResultSet rsActionHistoryCtimes : Futures.allAsList(futures).get()) {
+                for (Row row : rsActionHistoryCtimes) {
+                    ActionHistoryPK actionHistoryPK = new ActionHistoryPK();
+                    actionHistoryPK.tenantId = tenantId;
+                    actionHistoryPK.actionPlugin = row.getString("actionPlugin");
+                    actionHistoryPK.actionId = row.getString("actionId");
+                    actionHistoryPK.alertId = row.getString("alertId");
+                    actionHistoryPK.ctime = row.getLong("ctime");
+                    actionPks.add(actionHistoryPK);
+                }
             }
         }
         return filterByCtime;
@@ -594,7 +501,9 @@ public class CassActionsServiceImpl implements ActionsService {
                     actionHistoryPK.tenantId = tenantId;
                     actionHistoryPK.actionPlugin = row.getString("actionPlugin");
                     actionHistoryPK.actionId = row.getString("actionId");
-                    actionHistoryPK.alertId = row.getString("alertId");
+                    // Rows of a digest indexed under its other events point to the alertId of its history row
+                    String historyAlertId = row.getString("historyAlertId");
+                    actionHistoryPK.alertId = historyAlertId != null ? historyAlertId : row.getString("alertId");
                     actionHistoryPK.ctime = row.getLong("ctime");
                     actionPks.add(actionHistoryPK);
                 }
@@ -709,8 +618,13 @@ public class CassActionsServiceImpl implements ActionsService {
             futures.add(session.executeAsync(deleteActionHistoryAlert.bind(action.getTenantId(),
                     action.getEvent().getId(), action.getActionPlugin(), action.getActionId(),
                     action.getCtime())));
-            futures.add(session.executeAsync(deleteActionHistoryCtime.bind(action.getTenantId(), action.getCtime(),
-                    action.getActionPlugin(), action.getActionId(), action.getEvent().getId())));
+            for (String eventId : ActionsHistoryWriter.digestEventIds(action.getEvent().getId(), action)) {
+                futures.add(session.executeAsync(deleteActionHistoryAlert.bind(action.getTenantId(), eventId,
+                        action.getActionPlugin(), action.getActionId(), action.getCtime())));
+            }
+            futures.add(session.executeAsync(deleteActionHistoryCtime.bind(action.getTenantId(),
+                    TimeBuckets.bucket(action.getCtime()), action.getCtime(), action.getActionPlugin(),
+                    action.getActionId(), action.getEvent().getId())));
             futures.add(session.executeAsync(deleteActionHistoryResult.bind(action.getTenantId(),
                     action.getResult(), action.getActionPlugin(), action.getActionId(), action.getEvent().getId(),
                     action.getCtime())));
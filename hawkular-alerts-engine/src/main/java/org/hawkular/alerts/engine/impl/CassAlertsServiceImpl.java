@@ -16,13 +16,11 @@
  */
 package org.hawkular.alerts.engine.impl;
 
-import static org.hawkular.alerts.engine.tags.ExpressionTagQueryParser.ExpressionTagResolver.EQ;
-import static org.hawkular.alerts.engine.tags.ExpressionTagQueryParser.ExpressionTagResolver.IN;
-import static org.hawkular.alerts.engine.tags.ExpressionTagQueryParser.ExpressionTagResolver.NEQ;
-
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -32,6 +30,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
@@ -44,12 +44,12 @@ import javax.ejb.TransactionAttributeType;
 import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.inject.Inject;
 
-import org.hawkular.alerts.api.json.JsonUtil;
 import org.hawkular.alerts.api.model.Severity;
 import org.hawkular.alerts.api.model.condition.ConditionEval;
 import org.hawkular.alerts.api.model.data.Data;
 import org.hawkular.alerts.api.model.event.Alert;
 import org.hawkular.alerts.api.model.event.Alert.Status;
+import org.hawkular.alerts.api.model.event.AlertsSummary;
 import org.hawkular.alerts.api.model.event.Event;
 import org.hawkular.alerts.api.model.paging.AlertComparator;
 import org.hawkular.alerts.api.model.paging.AlertComparator.Field;
@@ -65,21 +65,23 @@ import org.hawkular.alerts.api.services.AlertsService;
 import org.hawkular.alerts.api.services.DefinitionsService;
 import org.hawkular.alerts.api.services.EventsCriteria;
 import org.hawkular.alerts.api.services.PropertiesService;
+import org.hawkular.alerts.engine.impl.AlertsQueryPlanner.Index;
+import org.hawkular.alerts.engine.impl.AlertsQueryPlanner.Plan;
 import org.hawkular.alerts.engine.impl.IncomingDataManagerImpl.IncomingData;
 import org.hawkular.alerts.engine.impl.IncomingDataManagerImpl.IncomingEvents;
 import org.hawkular.alerts.engine.log.MsgLogger;
 import org.hawkular.alerts.engine.service.AlertsEngine;
 import org.hawkular.alerts.engine.service.IncomingDataManager;
-import org.hawkular.alerts.engine.tags.ExpressionTagQueryParser;
+import org.infinispan.Cache;
 import org.jboss.logging.Logger;
 
 import com.datastax.driver.core.BatchStatement;
-import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
 import com.google.common.util.concurrent.Futures;
 
 /**
@@ -107,11 +109,26 @@ public class CassAlertsServiceImpl implements AlertsService {
     private static final String BATCH_SIZE_ENV = "BATCH_SIZE";
     private static final String BATCH_SIZE_DEFAULT = "10";
 
+    /*
+        Max rows read from an index to estimate its selectivity when planning an alerts query
+     */
+    private static final String CRITERIA_PROBE_SIZE = "hawkular-alerts.criteria-probe-size";
+    private static final String CRITERIA_PROBE_SIZE_ENV = "CRITERIA_PROBE_SIZE";
+    private static final String CRITERIA_PROBE_SIZE_DEFAULT = "1000";
+
+    /*
+        Alerts are fetched by alertIds with queries of FETCH_CHUNK_SIZE ids, FETCH_IN_FLIGHT queries at a time
+     */
+    private static final int FETCH_CHUNK_SIZE = 100;
+    private static final int FETCH_IN_FLIGHT = 8;
+
     private static final MsgLogger msgLog = MsgLogger.LOGGER;
     private static final Logger log = Logger.getLogger(CassAlertsServiceImpl.class);
 
     private int criteriaNoQuerySize;
     private int batchSize;
+    private int criteriaProbeSize;
+    private long alertsTtlGrace;
     private final BatchStatement.Type batchType = BatchStatement.Type.LOGGED;
 
     @EJB
@@ -136,6 +153,17 @@ public class CassAlertsServiceImpl implements AlertsService {
     @Resource
     private ManagedExecutorService executor;
 
+    @Resource(lookup = "java:jboss/infinispan/cache/hawkular-alerts/alerts")
+    private Cache<String, Object> alertsCacheStore;
+
+    private AlertsCache alertsCache = new AlertsCache(null, null);
+
+    private final PayloadCodec codec = PayloadCodec.getInstance();
+
+    private final WatchHub watchHub = WatchHub.getInstance();
+
+    private final Retention retention = Retention.getInstance();
+
     public CassAlertsServiceImpl() {
     }
 
@@ -145,6 +173,13 @@ public class CassAlertsServiceImpl implements AlertsService {
                 CRITERIA_NO_QUERY_SIZE_ENV, CRITERIA_NO_QUERY_SIZE_DEFAULT));
         batchSize = Integer.valueOf(properties.getProperty(BATCH_SIZE,
                 BATCH_SIZE_ENV, BATCH_SIZE_DEFAULT));
+        criteriaProbeSize = Integer.valueOf(properties.getProperty(CRITERIA_PROBE_SIZE,
+                CRITERIA_PROBE_SIZE_ENV, CRITERIA_PROBE_SIZE_DEFAULT));
+        long purgePeriod = Long.parseLong(properties.getProperty(RetentionManagerImpl.PURGE_PERIOD,
+                RetentionManagerImpl.PURGE_PERIOD_ENV, RetentionManagerImpl.PURGE_PERIOD_DEFAULT));
+        alertsTtlGrace = purgePeriod > 0 ? TimeUnit.MILLISECONDS.toSeconds(TimeBuckets.SIZE + 2 * purgePeriod) : 0;
+        alertsCache = new AlertsCache(alertsCacheStore, codec);
+        watchHub.setExecutor(executor);
     }
 
     public void setSession(Session session) {
@@ -170,48 +205,61 @@ public class CassAlertsServiceImpl implements AlertsService {
         if (log.isDebugEnabled()) {
             log.debug("Adding " + alerts.size() + " alerts");
         }
-        PreparedStatement insertAlert = CassStatement.get(session, CassStatement.INSERT_ALERT);
+        PreparedStatement insertAlert = payloadStatement(CassStatement.INSERT_ALERT, CassStatement.INSERT_ALERT_BIN);
         PreparedStatement insertAlertTrigger = CassStatement.get(session, CassStatement.INSERT_ALERT_TRIGGER);
         PreparedStatement insertAlertCtime = CassStatement.get(session, CassStatement.INSERT_ALERT_CTIME);
         PreparedStatement insertAlertStime = CassStatement.get(session, CassStatement.INSERT_ALERT_STIME);
         PreparedStatement insertTag = CassStatement.get(session, CassStatement.INSERT_TAG);
 
         try {
-            List<ResultSetFuture> futures = new ArrayList<>();
-            BatchStatement batch = new BatchStatement(batchType);
-            int i = 0;
+            TimeBuckets.Registration buckets = new TimeBuckets.Registration(session);
+            for (Alert a : alerts) {
+                buckets.add(a.getTenantId(), TimeBuckets.ALERTS_CTIMES, a.getCtime())
+                        .add(a.getTenantId(), TimeBuckets.ALERTS_STIMES, a.getCurrentLifecycle().getStime());
+            }
+            buckets.execute();
+
+            PartitionWriter writer = new PartitionWriter(session, batchSize);
+            List<Object> payloads = new ArrayList<>(alerts.size());
             for(Alert a : alerts) {
-                batch.add(insertAlert.bind(a.getTenantId(), a.getAlertId(), JsonUtil.toJson(a)));
-                batch.add(insertAlertTrigger.bind(a.getTenantId(), a.getAlertId(), a.getTriggerId()));
-                batch.add(insertAlertCtime.bind(a.getTenantId(), a.getAlertId(), a.getCtime()));
-                batch.add(insertAlertStime.bind(a.getTenantId(), a.getAlertId(), a.getCurrentLifecycle().getStime()));
+                long stime = a.getCurrentLifecycle().getStime();
+                int ttl = alertTtl(a);
+                Object payload = codec.encode(a);
+                payloads.add(payload);
+                writer.add(insertAlert.bind(a.getTenantId(), a.getAlertId(), payload, ttl))
+                        .add(insertAlertTrigger.bind(a.getTenantId(), a.getAlertId(), a.getTriggerId(), ttl))
+                        .add(insertAlertCtime.bind(a.getTenantId(), TimeBuckets.bucket(a.getCtime()),
+                                a.getAlertId(), a.getCtime(), ttl))
+                        .add(insertAlertStime.bind(a.getTenantId(), TimeBuckets.bucket(stime), a.getAlertId(),
+                                stime, ttl));
 
                 a.getTags().entrySet().stream().forEach(tag -> {
-                    batch.add(insertTag.bind(a.getTenantId(), TagType.ALERT.name(),
-                            tag.getKey(), tag.getValue(), a.getId()));
+                    writer.add(insertTag.bind(a.getTenantId(), TagType.ALERT.name(),
+                            tag.getKey(), tag.getValue(), a.getId(), ttl));
                 });
-                i += batch.size();
-                if (i > batchSize) {
-                    futures.add(session.executeAsync(batch));
-                    batch.clear();
-                    i = 0;
-                }
             }
-            if (batch.size() > 0) {
-                futures.add(session.executeAsync(batch));
+            writer.execute();
+
+            Iterator<Object> itPayloads = payloads.iterator();
+            for (Alert a : alerts) {
+                alertsCache.put(a, itPayloads.next());
             }
-            Futures.allAsList(futures).get();
 
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
-
         // Every Alert has a corresponding Event
         List<Event> events = alerts.stream()
                 .map(Event::new)
                 .collect(Collectors.toList());
         persistEvents(events);
+
+        // Counters and watchers are updated only once all the writes have succeeded
+        AlertCounters counters = new AlertCounters();
+        alerts.stream().forEach(counters::add);
+        updateCounters(counters);
+        watchHub.publishAlerts(alerts);
     }
 
     @Override
@@ -225,43 +273,41 @@ public class CassAlertsServiceImpl implements AlertsService {
         if (log.isDebugEnabled()) {
             log.debug("Adding " + events.size() + " events");
         }
-        PreparedStatement insertEvent = CassStatement.get(session, CassStatement.INSERT_EVENT);
+        PreparedStatement insertEvent = payloadStatement(CassStatement.INSERT_EVENT, CassStatement.INSERT_EVENT_BIN);
         PreparedStatement insertEventCategory = CassStatement.get(session, CassStatement.INSERT_EVENT_CATEGORY);
         PreparedStatement insertEventCtime = CassStatement.get(session, CassStatement.INSERT_EVENT_CTIME);
         PreparedStatement insertEventTrigger = CassStatement.get(session, CassStatement.INSERT_EVENT_TRIGGER);
         PreparedStatement insertTag = CassStatement.get(session, CassStatement.INSERT_TAG);
 
         try {
-            List<ResultSetFuture> futures = new ArrayList<>();
-            BatchStatement batch = new BatchStatement(batchType);
-            int i = 0;
+            TimeBuckets.Registration buckets = new TimeBuckets.Registration(session);
+            for (Event e : events) {
+                buckets.add(e.getTenantId(), TimeBuckets.EVENTS_CTIMES, e.getCtime());
+            }
+            buckets.execute();
+
+            PartitionWriter writer = new PartitionWriter(session, batchSize);
             for (Event e : events) {
-                batch.add(insertEvent.bind(e.getTenantId(), e.getId(), JsonUtil.toJson(e)));
-                batch.add(insertEventCategory.bind(e.getTenantId(), e.getCategory(), e.getId()));
-                batch.add(insertEventCtime.bind(e.getTenantId(), e.getCtime(), e.getId()));
+                int ttl = eventTtl(e);
+                writer.add(insertEvent.bind(e.getTenantId(), e.getId(), codec.encode(e), ttl))
+                        .add(insertEventCategory.bind(e.getTenantId(), e.getCategory(), e.getId(), ttl))
+                        .add(insertEventCtime.bind(e.getTenantId(), TimeBuckets.bucket(e.getCtime()), e.getCtime(),
+                                e.getId(), ttl));
                 if (null != e.getTrigger()) {
-                    batch.add(insertEventTrigger.bind(e.getTenantId(), e.getTrigger().getId(), e.getId()));
+                    writer.add(insertEventTrigger.bind(e.getTenantId(), e.getTrigger().getId(), e.getId(), ttl));
                 }
                 e.getTags().entrySet().stream().forEach(tag -> {
-                    batch.add(insertTag.bind(e.getTenantId(), TagType.EVENT.name(), tag.getKey(), tag.getValue(),
-                            e.getId()));
+                    writer.add(insertTag.bind(e.getTenantId(), TagType.EVENT.name(), tag.getKey(), tag.getValue(),
+                            e.getId(), ttl));
                 });
-                i += batch.size();
-                if (i > batchSize) {
-                    futures.add(session.executeAsync(batch));
-                    batch.clear();
-                    i = 0;
-                }
-            }
-            if (batch.size() > 0) {
-                futures.add(session.executeAsync(batch));
             }
-            Futures.allAsList(futures).get();
+            writer.execute();
 
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
+        watchHub.publishEvents(events);
     }
 
     @Override
@@ -283,12 +329,14 @@ public class CassAlertsServiceImpl implements AlertsService {
 
         alert.addNote(user, text);
 
-        PreparedStatement updateAlert = CassStatement.get(session, CassStatement.UPDATE_ALERT);
+        PreparedStatement updateAlert = payloadStatement(CassStatement.UPDATE_ALERT, CassStatement.UPDATE_ALERT_BIN);
         if (updateAlert == null) {
             throw new RuntimeException("updateAlert PreparedStatement is null");
         }
         try {
-            session.execute(updateAlert.bind(JsonUtil.toJson(alert), alert.getTenantId(), alert.getAlertId()));
+            Object payload = codec.encode(alert);
+            session.execute(updateAlert.bind(alert.getTenantId(), alert.getAlertId(), payload, alertTtl(alert)));
+            alertsCache.put(alert, payload);
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
@@ -312,7 +360,7 @@ public class CassAlertsServiceImpl implements AlertsService {
         criteria.setAlertIds(alertIds);
         Page<Alert> existingAlerts = getAlerts(tenantId, criteria, null);
 
-        PreparedStatement updateAlert = CassStatement.get(session, CassStatement.UPDATE_ALERT);
+        PreparedStatement updateAlert = payloadStatement(CassStatement.UPDATE_ALERT, CassStatement.UPDATE_ALERT_BIN);
         PreparedStatement insertTag = CassStatement.get(session, CassStatement.INSERT_TAG);
 
         try {
@@ -320,11 +368,13 @@ public class CassAlertsServiceImpl implements AlertsService {
             BatchStatement batch = new BatchStatement(batchType);
             int i = 0;
             for (Alert a : existingAlerts) {
+                int ttl = alertTtl(a);
                 tags.entrySet().stream().forEach(tag -> {
                     a.addTag(tag.getKey(), tag.getValue());
-                    batch.add(insertTag.bind(tenantId, TagType.ALERT.name(), tag.getKey(), tag.getValue(), a.getId()));
+                    batch.add(insertTag.bind(tenantId, TagType.ALERT.name(), tag.getKey(), tag.getValue(), a.getId(),
+                            ttl));
                 });
-                batch.add(updateAlert.bind(JsonUtil.toJson(a), tenantId, a.getAlertId()));
+                batch.add(updateAlert.bind(tenantId, a.getAlertId(), codec.encode(a), ttl));
                 i += batch.size();
                 if (i > batchSize) {
                     futures.add(session.executeAsync(batch));
@@ -337,6 +387,8 @@ public class CassAlertsServiceImpl implements AlertsService {
             }
             Futures.allAsList(futures).get();
 
+            existingAlerts.stream().forEach(a -> alertsCache.remove(tenantId, a.getAlertId()));
+
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
@@ -360,7 +412,7 @@ public class CassAlertsServiceImpl implements AlertsService {
         criteria.setEventIds(eventIds);
         Page<Event> existingEvents = getEvents(tenantId, criteria, null);
 
-        PreparedStatement updateEvent = CassStatement.get(session, CassStatement.UPDATE_EVENT);
+        PreparedStatement updateEvent = payloadStatement(CassStatement.UPDATE_EVENT, CassStatement.UPDATE_EVENT_BIN);
         PreparedStatement insertTag = CassStatement.get(session, CassStatement.INSERT_TAG);
 
         try {
@@ -368,11 +420,13 @@ public class CassAlertsServiceImpl implements AlertsService {
             BatchStatement batch = new BatchStatement(batchType);
             int i = 0;
             for (Event e : existingEvents) {
+                int ttl = eventTtl(e);
                 tags.entrySet().stream().forEach(tag -> {
                     e.addTag(tag.getKey(), tag.getValue());
-                    batch.add(insertTag.bind(tenantId, TagType.EVENT.name(), tag.getKey(), tag.getValue(), e.getId()));
+                    batch.add(insertTag.bind(tenantId, TagType.EVENT.name(), tag.getKey(), tag.getValue(), e.getId(),
+                            ttl));
                 });
-                batch.add(updateEvent.bind(JsonUtil.toJson(e), tenantId, e.getId()));
+                batch.add(updateEvent.bind(tenantId, e.getId(), codec.encode(e), ttl));
 
             }
             if (batch.size() > 0) {
@@ -404,7 +458,7 @@ public class CassAlertsServiceImpl implements AlertsService {
         criteria.setAlertIds(alertIds);
         Page<Alert> existingAlerts = getAlerts(tenantId, criteria, null);
 
-        PreparedStatement updateAlert = CassStatement.get(session, CassStatement.UPDATE_ALERT);
+        PreparedStatement updateAlert = payloadStatement(CassStatement.UPDATE_ALERT, CassStatement.UPDATE_ALERT_BIN);
         PreparedStatement deleteTag = CassStatement.get(session, CassStatement.DELETE_TAG);
 
         try {
@@ -418,7 +472,7 @@ public class CassAlertsServiceImpl implements AlertsService {
                         a.removeTag(tag);
                     }
                 });
-                batch.add(updateAlert.bind(JsonUtil.toJson(a), tenantId, a.getAlertId()));
+                batch.add(updateAlert.bind(tenantId, a.getAlertId(), codec.encode(a), alertTtl(a)));
                 i += batch.size();
                 if (i > batchSize) {
                     futures.add(session.executeAsync(batch));
@@ -431,6 +485,8 @@ public class CassAlertsServiceImpl implements AlertsService {
             }
             Futures.allAsList(futures).get();
 
+            existingAlerts.stream().forEach(a -> alertsCache.remove(tenantId, a.getAlertId()));
+
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
@@ -455,7 +511,7 @@ public class CassAlertsServiceImpl implements AlertsService {
         criteria.setEventIds(eventIds);
         Page<Event> existingEvents = getEvents(tenantId, criteria, null);
 
-        PreparedStatement updateEvent = CassStatement.get(session, CassStatement.UPDATE_EVENT);
+        PreparedStatement updateEvent = payloadStatement(CassStatement.UPDATE_EVENT, CassStatement.UPDATE_EVENT_BIN);
         PreparedStatement deleteTag = CassStatement.get(session, CassStatement.DELETE_TAG);
 
         try {
@@ -469,7 +525,7 @@ public class CassAlertsServiceImpl implements AlertsService {
                         e.removeTag(tag);
                     }
                 });
-                batch.add(updateEvent.bind(JsonUtil.toJson(e), tenantId, e.getId()));
+                batch.add(updateEvent.bind(tenantId, e.getId(), codec.encode(e), eventTtl(e)));
                 i += batch.size();
                 if (i > batchSize) {
                     futures.add(session.executeAsync(batch));
@@ -496,17 +552,20 @@ public class CassAlertsServiceImpl implements AlertsService {
         if (isEmpty(alertId)) {
             throw new IllegalArgumentException("AlertId must be not null");
         }
+        Alert alert = alertsCache.get(tenantId, alertId, thin);
+        if (alert != null) {
+            return alert;
+        }
         PreparedStatement selectAlert = CassStatement.get(session, CassStatement.SELECT_ALERT);
         if (selectAlert == null) {
             throw new RuntimeException("selectAlert PreparedStatement is null");
         }
-        Alert alert = null;
         try {
             ResultSet rsAlert = session.execute(selectAlert.bind(tenantId, alertId));
             Iterator<Row> itAlert = rsAlert.iterator();
             if (itAlert.hasNext()) {
                 Row row = itAlert.next();
-                alert = JsonUtil.fromJson(row.getString("payload"), Alert.class, thin);
+                alert = decodeAlert(row, thin);
             }
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
@@ -533,7 +592,7 @@ public class CassAlertsServiceImpl implements AlertsService {
             Iterator<Row> itEvent = rsEvent.iterator();
             if (itEvent.hasNext()) {
                 Row row = itEvent.next();
-                event = JsonUtil.fromJson(row.getString("payload"), Event.class, thin);
+                event = decodePayload(row, Event.class, thin);
             }
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
@@ -567,6 +626,9 @@ public class CassAlertsServiceImpl implements AlertsService {
         if (isEmpty(tenantIds)) {
             throw new IllegalArgumentException("TenantIds must be not null");
         }
+        if (pager != null && pager.isCursor()) {
+            return getAlertsByCursor(tenantIds, criteria, pager);
+        }
         List<Alert> alerts = new ArrayList<>();
         if (tenantIds.size() == 1) {
             alerts.addAll(getAlerts(tenantIds.iterator().next(), criteria));
@@ -600,6 +662,72 @@ public class CassAlertsServiceImpl implements AlertsService {
         }
     }
 
+    @Override
+    public AlertsSummary getAlertsSummary(String tenantId, Collection<String> triggerIds) throws Exception {
+        if (isEmpty(tenantId)) {
+            throw new IllegalArgumentException("TenantId must be not null");
+        }
+        AlertsSummary summary = new AlertsSummary();
+        try {
+            PreparedStatement selectCounters = CassStatement.get(session, CassStatement.SELECT_ALERT_COUNTERS);
+            for (Row row : session.execute(selectCounters.bind(tenantId))) {
+                addCounter(summary, row);
+            }
+            if (!isEmpty(triggerIds)) {
+                PreparedStatement selectTriggerCounters = CassStatement.get(session,
+                        CassStatement.SELECT_ALERT_TRIGGER_COUNTERS);
+                triggerIds.stream().forEach(triggerId -> summary.getTriggers().put(triggerId, new AlertsSummary()));
+                for (Row row : session.execute(selectTriggerCounters.bind(tenantId, new ArrayList<>(triggerIds)))) {
+                    addCounter(summary.getTriggers().get(row.getString("triggerId")), row);
+                }
+            }
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+            throw e;
+        }
+        return summary;
+    }
+
+    /*
+        Counters are approximate, a drift below zero is not reported
+     */
+    private void addCounter(AlertsSummary summary, Row row) {
+        summary.add(Status.valueOf(row.getString("status")), Severity.valueOf(row.getString("severity")),
+                Math.max(0, row.getLong("total")));
+    }
+
+    /*
+        Cursor pages are read in ctime order from alerts_ctimes. Alerts are fetched by chunks and filtered until the
+        page is filled, so the cost of a page follows the page size instead of the size of the whole result.
+     */
+    private Page<Alert> getAlertsByCursor(Set<String> tenantIds, AlertsCriteria criteria, Pager pager)
+            throws Exception {
+        String tenantId = getCursorTenant(tenantIds);
+        boolean filter = (null != criteria && criteria.hasCriteria());
+        boolean thin = (null != criteria && criteria.isThin());
+        CursorIndex index = new CursorIndex(TimeBuckets.ALERTS_CTIMES, "alertId",
+                CassStatement.SELECT_ALERT_CTIME_ASC_FROM, CassStatement.SELECT_ALERT_CTIME_ASC_AFTER,
+                CassStatement.SELECT_ALERT_CTIME_DESC_FROM, CassStatement.SELECT_ALERT_CTIME_DESC_AFTER,
+                CassStatement.SELECT_ALERTS_BY_IDS);
+        return getPageByCursor(tenantId, pager, index, filter ? criteria.getStartTime() : null,
+                filter ? criteria.getEndTime() : null, Alert.class, thin, alerts -> {
+                    if (!filter) {
+                        return;
+                    }
+                    alerts.removeIf(alert -> !AlertsQueryPlanner.matches(alert, criteria, Index.CTIME));
+                    if (criteria.hasTagQueryCriteria()) {
+                        AlertsQueryPlanner.filterByTagQuery(alerts, criteria.getTagQuery(),
+                                AlertsQueryPlanner::filterTagValue);
+                    }
+                    if (criteria.hasSeverityCriteria()) {
+                        filterBySeverities(tenantId, criteria, alerts);
+                    }
+                    if (criteria.hasStatusCriteria()) {
+                        filterByStatuses(tenantId, criteria, alerts);
+                    }
+                });
+    }
+
     private List<Alert> getAlerts(String tenantId, AlertsCriteria criteria) throws Exception {
         boolean filter = (null != criteria && criteria.hasCriteria());
         boolean thin = (null != criteria && criteria.isThin());
@@ -609,143 +737,31 @@ public class CassAlertsServiceImpl implements AlertsService {
         }
 
         List<Alert> alerts = new ArrayList<>();
-        Set<String> alertIds = new HashSet<>();
-        boolean activeFilter = false;
 
         try {
             if (filter) {
-                /*
-                    Get alertIds explicitly added into the criteria. Start with these as there is no query involved
-                 */
-                if (criteria.hasAlertIdCriteria()) {
-                    Set<String> alertIdsFilteredByAlerts = filterByAlerts(criteria);
-                    if (activeFilter) {
-                        alertIds.retainAll(alertIdsFilteredByAlerts);
-                    } else {
-                        alertIds.addAll(alertIdsFilteredByAlerts);
-                    }
-                    if (alertIds.isEmpty()) {
-                        return alerts;
-                    }
-                    activeFilter = true;
-                }
-
-                /*
-                    Get alertIds via tagQuery
-                 */
-                if (criteria.hasTagQueryCriteria()) {
-                    Set<String> alertIdsFilteredByTagQuery = getIdsByTagQuery(tenantId, TagType.ALERT,
-                            criteria.getTagQuery());
-                    if (activeFilter) {
-                        alertIds.retainAll(alertIdsFilteredByTagQuery);
-                    } else {
-                        alertIds.addAll(alertIdsFilteredByTagQuery);
-                    }
-                    if (alertIds.isEmpty()) {
-                        return alerts;
-                    }
-                    activeFilter = true;
-                }
-
-                /*
-                    Get alertIds filtered by triggerIds clause
-                 */
-                if (criteria.hasTriggerIdCriteria()) {
-                    Set<String> alertIdsFilteredByTriggers = filterByTriggers(tenantId, criteria);
-                    if (activeFilter) {
-                        alertIds.retainAll(alertIdsFilteredByTriggers);
-                    } else {
-                        alertIds.addAll(alertIdsFilteredByTriggers);
-                    }
-                    if (alertIds.isEmpty()) {
-                        return alerts;
-                    }
-                    activeFilter = true;
-                }
-
-                /*
-                    Get alertIds filtered by time clause
-                 */
-                if (criteria.hasCTimeCriteria()) {
-                    Set<String> alertIdsFilteredByTime = filterByCTime(tenantId, criteria);
-                    if (activeFilter) {
-                        alertIds.retainAll(alertIdsFilteredByTime);
-                    } else {
-                        alertIds.addAll(alertIdsFilteredByTime);
-                    }
-                    if (alertIds.isEmpty()) {
-                        return alerts;
-                    }
-                    activeFilter = true;
-                }
-
-                /*
-                    Get alertIds filtered by resolved time clause
-                 */
-                if (criteria.hasResolvedTimeCriteria()) {
-                    Set<String> alertIdsFilteredByResolvedTime = filterByResolvedTime(tenantId, criteria);
-                    if (activeFilter) {
-                        alertIds.retainAll(alertIdsFilteredByResolvedTime);
-                    } else {
-                        alertIds.addAll(alertIdsFilteredByResolvedTime);
-                    }
-                    if (alertIds.isEmpty()) {
-                        return alerts;
-                    }
-                    activeFilter = true;
-                }
-
-                /*
-                    Get alertIds filtered by ack time clause
-                 */
-                if (criteria.hasAckTimeCriteria()) {
-                    Set<String> alertIdsFilteredByAckTime = filterByAckTime(tenantId, criteria);
-                    if (activeFilter) {
-                        alertIds.retainAll(alertIdsFilteredByAckTime);
-                    } else {
-                        alertIds.addAll(alertIdsFilteredByAckTime);
+                List<Index> indexes = AlertsQueryPlanner.getIndexes(criteria);
+                if (!indexes.isEmpty()) {
+                    /*
+                        Drive the query from the most selective index, the rest of indexed criteria are checked on
+                        the fetched alerts
+                     */
+                    Plan plan = planAlertsQuery(tenantId, criteria, indexes);
+                    if (log.isDebugEnabled()) {
+                        log.debugf("getAlerts driven by %s with %d alertIds", plan.driver, plan.alertIds.size());
                     }
-                    if (alertIds.isEmpty()) {
+                    if (plan.alertIds.isEmpty()) {
                         return alerts;
                     }
-                    activeFilter = true;
-                }
-
-                /*
-                    Get alertsIds filteres by status time clause
-                 */
-                if (criteria.hasStatusTimeCriteria()) {
-                    Set<String> alertIdsFilteredByStatusTime = filterByStatusTime(tenantId, criteria);
-                    if (activeFilter) {
-                        alertIds.retainAll(alertIdsFilteredByStatusTime);
-                    } else {
-                        alertIds.addAll(alertIdsFilteredByStatusTime);
+                    fetchAlerts(tenantId, plan.alertIds, thin,
+                            alert -> AlertsQueryPlanner.matches(alert, criteria, plan.driver), alerts);
+                    if (plan.driver != Index.TAGS && criteria.hasTagQueryCriteria()) {
+                        AlertsQueryPlanner.filterByTagQuery(alerts, criteria.getTagQuery(),
+                                AlertsQueryPlanner::filterTagValue);
                     }
-                    if (alertIds.isEmpty()) {
+                    if (alerts.isEmpty()) {
                         return alerts;
                     }
-                    activeFilter = true;
-                }
-
-                /*
-                    Below this point we filter manually  because the remaining filters have a low cardinality of
-                    values, and are not efficiently handled with database indexes and the intersection-based approach.
-                    Fetch the alerts now and proceed.
-                 */
-                if (activeFilter) {
-                    PreparedStatement selectAlertsByTenantAndAlert = CassStatement
-                            .get(session, CassStatement.SELECT_ALERT);
-                    List<ResultSetFuture> futures = alertIds.stream()
-                            .map(alertId -> session.executeAsync(selectAlertsByTenantAndAlert.bind(tenantId, alertId)))
-                            .collect(Collectors.toList());
-                    List<ResultSet> rsAlerts = Futures.allAsList(futures).get();
-                    rsAlerts.stream().forEach(r -> {
-                        for (Row row : r) {
-                            String payload = row.getString("payload");
-                            Alert alert = JsonUtil.fromJson(payload, Alert.class, thin);
-                            alerts.add(alert);
-                        }
-                    });
                 } else {
                     // This is the worst-case scenario of criteria featuring only manual filtering.  Generate a
                     // warning because clients should be discouraged from using such vague criteria.
@@ -754,6 +770,11 @@ public class CassAlertsServiceImpl implements AlertsService {
                     fetchAllAlerts(tenantId, thin, alerts);
                 }
 
+                /*
+                    Below this point we filter manually because the remaining filters have a low cardinality of
+                    values, and are not efficiently handled with database indexes.
+                 */
+
                 /*
                      filter by severities
                  */
@@ -788,13 +809,146 @@ public class CassAlertsServiceImpl implements AlertsService {
         return alerts;
     }
 
+    /*
+        The first page of every indexed query is probed in parallel. An index read in its first page gives its exact
+        alertIds, otherwise it is estimated as bigger than the probe size. The smallest index drives the query and only
+        its pages are read, probes of other indexes are discarded.
+     */
+    private Plan planAlertsQuery(String tenantId, AlertsCriteria criteria, List<Index> indexes) throws Exception {
+        if (indexes.contains(Index.ALERT_IDS)) {
+            return new Plan(Index.ALERT_IDS, filterByAlerts(criteria));
+        }
+        Map<Index, List<ResultSetFuture>> probes = new EnumMap<>(Index.class);
+        for (Index index : indexes) {
+            if (index != Index.TAGS) {
+                probes.put(index, getAlertIndexStatements(tenantId, criteria, index).stream()
+                        .map(statement -> session.executeAsync(statement.setFetchSize(criteriaProbeSize)))
+                        .collect(Collectors.toList()));
+            }
+        }
+        if (probes.isEmpty()) {
+            return new Plan(Index.TAGS, getIdsByTagQuery(tenantId, TagType.ALERT, criteria.getTagQuery()));
+        }
+        Map<Index, List<ResultSet>> results = new EnumMap<>(Index.class);
+        Map<Index, Long> estimations = new EnumMap<>(Index.class);
+        for (Map.Entry<Index, List<ResultSetFuture>> probe : probes.entrySet()) {
+            List<ResultSet> rsProbes = Futures.allAsList(probe.getValue()).get();
+            long estimation = 0;
+            for (ResultSet rsProbe : rsProbes) {
+                estimation += rsProbe.isFullyFetched() ? rsProbe.getAvailableWithoutFetching() : criteriaProbeSize + 1;
+            }
+            results.put(probe.getKey(), rsProbes);
+            estimations.put(probe.getKey(), estimation);
+        }
+        Index driver = AlertsQueryPlanner.chooseDriver(estimations);
+        Set<String> alertIds = new HashSet<>();
+        for (ResultSet rsDriver : results.get(driver)) {
+            for (Row row : rsDriver) {
+                alertIds.add(row.getString("alertId"));
+            }
+        }
+        return new Plan(driver, alertIds);
+    }
+
+    private List<Statement> getAlertIndexStatements(String tenantId, AlertsCriteria criteria, Index index)
+            throws Exception {
+        List<Statement> statements = new ArrayList<>();
+        switch (index) {
+            case TRIGGERS:
+                PreparedStatement selectAlertsTriggers = CassStatement.get(session,
+                        CassStatement.SELECT_ALERT_TRIGGER);
+                for (String triggerId : extractTriggerIds(tenantId, criteria)) {
+                    statements.add(selectAlertsTriggers.bind(tenantId, triggerId));
+                }
+                break;
+            case CTIME:
+                statements.addAll(bindTimeBuckets(tenantId, TimeBuckets.ALERTS_CTIMES, null,
+                        criteria.getStartTime(), criteria.getEndTime(), CassStatement.SELECT_ALERT_CTIME_START_END));
+                break;
+            case STATUS_TIME:
+                statements.addAll(bindTimeBuckets(tenantId, TimeBuckets.ALERTS_STIMES, null,
+                        criteria.getStartStatusTime(), criteria.getEndStatusTime(),
+                        CassStatement.SELECT_ALERT_STIME_START_END));
+                break;
+            case RESOLVED_TIME:
+                statements.addAll(bindTimeBuckets(tenantId, TimeBuckets.ALERTS_LIFECYCLE, Status.RESOLVED,
+                        criteria.getStartResolvedTime(), criteria.getEndResolvedTime(),
+                        CassStatement.SELECT_ALERT_LIFECYCLE_START_END));
+                break;
+            case ACK_TIME:
+                statements.addAll(bindTimeBuckets(tenantId, TimeBuckets.ALERTS_LIFECYCLE, Status.ACKNOWLEDGED,
+                        criteria.getStartAckTime(), criteria.getEndAckTime(),
+                        CassStatement.SELECT_ALERT_LIFECYCLE_START_END));
+                break;
+            default:
+                throw new IllegalArgumentException("Index " + index + " has no single table query");
+        }
+        return statements;
+    }
+
+    /*
+        Time indexes are partitioned by time buckets, a range is one query per registered bucket of the range, so
+        the buckets are read in parallel. Lifecycle indexes are also filtered by status.
+     */
+    private List<Statement> bindTimeBuckets(String tenantId, String index, Status status, Long start, Long end,
+                                            String startEndStatement) throws Exception {
+        PreparedStatement selectRange = CassStatement.get(session, startEndStatement);
+        List<Statement> statements = new ArrayList<>();
+        for (long bucket : TimeBuckets.getBuckets(session, tenantId, index, start, end)) {
+            long from = TimeBuckets.start(bucket, start);
+            long to = TimeBuckets.end(bucket, end);
+            statements.add(status == null ? selectRange.bind(tenantId, bucket, from, to)
+                    : selectRange.bind(tenantId, bucket, status.name(), from, to));
+        }
+        return statements;
+    }
+
+    /*
+        Cached alerts are not read. The rest are fetched by chunks of alertIds on the tenant partition, with a bounded
+        number of queries in flight. Only the alerts matching the rest of the criteria are kept.
+     */
+    private void fetchAlerts(String tenantId, Collection<String> alertIds, boolean thin, Predicate<Alert> matches,
+                             Collection<Alert> alerts) throws Exception {
+        List<String> uncachedIds = new ArrayList<>();
+        for (String alertId : alertIds) {
+            Alert alert = alertsCache.get(tenantId, alertId, thin);
+            if (alert == null) {
+                uncachedIds.add(alertId);
+            } else if (matches.test(alert)) {
+                alerts.add(alert);
+            }
+        }
+        PreparedStatement selectAlertsByIds = CassStatement.get(session, CassStatement.SELECT_ALERTS_BY_IDS);
+        List<ResultSetFuture> futures = new ArrayList<>();
+        List<String> chunk = new ArrayList<>(FETCH_CHUNK_SIZE);
+        for (Iterator<String> it = uncachedIds.iterator(); it.hasNext();) {
+            chunk.add(it.next());
+            if (chunk.size() < FETCH_CHUNK_SIZE && it.hasNext()) {
+                continue;
+            }
+            futures.add(session.executeAsync(selectAlertsByIds.bind(tenantId, chunk)));
+            chunk = new ArrayList<>(FETCH_CHUNK_SIZE);
+            if (futures.size() < FETCH_IN_FLIGHT && it.hasNext()) {
+                continue;
+            }
+            for (ResultSet rsAlerts : Futures.allAsList(futures).get()) {
+                for (Row row : rsAlerts) {
+                    Alert alert = decodeAlert(row, thin);
+                    if (matches.test(alert)) {
+                        alerts.add(alert);
+                    }
+                }
+            }
+            futures.clear();
+        }
+    }
+
     private void fetchAllAlerts(String tenantId, boolean thin, Collection<Alert> alerts) {
         PreparedStatement selectAlertsByTenant = CassStatement.get(session,
                 CassStatement.SELECT_ALERTS_BY_TENANT);
         ResultSet rsAlerts = session.execute(selectAlertsByTenant.bind(tenantId));
         for (Row row : rsAlerts) {
-            String payload = row.getString("payload");
-            Alert alert = JsonUtil.fromJson(payload, Alert.class, thin);
+            Alert alert = decodePayload(row, Alert.class, thin);
             alerts.add(alert);
         }
     }
@@ -847,30 +1001,6 @@ public class CassAlertsServiceImpl implements AlertsService {
         return result;
     }
 
-    private Set<String> filterByTriggers(String tenantId, AlertsCriteria criteria) throws Exception {
-        Set<String> result = Collections.emptySet();
-        Set<String> triggerIds = extractTriggerIds(tenantId, criteria);
-
-        if (triggerIds.size() > 0) {
-            PreparedStatement selectAlertsTriggers = CassStatement.get(session, CassStatement.SELECT_ALERT_TRIGGER);
-            List<ResultSetFuture> futures = triggerIds.stream()
-                    .map(triggerId -> session.executeAsync(selectAlertsTriggers.bind(tenantId, triggerId)))
-                    .collect(Collectors.toList());
-            List<ResultSet> rsAlertIdsByTriggerIds = Futures.allAsList(futures).get();
-
-            Set<String> alertIds = new HashSet<>();
-            rsAlertIdsByTriggerIds.stream().forEach(r -> {
-                for (Row row : r) {
-                    String alertId = row.getString("alertId");
-                    alertIds.add(alertId);
-                }
-            });
-            result = alertIds;
-        }
-
-        return result;
-    }
-
     private Set<String> extractTriggerIds(String tenantId, AlertsCriteria criteria) {
 
         boolean hasTriggerId = !isEmpty(criteria.getTriggerId());
@@ -894,37 +1024,6 @@ public class CassAlertsServiceImpl implements AlertsService {
         return triggerIds;
     }
 
-    private Set<String> filterByCTime(String tenantId, AlertsCriteria criteria) throws Exception {
-        Set<String> result = Collections.emptySet();
-
-        if (criteria.getStartTime() != null || criteria.getEndTime() != null) {
-            result = new HashSet<>();
-
-            BoundStatement boundCtime;
-            if (criteria.getStartTime() != null && criteria.getEndTime() != null) {
-                PreparedStatement selectAlertCTimeStartEnd = CassStatement.get(session,
-                        CassStatement.SELECT_ALERT_CTIME_START_END);
-                boundCtime = selectAlertCTimeStartEnd.bind(tenantId, criteria.getStartTime(),
-                        criteria.getEndTime());
-            } else if (criteria.getStartTime() != null) {
-                PreparedStatement selectAlertCTimeStart = CassStatement.get(session,
-                        CassStatement.SELECT_ALERT_CTIME_START);
-                boundCtime = selectAlertCTimeStart.bind(tenantId, criteria.getStartTime());
-            } else {
-                PreparedStatement selectAlertCTimeEnd = CassStatement.get(session,
-                        CassStatement.SELECT_ALERT_CTIME_END);
-                boundCtime = selectAlertCTimeEnd.bind(tenantId, criteria.getEndTime());
-            }
-
-            ResultSet rsAlertsCtimes = session.execute(boundCtime);
-            for (Row row : rsAlertsCtimes) {
-                String alertId = row.getString("alertId");
-                result.add(alertId);
-            }
-        }
-        return result;
-    }
-
     private void filterBySeverities(String tenantId, AlertsCriteria criteria, Collection<Alert> alerts)
             throws Exception {
         Set<Severity> severities = new HashSet<>();
@@ -967,37 +1066,6 @@ public class CassAlertsServiceImpl implements AlertsService {
         }
     }
 
-    private Set<String> filterByStatusTime(String tenantId, AlertsCriteria criteria) throws Exception {
-        Set<String> result = Collections.emptySet();
-
-        if (criteria.getStartStatusTime() != null || criteria.getEndStatusTime() != null) {
-            result = new HashSet<>();
-
-            BoundStatement boundStime;
-            if (criteria.getStartStatusTime() != null && criteria.getEndStatusTime() != null) {
-                PreparedStatement selectAlertSTimeStartEnd = CassStatement.get(session,
-                        CassStatement.SELECT_ALERT_STIME_START_END);
-                boundStime = selectAlertSTimeStartEnd.bind(tenantId, criteria.getStartStatusTime(),
-                        criteria.getEndStatusTime());
-            } else if (criteria.getStartStatusTime() != null) {
-                PreparedStatement selectAlertSTimeStart = CassStatement.get(session,
-                        CassStatement.SELECT_ALERT_STIME_START);
-                boundStime = selectAlertSTimeStart.bind(tenantId, criteria.getStartStatusTime());
-            } else {
-                PreparedStatement selectAlertSTimeEnd = CassStatement.get(session,
-                        CassStatement.SELECT_ALERT_STIME_END);
-                boundStime = selectAlertSTimeEnd.bind(tenantId, criteria.getEndStatusTime());
-            }
-
-            ResultSet rsAlertsStimes = session.execute(boundStime);
-            for (Row row : rsAlertsStimes) {
-                String alertId = row.getString("alertId");
-                result.add(alertId);
-            }
-        }
-        return result;
-    }
-
     private Set<String> filterByEvents(EventsCriteria criteria) {
         Set<String> result = Collections.emptySet();
         if (isEmpty(criteria.getEventIds())) {
@@ -1012,233 +1080,24 @@ public class CassAlertsServiceImpl implements AlertsService {
         return result;
     }
 
-    private Set<String> filterByResolvedTime(String tenantId, AlertsCriteria criteria) throws Exception {
-        Set<String> result = Collections.emptySet();
-
-        if (criteria.getStartResolvedTime() != null || criteria.getEndResolvedTime() != null) {
-            result = new HashSet<>();
-
-            BoundStatement boundLifecycleTime;
-            if (criteria.getStartResolvedTime() != null && criteria.getEndResolvedTime() != null) {
-                PreparedStatement selectAlertLifecycleStartEnd = CassStatement.get(session,
-                        CassStatement.SELECT_ALERT_LIFECYCLE_START_END);
-                boundLifecycleTime = selectAlertLifecycleStartEnd.bind(tenantId, Status.RESOLVED.name(),
-                        criteria.getStartResolvedTime(), criteria.getEndResolvedTime());
-            } else if (criteria.getStartResolvedTime() != null) {
-                PreparedStatement selectAlertLifecycleStart = CassStatement.get(session,
-                        CassStatement.SELECT_ALERT_LIFECYCLE_START);
-                boundLifecycleTime = selectAlertLifecycleStart.bind(tenantId, Status.RESOLVED.name(),
-                        criteria.getStartResolvedTime());
-            } else {
-                PreparedStatement selectAlertLifecycleEnd = CassStatement.get(session,
-                        CassStatement.SELECT_ALERT_LIFECYCLE_END);
-                boundLifecycleTime = selectAlertLifecycleEnd.bind(tenantId, criteria.getEndResolvedTime());
-            }
-
-            ResultSet rsAlertsLifecycleTimes = session.execute(boundLifecycleTime);
-            for (Row row : rsAlertsLifecycleTimes) {
-                String alertId = row.getString("alertId");
-                result.add(alertId);
-            }
-        }
-        return result;
-    }
-
-    private Set<String> filterByAckTime(String tenantId, AlertsCriteria criteria) throws Exception {
-        Set<String> result = Collections.emptySet();
-
-        if (criteria.getStartAckTime() != null || criteria.getEndAckTime() != null) {
-            result = new HashSet<>();
-
-            BoundStatement boundLifecycleTime;
-            if (criteria.getStartAckTime() != null && criteria.getEndAckTime() != null) {
-                PreparedStatement selectAlertLifecycleStartEnd = CassStatement.get(session,
-                        CassStatement.SELECT_ALERT_LIFECYCLE_START_END);
-                boundLifecycleTime = selectAlertLifecycleStartEnd.bind(tenantId, Status.ACKNOWLEDGED.name(),
-                        criteria.getStartAckTime(), criteria.getEndAckTime());
-            } else if (criteria.getStartAckTime() != null) {
-                PreparedStatement selectAlertLifecycleStart = CassStatement.get(session,
-                        CassStatement.SELECT_ALERT_LIFECYCLE_START);
-                boundLifecycleTime = selectAlertLifecycleStart.bind(tenantId, Status.ACKNOWLEDGED.name(),
-                        criteria.getStartAckTime());
-            } else {
-                PreparedStatement selectAlertLifecycleEnd = CassStatement.get(session,
-                        CassStatement.SELECT_ALERT_LIFECYCLE_END);
-                boundLifecycleTime = selectAlertLifecycleEnd.bind(tenantId, criteria.getEndAckTime());
-            }
-
-            ResultSet rsAlertsLifecycleTimes = session.execute(boundLifecycleTime);
-            for (Row row : rsAlertsLifecycleTimes) {
-                String alertId = row.getString("alertId");
-                result.add(alertId);
-            }
-        }
-        return result;
-    }
-
-    private Set<String> getIdsByTags(String tenantId, TagType tagType, Map<String, String> tags)
+    /*
+        Value to ids index of a tag name, read from its tags partition
+     */
+    private Map<String, Set<String>> getTagValues(String tenantId, TagType tagType, String tagName)
             throws Exception {
-        Set<String> ids = new HashSet<>();
-        List<ResultSetFuture> futures = new ArrayList<>();
+        Map<String, Set<String>> tagValues = new HashMap<>();
         PreparedStatement selectTagsByName = CassStatement.get(session, CassStatement.SELECT_TAGS_BY_NAME);
-        PreparedStatement selectTagsByNameAndValue = CassStatement.get(session,
-                CassStatement.SELECT_TAGS_BY_NAME_AND_VALUE);
-
-        for (Map.Entry<String, String> tag : tags.entrySet()) {
-            boolean nameOnly = "*".equals(tag.getValue());
-            BoundStatement bs = nameOnly ? selectTagsByName.bind(tenantId, tagType.name(), tag.getKey())
-                    : selectTagsByNameAndValue.bind(tenantId, tagType.name(), tag.getKey(), tag.getValue());
-            futures.add(session.executeAsync(bs));
-        }
-        List<ResultSet> rsTags = Futures.allAsList(futures).get();
-        rsTags.stream().forEach(r -> {
-            for (Row row : r) {
-                ids.add(row.getString("id"));
-            }
-        });
-        return ids;
-    }
-
-    private static class TagValue {
-        private String tenantId;
-        private String tag;
-        private String value;
-        private String id;
-
-        public TagValue(String tenantId, String tag, String value, String id) {
-            this.tenantId = tenantId;
-            this.tag = tag;
-            this.value = value;
-            this.id = id;
-        }
-
-        public String getTenantId() {
-            return tenantId;
-        }
-
-        public String getTag() {
-            return tag;
-        }
-
-        public String getValue() {
-            return value;
-        }
-
-        public String getId() {
-            return id;
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-
-            TagValue tagValue = (TagValue) o;
-
-            if (tenantId != null ? !tenantId.equals(tagValue.tenantId) : tagValue.tenantId != null) return false;
-            if (tag != null ? !tag.equals(tagValue.tag) : tagValue.tag != null) return false;
-            if (value != null ? !value.equals(tagValue.value) : tagValue.value != null) return false;
-            return id != null ? id.equals(tagValue.id) : tagValue.id == null;
-        }
-
-        @Override
-        public int hashCode() {
-            int result = tenantId != null ? tenantId.hashCode() : 0;
-            result = 31 * result + (tag != null ? tag.hashCode() : 0);
-            result = 31 * result + (value != null ? value.hashCode() : 0);
-            result = 31 * result + (id != null ? id.hashCode() : 0);
-            return result;
-        }
-    }
-
-    private Set<TagValue> getTagValueByTagName(String tenantId, TagType tagType, String tagName)
-        throws Exception {
-        Set<TagValue> tagValues = new HashSet<>();
-        PreparedStatement selectTagsByName = CassStatement.get(session, CassStatement.SELECT_TAGS_BY_NAME);
-        session.executeAsync(selectTagsByName.bind(tenantId, tagType.name(), tagName)).get().all() .forEach(r -> {
-            tagValues.add(new TagValue(tenantId, tagName, r.getString("value"), r.getString("id")));
+        session.executeAsync(selectTagsByName.bind(tenantId, tagType.name(), tagName)).get().all().forEach(r -> {
+            tagValues.computeIfAbsent(r.getString("value"), value -> new HashSet<>()).add(r.getString("id"));
         });
         return tagValues;
     }
 
-    private boolean filterTagValue(String op, String regexps, String value) {
-        if (op.equals(EQ) || op.equals(NEQ)) {
-            boolean matches;
-            String regexp;
-            if (regexps.equals("'*'")) {
-                matches = true;
-            } else if (regexps.charAt(0) == '\'') {
-                regexp = regexps.substring(1, regexps.length() - 1);
-                matches = value.matches(regexp);
-            } else {
-                regexp = regexps;
-                matches = value.equals(regexp);
-            }
-            return op.equals(EQ) ? matches : !matches;
-        } else {
-            String array = regexps.substring(1, regexps.length() - 1);
-            String[] items = array.split(",");
-            for (String item : items) {
-                if (item.equals("'*'")) {
-                    return op.equals(IN) ? true : false;
-                }
-                String regexp = item.charAt(0) == '\'' ? item.substring(1, item.length() - 1) : item;
-                if (value.matches(regexp)) {
-                    return op.equals(IN) ? true : false;
-                }
-            }
-            return op.equals(IN) ? false : true;
-        }
-    }
-
     private Set<String> getIdsByTagQuery(String tenantId, TagType tagType, String tagQuery)
             throws Exception {
-        ExpressionTagQueryParser parser = new ExpressionTagQueryParser(tokens -> {
-            Set<String> result = new HashSet<>();
-            if (tokens != null) {
-                String tag;
-                Map<String, String> map = new HashMap<>();
-                if (tokens.size() == 1) {
-                    // tag
-                    tag = tokens.get(0);
-                    map.put(tag, "*");
-                    Set<String> idsByTag = getIdsByTags(tenantId, tagType, map);
-                    result = idsByTag;
-                } else if (tokens.size() == 2) {
-                    // not tag
-                    tag = tokens.get(1);
-                    Set<String> allIds;
-                    if (TagType.ALERT.equals(tagType)) {
-                        allIds = getAllAlertIds(tenantId);
-                    } else {
-                        allIds = getAllEventIds(tenantId);
-                    }
-                    map.put(tag, "*");
-                    Set<String> idsByTag = getIdsByTags(tenantId, tagType, map);
-                    allIds.removeAll(idsByTag);
-                    result = allIds;
-                } else {
-                    tag = tokens.get(0);
-                    String op;
-                    String regexp;
-                    if (tokens.size() == 3) {
-                        op = tokens.get(1);
-                        regexp = tokens.get(2);
-                    } else {
-                        // not in [array]
-                        op = tokens.get(1) + tokens.get(2);
-                        regexp = tokens.get(3);
-                    }
-                    Set<TagValue> tagValues = getTagValueByTagName(tenantId, tagType, tag);
-                    result = tagValues.stream()
-                            .filter(tagValue -> filterTagValue(op, regexp, tagValue.getValue()))
-                            .map(tagValue -> tagValue.getId())
-                            .collect(Collectors.toSet());
-                }
-            }
-            return result;
-        });
-        return parser.resolve(tagQuery);
+        TagQueryExecutor executor = new TagQueryExecutor(tagName -> getTagValues(tenantId, tagType, tagName),
+                () -> TagType.ALERT.equals(tagType) ? getAllAlertIds(tenantId) : getAllEventIds(tenantId));
+        return executor.resolve(tagQuery);
     }
 
     private Set<String> getAllAlertIds(String tenantId) throws Exception {
@@ -1274,6 +1133,9 @@ public class CassAlertsServiceImpl implements AlertsService {
         if (isEmpty(tenantIds)) {
             throw new IllegalArgumentException("TenantIds must be not null");
         }
+        if (pager != null && pager.isCursor()) {
+            return getEventsByCursor(tenantIds, criteria, pager);
+        }
         List<Event> events = new ArrayList<>();
         if (tenantIds.size() == 1) {
             events.addAll(getEvents(tenantIds.iterator().next(), criteria));
@@ -1307,6 +1169,150 @@ public class CassAlertsServiceImpl implements AlertsService {
         }
     }
 
+    /*
+        Cursor pages are read in ctime order from events_ctimes, see getAlertsByCursor()
+     */
+    private Page<Event> getEventsByCursor(Set<String> tenantIds, EventsCriteria criteria, Pager pager)
+            throws Exception {
+        boolean filter = (null != criteria && criteria.hasCriteria());
+        boolean thin = (null != criteria && criteria.isThin());
+        CursorIndex index = new CursorIndex(TimeBuckets.EVENTS_CTIMES, "id",
+                CassStatement.SELECT_EVENT_CTIME_ASC_FROM, CassStatement.SELECT_EVENT_CTIME_ASC_AFTER,
+                CassStatement.SELECT_EVENT_CTIME_DESC_FROM, CassStatement.SELECT_EVENT_CTIME_DESC_AFTER,
+                CassStatement.SELECT_EVENTS_BY_IDS);
+        return getPageByCursor(getCursorTenant(tenantIds), pager, index, filter ? criteria.getStartTime() : null,
+                filter ? criteria.getEndTime() : null, Event.class, thin, events -> {
+                    if (!filter) {
+                        return;
+                    }
+                    events.removeIf(event -> !AlertsQueryPlanner.matches(event, criteria));
+                    if (criteria.hasTagQueryCriteria()) {
+                        AlertsQueryPlanner.filterByTagQuery(events, criteria.getTagQuery(),
+                                AlertsQueryPlanner::filterTagValue);
+                    }
+                });
+    }
+
+    /*
+        The index is read in pages and the candidates are fetched by chunks of ids, a chunk is one query on the
+        tenant partition. One element more than the page size is read to know if there is a next page.
+        The time buckets of the index are scanned one after the other in the order of the page, starting from the
+        bucket of the cursor.
+     */
+    private <T extends Event> Page<T> getPageByCursor(String tenantId, Pager pager, CursorIndex index, Long start,
+                                                      Long end, Class<T> clazz, boolean thin, ChunkFilter<T> filter)
+            throws Exception {
+        if (!pager.isLimited() || pager.getPageSize() == 0) {
+            throw new IllegalArgumentException("Cursor paging needs a page size");
+        }
+        boolean descending = isCursorDescending(pager);
+        int pageSize = pager.getPageSize();
+        PageCursor cursor = PageCursor.decode(pager.getCursor(), descending);
+        Long from = start;
+        Long to = end;
+        if (cursor != null) {
+            if (descending) {
+                to = cursor.ctime;
+            } else {
+                from = cursor.ctime;
+            }
+        }
+        List<Long> buckets = TimeBuckets.getBuckets(session, tenantId, index.name, from, to);
+        if (descending) {
+            Collections.reverse(buckets);
+        }
+        Iterator<Long> itBuckets = buckets.iterator();
+        int chunkSize = Math.min(FETCH_CHUNK_SIZE, pageSize + 1);
+        int fetchSize = Math.max(chunkSize, criteriaProbeSize);
+        Iterator<Row> rows = Collections.emptyIterator();
+        PreparedStatement selectByIds = CassStatement.get(session, index.selectByIds);
+        List<T> page = new ArrayList<>(pageSize + 1);
+        boolean exhausted = false;
+        while (page.size() <= pageSize && !exhausted) {
+            List<String> chunk = new ArrayList<>(chunkSize);
+            while (chunk.size() < chunkSize) {
+                if (!rows.hasNext()) {
+                    if (!itBuckets.hasNext()) {
+                        exhausted = true;
+                        break;
+                    }
+                    Statement selectIndex = selectCursorBucket(tenantId, index, itBuckets.next(), cursor,
+                            descending, start, end);
+                    rows = session.execute(selectIndex.setFetchSize(fetchSize)).iterator();
+                    continue;
+                }
+                Row row = rows.next();
+                long ctime = row.getLong("ctime");
+                if (descending ? (start != null && ctime < start) : (end != null && ctime > end)) {
+                    exhausted = true;
+                    break;
+                }
+                chunk.add(row.getString(index.idColumn));
+            }
+            if (chunk.isEmpty()) {
+                continue;
+            }
+            /*
+                IN queries return rows in id order, the index order is restored
+             */
+            Map<String, T> fetched = new HashMap<>();
+            for (Row row : session.execute(selectByIds.bind(tenantId, chunk))) {
+                T item = decodePayload(row, clazz, thin);
+                fetched.put(item.getId(), item);
+            }
+            List<T> candidates = new ArrayList<>(chunk.size());
+            for (String id : chunk) {
+                if (fetched.containsKey(id)) {
+                    candidates.add(fetched.get(id));
+                }
+            }
+            filter.filter(candidates);
+            page.addAll(candidates);
+        }
+        String nextCursor = null;
+        if (page.size() > pageSize) {
+            page = new ArrayList<>(page.subList(0, pageSize));
+            T last = page.get(pageSize - 1);
+            nextCursor = new PageCursor(descending, last.getCtime(), last.getId()).encode();
+        }
+        return new Page<>(page, pager, Page.UNKNOWN_SIZE, nextCursor);
+    }
+
+    /*
+        The bucket of the cursor is read after the cursor, the rest of buckets from the start of the range
+     */
+    private Statement selectCursorBucket(String tenantId, CursorIndex index, long bucket, PageCursor cursor,
+                                         boolean descending, Long start, Long end) {
+        if (cursor != null && bucket == TimeBuckets.bucket(cursor.ctime)) {
+            return CassStatement.get(session, descending ? index.descAfter : index.ascAfter)
+                    .bind(tenantId, bucket, cursor.ctime, cursor.id);
+        }
+        return descending
+                ? CassStatement.get(session, index.descFrom).bind(tenantId, bucket, TimeBuckets.end(bucket, end))
+                : CassStatement.get(session, index.ascFrom).bind(tenantId, bucket, TimeBuckets.start(bucket, start));
+    }
+
+    private String getCursorTenant(Set<String> tenantIds) {
+        if (tenantIds.size() > 1) {
+            throw new IllegalArgumentException("Cursor paging is supported on single tenant queries only");
+        }
+        return tenantIds.iterator().next();
+    }
+
+    /*
+        Cursor pages follow the clustering order of the ctimes tables, newest first by default
+     */
+    private boolean isCursorDescending(Pager pager) {
+        Order order = pager.getOrder().get(0);
+        if (!order.isSpecific()) {
+            return true;
+        }
+        if (pager.getOrder().size() > 1 || !Field.CTIME.getText().equals(order.getField())) {
+            throw new IllegalArgumentException("Cursor paging supports only ordering by ctime");
+        }
+        return !order.isAscending();
+    }
+
     private List<Event> getEvents(String tenantId, EventsCriteria criteria) throws Exception {
         boolean filter = (null != criteria && criteria.hasCriteria());
         boolean thin = (null != criteria && criteria.isThin());
@@ -1451,8 +1457,7 @@ public class CassAlertsServiceImpl implements AlertsService {
                 List<ResultSet> rsEvents = Futures.allAsList(futures).get();
                 rsEvents.stream().forEach(r -> {
                     for (Row row : r) {
-                        String payload = row.getString("payload");
-                        Event event = JsonUtil.fromJson(payload, Event.class, thin);
+                        Event event = decodePayload(row, Event.class, thin);
                         events.add(event);
                     }
                 });
@@ -1465,8 +1470,7 @@ public class CassAlertsServiceImpl implements AlertsService {
                         CassStatement.SELECT_EVENTS_BY_TENANT);
                 ResultSet rsEvents = session.execute(selectEventsByTenant.bind(tenantId));
                 for (Row row : rsEvents) {
-                    String payload = row.getString("payload");
-                    Event event = JsonUtil.fromJson(payload, Event.class, thin);
+                    Event event = decodePayload(row, Event.class, thin);
                     events.add(event);
                 }
 
@@ -1489,8 +1493,7 @@ public class CassAlertsServiceImpl implements AlertsService {
         List<ResultSet> rsEvents = Futures.allAsList(futures).get();
         rsEvents.stream().forEach(r -> {
             for (Row row : r) {
-                String payload = row.getString("payload");
-                Event event = JsonUtil.fromJson(payload, Event.class, thin);
+                Event event = decodePayload(row, Event.class, thin);
                 events.add(event);
             }
         });
@@ -1590,26 +1593,16 @@ public class CassAlertsServiceImpl implements AlertsService {
         if (criteria.getStartTime() != null || criteria.getEndTime() != null) {
             result = new HashSet<>();
 
-            BoundStatement boundCtime;
-            if (criteria.getStartTime() != null && criteria.getEndTime() != null) {
-                PreparedStatement selectEventCTimeStartEnd = CassStatement.get(session,
-                        CassStatement.SELECT_EVENT_CTIME_START_END);
-                boundCtime = selectEventCTimeStartEnd.bind(tenantId, criteria.getStartTime(),
-                        criteria.getEndTime());
-            } else if (criteria.getStartTime() != null) {
-                PreparedStatement selectEventCTimeStart = CassStatement.get(session,
-                        CassStatement.SELECT_EVENT_CTIME_START);
-                boundCtime = selectEventCTimeStart.bind(tenantId, criteria.getStartTime());
-            } else {
-                PreparedStatement selectEventCTimeEnd = CassStatement.get(session,
-                        CassStatement.SELECT_EVENT_CTIME_END);
-                boundCtime = selectEventCTimeEnd.bind(tenantId, criteria.getEndTime());
-            }
-
-            ResultSet rsIdsCtimes = session.execute(boundCtime);
-            for (Row row : rsIdsCtimes) {
-                String eventId = row.getString("id");
-                result.add(eventId);
+            List<ResultSetFuture> futures = bindTimeBuckets(tenantId, TimeBuckets.EVENTS_CTIMES, null,
+                    criteria.getStartTime(), criteria.getEndTime(), CassStatement.SELECT_EVENT_CTIME_START_END)
+                    .stream()
+                    .map(statement -> session.executeAsync(statement))
+                    .collect(Collectors.toList());
+            for (ResultSet rsIdsCtimes : Futures.allAsList(futures).get()) {
+                for (Row row : rsIdsCtimes) {
+                    String eventId = row.getString("id");
+                    result.add(eventId);
+                }
             }
         }
         return result;
@@ -1689,11 +1682,18 @@ public class CassAlertsServiceImpl implements AlertsService {
         criteria.setAlertIds(alertIds);
         List<Alert> alertsToAck = getAlerts(tenantId, criteria, null);
 
-        for (Alert a : alertsToAck) {
-            a.addNote(ackBy, ackNotes);
-            a.addLifecycle(Status.ACKNOWLEDGED, ackBy, System.currentTimeMillis());
-            updateAlertStatus(a);
-            sendAction(a);
+        AlertCounters counters = new AlertCounters();
+        try {
+            for (Alert a : alertsToAck) {
+                Status previous = a.getStatus();
+                a.addNote(ackBy, ackNotes);
+                a.addLifecycle(Status.ACKNOWLEDGED, ackBy, System.currentTimeMillis());
+                updateAlertStatus(a);
+                counters.move(a, previous);
+                sendAction(a);
+            }
+        } finally {
+            updateCounters(counters);
         }
     }
 
@@ -1729,11 +1729,13 @@ public class CassAlertsServiceImpl implements AlertsService {
         for (Alert a : alertsToDelete) {
             String id = a.getAlertId();
             batch.add(deleteAlert.bind(tenantId, id));
-            batch.add(deleteAlertCtime.bind(tenantId, a.getCtime(), id));
+            batch.add(deleteAlertCtime.bind(tenantId, TimeBuckets.bucket(a.getCtime()), a.getCtime(), id));
             batch.add(deleteAlertTrigger.bind(tenantId, a.getTriggerId(), id));
             a.getLifecycle().stream().forEach(l -> {
-                batch.add(deleteAlertLifecycle.bind(tenantId, l.getStatus().name(), l.getStime(), a.getAlertId()));
-                batch.add(deleteAlertStime.bind(tenantId, l.getStime(), a.getAlertId()));
+                long bucket = TimeBuckets.bucket(l.getStime());
+                batch.add(deleteAlertLifecycle.bind(tenantId, bucket, l.getStatus().name(), l.getStime(),
+                        a.getAlertId()));
+                batch.add(deleteAlertStime.bind(tenantId, bucket, l.getStime(), a.getAlertId()));
             });
             i += batch.size();
             if (i > batchSize) {
@@ -1747,6 +1749,12 @@ public class CassAlertsServiceImpl implements AlertsService {
         }
         Futures.allAsList(futures).get();
 
+        alertsToDelete.stream().forEach(a -> alertsCache.remove(tenantId, a.getAlertId()));
+
+        AlertCounters counters = new AlertCounters();
+        alertsToDelete.stream().forEach(counters::remove);
+        updateCounters(counters);
+
         return alertsToDelete.size();
     }
 
@@ -1783,7 +1791,7 @@ public class CassAlertsServiceImpl implements AlertsService {
             String id = e.getId();
             batch.add(deleteEvent.bind(tenantId, id));
             batch.add(deleteEventCategory.bind(tenantId, e.getCategory(), id));
-            batch.add(deleteEventCTime.bind(tenantId, e.getCtime(), id));
+            batch.add(deleteEventCTime.bind(tenantId, TimeBuckets.bucket(e.getCtime()), e.getCtime(), id));
             if (null != e.getTrigger()) {
                 batch.add(deleteEventTrigger.bind(tenantId, e.getTrigger().getId(), id));
             }
@@ -1825,12 +1833,19 @@ public class CassAlertsServiceImpl implements AlertsService {
         List<Alert> alertsToResolve = getAlerts(tenantId, criteria, null);
 
         // resolve the alerts
-        for (Alert a : alertsToResolve) {
-            a.addNote(resolvedBy, resolvedNotes);
-            a.setResolvedEvalSets(resolvedEvalSets);
-            a.addLifecycle(Status.RESOLVED, resolvedBy, System.currentTimeMillis());
-            updateAlertStatus(a);
-            sendAction(a);
+        AlertCounters counters = new AlertCounters();
+        try {
+            for (Alert a : alertsToResolve) {
+                Status previous = a.getStatus();
+                a.addNote(resolvedBy, resolvedNotes);
+                a.setResolvedEvalSets(resolvedEvalSets);
+                a.addLifecycle(Status.RESOLVED, resolvedBy, System.currentTimeMillis());
+                updateAlertStatus(a);
+                counters.move(a, previous);
+                sendAction(a);
+            }
+        } finally {
+            updateCounters(counters);
         }
 
         // gather the triggerIds of the triggers we need to check for resolve options
@@ -1863,12 +1878,19 @@ public class CassAlertsServiceImpl implements AlertsService {
         criteria.setStatusSet(EnumSet.complementOf(EnumSet.of(Status.RESOLVED)));
         List<Alert> alertsToResolve = getAlerts(tenantId, criteria, null);
 
-        for (Alert a : alertsToResolve) {
-            a.addNote(resolvedBy, resolvedNotes);
-            a.setResolvedEvalSets(resolvedEvalSets);
-            a.addLifecycle(Status.RESOLVED, resolvedBy, System.currentTimeMillis());
-            updateAlertStatus(a);
-            sendAction(a);
+        AlertCounters counters = new AlertCounters();
+        try {
+            for (Alert a : alertsToResolve) {
+                Status previous = a.getStatus();
+                a.addNote(resolvedBy, resolvedNotes);
+                a.setResolvedEvalSets(resolvedEvalSets);
+                a.addLifecycle(Status.RESOLVED, resolvedBy, System.currentTimeMillis());
+                updateAlertStatus(a);
+                counters.move(a, previous);
+                sendAction(a);
+            }
+        } finally {
+            updateCounters(counters);
         }
 
         handleResolveOptions(tenantId, triggerId, false);
@@ -1883,26 +1905,36 @@ public class CassAlertsServiceImpl implements AlertsService {
                     CassStatement.INSERT_ALERT_LIFECYCLE);
             PreparedStatement insertAlertStime = CassStatement.get(session,
                     CassStatement.INSERT_ALERT_STIME);
-            PreparedStatement updateAlert = CassStatement.get(session,
-                    CassStatement.UPDATE_ALERT);
+            PreparedStatement updateAlert = payloadStatement(CassStatement.UPDATE_ALERT,
+                    CassStatement.UPDATE_ALERT_BIN);
 
             List<ResultSetFuture> futures = new ArrayList<>();
+            int ttl = alertTtl(alert);
             Alert.LifeCycle lifecycle = alert.getCurrentLifecycle();
             if (lifecycle != null) {
-                futures.add(session.executeAsync(insertAlertLifecycle.bind(alert.getTenantId(), alert.getAlertId(),
-                        lifecycle.getStatus().name(), lifecycle.getStime())));
-                futures.add(session.executeAsync(insertAlertStime.bind(alert.getTenantId(), alert.getAlertId(),
-                        lifecycle.getStime())));
+                long bucket = TimeBuckets.bucket(lifecycle.getStime());
+                new TimeBuckets.Registration(session)
+                        .add(alert.getTenantId(), TimeBuckets.ALERTS_LIFECYCLE, lifecycle.getStime())
+                        .add(alert.getTenantId(), TimeBuckets.ALERTS_STIMES, lifecycle.getStime())
+                        .execute();
+                futures.add(session.executeAsync(insertAlertLifecycle.bind(alert.getTenantId(), bucket,
+                        alert.getAlertId(), lifecycle.getStatus().name(), lifecycle.getStime(), ttl)));
+                futures.add(session.executeAsync(insertAlertStime.bind(alert.getTenantId(), bucket,
+                        alert.getAlertId(), lifecycle.getStime(), ttl)));
             }
-            futures.add(session.executeAsync(updateAlert.bind(JsonUtil.toJson(alert), alert.getTenantId(),
-                    alert.getAlertId())));
+            Object payload = codec.encode(alert);
+            futures.add(session.executeAsync(updateAlert.bind(alert.getTenantId(), alert.getAlertId(), payload,
+                    ttl)));
 
             Futures.allAsList(futures).get();
 
+            alertsCache.put(alert, payload);
+
         } catch (Exception e) {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
+        watchHub.publishAlerts(Collections.singletonList(alert));
         return alert;
     }
 
@@ -2005,6 +2037,53 @@ public class CassAlertsServiceImpl implements AlertsService {
         incomingDataManager.bufferEvents(new IncomingEvents(events, !ignoreFiltering));
     }
 
+    /*
+        Alerts and Events payloads are written in the payload or payloadBin column depending on the codec format
+     */
+    private PreparedStatement payloadStatement(String jsonStatement, String binaryStatement) {
+        return CassStatement.get(session, codec.isBinary() ? binaryStatement : jsonStatement);
+    }
+
+    private <T> T decodePayload(Row row, Class<T> clazz, boolean thin) {
+        return codec.decode(row.getBytes("payloadBin"), row.getString("payload"), clazz, thin);
+    }
+
+    /*
+        Open alerts read by id are cached, the row holds the full payload even for a thin read
+     */
+    private Alert decodeAlert(Row row, boolean thin) {
+        ByteBuffer payloadBin = row.getBytes("payloadBin");
+        String payload = row.getString("payload");
+        Alert alert = codec.decode(payloadBin, payload, Alert.class, thin);
+        alertsCache.putForExternalRead(alert, payloadBin, payload);
+        return alert;
+    }
+
+    /*
+        Counters are updated once the alerts are written, for the alerts written. They are not idempotent, a failed
+        update is logged and not retried.
+     */
+    private void updateCounters(AlertCounters counters) {
+        try {
+            counters.execute(session);
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+        }
+    }
+
+    /*
+        Alerts expire by their TTL a grace period after their retention, so the purge deletes them first and discounts
+        the unresolved ones from the counters. The TTL remains as a backstop.
+     */
+    private int alertTtl(Alert a) {
+        int ttl = retention.getTtl(a.getTenantId(), Retention.Type.ALERTS, a.getCtime());
+        return ttl == 0 ? 0 : (int) Math.min(Retention.MAX_TTL, ttl + alertsTtlGrace);
+    }
+
+    private int eventTtl(Event e) {
+        return retention.getTtl(e.getTenantId(), Retention.Type.EVENTS, e.getCtime());
+    }
+
     private void sendAction(Alert a) {
         if (actionsService != null && a != null && a.getTrigger() != null) {
             actionsService.send(a.getTrigger(), a);
@@ -2023,4 +2102,31 @@ public class CassAlertsServiceImpl implements AlertsService {
         return null == s || s.trim().isEmpty();
     }
 
-}
\ No newline at end of file
+    /*
+        Statements of a ctimes index table used on cursor paging
+     */
+    private static class CursorIndex {
+        final String name;
+        final String idColumn;
+        final String ascFrom;
+        final String ascAfter;
+        final String descFrom;
+        final String descAfter;
+        final String selectByIds;
+
+        CursorIndex(String name, String idColumn, String ascFrom, String ascAfter, String descFrom,
+                    String descAfter, String selectByIds) {
+            this.name = name;
+            this.idColumn = idColumn;
+            this.ascFrom = ascFrom;
+            this.ascAfter = ascAfter;
+            this.descFrom = descFrom;
+            this.descAfter = descAfter;
+            this.selectByIds = selectByIds;
+        }
+    }
+
+    private interface ChunkFilter<T> {
+        void filter(List<T> chunk) throws Exception;
+    }
+}
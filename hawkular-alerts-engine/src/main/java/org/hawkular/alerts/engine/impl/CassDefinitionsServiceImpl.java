@@ -2234,7 +2234,8 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
         BatchStatement batch = new BatchStatement(batchType);
         int i = 0;
         for (Entry<String, String> tag : tags.entrySet()) {
-            batch.add(insertTag.bind(tenantId, type.name(), tag.getKey(), tag.getValue(), id));
+            // Definitions are not subject to retention, no TTL
+            batch.add(insertTag.bind(tenantId, type.name(), tag.getKey(), tag.getValue(), id, 0));
             i += batch.size();
             if (i > batchSize) {
                 futures.add(session.executeAsync(batch));
@@ -2601,6 +2602,9 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
+
+        notifyListeners(new DefinitionsEvent(Type.ACTION_PLUGIN_CHANGE, null, actionPlugin, null, actionPlugin, null,
+                null));
     }
 
     @Override
@@ -2618,6 +2622,9 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
+
+        notifyListeners(new DefinitionsEvent(Type.ACTION_PLUGIN_CHANGE, null, actionPlugin, null, actionPlugin, null,
+                null));
     }
 
     @Override
@@ -2660,6 +2667,9 @@ public class CassDefinitionsServiceImpl implements DefinitionsService {
             msgLog.errorDatabaseException(e.getMessage());
             throw e;
         }
+
+        notifyListeners(new DefinitionsEvent(Type.ACTION_PLUGIN_CHANGE, null, actionPlugin, null, actionPlugin, null,
+                null));
     }
 
     @Override
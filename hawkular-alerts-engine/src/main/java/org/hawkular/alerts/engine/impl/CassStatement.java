@@ -41,12 +41,16 @@ public class CassStatement {
     public static final String DELETE_ACTION_HISTORY_ACTION;
     public static final String DELETE_ACTION_HISTORY_ALERT;
     public static final String DELETE_ACTION_HISTORY_CTIME;
+    public static final String DELETE_ACTION_HISTORY_CTIME_BUCKET;
     public static final String DELETE_ACTION_HISTORY_RESULT;
     public static final String DELETE_ACTION_PLUGIN;
     public static final String DELETE_ALERT;
     public static final String DELETE_ALERT_CTIME;
+    public static final String DELETE_ALERT_CTIME_BUCKET;
     public static final String DELETE_ALERT_LIFECYCLE;
+    public static final String DELETE_ALERT_LIFECYCLE_BUCKET;
     public static final String DELETE_ALERT_STIME;
+    public static final String DELETE_ALERT_STIME_BUCKET;
     public static final String DELETE_ALERT_TRIGGER;
     public static final String DELETE_CONDITIONS;
     public static final String DELETE_CONDITIONS_MODE;
@@ -55,8 +59,10 @@ public class CassStatement {
     public static final String DELETE_EVENT;
     public static final String DELETE_EVENT_CATEGORY;
     public static final String DELETE_EVENT_CTIME;
+    public static final String DELETE_EVENT_CTIME_BUCKET;
     public static final String DELETE_EVENT_TRIGGER;
     public static final String DELETE_TAG;
+    public static final String DELETE_TIME_BUCKET;
     public static final String DELETE_TRIGGER_ACTIONS;
     public static final String DELETE_TRIGGER;
 
@@ -64,11 +70,13 @@ public class CassStatement {
     public static final String INSERT_ACTION_HISTORY;
     public static final String INSERT_ACTION_HISTORY_ACTION;
     public static final String INSERT_ACTION_HISTORY_ALERT;
+    public static final String INSERT_ACTION_HISTORY_DIGEST_ALERT;
     public static final String INSERT_ACTION_HISTORY_CTIME;
     public static final String INSERT_ACTION_HISTORY_RESULT;
     public static final String INSERT_ACTION_PLUGIN;
     public static final String INSERT_ACTION_PLUGIN_DEFAULT_PROPERTIES;
     public static final String INSERT_ALERT;
+    public static final String INSERT_ALERT_BIN;
     public static final String INSERT_ALERT_CTIME;
     public static final String INSERT_ALERT_LIFECYCLE;
     public static final String INSERT_ALERT_STIME;
@@ -85,10 +93,12 @@ public class CassStatement {
     public static final String INSERT_CONDITION_THRESHOLD_RANGE;
     public static final String INSERT_DAMPENING;
     public static final String INSERT_EVENT;
+    public static final String INSERT_EVENT_BIN;
     public static final String INSERT_EVENT_CATEGORY;
     public static final String INSERT_EVENT_CTIME;
     public static final String INSERT_EVENT_TRIGGER;
     public static final String INSERT_TAG;
+    public static final String INSERT_TIME_BUCKET;
     public static final String INSERT_TRIGGER;
     public static final String INSERT_TRIGGER_ACTIONS;
 
@@ -100,8 +110,6 @@ public class CassStatement {
     public static final String SELECT_ACTION_HISTORY_ACTION_PLUGIN;
     public static final String SELECT_ACTION_HISTORY_ALERT_ID;
     public static final String SELECT_ACTION_HISTORY_BY_TENANT;
-    public static final String SELECT_ACTION_HISTORY_CTIME_END;
-    public static final String SELECT_ACTION_HISTORY_CTIME_START;
     public static final String SELECT_ACTION_HISTORY_CTIME_START_END;
     public static final String SELECT_ACTION_HISTORY_RESULT;
     public static final String SELECT_ACTION_ID_ALL;
@@ -111,17 +119,18 @@ public class CassStatement {
     public static final String SELECT_ACTION_PLUGIN_DEFAULT_PROPERTIES;
     public static final String SELECT_ACTION_PLUGINS;
     public static final String SELECT_ALERT;
-    public static final String SELECT_ALERT_CTIME_END;
-    public static final String SELECT_ALERT_CTIME_START;
+    public static final String SELECT_ALERTS_BY_IDS;
+    public static final String SELECT_ALERT_COUNTERS;
+    public static final String SELECT_ALERT_CTIME_ASC_AFTER;
+    public static final String SELECT_ALERT_CTIME_ASC_FROM;
+    public static final String SELECT_ALERT_CTIME_DESC_AFTER;
+    public static final String SELECT_ALERT_CTIME_DESC_FROM;
     public static final String SELECT_ALERT_CTIME_START_END;
     public static final String SELECT_ALERT_IDS_BY_TENANT;
-    public static final String SELECT_ALERT_LIFECYCLE_END;
-    public static final String SELECT_ALERT_LIFECYCLE_START;
     public static final String SELECT_ALERT_LIFECYCLE_START_END;
-    public static final String SELECT_ALERT_STIME_END;
-    public static final String SELECT_ALERT_STIME_START;
     public static final String SELECT_ALERT_STIME_START_END;
     public static final String SELECT_ALERT_TRIGGER;
+    public static final String SELECT_ALERT_TRIGGER_COUNTERS;
     public static final String SELECT_ALERTS_BY_TENANT;
     public static final String SELECT_CONDITION_ID;
     public static final String SELECT_CONDITIONS_ALL;
@@ -131,17 +140,22 @@ public class CassStatement {
     public static final String SELECT_DAMPENINGS_BY_TENANT;
     public static final String SELECT_EVENT;
     public static final String SELECT_EVENT_CATEGORY;
-    public static final String SELECT_EVENT_CTIME_END;
-    public static final String SELECT_EVENT_CTIME_START;
+    public static final String SELECT_EVENT_CTIME_ASC_AFTER;
+    public static final String SELECT_EVENT_CTIME_ASC_FROM;
+    public static final String SELECT_EVENT_CTIME_DESC_AFTER;
+    public static final String SELECT_EVENT_CTIME_DESC_FROM;
     public static final String SELECT_EVENT_CTIME_START_END;
     public static final String SELECT_EVENT_IDS_BY_TENANT;
     public static final String SELECT_EVENT_TRIGGER;
+    public static final String SELECT_EVENTS_BY_IDS;
     public static final String SELECT_EVENTS_BY_TENANT;
     //public static final String SELECT_EVENTS_BY_PARTITION;
     // public static final String SELECT_PARTITIONS_EVENTS;
     public static final String SELECT_PARTITIONS_TRIGGERS;
     public static final String SELECT_TAGS_BY_NAME;
     public static final String SELECT_TAGS_BY_NAME_AND_VALUE;
+    public static final String SELECT_TIME_BUCKETS;
+    public static final String SELECT_TIME_BUCKETS_INDEXES;
     public static final String SELECT_TRIGGER;
     public static final String SELECT_TRIGGER_ACTIONS;
     public static final String SELECT_TRIGGER_CONDITIONS;
@@ -156,8 +170,12 @@ public class CassStatement {
     public static final String UPDATE_ACTION_PLUGIN;
     public static final String UPDATE_ACTION_PLUGIN_DEFAULT_PROPERTIES;
     public static final String UPDATE_ALERT;
+    public static final String UPDATE_ALERT_BIN;
+    public static final String UPDATE_ALERT_COUNTER;
+    public static final String UPDATE_ALERT_TRIGGER_COUNTER;
     public static final String UPDATE_DAMPENING_ID;
     public static final String UPDATE_EVENT;
+    public static final String UPDATE_EVENT_BIN;
     public static final String UPDATE_TRIGGER;
     public static final String UPDATE_TRIGGER_DATA_ID_MAP;
     public static final String UPDATE_TRIGGER_ENABLED;
@@ -177,8 +195,12 @@ public class CassStatement {
         DELETE_ACTION_HISTORY_ALERT = "DELETE FROM " + keyspace + ".actions_history_alerts " +
                 "WHERE tenantId = ? AND alertId = ? AND actionPlugin = ? AND actionId = ? AND ctime = ?";
 
-        DELETE_ACTION_HISTORY_CTIME = "DELETE FROM " + keyspace + ".actions_history_ctimes " +
-                "WHERE tenantId = ? AND ctime = ? AND actionPlugin = ? AND actionId = ? AND alertId = ?";
+        DELETE_ACTION_HISTORY_CTIME = "DELETE FROM " + keyspace + ".actions_history_ctimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? AND ctime = ? AND actionPlugin = ? AND actionId = ? "
+                + "AND alertId = ?";
+
+        DELETE_ACTION_HISTORY_CTIME_BUCKET = "DELETE FROM " + keyspace + ".actions_history_ctimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? ";
 
         DELETE_ACTION_HISTORY_RESULT = "DELETE FROM " + keyspace + ".actions_history_results " +
                 "WHERE tenantId = ? AND result = ? AND actionPlugin = ? AND actionId = ? AND alertId = ? AND ctime = ?";
@@ -187,14 +209,23 @@ public class CassStatement {
 
         DELETE_ALERT = "DELETE FROM " + keyspace + ".alerts " + "WHERE tenantId = ? AND alertId = ? ";
 
-        DELETE_ALERT_CTIME = "DELETE FROM " + keyspace + ".alerts_ctimes "
-                + "WHERE tenantId = ? AND ctime = ? AND alertId = ? ";
+        DELETE_ALERT_CTIME = "DELETE FROM " + keyspace + ".alerts_ctimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? AND ctime = ? AND alertId = ? ";
+
+        DELETE_ALERT_CTIME_BUCKET = "DELETE FROM " + keyspace + ".alerts_ctimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? ";
+
+        DELETE_ALERT_LIFECYCLE = "DELETE FROM " + keyspace + ".alerts_lifecycle_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? AND status = ? AND stime = ? AND alertId = ? ";
+
+        DELETE_ALERT_LIFECYCLE_BUCKET = "DELETE FROM " + keyspace + ".alerts_lifecycle_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? ";
 
-        DELETE_ALERT_LIFECYCLE = "DELETE FROM " + keyspace + ".alerts_lifecycle "
-                + "WHERE tenantId = ? AND status = ? AND stime = ? AND alertId = ? ";
+        DELETE_ALERT_STIME = "DELETE FROM " + keyspace + ".alerts_stimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? AND stime = ? AND alertId = ? ";
 
-        DELETE_ALERT_STIME = "DELETE FROM " + keyspace + ".alerts_stimes "
-                + "WHERE tenantId = ? AND stime = ? AND alertId = ? ";
+        DELETE_ALERT_STIME_BUCKET = "DELETE FROM " + keyspace + ".alerts_stimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? ";
 
         DELETE_ALERT_TRIGGER = "DELETE FROM " + keyspace + ".alerts_triggers "
                 + "WHERE tenantId = ? AND triggerId = ? AND alertId = ? ";
@@ -211,8 +242,11 @@ public class CassStatement {
 
         DELETE_EVENT = "DELETE FROM " + keyspace + ".events " + "WHERE tenantId = ? AND id = ? ";
 
-        DELETE_EVENT_CTIME = "DELETE FROM " + keyspace + ".events_ctimes "
-                + "WHERE tenantId = ? AND ctime = ? AND id = ? ";
+        DELETE_EVENT_CTIME = "DELETE FROM " + keyspace + ".events_ctimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? AND ctime = ? AND id = ? ";
+
+        DELETE_EVENT_CTIME_BUCKET = "DELETE FROM " + keyspace + ".events_ctimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? ";
 
         DELETE_EVENT_CATEGORY = "DELETE FROM " + keyspace + ".events_categories "
                 + "WHERE tenantId = ? AND category = ? AND id = ? ";
@@ -223,6 +257,9 @@ public class CassStatement {
         DELETE_TAG = "DELETE FROM " + keyspace + ".tags "
                 + "WHERE tenantId = ? AND type = ? AND name = ? and value = ? AND id = ?";
 
+        DELETE_TIME_BUCKET = "DELETE FROM " + keyspace + ".time_buckets "
+                + "WHERE tenantId = ? AND name = ? AND bucket = ? ";
+
         DELETE_TRIGGER_ACTIONS = "DELETE FROM " + keyspace + ".triggers_actions "
                 + "WHERE tenantId = ? AND triggerId = ? ";
 
@@ -233,23 +270,27 @@ public class CassStatement {
 
         INSERT_ACTION_HISTORY = "INSERT INTO " + keyspace + ".actions_history "
                 + "(tenantId, actionPlugin, actionId, alertId, ctime, payload) VALUES (?, ?, ?, ?, ?, ?) " +
-                "IF NOT EXISTS";
+                "IF NOT EXISTS USING TTL ?";
 
         INSERT_ACTION_HISTORY_ACTION = "INSERT INTO " + keyspace + ".actions_history_actions "
                 + "(tenantId, actionId, actionPlugin, alertId, ctime) VALUES (?, ?, ?, ?, ?) " +
-                "IF NOT EXISTS";
+                "USING TTL ?";
 
         INSERT_ACTION_HISTORY_ALERT = "INSERT INTO " + keyspace + ".actions_history_alerts "
                 + "(tenantId, alertId, actionPlugin, actionId, ctime) VALUES (?, ?, ?, ?, ?) " +
-                "IF NOT EXISTS";
+                "USING TTL ?";
+
+        INSERT_ACTION_HISTORY_DIGEST_ALERT = "INSERT INTO " + keyspace + ".actions_history_alerts "
+                + "(tenantId, alertId, actionPlugin, actionId, ctime, historyAlertId) VALUES (?, ?, ?, ?, ?, ?) " +
+                "USING TTL ?";
 
-        INSERT_ACTION_HISTORY_CTIME = "INSERT INTO " + keyspace + ".actions_history_ctimes "
-                + "(tenantId, ctime, actionPlugin, actionId, alertId) VALUES (?, ?, ?, ?, ?) " +
-                "IF NOT EXISTS";
+        INSERT_ACTION_HISTORY_CTIME = "INSERT INTO " + keyspace + ".actions_history_ctimes_bucketed "
+                + "(tenantId, bucket, ctime, actionPlugin, actionId, alertId) VALUES (?, ?, ?, ?, ?, ?) " +
+                "USING TTL ?";
 
         INSERT_ACTION_HISTORY_RESULT = "INSERT INTO " + keyspace + ".actions_history_results "
                 + "(tenantId, result, actionPlugin, actionId, alertId, ctime) VALUES (?, ?, ?, ?, ?, ?) " +
-                "IF NOT EXISTS";
+                "USING TTL ?";
 
         INSERT_ACTION_PLUGIN = "INSERT INTO " + keyspace + ".action_plugins "
                 + "(actionPlugin, properties) VALUES (?, ?) ";
@@ -257,19 +298,23 @@ public class CassStatement {
         INSERT_ACTION_PLUGIN_DEFAULT_PROPERTIES = "INSERT INTO " + keyspace + ".action_plugins "
                 + "(actionPlugin, properties, defaultProperties) VALUES (?, ?, ?) ";
 
-        INSERT_ALERT = "INSERT INTO " + keyspace + ".alerts " + "(tenantId, alertId, payload) VALUES (?, ?, ?) ";
+        INSERT_ALERT = "INSERT INTO " + keyspace + ".alerts "
+                + "(tenantId, alertId, payload) VALUES (?, ?, ?) USING TTL ? ";
 
-        INSERT_ALERT_CTIME = "INSERT INTO " + keyspace + ".alerts_ctimes "
-                + "(tenantId, alertId, ctime) VALUES (?, ?, ?) ";
+        INSERT_ALERT_BIN = "INSERT INTO " + keyspace + ".alerts "
+                + "(tenantId, alertId, payloadBin) VALUES (?, ?, ?) USING TTL ? ";
 
-        INSERT_ALERT_LIFECYCLE = "INSERT INTO " + keyspace + ".alerts_lifecycle "
-                + "(tenantId, alertId, status, stime) VALUES (?, ?, ?, ?) ";
+        INSERT_ALERT_CTIME = "INSERT INTO " + keyspace + ".alerts_ctimes_bucketed "
+                + "(tenantId, bucket, alertId, ctime) VALUES (?, ?, ?, ?) USING TTL ? ";
 
-        INSERT_ALERT_STIME = "INSERT INTO " + keyspace + ".alerts_stimes "
-                + "(tenantId, alertId, stime) VALUES (?, ?, ?) ";
+        INSERT_ALERT_LIFECYCLE = "INSERT INTO " + keyspace + ".alerts_lifecycle_bucketed "
+                + "(tenantId, bucket, alertId, status, stime) VALUES (?, ?, ?, ?, ?) USING TTL ? ";
+
+        INSERT_ALERT_STIME = "INSERT INTO " + keyspace + ".alerts_stimes_bucketed "
+                + "(tenantId, bucket, alertId, stime) VALUES (?, ?, ?, ?) USING TTL ? ";
 
         INSERT_ALERT_TRIGGER = "INSERT INTO " + keyspace + ".alerts_triggers "
-                + "(tenantId, alertId, triggerId) VALUES (?, ?, ?) ";
+                + "(tenantId, alertId, triggerId) VALUES (?, ?, ?) USING TTL ? ";
 
         INSERT_CONDITION_AVAILABILITY = "INSERT INTO " + keyspace + ".conditions "
                 + "(tenantId, triggerId, triggerMode, type, context, conditionSetSize, conditionSetIndex, " +
@@ -320,19 +365,25 @@ public class CassStatement {
                 + "dampeningId) VALUES (?, ?, ?, ?, ?, ?, ?, ?) ";
 
         INSERT_EVENT = "INSERT INTO " + keyspace + ".events "
-                + "(tenantId, id, payload) VALUES (?, ?, ?) ";
+                + "(tenantId, id, payload) VALUES (?, ?, ?) USING TTL ? ";
+
+        INSERT_EVENT_BIN = "INSERT INTO " + keyspace + ".events "
+                + "(tenantId, id, payloadBin) VALUES (?, ?, ?) USING TTL ? ";
 
-        INSERT_EVENT_CTIME = "INSERT INTO " + keyspace + ".events_ctimes "
-                + "(tenantId, ctime, id) VALUES (?, ?, ?) ";
+        INSERT_EVENT_CTIME = "INSERT INTO " + keyspace + ".events_ctimes_bucketed "
+                + "(tenantId, bucket, ctime, id) VALUES (?, ?, ?, ?) USING TTL ? ";
 
         INSERT_EVENT_CATEGORY = "INSERT INTO " + keyspace + ".events_categories "
-                + "(tenantId, category, id) VALUES (?, ?, ?) ";
+                + "(tenantId, category, id) VALUES (?, ?, ?) USING TTL ? ";
 
         INSERT_EVENT_TRIGGER = "INSERT INTO " + keyspace + ".events_triggers "
-                + "(tenantId, triggerId, id) VALUES (?, ?, ?) ";
+                + "(tenantId, triggerId, id) VALUES (?, ?, ?) USING TTL ? ";
 
         INSERT_TAG = "INSERT INTO " + keyspace + ".tags "
-                + "(tenantId, type, name, value, id) VALUES (?, ?, ?, ?, ?) ";
+                + "(tenantId, type, name, value, id) VALUES (?, ?, ?, ?, ?) USING TTL ? ";
+
+        INSERT_TIME_BUCKET = "INSERT INTO " + keyspace + ".time_buckets "
+                + "(tenantId, name, bucket) VALUES (?, ?, ?) ";
 
         INSERT_TRIGGER = "INSERT INTO " + keyspace + ".triggers " +
                 "(tenantId, id, autoDisable, autoEnable, autoResolve, autoResolveAlerts, autoResolveMatch, "
@@ -360,20 +411,15 @@ public class CassStatement {
         SELECT_ACTION_HISTORY_ACTION_PLUGIN = "SELECT tenantId, actionPlugin, actionId, alertId, ctime FROM " +
                 keyspace + ".actions_history WHERE tenantId = ? AND actionPlugin = ?";
 
-        SELECT_ACTION_HISTORY_ALERT_ID = "SELECT tenantId, actionPlugin, actionId, alertId, ctime FROM " +
-                keyspace + ".actions_history_alerts WHERE tenantId = ? AND alertId = ?";
+        SELECT_ACTION_HISTORY_ALERT_ID = "SELECT tenantId, actionPlugin, actionId, alertId, ctime, historyAlertId " +
+                "FROM " + keyspace + ".actions_history_alerts WHERE tenantId = ? AND alertId = ?";
 
         SELECT_ACTION_HISTORY_BY_TENANT = "SELECT payload FROM " + keyspace + ".actions_history " +
                 "WHERE tenantId = ?";
 
-        SELECT_ACTION_HISTORY_CTIME_END = "SELECT tenantId, actionPlugin, actionId, alertId, ctime FROM " + keyspace +
-                ".actions_history_ctimes WHERE tenantId = ? AND ctime <= ?";
-
-        SELECT_ACTION_HISTORY_CTIME_START = "SELECT tenantId, actionPlugin, actionId, alertId, ctime FROM " + keyspace +
-                ".actions_history_ctimes WHERE tenantId = ? AND ctime >= ?";
-
         SELECT_ACTION_HISTORY_CTIME_START_END = "SELECT tenantId, actionPlugin, actionId, alertId, ctime FROM " +
-                keyspace + ".actions_history_ctimes WHERE tenantId = ? AND ctime >= ? AND ctime <= ?";
+                keyspace + ".actions_history_ctimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? AND ctime >= ? AND ctime <= ?";
 
         SELECT_ACTION_HISTORY_RESULT = "SELECT tenantId, actionPlugin, actionId, alertId, ctime FROM " +
                 keyspace + ".actions_history_results WHERE tenantId = ? AND result = ?";
@@ -394,43 +440,47 @@ public class CassStatement {
         SELECT_ACTION_ID_BY_PLUGIN = "SELECT actionId FROM " + keyspace + ".actions_definitions "
                 + "WHERE tenantId = ? AND actionPlugin = ? ";
 
-        SELECT_ALERT = "SELECT payload FROM " + keyspace + ".alerts "
+        SELECT_ALERT = "SELECT payload, payloadBin FROM " + keyspace + ".alerts "
                 + "WHERE tenantId = ? AND alertId = ? ";
 
-        SELECT_ALERT_CTIME_END = "SELECT alertId FROM " + keyspace + ".alerts_ctimes "
-                + "WHERE tenantId = ? AND ctime <= ? ";
+        SELECT_ALERTS_BY_IDS = "SELECT payload, payloadBin FROM " + keyspace + ".alerts "
+                + "WHERE tenantId = ? AND alertId IN ? ";
 
-        SELECT_ALERT_CTIME_START = "SELECT alertId FROM " + keyspace + ".alerts_ctimes "
-                + "WHERE tenantId = ? AND ctime >= ? ";
+        SELECT_ALERT_COUNTERS = "SELECT status, severity, total FROM " + keyspace + ".alerts_counters "
+                + "WHERE tenantId = ? ";
 
-        SELECT_ALERT_CTIME_START_END = "SELECT alertId FROM " + keyspace + ".alerts_ctimes "
-                + "WHERE tenantId = ? AND ctime >= ? AND ctime <= ? ";
+        SELECT_ALERT_CTIME_ASC_AFTER = "SELECT alertId, ctime FROM " + keyspace + ".alerts_ctimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? AND (ctime, alertId) > (?, ?) ";
 
-        SELECT_ALERT_IDS_BY_TENANT = "SELECT alertId FROM " + keyspace + ".alerts " + "WHERE tenantId = ? ";
+        SELECT_ALERT_CTIME_ASC_FROM = "SELECT alertId, ctime FROM " + keyspace + ".alerts_ctimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? AND ctime >= ? ";
 
-        SELECT_ALERT_LIFECYCLE_END = "SELECT alertId FROM " + keyspace + ".alerts_lifecycle "
-                + "WHERE tenantId = ? AND status = ? AND stime <= ? ";
+        SELECT_ALERT_CTIME_DESC_AFTER = "SELECT alertId, ctime FROM " + keyspace + ".alerts_ctimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? AND (ctime, alertId) < (?, ?) ORDER BY ctime DESC, alertId DESC ";
 
-        SELECT_ALERT_LIFECYCLE_START = "SELECT alertId FROM " + keyspace + ".alerts_lifecycle "
-                + "WHERE tenantId = ? AND status = ? AND stime >= ? ";
+        SELECT_ALERT_CTIME_DESC_FROM = "SELECT alertId, ctime FROM " + keyspace + ".alerts_ctimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? AND ctime <= ? ORDER BY ctime DESC, alertId DESC ";
 
-        SELECT_ALERT_LIFECYCLE_START_END = "SELECT alertId FROM " + keyspace + ".alerts_lifecycle "
-                + "WHERE tenantId = ? AND status = ? AND stime >= ? AND stime <= ? ";
+        SELECT_ALERT_CTIME_START_END = "SELECT alertId FROM " + keyspace + ".alerts_ctimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? AND ctime >= ? AND ctime <= ? ";
 
-        SELECT_ALERT_STIME_END = "SELECT alertId FROM " + keyspace + ".alerts_stimes "
-                + "WHERE tenantId = ? AND stime <= ? ";
+        SELECT_ALERT_IDS_BY_TENANT = "SELECT alertId FROM " + keyspace + ".alerts " + "WHERE tenantId = ? ";
 
-        SELECT_ALERT_STIME_START = "SELECT alertId FROM " + keyspace + ".alerts_stimes "
-                + "WHERE tenantId = ? AND stime >= ? ";
+        SELECT_ALERT_LIFECYCLE_START_END = "SELECT alertId FROM " + keyspace + ".alerts_lifecycle_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? AND status = ? AND stime >= ? AND stime <= ? ";
 
-        SELECT_ALERT_STIME_START_END = "SELECT alertId FROM " + keyspace + ".alerts_stimes "
-                + "WHERE tenantId = ? AND stime >= ? AND stime <= ? ";
+        SELECT_ALERT_STIME_START_END = "SELECT alertId FROM " + keyspace + ".alerts_stimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? AND stime >= ? AND stime <= ? ";
 
-        SELECT_ALERTS_BY_TENANT = "SELECT payload FROM " + keyspace + ".alerts " + "WHERE tenantId = ? ";
+        SELECT_ALERTS_BY_TENANT = "SELECT payload, payloadBin FROM " + keyspace + ".alerts "
+                + "WHERE tenantId = ? ";
 
         SELECT_ALERT_TRIGGER = "SELECT alertId FROM " + keyspace + ".alerts_triggers "
                 + "WHERE tenantId = ? AND triggerId = ? ";
 
+        SELECT_ALERT_TRIGGER_COUNTERS = "SELECT triggerId, status, severity, total FROM " + keyspace
+                + ".alerts_triggers_counters WHERE tenantId = ? AND triggerId IN ? ";
+
         SELECT_CONDITION_ID = "SELECT triggerId, triggerMode, type, conditionSetSize, "
                 + "conditionSetIndex, conditionId, dataId, operator, data2Id, data2Multiplier, pattern, "
                 + "ignoreCase, threshold, operatorLow, operatorHigh, thresholdLow, thresholdHigh, inRange, "
@@ -465,20 +515,26 @@ public class CassStatement {
                 + "FROM " + keyspace + ".dampenings "
                 + "WHERE tenantId = ? ";
 
-        SELECT_EVENT = "SELECT payload FROM " + keyspace + ".events "
+        SELECT_EVENT = "SELECT payload, payloadBin FROM " + keyspace + ".events "
                 + "WHERE tenantId = ? AND  id = ? ";
 
         SELECT_EVENT_CATEGORY = "SELECT id FROM " + keyspace + ".events_categories "
                 + "WHERE tenantId = ? AND category = ? ";
 
-        SELECT_EVENT_CTIME_END = "SELECT id FROM " + keyspace + ".events_ctimes "
-                + "WHERE tenantId = ? AND ctime <= ? ";
+        SELECT_EVENT_CTIME_ASC_AFTER = "SELECT id, ctime FROM " + keyspace + ".events_ctimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? AND (ctime, id) > (?, ?) ";
+
+        SELECT_EVENT_CTIME_ASC_FROM = "SELECT id, ctime FROM " + keyspace + ".events_ctimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? AND ctime >= ? ";
 
-        SELECT_EVENT_CTIME_START = "SELECT id FROM " + keyspace + ".events_ctimes "
-                + "WHERE tenantId = ? AND ctime >= ? ";
+        SELECT_EVENT_CTIME_DESC_AFTER = "SELECT id, ctime FROM " + keyspace + ".events_ctimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? AND (ctime, id) < (?, ?) ORDER BY ctime DESC, id DESC ";
 
-        SELECT_EVENT_CTIME_START_END = "SELECT id FROM " + keyspace + ".events_ctimes "
-                + "WHERE tenantId = ? AND ctime >= ? AND ctime <= ? ";
+        SELECT_EVENT_CTIME_DESC_FROM = "SELECT id, ctime FROM " + keyspace + ".events_ctimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? AND ctime <= ? ORDER BY ctime DESC, id DESC ";
+
+        SELECT_EVENT_CTIME_START_END = "SELECT id FROM " + keyspace + ".events_ctimes_bucketed "
+                + "WHERE tenantId = ? AND bucket = ? AND ctime >= ? AND ctime <= ? ";
 
         SELECT_EVENT_IDS_BY_TENANT = "SELECT id FROM " + keyspace + ".events " +
                 "WHERE tenantId = ? ";
@@ -489,7 +545,11 @@ public class CassStatement {
         //SELECT_EVENTS_BY_PARTITION = "SELECT payload FROM " + keyspace + ".events "
         //        + "WHERE tenantId = ? AND category = ? ";
 
-        SELECT_EVENTS_BY_TENANT = "SELECT payload FROM " + keyspace + ".events " + "WHERE tenantId = ? ";
+        SELECT_EVENTS_BY_IDS = "SELECT payload, payloadBin FROM " + keyspace + ".events "
+                + "WHERE tenantId = ? AND id IN ? ";
+
+        SELECT_EVENTS_BY_TENANT = "SELECT payload, payloadBin FROM " + keyspace + ".events "
+                + "WHERE tenantId = ? ";
 
         // This is for use as a pre-query to gather all partitions to be subsequently queried. If the
         // partition key changes this should also change.
@@ -507,6 +567,11 @@ public class CassStatement {
                 + "FROM " + keyspace + ".tags "
                 + "WHERE tenantId = ? AND type = ? and name = ? AND value = ? ";
 
+        SELECT_TIME_BUCKETS = "SELECT bucket FROM " + keyspace + ".time_buckets "
+                + "WHERE tenantId = ? AND name = ? AND bucket >= ? AND bucket <= ? ";
+
+        SELECT_TIME_BUCKETS_INDEXES = "SELECT DISTINCT tenantId, name FROM " + keyspace + ".time_buckets ";
+
         SELECT_TRIGGER = "SELECT tenantId, id, autoDisable, autoEnable, autoResolve, autoResolveAlerts, "
                 + "autoResolveMatch, context, dataIdMap, description, enabled, eventCategory, eventText, eventType, "
                 + "firingMatch, memberOf, name, severity, source, tags, type "
@@ -554,22 +619,43 @@ public class CassStatement {
         UPDATE_ACTION_DEFINITION = "UPDATE " + keyspace + ".actions_definitions SET payload = ? "
                 + "WHERE tenantId = ? AND actionPlugin = ? AND actionId = ? ";
 
-        UPDATE_ACTION_HISTORY = "UPDATE " + keyspace + ".actions_history " +
-                "SET payload = ? " +
-                "WHERE tenantId = ? AND actionPlugin = ? AND actionId = ? AND alertId = ? AND ctime = ?";
+        /*
+            Payload updates of alerts, events and actions history are written as inserts, so the row marker gets the
+            TTL of the retention as well and the whole row expires.
+         */
+        UPDATE_ACTION_HISTORY = "INSERT INTO " + keyspace + ".actions_history "
+                + "(tenantId, actionPlugin, actionId, alertId, ctime, payload) VALUES (?, ?, ?, ?, ?, ?) "
+                + "USING TTL ?";
 
         UPDATE_ACTION_PLUGIN = "UPDATE " + keyspace + ".action_plugins SET properties = ? WHERE actionPlugin = ? ";
 
         UPDATE_ACTION_PLUGIN_DEFAULT_PROPERTIES = "UPDATE " + keyspace + ".action_plugins " +
                 "SET properties = ?, defaultProperties = ? WHERE actionPlugin = ? ";
 
-        UPDATE_ALERT = "UPDATE " + keyspace + ".alerts SET payload = ? WHERE tenantId = ? AND alertId = ? ";
+        UPDATE_ALERT = "INSERT INTO " + keyspace + ".alerts "
+                + "(tenantId, alertId, payload, payloadBin) VALUES (?, ?, ?, null) USING TTL ? ";
+
+        UPDATE_ALERT_BIN = "INSERT INTO " + keyspace + ".alerts "
+                + "(tenantId, alertId, payloadBin, payload) VALUES (?, ?, ?, null) USING TTL ? ";
+
+        /*
+            Counters are not idempotent, they can not be batched with regular writes and do not accept a TTL
+         */
+        UPDATE_ALERT_COUNTER = "UPDATE " + keyspace + ".alerts_counters SET total = total + ? "
+                + "WHERE tenantId = ? AND status = ? AND severity = ? ";
+
+        UPDATE_ALERT_TRIGGER_COUNTER = "UPDATE " + keyspace + ".alerts_triggers_counters SET total = total + ? "
+                + "WHERE tenantId = ? AND triggerId = ? AND status = ? AND severity = ? ";
 
         UPDATE_DAMPENING_ID = "UPDATE " + keyspace + ".dampenings "
                 + "SET type = ?, evalTrueSetting = ?, evalTotalSetting = ?, evalTimeSetting = ? "
                 + "WHERE tenantId = ? AND triggerId = ? AND triggerMode = ? AND dampeningId = ? ";
 
-        UPDATE_EVENT = "UPDATE " + keyspace + ".events SET payload = ? WHERE tenantId = ? AND id = ? ";
+        UPDATE_EVENT = "INSERT INTO " + keyspace + ".events "
+                + "(tenantId, id, payload, payloadBin) VALUES (?, ?, ?, null) USING TTL ? ";
+
+        UPDATE_EVENT_BIN = "INSERT INTO " + keyspace + ".events "
+                + "(tenantId, id, payloadBin, payload) VALUES (?, ?, ?, null) USING TTL ? ";
 
         UPDATE_TRIGGER = "UPDATE " + keyspace + ".triggers "
                 + "SET autoDisable = ?, autoEnable = ?, autoResolve = ?, autoResolveAlerts = ?, autoResolveMatch = ?, "
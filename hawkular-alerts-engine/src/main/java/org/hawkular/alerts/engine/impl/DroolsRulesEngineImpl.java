@@ -16,26 +16,38 @@
  */
 package org.hawkular.alerts.engine.impl;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
+import javax.annotation.Resource;
 import javax.ejb.Singleton;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
 
-import org.drools.core.event.DebugAgendaEventListener;
-import org.drools.core.event.DebugRuleRuntimeEventListener;
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.condition.MissingConditionEval;
+import org.hawkular.alerts.api.model.dampening.Dampening;
 import org.hawkular.alerts.api.model.data.Data;
 import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Trigger;
 import org.hawkular.alerts.engine.service.RulesEngine;
+import org.hawkular.alerts.engine.util.EngineMetrics;
+import org.hawkular.alerts.engine.util.MissingState;
 import org.jboss.logging.Logger;
 import org.kie.api.KieServices;
 import org.kie.api.runtime.KieContainer;
-import org.kie.api.runtime.KieSession;
-import org.kie.api.runtime.ObjectFilter;
-import org.kie.api.runtime.rule.FactHandle;
 
 /**
  * An implementation of RulesEngine based on drools framework.
@@ -45,6 +57,18 @@ import org.kie.api.runtime.rule.FactHandle;
  * The RulesEngine is invoked only by the AlertsEngine impl and is not invoked concurrently, so
  * single-threading is a fair assumption.
  *
+ * Loaded triggers can be partitioned across RULES_SESSIONS independent drools sessions, by tenantId and triggerId.
+ * Each session is fed only with the Data and Events referenced by its conditions, and sessions are fired in
+ * parallel on the managed executor, or sequentially without it. List globals (i.e. alerts, events) are collected
+ * per session and merged into the global after firing, other collection globals are shared across sessions through
+ * synchronized views. Events generated on a session are forwarded to the other sessions with conditions referencing
+ * them, which are fired again within the same firing cycle until no new events are generated, so chained triggers
+ * are evaluated in the cycle that generated their events.
+ *
+ * When RULES_FAST_PATH is enabled, triggers supported by {@link FastPathRulesSession} (simple conditions, FIRING mode
+ * only) are evaluated natively, without drools. The facts of a trigger are staged until the next operation that
+ * is not an add, so the whole trigger definition is known when choosing where to load it.
+ *
  * @author Jay Shaughnessy
  * @author Lucas Ponce
  */
@@ -54,29 +78,52 @@ public class DroolsRulesEngineImpl implements RulesEngine {
     // private final MsgLogger msgLog = MsgLogger.LOGGER;
     private final Logger log = Logger.getLogger(DroolsRulesEngineImpl.class);
     private static final String SESSION_NAME = "hawkular-alerts-engine-session";
-    private static final long PERF_BATCHING_THRESHOLD = 3000L; // 3 seconds
     private static final long PERF_FIRING_THRESHOLD = 5000L; // 5 seconds
 
+    /*
+        RULES_SESSIONS defines the number of drools sessions used to partition the loaded triggers
+     */
+    private static final String RULES_SESSIONS = "hawkular-alerts.rules-sessions";
+    private static final String RULES_SESSIONS_ENV = "RULES_SESSIONS";
+    private static final String RULES_SESSIONS_DEFAULT = "1";
+
+    /*
+        RULES_FAST_PATH enables the native evaluation of simple triggers, outside of drools sessions.
+        Disabled by default, it is opt-in until proven equivalent to drools across the rules engine tests.
+     */
+    private static final String RULES_FAST_PATH = "hawkular-alerts.rules-fast-path";
+    private static final String RULES_FAST_PATH_ENV = "RULES_FAST_PATH";
+    private static final String RULES_FAST_PATH_DEFAULT = "false";
+
     private int minReportingIntervalData;
     private int minReportingIntervalEvents;
 
     private KieServices ks;
     private KieContainer kc;
-    private KieSession kSession;
+    private final List<DroolsRulesSession> sessions;
+    private FastPathRulesSession fastPath;
+
+    /*
+        Trigger, Condition and Dampening facts added but not yet loaded, by tenantId/triggerId
+     */
+    private final Map<String, List<Object>> stagedFacts = new LinkedHashMap<>();
+
+    /*
+        List globals with a separate instance per session, merged into the original global after firing
+     */
+    private final Map<String, List> listGlobals = new HashMap<>();
+    private final Map<String, List<List>> sessionListGlobals = new HashMap<>();
 
     TreeSet<Data> pendingData = new TreeSet<>();
     TreeSet<Event> pendingEvents = new TreeSet<>();
 
+    @Resource
+    private ManagedExecutorService executor;
+
     public DroolsRulesEngineImpl() {
         log.debug("Creating instance.");
         ks = KieServices.Factory.get();
         kc = ks.getKieClasspathContainer();
-        kSession = kc.newKieSession(SESSION_NAME);
-
-        if (log.isEnabled(Logger.Level.TRACE)) {
-            kSession.addEventListener(new DebugAgendaEventListener());
-            kSession.addEventListener(new DebugRuleRuntimeEventListener());
-        }
 
         minReportingIntervalData = new Integer(
                 AlertProperties.getProperty(MIN_REPORTING_INTERVAL_DATA,
@@ -87,6 +134,151 @@ public class DroolsRulesEngineImpl implements RulesEngine {
                 AlertProperties.getProperty(MIN_REPORTING_INTERVAL_EVENTS,
                         MIN_REPORTING_INTERVAL_EVENTS_ENV,
                         MIN_REPORTING_INTERVAL_EVENTS_DEFAULT));
+
+        int numSessions = Math.max(1, new Integer(
+                AlertProperties.getProperty(RULES_SESSIONS, RULES_SESSIONS_ENV, RULES_SESSIONS_DEFAULT)));
+
+        sessions = new ArrayList<>(numSessions);
+        for (int i = 0; i < numSessions; i++) {
+            sessions.add(new DroolsRulesSession(i, kc, SESSION_NAME, minReportingIntervalData,
+                    minReportingIntervalEvents));
+        }
+        if (Boolean.parseBoolean(AlertProperties.getProperty(RULES_FAST_PATH, RULES_FAST_PATH_ENV,
+                RULES_FAST_PATH_DEFAULT))) {
+            fastPath = new FastPathRulesSession(minReportingIntervalData);
+        }
+        log.debugf("Using [%s] rules sessions, fast path [%s]", numSessions, null != fastPath);
+    }
+
+    public void setExecutor(ManagedExecutorService executor) {
+        this.executor = executor;
+    }
+
+    private boolean isPartitioned() {
+        return sessions.size() > 1;
+    }
+
+    /*
+        Return the session holding the facts of the trigger referenced by fact, or null if the fact is not
+        related to a specific trigger.
+     */
+    private DroolsRulesSession sessionOf(Object fact) {
+        if (!isPartitioned()) {
+            return sessions.get(0);
+        }
+        String tenantId;
+        String triggerId;
+        if (fact instanceof Trigger) {
+            tenantId = ((Trigger) fact).getTenantId();
+            triggerId = ((Trigger) fact).getId();
+        } else if (fact instanceof Condition) {
+            tenantId = ((Condition) fact).getTenantId();
+            triggerId = ((Condition) fact).getTriggerId();
+        } else if (fact instanceof Dampening) {
+            tenantId = ((Dampening) fact).getTenantId();
+            triggerId = ((Dampening) fact).getTriggerId();
+        } else if (fact instanceof MissingState) {
+            tenantId = ((MissingState) fact).getTenantId();
+            triggerId = ((MissingState) fact).getTriggerId();
+        } else if (fact instanceof MissingConditionEval) {
+            tenantId = ((MissingConditionEval) fact).getTenantId();
+            triggerId = ((MissingConditionEval) fact).getTriggerId();
+        } else {
+            return null;
+        }
+        int hash = (tenantId + ":" + triggerId).hashCode();
+        return sessions.get(Math.floorMod(hash, sessions.size()));
+    }
+
+    /*
+        Return the tenantId/triggerId key of the trigger referenced by a fact that can be staged, or null.
+     */
+    private String stagingKey(Object fact) {
+        if (fact instanceof Trigger) {
+            return FastPathRulesSession.triggerKey(((Trigger) fact).getTenantId(), ((Trigger) fact).getId());
+        } else if (fact instanceof Condition) {
+            return FastPathRulesSession.triggerKey(((Condition) fact).getTenantId(),
+                    ((Condition) fact).getTriggerId());
+        } else if (fact instanceof Dampening) {
+            return FastPathRulesSession.triggerKey(((Dampening) fact).getTenantId(),
+                    ((Dampening) fact).getTriggerId());
+        }
+        return null;
+    }
+
+    private boolean stage(Object fact) {
+        if (null == fastPath) {
+            return false;
+        }
+        String key = stagingKey(fact);
+        if (null == key) {
+            return false;
+        }
+        stagedFacts.computeIfAbsent(key, k -> new ArrayList<>()).add(fact);
+        return true;
+    }
+
+    /*
+        Load the staged facts. A trigger is loaded on the fast path session if supported, otherwise its facts are
+        inserted on the drools sessions. Facts staged for a trigger already loaded on the fast path are merged with
+        its current facts and the trigger is loaded again.
+     */
+    private void loadStaged() {
+        if (stagedFacts.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, List<Object>> entry : stagedFacts.entrySet()) {
+            List<Object> facts = fastPath.remove(entry.getKey());
+            facts.removeAll(entry.getValue());
+            facts.addAll(entry.getValue());
+
+            Trigger trigger = null;
+            List<Object> triggerFacts = new ArrayList<>(facts.size());
+            for (Object fact : facts) {
+                if (fact instanceof Trigger) {
+                    trigger = (Trigger) fact;
+                } else {
+                    triggerFacts.add(fact);
+                }
+            }
+            if (null != trigger && FastPathRulesSession.isSupported(trigger, triggerFacts)) {
+                fastPath.insert(trigger, triggerFacts);
+            } else {
+                for (Object fact : facts) {
+                    insert(fact);
+                }
+            }
+        }
+        stagedFacts.clear();
+    }
+
+    /*
+        Unload a trigger from the fast path session, modify its facts and load them again.
+     */
+    private void reloadFastPath(String key, Consumer<List<Object>> modification) {
+        List<Object> facts = fastPath.remove(key);
+        modification.accept(facts);
+        for (Object fact : facts) {
+            stage(fact);
+        }
+        loadStaged();
+    }
+
+    private boolean isFastPath(Object fact) {
+        if (null == fastPath) {
+            return false;
+        }
+        String key = stagingKey(fact);
+        return null != key && fastPath.hasTrigger(key);
+    }
+
+    private void dump(String header) {
+        if (null != fastPath) {
+            fastPath.dump(header);
+        }
+        for (DroolsRulesSession session : sessions) {
+            session.dump(header);
+        }
     }
 
     @Override
@@ -94,18 +286,19 @@ public class DroolsRulesEngineImpl implements RulesEngine {
         if (fact instanceof Data || fact instanceof Event) {
             throw new IllegalArgumentException(fact.toString());
         }
-        kSession.insert(fact);
+        if (!stage(fact)) {
+            insert(fact);
+        }
         if (log.isDebugEnabled()) {
-            log.debugf("addFact( %s )", fact.toString());
-            log.debug("==> Begin Dump");
-            for (FactHandle f : kSession.getFactHandles()) {
-                Object sessionObject = kSession.getObject(f);
-                log.debugf("Fact:  %s", sessionObject.toString());
-            }
-            log.debug("==> End Dump");
+            dump("addFact( " + fact + " )");
         }
     }
 
+    private void insert(Object fact) {
+        DroolsRulesSession session = sessionOf(fact);
+        (null != session ? session : sessions.get(0)).insert(fact);
+    }
+
     @Override
     public void addFacts(Collection facts) {
         for (Object fact : facts) {
@@ -114,19 +307,12 @@ public class DroolsRulesEngineImpl implements RulesEngine {
             }
         }
         for (Object fact : facts) {
-            if (log.isDebugEnabled()) {
-                log.debugf("Insert %s", fact);
+            if (!stage(fact)) {
+                insert(fact);
             }
-            kSession.insert(fact);
         }
         if (log.isDebugEnabled()) {
-            log.debugf("addFacts( %s )", facts.toString());
-            log.debug("==> Begin Dump");
-            for (FactHandle f : kSession.getFactHandles()) {
-                Object sessionObject = kSession.getObject(f);
-                log.debugf("Fact:  %s", sessionObject.toString());
-            }
-            log.debug("==> End Dump");
+            dump("addFacts( " + facts + " )");
         }
     }
 
@@ -145,48 +331,75 @@ public class DroolsRulesEngineImpl implements RulesEngine {
         if (log.isDebugEnabled()) {
             log.debugf("Add Global %s = %s ", name, global);
         }
-        kSession.setGlobal(name, global);
+        if (null != fastPath) {
+            fastPath.setGlobal(name, global);
+        }
+        if (!isPartitioned()) {
+            sessions.get(0).setGlobal(name, global);
+            return;
+        }
+        listGlobals.remove(name);
+        sessionListGlobals.remove(name);
+        if (global instanceof List) {
+            // Rules only append to list globals, so every session collects into its own list
+            List<List> perSession = new ArrayList<>(sessions.size());
+            for (DroolsRulesSession session : sessions) {
+                List sessionList = new ArrayList();
+                perSession.add(sessionList);
+                session.setGlobal(name, sessionList);
+            }
+            listGlobals.put(name, (List) global);
+            sessionListGlobals.put(name, perSession);
+            return;
+        }
+        Object shared = global;
+        if (global instanceof Set) {
+            shared = Collections.synchronizedSet((Set) global);
+        } else if (global instanceof Map) {
+            shared = Collections.synchronizedMap((Map) global);
+        }
+        for (DroolsRulesSession session : sessions) {
+            session.setGlobal(name, shared);
+        }
     }
 
     @Override
     public void clear() {
-        for (FactHandle factHandle : kSession.getFactHandles()) {
-            if (log.isDebugEnabled()) {
-                log.debugf("Delete %s", factHandle);
-            }
-            kSession.delete(factHandle);
+        stagedFacts.clear();
+        if (null != fastPath) {
+            fastPath.clear();
+        }
+        for (DroolsRulesSession session : sessions) {
+            session.clear();
         }
     }
 
     @Override
     public void fire() {
-        // The rules engine requires that for any DataId only the oldest Data instance is processed in one
-        // execution of the rules.  So, if we find multiple Data instances for the same Id, defer all but
-        // the oldest to a subsequent run. Note that pendingData is already sorted by (id ASC, timestamp ASC) so
-        // the iterator will present Data with the same id together, and time-ordered.
         int initialPendingData = pendingData.size();
         int initialPendingEvents = pendingEvents.size();
-        int fireCycle = 0;
         long startFiring = System.currentTimeMillis();
-        while (!pendingData.isEmpty() || !pendingEvents.isEmpty()) {
-            log.debugf("Firing rules... PendingData [%s] PendingEvents [%s]", initialPendingData,
-                    initialPendingEvents);
-
-            batchData();
-            batchEvents();
-
-            if (log.isTraceEnabled()) {
-                log.tracef("Firing cycle [%s] - with these facts: ", fireCycle);
-                for (FactHandle fact : kSession.getFactHandles()) {
-                    Object o = kSession.getObject(fact);
-                    log.tracef("Fact: %s", o);
-                }
-            }
 
-            kSession.fireAllRules();
-            fireCycle++;
+        loadStaged();
+        distributePending();
+
+        log.debugf("Firing rules... PendingData [%s] PendingEvents [%s]", initialPendingData, initialPendingEvents);
+        if (null != fastPath && fastPath.hasPending()) {
+            // Generated events are forwarded to drools sessions for chained triggers
+            for (Event event : fastPath.fire()) {
+                forwardEvent(event, null);
+            }
         }
+        forEachSession(session -> {
+            if (session.hasPending()) {
+                session.fire();
+            }
+        });
+
         long firingTime = System.currentTimeMillis() - startFiring;
+        EngineMetrics metrics = EngineMetrics.getInstance();
+        metrics.recordFiringTime(firingTime);
+        metrics.setFacts(getFactCount());
         if (log.isDebugEnabled()) {
             log.debugf("Firing took [%s] ms", firingTime);
         }
@@ -196,137 +409,200 @@ public class DroolsRulesEngineImpl implements RulesEngine {
         }
     }
 
-    private void batchData() {
-        long startBatching = System.currentTimeMillis();
-        TreeSet<Data> batchData = pendingData;
-        pendingData = new TreeSet<>();
+    private long getFactCount() {
+        long count = null != fastPath ? fastPath.getFactCount() : 0;
+        for (DroolsRulesSession session : sessions) {
+            count += session.getFactCount();
+        }
+        return count;
+    }
 
-        // Keep only the least recent datum for any dataId. Remove minReportingInterval violators, defer the rest
-        Data previousData = null;
-        for (Iterator<Data> i = batchData.iterator(); i.hasNext();) {
-            Data d = i.next();
-            if (!d.same(previousData)) {
-                previousData = d;
-                kSession.insert(d);
+    /*
+        Move pending Data and Events to the sessions with conditions referencing their dataIds.
+        With a single session and no fast path everything is sent to it, as done before partitioning.
+     */
+    private void distributePending() {
+        TreeSet<Data> data = pendingData;
+        TreeSet<Event> events = pendingEvents;
+        pendingData = new TreeSet<>();
+        pendingEvents = new TreeSet<>();
 
-            } else {
-                if ((d.getTimestamp() - previousData.getTimestamp()) < minReportingIntervalData) {
-                    log.tracef("MinReportingInterval violation, prev: %s, removed: %s", previousData, d);
-                } else {
-                    pendingData.add(d);
-                    log.tracef("Deferring data, keep: %s, defer: %s", previousData, d);
+        if (!isPartitioned() && null == fastPath) {
+            DroolsRulesSession session = sessions.get(0);
+            session.pendingData.addAll(data);
+            session.pendingEvents.addAll(events);
+            return;
+        }
+        for (Data d : data) {
+            if (null != fastPath && fastPath.hasDataId(d.getTenantId(), d.getId())) {
+                fastPath.addData(d);
+            }
+            for (DroolsRulesSession session : sessions) {
+                if (session.hasDataId(d.getTenantId(), d.getId())) {
+                    session.addData(d);
                 }
             }
-
-            if (!pendingData.isEmpty()) {
-                log.debugf("Deferring [%d] Datum(s) to next firing !!", pendingData.size());
+        }
+        for (Event e : events) {
+            for (DroolsRulesSession session : sessions) {
+                if (session.hasDataId(e.getTenantId(), e.getDataId())) {
+                    session.addEvent(e);
+                }
             }
         }
+    }
 
-        long batchingTime = System.currentTimeMillis() - startBatching;
-        log.debugf("Batching Data [%s] took [%s]", batchData.size(), batchingTime);
-        if (batchingTime > PERF_BATCHING_THRESHOLD) {
-            log.warnf("Batching Data [%s] took [%s] ms exceeding [%s] ms",
-                    batchData.size(), batchingTime, PERF_BATCHING_THRESHOLD);
+    /*
+        Run the action on every session, in parallel when partitioned. Events generated on a session are forwarded
+        to other sessions, which are fired again until there is nothing else to forward.
+     */
+    private void forEachSession(Consumer<DroolsRulesSession> action) {
+        if (!isPartitioned()) {
+            action.accept(sessions.get(0));
+            return;
+        }
+        runOnSessions(action);
+        while (mergeListGlobals() > 0) {
+            runOnSessions(session -> {
+                if (session.hasPending()) {
+                    session.fire();
+                }
+            });
         }
     }
 
-    private void batchEvents() {
-        long startBatching = System.currentTimeMillis();
-        TreeSet<Event> batchEvents = pendingEvents;
-        pendingEvents = new TreeSet<>();
-
-        // Keep only the least recent datum for any dataId. Remove minReportingInterval violators, defer the rest
-        Event previousEvent = null;
-        for (Iterator<Event> i = batchEvents.iterator(); i.hasNext();) {
-            Event e = i.next();
-            if (!e.same(previousEvent)) {
-                previousEvent = e;
-                kSession.insert(e);
-
-            } else {
-                if ((e.getCtime() - previousEvent.getCtime()) < minReportingIntervalEvents) {
-                    log.tracef("MinReportingInterval violation, prev: %s, removed: %s", previousEvent, e);
-                } else {
-                    pendingEvents.add(e);
-                    log.tracef("Deferring event, keep: %s, defer: %s", previousEvent, e);
-                }
+    private void runOnSessions(Consumer<DroolsRulesSession> action) {
+        if (executor == null) {
+            sessions.forEach(action);
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<>(sessions.size());
+        for (DroolsRulesSession session : sessions) {
+            futures.add(executor.submit(() -> action.accept(session)));
+        }
+        RuntimeException error = null;
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = new IllegalStateException("Interrupted firing rules", e);
+            } catch (ExecutionException e) {
+                log.debug(e.getMessage(), e);
+                error = new IllegalStateException("Error firing rules: " + e.getCause(), e.getCause());
             }
         }
+        if (error != null) {
+            mergeListGlobals();
+            throw error;
+        }
+    }
 
-        if (!pendingEvents.isEmpty()) {
-            log.debugf("Deferring [%d] Event(s) to next firing !!", pendingEvents.size());
+    /*
+        Merge the per session list globals into the original ones.
+
+        @return the number of generated events forwarded to other sessions
+     */
+    private int mergeListGlobals() {
+        int forwarded = 0;
+        for (Map.Entry<String, List> entry : listGlobals.entrySet()) {
+            List global = entry.getValue();
+            List<List> perSession = sessionListGlobals.get(entry.getKey());
+            for (int i = 0; i < perSession.size(); i++) {
+                List sessionList = perSession.get(i);
+                for (Object o : sessionList) {
+                    if (o instanceof Event) {
+                        forwarded += forwardEvent((Event) o, sessions.get(i));
+                    }
+                }
+                global.addAll(sessionList);
+                sessionList.clear();
+            }
         }
+        return forwarded;
+    }
 
-        long batchingTime = System.currentTimeMillis() - startBatching;
-        log.debugf("Batching Events [%s] took [%s]", batchEvents.size(), batchingTime);
-        if (batchingTime > PERF_BATCHING_THRESHOLD) {
-            log.warnf("Batching Events [%s] took [%s] ms exceeding [%s] ms",
-                    batchEvents.size(), batchingTime, PERF_BATCHING_THRESHOLD);
+    private int forwardEvent(Event event, DroolsRulesSession origin) {
+        int forwarded = 0;
+        for (DroolsRulesSession session : sessions) {
+            if (session != origin && session.hasDataId(event.getTenantId(), event.getDataId())) {
+                session.addEvent(event);
+                forwarded++;
+            }
         }
+        return forwarded;
     }
 
     @Override
     public void fireNoData() {
-        kSession.fireAllRules();
+        loadStaged();
+        forEachSession(DroolsRulesSession::fireNoData);
     }
 
     @Override
     public Object getFact(Object o) {
+        loadStaged();
         Object result = null;
-        FactHandle factHandle = kSession.getFactHandle(o);
-        if (null != factHandle) {
-            result = kSession.getObject(factHandle);
+        DroolsRulesSession session = sessionOf(o);
+        if (isFastPath(o)) {
+            result = fastPath.getFact(o);
+        } else if (null != session) {
+            result = session.getFact(o);
+        } else {
+            for (DroolsRulesSession s : sessions) {
+                result = s.getFact(o);
+                if (null != result) {
+                    break;
+                }
+            }
         }
         if (log.isDebugEnabled()) {
-            log.debugf("getFact( %s )", o.toString());
-            log.debug("==> Begin Dump");
-            for (FactHandle fact : kSession.getFactHandles()) {
-                Object sessionObject = kSession.getObject(fact);
-                log.debugf("Fact:  %s", sessionObject.toString());
-            }
-            log.debug("==> End Dump");
+            dump("getFact( " + o + " )");
         }
         return result;
     }
 
     @Override
     public void removeFact(Object fact) {
-        FactHandle factHandle = kSession.getFactHandle(fact);
-        if (factHandle != null) {
-            if (log.isDebugEnabled()) {
-                log.debugf("Delete %s", factHandle);
+        loadStaged();
+        DroolsRulesSession session = sessionOf(fact);
+        if (isFastPath(fact)) {
+            if (fact instanceof Trigger) {
+                // As the orphan cleanup rules, removing the trigger removes all its facts
+                fastPath.remove(stagingKey(fact));
+            } else {
+                reloadFastPath(stagingKey(fact), facts -> facts.remove(fact));
+            }
+        } else if (null != session) {
+            session.delete(fact);
+        } else {
+            for (DroolsRulesSession s : sessions) {
+                s.delete(fact);
             }
-            kSession.delete(factHandle);
         }
         if (log.isDebugEnabled()) {
-            log.debugf("removeFact( %s )", fact.toString());
-            log.debug("==> Begin Dump");
-            for (FactHandle f : kSession.getFactHandles()) {
-                Object sessionObject = kSession.getObject(f);
-                log.debugf("Fact:  %s", sessionObject.toString());
-            }
-            log.debug("==> End Dump");
+            dump("removeFact( " + fact + " )");
         }
     }
 
     @Override
     public void updateFact(Object fact) {
-        FactHandle factHandle = kSession.getFactHandle(fact);
-        if (factHandle != null) {
-            if (log.isDebugEnabled()) {
-                log.debugf("Update %s", factHandle);
+        loadStaged();
+        DroolsRulesSession session = sessionOf(fact);
+        if (isFastPath(fact)) {
+            reloadFastPath(stagingKey(fact), facts -> {
+                facts.remove(fact);
+                facts.add(fact);
+            });
+        } else if (null != session) {
+            session.update(fact);
+        } else {
+            for (DroolsRulesSession s : sessions) {
+                s.update(fact);
             }
-            kSession.update(factHandle, fact);
         }
         if (log.isDebugEnabled()) {
-            log.debugf("updateFact( %s )", fact.toString());
-            log.debug("==> Begin Dump");
-            for (FactHandle f : kSession.getFactHandles()) {
-                Object sessionObject = kSession.getObject(f);
-                log.debugf("Fact:  %s", sessionObject.toString());
-            }
-            log.debug("==> End Dump");
+            dump("updateFact( " + fact + " )");
         }
     }
 
@@ -339,19 +615,20 @@ public class DroolsRulesEngineImpl implements RulesEngine {
 
     @Override
     public void removeFacts(Predicate<Object> factFilter) {
-        Collection<FactHandle> handles = kSession.getFactHandles(new ObjectFilter() {
-            @Override
-            public boolean accept(Object object) {
-                return factFilter.test(object);
+        loadStaged();
+        if (null != fastPath) {
+            for (String key : fastPath.findTriggers(factFilter)) {
+                reloadFastPath(key, facts -> {
+                    if (facts.stream().anyMatch(f -> f instanceof Trigger && factFilter.test(f))) {
+                        facts.clear();
+                    } else {
+                        facts.removeIf(factFilter);
+                    }
+                });
             }
-        });
-
-        if (null == handles) {
-            return;
         }
-
-        for (FactHandle h : handles) {
-            removeFact(h);
+        for (DroolsRulesSession session : sessions) {
+            session.deleteFacts(factFilter);
         }
     }
 
@@ -360,13 +637,27 @@ public class DroolsRulesEngineImpl implements RulesEngine {
         if (log.isDebugEnabled()) {
             log.debugf("Remove Global %s", name);
         }
-        kSession.setGlobal(name, null);
+        listGlobals.remove(name);
+        sessionListGlobals.remove(name);
+        if (null != fastPath) {
+            fastPath.setGlobal(name, null);
+        }
+        for (DroolsRulesSession session : sessions) {
+            session.setGlobal(name, null);
+        }
     }
 
     @Override
     public void reset() {
         log.debug("Reset session");
-        kSession.dispose();
-        kSession = kc.newKieSession(SESSION_NAME);
+        listGlobals.clear();
+        sessionListGlobals.clear();
+        stagedFacts.clear();
+        if (null != fastPath) {
+            fastPath.reset();
+        }
+        for (DroolsRulesSession session : sessions) {
+            session.reset();
+        }
     }
 }
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.drools.core.event.DebugAgendaEventListener;
+import org.drools.core.event.DebugRuleRuntimeEventListener;
+import org.hawkular.alerts.api.model.condition.CompareCondition;
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.engine.util.EngineMetrics;
+import org.jboss.logging.Logger;
+import org.kie.api.runtime.KieContainer;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.ObjectFilter;
+import org.kie.api.runtime.rule.FactHandle;
+
+/**
+ * A single drools session used by {@link DroolsRulesEngineImpl}.
+ *
+ * Triggers are partitioned across sessions, a session holds the facts of its triggers and only the Data and Events
+ * referenced by its conditions. A session is not thread safe, but different sessions can be fired in parallel.
+ *
+ * @author Jay Shaughnessy
+ * @author Lucas Ponce
+ */
+public class DroolsRulesSession {
+    private static final Logger log = Logger.getLogger(DroolsRulesSession.class);
+    private static final long PERF_BATCHING_THRESHOLD = 3000L; // 3 seconds
+
+    private final int id;
+    private final KieContainer kc;
+    private final String sessionName;
+    private final int minReportingIntervalData;
+    private final int minReportingIntervalEvents;
+
+    private KieSession kSession;
+
+    /*
+        Number of conditions referencing a tenantId/dataId in this session
+     */
+    private final Map<String, Integer> dataIds = new HashMap<>();
+
+    TreeSet<Data> pendingData = new TreeSet<>();
+    TreeSet<Event> pendingEvents = new TreeSet<>();
+
+    public DroolsRulesSession(int id, KieContainer kc, String sessionName, int minReportingIntervalData,
+            int minReportingIntervalEvents) {
+        this.id = id;
+        this.kc = kc;
+        this.sessionName = sessionName;
+        this.minReportingIntervalData = minReportingIntervalData;
+        this.minReportingIntervalEvents = minReportingIntervalEvents;
+        newSession();
+    }
+
+    private void newSession() {
+        kSession = kc.newKieSession(sessionName);
+        if (log.isEnabled(Logger.Level.TRACE)) {
+            kSession.addEventListener(new DebugAgendaEventListener());
+            kSession.addEventListener(new DebugRuleRuntimeEventListener());
+        }
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public static String dataIdKey(String tenantId, String dataId) {
+        return tenantId + ":" + dataId;
+    }
+
+    /**
+     * @return true if any condition loaded in this session references the tenantId/dataId
+     */
+    public boolean hasDataId(String tenantId, String dataId) {
+        return dataIds.containsKey(dataIdKey(tenantId, dataId));
+    }
+
+    public void insert(Object fact) {
+        if (log.isDebugEnabled()) {
+            log.debugf("Insert %s", fact);
+        }
+        kSession.insert(fact);
+        if (fact instanceof Condition) {
+            referenceDataIds((Condition) fact, 1);
+        }
+    }
+
+    public Object getFact(Object fact) {
+        FactHandle factHandle = kSession.getFactHandle(fact);
+        return null != factHandle ? kSession.getObject(factHandle) : null;
+    }
+
+    /**
+     * @return true if the fact was found and deleted
+     */
+    public boolean delete(Object fact) {
+        FactHandle factHandle = kSession.getFactHandle(fact);
+        if (factHandle == null) {
+            return false;
+        }
+        delete(factHandle);
+        return true;
+    }
+
+    private void delete(FactHandle factHandle) {
+        Object fact = kSession.getObject(factHandle);
+        if (log.isDebugEnabled()) {
+            log.debugf("Delete %s", factHandle);
+        }
+        kSession.delete(factHandle);
+        if (fact instanceof Condition) {
+            referenceDataIds((Condition) fact, -1);
+        }
+    }
+
+    /**
+     * @return true if the fact was found and updated
+     */
+    public boolean update(Object fact) {
+        FactHandle factHandle = kSession.getFactHandle(fact);
+        if (factHandle == null) {
+            return false;
+        }
+        if (log.isDebugEnabled()) {
+            log.debugf("Update %s", factHandle);
+        }
+        kSession.update(factHandle, fact);
+        return true;
+    }
+
+    public void deleteFacts(Predicate<Object> factFilter) {
+        Collection<FactHandle> handles = kSession.getFactHandles(new ObjectFilter() {
+            @Override
+            public boolean accept(Object object) {
+                return factFilter.test(object);
+            }
+        });
+
+        if (null == handles) {
+            return;
+        }
+
+        for (FactHandle h : handles) {
+            delete(h);
+        }
+    }
+
+    public void setGlobal(String name, Object global) {
+        kSession.setGlobal(name, global);
+    }
+
+    /**
+     * @return the number of facts in working memory
+     */
+    public long getFactCount() {
+        return kSession.getFactCount();
+    }
+
+    public void clear() {
+        for (FactHandle factHandle : kSession.getFactHandles()) {
+            if (log.isDebugEnabled()) {
+                log.debugf("Delete %s", factHandle);
+            }
+            kSession.delete(factHandle);
+        }
+        dataIds.clear();
+    }
+
+    public void reset() {
+        kSession.dispose();
+        newSession();
+        dataIds.clear();
+        pendingData.clear();
+        pendingEvents.clear();
+    }
+
+    public void addData(Data data) {
+        pendingData.add(data);
+    }
+
+    public void addEvent(Event event) {
+        pendingEvents.add(event);
+    }
+
+    public boolean hasPending() {
+        return !pendingData.isEmpty() || !pendingEvents.isEmpty();
+    }
+
+    /**
+     * Fire all rules until pending Data and Events are processed.
+     *
+     * @return the number of firing cycles
+     */
+    public int fire() {
+        // The rules engine requires that for any DataId only the oldest Data instance is processed in one
+        // execution of the rules.  So, if we find multiple Data instances for the same Id, defer all but
+        // the oldest to a subsequent run. Note that pendingData is already sorted by (id ASC, timestamp ASC) so
+        // the iterator will present Data with the same id together, and time-ordered.
+        int fireCycle = 0;
+        while (hasPending()) {
+            log.debugf("Firing rules on session [%s]... PendingData [%s] PendingEvents [%s]", id,
+                    pendingData.size(), pendingEvents.size());
+
+            batchData();
+            batchEvents();
+
+            if (log.isTraceEnabled()) {
+                log.tracef("Firing cycle [%s] - with these facts: ", fireCycle);
+                for (FactHandle fact : kSession.getFactHandles()) {
+                    Object o = kSession.getObject(fact);
+                    log.tracef("Fact: %s", o);
+                }
+            }
+
+            kSession.fireAllRules();
+            fireCycle++;
+        }
+        return fireCycle;
+    }
+
+    public void fireNoData() {
+        kSession.fireAllRules();
+    }
+
+    public void dump(String header) {
+        log.debug(header);
+        log.debug("==> Begin Dump");
+        for (FactHandle f : kSession.getFactHandles()) {
+            Object sessionObject = kSession.getObject(f);
+            log.debugf("Fact:  %s", sessionObject.toString());
+        }
+        log.debug("==> End Dump");
+    }
+
+    private void referenceDataIds(Condition c, int delta) {
+        referenceDataId(c.getTenantId(), c.getDataId(), delta);
+        if (Condition.Type.COMPARE == c.getType()) {
+            referenceDataId(c.getTenantId(), ((CompareCondition) c).getData2Id(), delta);
+        }
+    }
+
+    private void referenceDataId(String tenantId, String dataId, int delta) {
+        if (dataId == null) {
+            return;
+        }
+        String key = dataIdKey(tenantId, dataId);
+        int count = dataIds.getOrDefault(key, 0) + delta;
+        if (count > 0) {
+            dataIds.put(key, count);
+        } else {
+            dataIds.remove(key);
+        }
+    }
+
+    private void batchData() {
+        long startBatching = System.currentTimeMillis();
+        TreeSet<Data> batchData = pendingData;
+        pendingData = batchData(batchData, minReportingIntervalData, kSession::insert);
+
+        if (!pendingData.isEmpty()) {
+            log.debugf("Deferring [%d] Datum(s) to next firing !!", pendingData.size());
+        }
+
+        long batchingTime = System.currentTimeMillis() - startBatching;
+        EngineMetrics.getInstance().recordBatchingTime(batchingTime);
+        EngineMetrics.getInstance().recordDeferredData(pendingData.size());
+        log.debugf("Batching Data [%s] took [%s]", batchData.size(), batchingTime);
+        if (batchingTime > PERF_BATCHING_THRESHOLD) {
+            log.warnf("Batching Data [%s] took [%s] ms exceeding [%s] ms",
+                    batchData.size(), batchingTime, PERF_BATCHING_THRESHOLD);
+        }
+    }
+
+    /**
+     * Keep only the least recent datum for any dataId. Remove minReportingInterval violators, defer the rest.
+     *
+     * @param batchData pending Data sorted by (id ASC, timestamp ASC)
+     * @param minReportingInterval minimum interval between two Data of the same dataId
+     * @param batch consumer of the Data selected for this firing cycle
+     * @return the Data deferred to the next firing cycle
+     */
+    static TreeSet<Data> batchData(TreeSet<Data> batchData, int minReportingInterval, Consumer<Data> batch) {
+        TreeSet<Data> deferred = new TreeSet<>();
+        Data previousData = null;
+        for (Iterator<Data> i = batchData.iterator(); i.hasNext();) {
+            Data d = i.next();
+            if (!d.same(previousData)) {
+                previousData = d;
+                batch.accept(d);
+
+            } else {
+                if ((d.getTimestamp() - previousData.getTimestamp()) < minReportingInterval) {
+                    log.tracef("MinReportingInterval violation, prev: %s, removed: %s", previousData, d);
+                } else {
+                    deferred.add(d);
+                    log.tracef("Deferring data, keep: %s, defer: %s", previousData, d);
+                }
+            }
+        }
+        return deferred;
+    }
+
+    private void batchEvents() {
+        long startBatching = System.currentTimeMillis();
+        TreeSet<Event> batchEvents = pendingEvents;
+        pendingEvents = new TreeSet<>();
+
+        // Keep only the least recent datum for any dataId. Remove minReportingInterval violators, defer the rest
+        Event previousEvent = null;
+        for (Iterator<Event> i = batchEvents.iterator(); i.hasNext();) {
+            Event e = i.next();
+            if (!e.same(previousEvent)) {
+                previousEvent = e;
+                kSession.insert(e);
+
+            } else {
+                if ((e.getCtime() - previousEvent.getCtime()) < minReportingIntervalEvents) {
+                    log.tracef("MinReportingInterval violation, prev: %s, removed: %s", previousEvent, e);
+                } else {
+                    pendingEvents.add(e);
+                    log.tracef("Deferring event, keep: %s, defer: %s", previousEvent, e);
+                }
+            }
+        }
+
+        if (!pendingEvents.isEmpty()) {
+            log.debugf("Deferring [%d] Event(s) to next firing !!", pendingEvents.size());
+        }
+
+        long batchingTime = System.currentTimeMillis() - startBatching;
+        log.debugf("Batching Events [%s] took [%s]", batchEvents.size(), batchingTime);
+        if (batchingTime > PERF_BATCHING_THRESHOLD) {
+            log.warnf("Batching Events [%s] took [%s] ms exceeding [%s] ms",
+                    batchEvents.size(), batchingTime, PERF_BATCHING_THRESHOLD);
+        }
+    }
+}
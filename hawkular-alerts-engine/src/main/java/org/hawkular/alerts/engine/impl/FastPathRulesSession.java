@@ -0,0 +1,530 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import org.hawkular.alerts.api.model.condition.AvailabilityCondition;
+import org.hawkular.alerts.api.model.condition.AvailabilityConditionEval;
+import org.hawkular.alerts.api.model.condition.CompareCondition;
+import org.hawkular.alerts.api.model.condition.CompareConditionEval;
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.StringCondition;
+import org.hawkular.alerts.api.model.condition.StringConditionEval;
+import org.hawkular.alerts.api.model.condition.ThresholdCondition;
+import org.hawkular.alerts.api.model.condition.ThresholdConditionEval;
+import org.hawkular.alerts.api.model.condition.ThresholdRangeCondition;
+import org.hawkular.alerts.api.model.condition.ThresholdRangeConditionEval;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.event.EventType;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.services.ActionsService;
+import org.jboss.logging.Logger;
+
+/**
+ * A rules session that evaluates simple triggers without drools, used by {@link DroolsRulesEngineImpl}.
+ *
+ * A trigger is supported when it stays in FIRING mode (no autoResolve), all its FIRING conditions are Threshold,
+ * ThresholdRange, Availability, String or Compare conditions, and its dampening is not STRICT_TIMEOUT. Conditions
+ * are indexed by tenantId/dataId, so every Data is evaluated only against the conditions referencing it.
+ *
+ * Evaluation follows the ConditionMatch.drl rules: on every firing cycle only the least recent Data of a dataId is
+ * processed, the ConditionEvals of a trigger are applied as a set to its Dampening, and a satisfied Dampening
+ * generates an Alert or an Event and is reset. Compare conditions use the most recent value of both dataIds, held
+ * across firings. Any other trigger must be evaluated by a drools session.
+ *
+ * This session is not thread safe.
+ *
+ * @author Jay Shaughnessy
+ * @author Lucas Ponce
+ */
+public class FastPathRulesSession {
+    private static final Logger log = Logger.getLogger(FastPathRulesSession.class);
+
+    private final int minReportingIntervalData;
+
+    /*
+        Loaded triggers by tenantId/triggerId
+     */
+    private final Map<String, FastPathTrigger> triggers = new HashMap<>();
+
+    /*
+        Conditions of the loaded triggers by tenantId/dataId. Compare conditions are indexed by both dataIds.
+     */
+    private final Map<String, List<FastPathCondition>> conditionsByDataId = new HashMap<>();
+
+    /*
+        Most recent Data by tenantId/source/dataId, for dataIds used on Compare conditions. As CompareData facts on
+        drools sessions, it is kept across trigger reloads.
+     */
+    private final Map<String, Data> compareData = new HashMap<>();
+
+    private final Map<String, Object> globals = new HashMap<>();
+
+    TreeSet<Data> pendingData = new TreeSet<>();
+
+    public FastPathRulesSession(int minReportingIntervalData) {
+        this.minReportingIntervalData = minReportingIntervalData;
+    }
+
+    /**
+     * @param trigger the trigger
+     * @param facts the Conditions and Dampenings of the trigger
+     * @return true if the trigger and its facts can be evaluated by this session
+     */
+    public static boolean isSupported(Trigger trigger, Collection<Object> facts) {
+        if (trigger.getMode() != Mode.FIRING || trigger.isAutoResolve() || null == trigger.getEventType()) {
+            return false;
+        }
+        int numConditions = 0;
+        int numDampenings = 0;
+        for (Object fact : facts) {
+            if (fact instanceof Condition) {
+                Condition c = (Condition) fact;
+                if (c.getTriggerMode() != Mode.FIRING) {
+                    continue;
+                }
+                switch (c.getType()) {
+                    case THRESHOLD:
+                    case RANGE:
+                    case AVAILABILITY:
+                    case STRING:
+                    case COMPARE:
+                        numConditions++;
+                        break;
+                    default:
+                        return false;
+                }
+            } else if (fact instanceof Dampening) {
+                Dampening d = (Dampening) fact;
+                if (d.getTriggerMode() != Mode.FIRING) {
+                    continue;
+                }
+                if (d.getType() == Dampening.Type.STRICT_TIMEOUT) {
+                    return false;
+                }
+                numDampenings++;
+            } else {
+                return false;
+            }
+        }
+        return numConditions > 0 && numDampenings <= 1;
+    }
+
+    public static String triggerKey(String tenantId, String triggerId) {
+        return tenantId + ":" + triggerId;
+    }
+
+    private static String compareDataKey(Data data) {
+        return compareDataKey(data.getTenantId(), data.getSource(), data.getId());
+    }
+
+    private static String compareDataKey(String tenantId, String source, String dataId) {
+        return tenantId + ":" + source + ":" + dataId;
+    }
+
+    /**
+     * @return true if any condition loaded in this session references the tenantId/dataId
+     */
+    public boolean hasDataId(String tenantId, String dataId) {
+        return conditionsByDataId.containsKey(DroolsRulesSession.dataIdKey(tenantId, dataId));
+    }
+
+    /**
+     * @param key the tenantId/triggerId key of the trigger, as returned by {@link #triggerKey(String, String)}
+     * @return true if the trigger is loaded in this session
+     */
+    public boolean hasTrigger(String key) {
+        return triggers.containsKey(key);
+    }
+
+    /**
+     * Load a trigger, previously checked with {@link #isSupported(Trigger, Collection)}.
+     *
+     * @param trigger the trigger
+     * @param facts the Conditions and Dampenings of the trigger
+     */
+    public void insert(Trigger trigger, Collection<Object> facts) {
+        if (log.isDebugEnabled()) {
+            log.debugf("Insert %s with %s", trigger, facts);
+        }
+        FastPathTrigger fastPathTrigger = new FastPathTrigger(trigger, facts);
+        triggers.put(triggerKey(trigger.getTenantId(), trigger.getId()), fastPathTrigger);
+        for (FastPathCondition fastPathCondition : fastPathTrigger.conditions) {
+            Condition c = fastPathCondition.condition;
+            index(c.getTenantId(), c.getDataId(), fastPathCondition);
+            if (Condition.Type.COMPARE == c.getType()) {
+                index(c.getTenantId(), ((CompareCondition) c).getData2Id(), fastPathCondition);
+            }
+        }
+    }
+
+    /**
+     * Unload a trigger.
+     *
+     * @return the Trigger, Conditions and Dampenings of the unloaded trigger, or an empty list if not loaded
+     */
+    public List<Object> remove(String tenantId, String triggerId) {
+        return remove(triggerKey(tenantId, triggerId));
+    }
+
+    /**
+     * Unload a trigger.
+     *
+     * @param key the tenantId/triggerId key of the trigger, as returned by {@link #triggerKey(String, String)}
+     * @return the Trigger, Conditions and Dampenings of the unloaded trigger, or an empty list if not loaded
+     */
+    public List<Object> remove(String key) {
+        FastPathTrigger fastPathTrigger = triggers.remove(key);
+        if (null == fastPathTrigger) {
+            return new ArrayList<>();
+        }
+        if (log.isDebugEnabled()) {
+            log.debugf("Remove %s", fastPathTrigger.trigger);
+        }
+        for (FastPathCondition fastPathCondition : fastPathTrigger.conditions) {
+            Condition c = fastPathCondition.condition;
+            unindex(c.getTenantId(), c.getDataId(), fastPathCondition);
+            if (Condition.Type.COMPARE == c.getType()) {
+                unindex(c.getTenantId(), ((CompareCondition) c).getData2Id(), fastPathCondition);
+            }
+        }
+        return fastPathTrigger.getFacts();
+    }
+
+    private void index(String tenantId, String dataId, FastPathCondition fastPathCondition) {
+        conditionsByDataId.computeIfAbsent(DroolsRulesSession.dataIdKey(tenantId, dataId), k -> new ArrayList<>())
+                .add(fastPathCondition);
+    }
+
+    private void unindex(String tenantId, String dataId, FastPathCondition fastPathCondition) {
+        String key = DroolsRulesSession.dataIdKey(tenantId, dataId);
+        List<FastPathCondition> conditions = conditionsByDataId.get(key);
+        if (null == conditions) {
+            return;
+        }
+        conditions.remove(fastPathCondition);
+        if (conditions.isEmpty()) {
+            conditionsByDataId.remove(key);
+        }
+    }
+
+    public Object getFact(Object fact) {
+        FastPathTrigger fastPathTrigger;
+        if (fact instanceof Trigger) {
+            fastPathTrigger = triggers.get(triggerKey(((Trigger) fact).getTenantId(), ((Trigger) fact).getId()));
+        } else if (fact instanceof Condition) {
+            fastPathTrigger = triggers.get(triggerKey(((Condition) fact).getTenantId(),
+                    ((Condition) fact).getTriggerId()));
+        } else if (fact instanceof Dampening) {
+            fastPathTrigger = triggers.get(triggerKey(((Dampening) fact).getTenantId(),
+                    ((Dampening) fact).getTriggerId()));
+        } else {
+            return null;
+        }
+        if (null == fastPathTrigger) {
+            return null;
+        }
+        for (Object o : fastPathTrigger.getFacts()) {
+            if (o.equals(fact)) {
+                return o;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the keys of the loaded triggers with any fact matching the filter
+     */
+    public Set<String> findTriggers(Predicate<Object> factFilter) {
+        Set<String> found = new HashSet<>();
+        for (Map.Entry<String, FastPathTrigger> entry : triggers.entrySet()) {
+            for (Object o : entry.getValue().getFacts()) {
+                if (factFilter.test(o)) {
+                    found.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    public void setGlobal(String name, Object global) {
+        if (null == global) {
+            globals.remove(name);
+        } else {
+            globals.put(name, global);
+        }
+    }
+
+    /**
+     * @return the number of Trigger, Condition and Dampening facts loaded, as they would be in working memory
+     */
+    public long getFactCount() {
+        long count = 0;
+        for (FastPathTrigger fastPathTrigger : triggers.values()) {
+            count += 2 + fastPathTrigger.conditions.size() + fastPathTrigger.otherFacts.size();
+        }
+        return count;
+    }
+
+    public void clear() {
+        triggers.clear();
+        conditionsByDataId.clear();
+        compareData.clear();
+    }
+
+    public void reset() {
+        clear();
+        pendingData.clear();
+    }
+
+    public void addData(Data data) {
+        pendingData.add(data);
+    }
+
+    public boolean hasPending() {
+        return !pendingData.isEmpty();
+    }
+
+    /**
+     * Evaluate the loaded triggers until pending Data is processed.
+     *
+     * @return the Alerts and Events generated, needed by chained triggers
+     */
+    public List<Event> fire() {
+        List<Event> generated = new ArrayList<>();
+        while (hasPending()) {
+            log.debugf("Firing fast path... PendingData [%s]", pendingData.size());
+
+            Map<FastPathTrigger, Set<ConditionEval>> evals = new LinkedHashMap<>();
+            Set<FastPathCondition> compares = new LinkedHashSet<>();
+            TreeSet<Data> batchData = pendingData;
+            pendingData = DroolsRulesSession.batchData(batchData, minReportingIntervalData,
+                    d -> evaluate(d, evals, compares));
+
+            for (FastPathCondition fastPathCondition : compares) {
+                CompareCondition c = (CompareCondition) fastPathCondition.condition;
+                String source = fastPathCondition.trigger.trigger.getSource();
+                Data data1 = compareData.get(compareDataKey(c.getTenantId(), source, c.getDataId()));
+                Data data2 = compareData.get(compareDataKey(c.getTenantId(), source, c.getData2Id()));
+                if (null != data1 && null != data2) {
+                    addEval(evals, fastPathCondition, new CompareConditionEval(c, data1, data2));
+                }
+            }
+
+            for (Map.Entry<FastPathTrigger, Set<ConditionEval>> entry : evals.entrySet()) {
+                dampen(entry.getKey(), entry.getValue(), generated);
+            }
+        }
+        return generated;
+    }
+
+    private void evaluate(Data d, Map<FastPathTrigger, Set<ConditionEval>> evals,
+            Set<FastPathCondition> compares) {
+        List<FastPathCondition> conditions = conditionsByDataId.get(
+                DroolsRulesSession.dataIdKey(d.getTenantId(), d.getId()));
+        if (null == conditions) {
+            return;
+        }
+        boolean compareUpdated = false;
+        for (FastPathCondition fastPathCondition : conditions) {
+            if (!Objects.equals(fastPathCondition.trigger.trigger.getSource(), d.getSource())) {
+                continue;
+            }
+            Condition c = fastPathCondition.condition;
+            switch (c.getType()) {
+                case THRESHOLD:
+                    addEval(evals, fastPathCondition, new ThresholdConditionEval((ThresholdCondition) c, d));
+                    break;
+                case RANGE:
+                    addEval(evals, fastPathCondition, new ThresholdRangeConditionEval((ThresholdRangeCondition) c, d));
+                    break;
+                case AVAILABILITY:
+                    addEval(evals, fastPathCondition, new AvailabilityConditionEval((AvailabilityCondition) c, d));
+                    break;
+                case STRING:
+                    addEval(evals, fastPathCondition, new StringConditionEval((StringCondition) c, d));
+                    break;
+                case COMPARE:
+                    // Compare data is shared by all conditions referencing the dataId, update it once
+                    compareUpdated = compareUpdated || updateCompareData(d);
+                    if (compareUpdated) {
+                        compares.add(fastPathCondition);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported condition " + c);
+            }
+        }
+    }
+
+    /*
+        Keep the most recent Data for Compare conditions, older Data does not trigger a new evaluation
+     */
+    private boolean updateCompareData(Data d) {
+        String key = compareDataKey(d);
+        Data previous = compareData.get(key);
+        if (null != previous && previous.getTimestamp() >= d.getTimestamp()) {
+            return false;
+        }
+        compareData.put(key, d);
+        return true;
+    }
+
+    private void addEval(Map<FastPathTrigger, Set<ConditionEval>> evals, FastPathCondition fastPathCondition,
+            ConditionEval ce) {
+        if (log.isDebugEnabled()) {
+            log.debugf("%s Eval: %s %s", fastPathCondition.condition.getType(), (ce.isMatch() ? "Match!" : "no match"),
+                    ce.getLog());
+        }
+        evals.computeIfAbsent(fastPathCondition.trigger, t -> new HashSet<>()).add(ce);
+    }
+
+    private void dampen(FastPathTrigger fastPathTrigger, Set<ConditionEval> ces, List<Event> generated) {
+        Trigger t = fastPathTrigger.trigger;
+        Dampening d = fastPathTrigger.dampening;
+        d.perform(t.getMatch(), ces);
+        if (log.isDebugEnabled()) {
+            log.debugf("DampenTrigger %s using [match=%s] %s", d, t.getMatch(), d.getCurrentEvals());
+        }
+        if (!d.isSatisfied()) {
+            return;
+        }
+
+        Event newEvent;
+        if (t.getEventType() == EventType.ALERT) {
+            if (log.isDebugEnabled()) {
+                log.debugf("Alert! Dampening Satisfied! %s", d.log());
+            }
+            newEvent = new Alert(t.getTenantId(), t, d, d.getSatisfyingEvals());
+            addToGlobal("alerts", newEvent);
+        } else {
+            if (log.isDebugEnabled()) {
+                log.debugf("Event! Dampening Satisfied! %s", d.log());
+            }
+            newEvent = new Event(t.getTenantId(), t, d, d.getSatisfyingEvals());
+            addToGlobal("events", newEvent);
+        }
+        generated.add(newEvent);
+
+        ActionsService actions = (ActionsService) globals.get("actions");
+        if (null != actions) {
+            actions.send(t, newEvent);
+        }
+
+        d.reset();
+
+        if (t.isAutoDisable()) {
+            if (log.isDebugEnabled()) {
+                log.debugf("Setting Trigger Disabled! %s", t);
+            }
+            // the autoDisable trigger handling will result in a trigger reload
+            addToGlobal("disabledTriggers", t);
+            remove(t.getTenantId(), t.getId());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addToGlobal(String name, Object o) {
+        Collection<Object> global = (Collection<Object>) globals.get(name);
+        if (null != global) {
+            global.add(o);
+        }
+    }
+
+    public void dump(String header) {
+        log.debug(header);
+        log.debug("==> Begin Dump");
+        for (FastPathTrigger fastPathTrigger : triggers.values()) {
+            log.debugf("Fact:  %s", fastPathTrigger.trigger);
+            for (Object o : fastPathTrigger.getFacts()) {
+                log.debugf("Fact:  %s", o);
+            }
+        }
+        log.debug("==> End Dump");
+    }
+
+    private static class FastPathTrigger {
+        private final Trigger trigger;
+        private final List<FastPathCondition> conditions = new ArrayList<>();
+        private final Dampening dampening;
+
+        /*
+            Facts not used for evaluation (i.e. AUTORESOLVE conditions), kept to be returned on unload
+         */
+        private final List<Object> otherFacts = new ArrayList<>();
+
+        FastPathTrigger(Trigger trigger, Collection<Object> facts) {
+            this.trigger = trigger;
+            Dampening firingDampening = null;
+            for (Object fact : facts) {
+                if (fact instanceof Condition && ((Condition) fact).getTriggerMode() == Mode.FIRING) {
+                    conditions.add(new FastPathCondition(this, (Condition) fact));
+                } else if (fact instanceof Dampening && ((Dampening) fact).getTriggerMode() == Mode.FIRING) {
+                    firingDampening = (Dampening) fact;
+                } else {
+                    otherFacts.add(fact);
+                }
+            }
+            if (null == firingDampening) {
+                if (log.isDebugEnabled()) {
+                    log.debugf("Adding default %s dampening for trigger! %s", Mode.FIRING, trigger.getId());
+                }
+                firingDampening = Dampening.forStrict(trigger.getTenantId(), trigger.getId(), Mode.FIRING, 1);
+            }
+            this.dampening = firingDampening;
+        }
+
+        List<Object> getFacts() {
+            List<Object> facts = new ArrayList<>(conditions.size() + otherFacts.size() + 2);
+            facts.add(trigger);
+            for (FastPathCondition fastPathCondition : conditions) {
+                facts.add(fastPathCondition.condition);
+            }
+            facts.add(dampening);
+            facts.addAll(otherFacts);
+            return facts;
+        }
+    }
+
+    private static class FastPathCondition {
+        private final FastPathTrigger trigger;
+        private final Condition condition;
+
+        FastPathCondition(FastPathTrigger trigger, Condition condition) {
+            this.trigger = trigger;
+            this.condition = condition;
+        }
+    }
+}
@@ -17,14 +17,21 @@
 package org.hawkular.alerts.engine.impl;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.Local;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
 import javax.ejb.Singleton;
 import javax.ejb.Startup;
 import javax.ejb.TransactionAttribute;
@@ -35,6 +42,7 @@ import javax.inject.Inject;
 import org.hawkular.alerts.api.model.data.Data;
 import org.hawkular.alerts.api.model.event.Event;
 import org.hawkular.alerts.api.services.DefinitionsService;
+import org.hawkular.alerts.engine.exception.IngestionRejectedApplicationException;
 import org.hawkular.alerts.engine.service.AlertsEngine;
 import org.hawkular.alerts.engine.service.IncomingDataManager;
 import org.hawkular.alerts.engine.service.PartitionManager;
@@ -43,6 +51,22 @@ import org.hawkular.alerts.filter.CacheClient;
 import org.jboss.logging.Logger;
 
 /**
+ * Incoming Data and Events are filtered and handed to the AlertsEngine asynchronously.
+ *
+ * Ingestion is bounded. Data and Events accepted on this node and not yet evaluated by the AlertsEngine must not
+ * exceed INGESTION_CAPACITY. The capacity taken by a batch is freed once the AlertsEngine drains it for evaluation.
+ * When the capacity is exhausted the INGESTION_POLICY is applied:
+ * <ul>
+ * <li>BLOCK: the caller waits up to INGESTION_BLOCK_TIMEOUT ms for free capacity, then the incoming batch is
+ * rejected</li>
+ * <li>REJECT: the incoming batch is rejected immediately</li>
+ * <li>DROP_OLDEST: pending Data are shed keeping only the most recent one per dataId, and the caller waits up to
+ * INGESTION_BLOCK_TIMEOUT ms for the capacity freed, then the incoming batch is rejected. Events are discrete
+ * occurrences and are never shed, incoming Events wait as with BLOCK</li>
+ * </ul>
+ * The capacity is never exceeded, a batch larger than INGESTION_CAPACITY is always rejected.
+ * Rejections are signaled with an {@link IngestionRejectedApplicationException}, not wrapped by the container.
+ *
  * @author Jay Shaughnessy
  * @author Lucas Ponce
  */
@@ -53,9 +77,45 @@ import org.jboss.logging.Logger;
 public class IncomingDataManagerImpl implements IncomingDataManager {
     private final Logger log = Logger.getLogger(IncomingDataManagerImpl.class);
 
+    /*
+        INGESTION_CAPACITY defines the max number of Data and Events accepted and not yet evaluated.
+        A value <= 0 means unbounded ingestion.
+     */
+    private static final String INGESTION_CAPACITY = "hawkular-alerts.ingestion-capacity";
+    private static final String INGESTION_CAPACITY_ENV = "INGESTION_CAPACITY";
+    private static final String INGESTION_CAPACITY_DEFAULT = "100000";
+
+    /*
+        INGESTION_POLICY defines the behavior when capacity is exhausted: BLOCK, REJECT or DROP_OLDEST
+     */
+    private static final String INGESTION_POLICY = "hawkular-alerts.ingestion-policy";
+    private static final String INGESTION_POLICY_ENV = "INGESTION_POLICY";
+    private static final String INGESTION_POLICY_DEFAULT = "BLOCK";
+
+    /*
+        INGESTION_BLOCK_TIMEOUT defined in milliseconds, max wait for free capacity with BLOCK policy
+     */
+    private static final String INGESTION_BLOCK_TIMEOUT = "hawkular-alerts.ingestion-block-timeout";
+    private static final String INGESTION_BLOCK_TIMEOUT_ENV = "INGESTION_BLOCK_TIMEOUT";
+    private static final String INGESTION_BLOCK_TIMEOUT_DEFAULT = "30000";
+
+    public enum IngestionPolicy {
+        BLOCK, REJECT, DROP_OLDEST
+    }
+
     private int minReportingIntervalData;
     private int minReportingIntervalEvents;
 
+    private int capacity;
+    private IngestionPolicy policy;
+    private long blockTimeout;
+
+    /*
+        Permits of the Data and Events accepted and not yet evaluated, null for unbounded ingestion
+     */
+    private Semaphore permits;
+    private final AtomicLong rejected = new AtomicLong(0);
+
     @Resource
     private ManagedExecutorService executor;
 
@@ -86,6 +146,15 @@ public class IncomingDataManagerImpl implements IncomingDataManager {
                     AlertProperties.getProperty(RulesEngine.MIN_REPORTING_INTERVAL_EVENTS,
                             RulesEngine.MIN_REPORTING_INTERVAL_EVENTS_ENV,
                             RulesEngine.MIN_REPORTING_INTERVAL_EVENTS_DEFAULT));
+
+            capacity = new Integer(AlertProperties.getProperty(INGESTION_CAPACITY, INGESTION_CAPACITY_ENV,
+                    INGESTION_CAPACITY_DEFAULT));
+            policy = IngestionPolicy.valueOf(AlertProperties.getProperty(INGESTION_POLICY, INGESTION_POLICY_ENV,
+                    INGESTION_POLICY_DEFAULT).toUpperCase());
+            blockTimeout = new Long(AlertProperties.getProperty(INGESTION_BLOCK_TIMEOUT, INGESTION_BLOCK_TIMEOUT_ENV,
+                    INGESTION_BLOCK_TIMEOUT_DEFAULT));
+            // Fair, so a large batch waiting for capacity is not starved by smaller ones
+            permits = capacity > 0 ? new Semaphore(capacity, true) : null;
         } catch (Throwable t) {
             if (log.isDebugEnabled()) {
                 t.printStackTrace();
@@ -94,18 +163,97 @@ public class IncomingDataManagerImpl implements IncomingDataManager {
         }
     }
 
+    // We allow concurrent threads to make this call, capacity is tracked with a semaphore.
     @Override
+    @Lock(LockType.READ)
     public void bufferData(IncomingData incomingData) {
-        executor.submit(() -> {
-            processData(incomingData);
-        });
+        int size = incomingData.getIncomingData().size();
+        acquire(size);
+        try {
+            executor.submit(() -> {
+                try {
+                    processData(incomingData);
+                } finally {
+                    releaseAfterEvaluation(size);
+                }
+            });
+        } catch (RuntimeException e) {
+            release(size);
+            throw e;
+        }
     }
 
+    // We allow concurrent threads to make this call, capacity is tracked with a semaphore.
     @Override
+    @Lock(LockType.READ)
     public void bufferEvents(IncomingEvents incomingEvents) {
-        executor.submit(() -> {
-            processEvents(incomingEvents);
-        });
+        int size = incomingEvents.getIncomingEvents().size();
+        acquire(size);
+        try {
+            executor.submit(() -> {
+                try {
+                    processEvents(incomingEvents);
+                } finally {
+                    releaseAfterEvaluation(size);
+                }
+            });
+        } catch (RuntimeException e) {
+            release(size);
+            throw e;
+        }
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public Map<String, String> getStatus() {
+        Map<String, String> status = new HashMap<>();
+        status.put("ingestion-capacity", String.valueOf(capacity));
+        status.put("ingestion-policy", String.valueOf(policy));
+        status.put("ingestion-in-flight", String.valueOf(permits != null ? capacity - permits.availablePermits() : 0));
+        status.put("ingestion-pending", String.valueOf(alertsEngine.getPendingSize()));
+        status.put("ingestion-rejected", String.valueOf(rejected.get()));
+        status.put("ingestion-dropped", String.valueOf(alertsEngine.getShedSize()));
+        return status;
+    }
+
+    /*
+        Reserve capacity for size incoming Data or Events, applying the ingestion policy when it is exhausted.
+     */
+    private void acquire(int size) {
+        if (permits == null || (size <= capacity && permits.tryAcquire(size))) {
+            return;
+        }
+        if (size <= capacity && policy != IngestionPolicy.REJECT) {
+            if (policy == IngestionPolicy.DROP_OLDEST) {
+                // Shedding is performed by the rules engine thread, capacity is freed on its next firing
+                alertsEngine.requestShed();
+            }
+            try {
+                if (permits.tryAcquire(size, blockTimeout, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        rejected.addAndGet(size);
+        throw new IngestionRejectedApplicationException("Ingestion capacity [" + capacity + "] exhausted, ["
+                + size + "] incoming Data/Events rejected");
+    }
+
+    /*
+        The Data and Events handed to the AlertsEngine keep their capacity until they are drained for evaluation
+     */
+    private void releaseAfterEvaluation(int size) {
+        if (permits != null) {
+            alertsEngine.afterEvaluation(() -> release(size));
+        }
+    }
+
+    private void release(int size) {
+        if (permits != null) {
+            permits.release(size);
+        }
     }
 
     private void processData(IncomingData incomingData) {
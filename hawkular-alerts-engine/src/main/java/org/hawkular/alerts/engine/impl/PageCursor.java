@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of a cursor page on a ctimes index table (alerts_ctimes, events_ctimes).
+ *
+ * The cursor is the clustering key (ctime, id) of the last element returned, so the next page is a slice of the
+ * index after that key, independent of the elements added or removed meanwhile. The direction of the scan is part
+ * of the cursor, a cursor can not be reused with a different order.
+ *
+ * Cursors are exposed as opaque url safe tokens.
+ *
+ * @author Lucas Ponce
+ */
+class PageCursor {
+
+    private static final String VERSION = "1";
+    private static final String ASC = "a";
+    private static final String DESC = "d";
+    private static final String SEPARATOR = ":";
+
+    final boolean descending;
+    final long ctime;
+    final String id;
+
+    PageCursor(boolean descending, long ctime, String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("Cursor id must be not null");
+        }
+        this.descending = descending;
+        this.ctime = ctime;
+        this.id = id;
+    }
+
+    String encode() {
+        String cursor = VERSION + SEPARATOR + (descending ? DESC : ASC) + SEPARATOR + ctime + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param token a cursor token, null or empty for the first page
+     * @param descending the direction of the query
+     * @return the decoded cursor, null for the first page
+     * @throws IllegalArgumentException if the token is not valid for the query
+     */
+    static PageCursor decode(String token, boolean descending) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        String[] fields;
+        try {
+            fields = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(SEPARATOR, 4);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor [" + token + "] is not valid");
+        }
+        if (fields.length != 4 || !VERSION.equals(fields[0])
+                || !(ASC.equals(fields[1]) || DESC.equals(fields[1])) || fields[3].isEmpty()) {
+            throw new IllegalArgumentException("Cursor [" + token + "] is not valid");
+        }
+        if (DESC.equals(fields[1]) != descending) {
+            throw new IllegalArgumentException("Cursor [" + token + "] was created with a different order");
+        }
+        try {
+            return new PageCursor(descending, Long.parseLong(fields[2]), fields[3]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor [" + token + "] is not valid");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PageCursor[" + (descending ? DESC : ASC) + ", ctime=" + ctime + ", id=" + id + "]";
+    }
+}
@@ -194,6 +194,12 @@ public class PartitionManagerImpl implements PartitionManager {
         return distributed;
     }
 
+    @Override
+    @Lock(LockType.READ)
+    public boolean isCoordinator() {
+        return !distributed || cacheManager.isCoordinator();
+    }
+
     @Override
     public Map<String, String> getStatus() {
         if (distributed) {
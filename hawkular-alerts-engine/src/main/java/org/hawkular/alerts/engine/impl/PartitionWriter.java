@@ -0,0 +1,176 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.CodecRegistry;
+import com.datastax.driver.core.Configuration;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.Futures;
+
+/**
+ * Writes grouped by partition.
+ *
+ * Statements are grouped by table and partition key. The statements of a partition are sent as unlogged batches of
+ * up to batchSize statements, which Cassandra applies as a single mutation, and a partition with a single statement
+ * is sent alone. Batches and statements carry the routing key of their partition, so the token aware policy sends
+ * them to a replica and the coordinator does not fan out a multi-partition batch. Statements without routing key and
+ * conditional statements are sent alone.
+ *
+ * Writes in flight are bounded by hawkular-alerts.write-in-flight for the whole node, so a storm of alerts waits for
+ * Cassandra instead of exhausting the queue of the connection pool.
+ *
+ * Writes of different partitions are not atomic, the statements written must be idempotent so a failed write can be
+ * retried as a whole.
+ *
+ * @author Lucas Ponce
+ */
+class PartitionWriter {
+    private static final String WRITE_IN_FLIGHT = "hawkular-alerts.write-in-flight";
+    private static final String WRITE_IN_FLIGHT_ENV = "WRITE_IN_FLIGHT";
+    private static final String WRITE_IN_FLIGHT_DEFAULT = "256";
+
+    private static final Semaphore inFlight = new Semaphore(Integer.parseInt(AlertProperties
+            .getProperty(WRITE_IN_FLIGHT, WRITE_IN_FLIGHT_ENV, WRITE_IN_FLIGHT_DEFAULT)));
+
+    private final Session session;
+    private final int batchSize;
+    private final ProtocolVersion protocolVersion;
+    private final CodecRegistry codecRegistry;
+    private final Map<Partition, List<Statement>> partitions = new LinkedHashMap<>();
+    private final List<Statement> singles = new ArrayList<>();
+
+    /**
+     * @param session the Cassandra session
+     * @param batchSize max number of statements of a batch
+     */
+    PartitionWriter(Session session, int batchSize) {
+        this.session = session;
+        this.batchSize = Math.max(1, batchSize);
+        Configuration configuration = session.getCluster().getConfiguration();
+        this.protocolVersion = configuration.getProtocolOptions().getProtocolVersion();
+        this.codecRegistry = configuration.getCodecRegistry();
+    }
+
+    /**
+     * @param statement the statement to write
+     * @return this writer
+     */
+    PartitionWriter add(BoundStatement statement) {
+        ByteBuffer routingKey = statement.getRoutingKey(protocolVersion, codecRegistry);
+        if (routingKey == null) {
+            singles.add(statement);
+        } else {
+            partitions.computeIfAbsent(new Partition(statement.preparedStatement().getQueryString(), routingKey),
+                    p -> new ArrayList<>()).add(statement);
+        }
+        return this;
+    }
+
+    /**
+     * @param statement the statement to write alone, as a conditional statement must not share a batch
+     * @return this writer
+     */
+    PartitionWriter addSingle(BoundStatement statement) {
+        singles.add(statement);
+        return this;
+    }
+
+    /**
+     * Write the statements added and wait for completion.
+     *
+     * @throws Exception on any problem
+     */
+    void execute() throws Exception {
+        List<ResultSetFuture> futures = new ArrayList<>();
+        try {
+            for (List<Statement> statements : partitions.values()) {
+                for (int i = 0; i < statements.size(); i += batchSize) {
+                    List<Statement> chunk = statements.subList(i, Math.min(i + batchSize, statements.size()));
+                    if (chunk.size() == 1) {
+                        futures.add(executeAsync(chunk.get(0)));
+                    } else {
+                        BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+                        batch.addAll(chunk);
+                        futures.add(executeAsync(batch));
+                    }
+                }
+            }
+            for (Statement statement : singles) {
+                futures.add(executeAsync(statement));
+            }
+        } finally {
+            partitions.clear();
+            singles.clear();
+        }
+        Futures.allAsList(futures).get();
+    }
+
+    /*
+        The permit is released on completion from the driver thread, writes are not processed there
+     */
+    private ResultSetFuture executeAsync(Statement statement) throws InterruptedException {
+        inFlight.acquire();
+        try {
+            ResultSetFuture future = session.executeAsync(statement);
+            future.addListener(inFlight::release, Runnable::run);
+            return future;
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private static class Partition {
+        private final String query;
+        private final ByteBuffer routingKey;
+
+        Partition(String query, ByteBuffer routingKey) {
+            this.query = query;
+            this.routingKey = routingKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Partition partition = (Partition) o;
+            return query.equals(partition.query) && routingKey.equals(partition.routingKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, routingKey);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.hawkular.alerts.api.json.JacksonDeserializer;
+import org.hawkular.alerts.api.json.JsonUtil;
+import org.hawkular.alerts.api.model.event.Event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Codec of the payload column of the alerts and events tables.
+ *
+ * Payloads are stored as JSON text in the payload column or, with a binary format, in the payloadBin column. A binary
+ * payload starts with a version byte identifying its format, so formats can evolve and rows written with any of them
+ * stay readable. Rows with no binary payload are read from the JSON text column, so rows written before the binary
+ * encoding are still valid.
+ *
+ * The format used for writes is defined by hawkular-alerts.payload-codec [json|smile], smile by default.
+ * Nodes of a cluster running an older version can only read JSON payloads, json should be used until all nodes are
+ * upgraded.
+ *
+ * @author Lucas Ponce
+ */
+public class PayloadCodec {
+    private static final String PAYLOAD_CODEC = "hawkular-alerts.payload-codec";
+    private static final String PAYLOAD_CODEC_ENV = "PAYLOAD_CODEC";
+    private static final String PAYLOAD_CODEC_DEFAULT = "smile";
+
+    /*
+        Version markers of the binary payloads
+     */
+    public static final byte SMILE_V1 = 1;
+
+    public enum Format {
+        JSON, SMILE
+    }
+
+    private static final PayloadCodec instance = new PayloadCodec(Format.valueOf(AlertProperties
+            .getProperty(PAYLOAD_CODEC, PAYLOAD_CODEC_ENV, PAYLOAD_CODEC_DEFAULT).trim().toUpperCase()));
+
+    private final Format format;
+    private final ObjectMapper smileMapper;
+    private final ObjectMapper smileMapperThin;
+
+    public PayloadCodec(Format format) {
+        this.format = format;
+        smileMapper = new ObjectMapper(new SmileFactory());
+
+        SimpleModule simpleModule = new SimpleModule();
+        simpleModule.setDeserializerModifier(new JacksonDeserializer.AlertThinDeserializer());
+        smileMapperThin = new ObjectMapper(new SmileFactory());
+        smileMapperThin.registerModule(simpleModule);
+    }
+
+    public static PayloadCodec getInstance() {
+        return instance;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * @return true if payloads are written in the payloadBin column
+     */
+    public boolean isBinary() {
+        return format != Format.JSON;
+    }
+
+    /**
+     * @param event Alert or Event to encode
+     * @return the String (JSON) or ByteBuffer (binary) to bind into the payload or payloadBin column
+     */
+    public Object encode(Event event) {
+        if (!isBinary()) {
+            return JsonUtil.toJson(event);
+        }
+        try {
+            byte[] smile = smileMapper.writeValueAsBytes(event);
+            ByteBuffer payload = ByteBuffer.allocate(smile.length + 1);
+            payload.put(SMILE_V1);
+            payload.put(smile);
+            payload.flip();
+            return payload;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param payloadBin the payloadBin column, null or empty if the row has only a JSON payload
+     * @param payload the payload column
+     * @param clazz Alert or Event
+     * @param thin true to skip the evalSets and resolvedEvalSets
+     * @return the decoded Alert or Event
+     */
+    public <T> T decode(ByteBuffer payloadBin, String payload, Class<T> clazz, boolean thin) {
+        if (payloadBin == null || !payloadBin.hasRemaining()) {
+            return JsonUtil.fromJson(payload, clazz, thin);
+        }
+        byte version = payloadBin.get(payloadBin.position());
+        switch (version) {
+            case SMILE_V1:
+                try {
+                    ObjectMapper mapper = thin ? smileMapperThin : smileMapper;
+                    if (payloadBin.hasArray()) {
+                        int offset = payloadBin.arrayOffset() + payloadBin.position() + 1;
+                        return mapper.readValue(payloadBin.array(), offset, payloadBin.remaining() - 1, clazz);
+                    }
+                    byte[] smile = new byte[payloadBin.remaining() - 1];
+                    ByteBuffer source = payloadBin.duplicate();
+                    source.position(source.position() + 1);
+                    source.get(smile);
+                    return mapper.readValue(smile, clazz);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            default:
+                throw new IllegalStateException("Unknown payload version [" + version + "]");
+        }
+    }
+}
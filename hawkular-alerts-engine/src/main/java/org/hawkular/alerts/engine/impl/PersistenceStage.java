@@ -0,0 +1,293 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.alerts.api.model.action.Action;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.paging.Page;
+import org.hawkular.alerts.api.model.paging.Pager;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.services.ActionListener;
+import org.hawkular.alerts.api.services.ActionsCriteria;
+import org.hawkular.alerts.api.services.ActionsService;
+import org.hawkular.alerts.api.services.AlertsService;
+import org.hawkular.alerts.engine.log.MsgLogger;
+import org.hawkular.alerts.engine.util.EngineMetrics;
+import org.jboss.logging.Logger;
+
+/**
+ * Persistence of the Alerts and Events generated on a firing cycle, off the rules thread.
+ *
+ * The rules engine hands off the output of a cycle with {@link #submit(Collection, Collection)} and moves on to the
+ * next firing while the cycle is persisted on the executor. The number of cycles in flight is bounded, when the
+ * bound is reached submit() blocks, so a slow backend slows down the firings instead of piling up memory.
+ * A failed write is retried. Only the step that failed is retried, the Alerts already added are not added again, as
+ * adding them also updates the counters and notifies the watchers.
+ *
+ * Actions sent by the rules during a firing are collected by {@link #getActions()} and sent only once the Alerts and
+ * Events of the cycle are persisted, so an action never references an Alert not yet stored. The actions of an Alert
+ * or Event that could not be persisted are logged and dropped.
+ *
+ * With an in-flight bound &lt;= 0 the stage is synchronous and a cycle is persisted on the caller thread.
+ *
+ * @author Lucas Ponce
+ */
+public class PersistenceStage {
+    private final MsgLogger msgLog = MsgLogger.LOGGER;
+    private final Logger log = Logger.getLogger(PersistenceStage.class);
+
+    private final AlertsService alertsService;
+    private final ActionsService actionsService;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final int retries;
+    private final long retryDelay;
+
+    private final Semaphore inFlight;
+    private final CycleActions cycleActions = new CycleActions();
+
+    /**
+     * @param alertsService the service used to persist Alerts and Events
+     * @param actionsService the service where actions are sent after persistence
+     * @param executor the executor running the persistence of the cycles
+     * @param maxInFlight max number of cycles being persisted at the same time, &lt;= 0 for synchronous persistence
+     * @param retries number of retries of a failed cycle
+     * @param retryDelay ms between retries, doubled on each retry
+     */
+    public PersistenceStage(AlertsService alertsService, ActionsService actionsService, ExecutorService executor,
+                            int maxInFlight, int retries, long retryDelay) {
+        this.alertsService = alertsService;
+        this.actionsService = actionsService;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.retries = Math.max(0, retries);
+        this.retryDelay = Math.max(0, retryDelay);
+        this.inFlight = maxInFlight > 0 ? new Semaphore(maxInFlight) : null;
+    }
+
+    /**
+     * @return the ActionsService to use as rules global, it defers the actions until the cycle is persisted
+     */
+    public ActionsService getActions() {
+        return cycleActions;
+    }
+
+    /**
+     * Persist the Alerts and Events of a firing cycle and send its deferred actions. The collections are copied, so
+     * the caller can clear them on return.
+     *
+     * @param alerts Alerts generated on the cycle
+     * @param events Events generated on the cycle
+     * @throws InterruptedException if interrupted while waiting for an in-flight slot
+     */
+    public void submit(Collection<Alert> alerts, Collection<Event> events) throws InterruptedException {
+        List<PendingAction> actions = cycleActions.drain();
+        if (alerts.isEmpty() && events.isEmpty() && actions.isEmpty()) {
+            return;
+        }
+        Cycle cycle = new Cycle(new ArrayList<>(alerts), new ArrayList<>(events), actions);
+        if (inFlight == null) {
+            cycle.run();
+            return;
+        }
+        inFlight.acquire();
+        try {
+            executor.submit(() -> {
+                try {
+                    cycle.run();
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            // i.e. executor rejection, persist on the caller thread
+            inFlight.release();
+            log.debugf("Cycle persisted synchronously: %s", e.getMessage());
+            cycle.run();
+        }
+    }
+
+    /**
+     * Wait until the cycles in flight are persisted. Operations reading the persisted Alerts (i.e. autoresolve) must
+     * wait for the previous cycles.
+     *
+     * @param timeout max time to wait in ms
+     * @return true if all cycles were persisted before the timeout
+     */
+    public boolean await(long timeout) {
+        if (inFlight == null) {
+            return true;
+        }
+        try {
+            if (inFlight.tryAcquire(maxInFlight, timeout, TimeUnit.MILLISECONDS)) {
+                inFlight.release(maxInFlight);
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of cycles being persisted
+     */
+    public int getInFlight() {
+        return inFlight == null ? 0 : maxInFlight - inFlight.availablePermits();
+    }
+
+    private class Cycle implements Runnable {
+        private final List<Alert> alerts;
+        private final List<Event> events;
+        private final List<PendingAction> actions;
+
+        Cycle(List<Alert> alerts, List<Event> events, List<PendingAction> actions) {
+            this.alerts = alerts;
+            this.events = events;
+            this.actions = actions;
+        }
+
+        @Override
+        public void run() {
+            long start = System.currentTimeMillis();
+            boolean alertsPersisted = false;
+            boolean eventsPersisted = false;
+            long delay = retryDelay;
+            for (int attempt = 0; !(alertsPersisted && eventsPersisted) && attempt <= retries; attempt++) {
+                if (attempt > 0) {
+                    log.debugf("Retrying persistence of %d alerts, %d events. Attempt %d",
+                            alertsPersisted ? 0 : alerts.size(), eventsPersisted ? 0 : events.size(), attempt);
+                    if (!sleep(delay)) {
+                        break;
+                    }
+                    delay *= 2;
+                }
+                try {
+                    if (!alertsPersisted) {
+                        alertsService.addAlerts(alerts);
+                        alertsPersisted = true;
+                    }
+                    if (!eventsPersisted) {
+                        alertsService.persistEvents(events);
+                        eventsPersisted = true;
+                    }
+                } catch (Exception e) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Error on persistence of the firing cycle: " + e);
+                    }
+                }
+            }
+            EngineMetrics.getInstance().recordPersistenceTime(System.currentTimeMillis() - start);
+            int dropped = 0;
+            for (PendingAction action : actions) {
+                /*
+                    An action must not reference an Alert or Event that was not stored
+                 */
+                if (!(action.event instanceof Alert ? alertsPersisted : eventsPersisted)) {
+                    log.debugf("Action for trigger %s dropped, event %s not persisted", action.trigger.getId(),
+                            action.event == null ? null : action.event.getId());
+                    dropped++;
+                    continue;
+                }
+                try {
+                    actionsService.send(action.trigger, action.event);
+                } catch (Exception e) {
+                    log.debugf("Error sending actions for trigger %s: %s", action.trigger.getId(), e.getMessage());
+                }
+            }
+            if (!alertsPersisted || !eventsPersisted) {
+                msgLog.errorProcessingRules("Alerts and Events of a firing cycle were not persisted. Alerts: " +
+                        (alertsPersisted ? 0 : alerts.size()) + " Events: " + (eventsPersisted ? 0 : events.size()) +
+                        " Actions dropped: " + dropped);
+            }
+        }
+
+        private boolean sleep(long ms) {
+            try {
+                Thread.sleep(ms);
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    private static class PendingAction {
+        final Trigger trigger;
+        final Event event;
+
+        PendingAction(Trigger trigger, Event event) {
+            this.trigger = trigger;
+            this.event = event;
+        }
+    }
+
+    /*
+        Rules may send actions from several sessions in parallel, send() must be thread safe.
+        Other operations are delegated.
+     */
+    private class CycleActions implements ActionsService {
+        private final ConcurrentLinkedQueue<PendingAction> pending = new ConcurrentLinkedQueue<>();
+
+        List<PendingAction> drain() {
+            List<PendingAction> drained = new ArrayList<>();
+            PendingAction action;
+            while ((action = pending.poll()) != null) {
+                drained.add(action);
+            }
+            return drained;
+        }
+
+        @Override
+        public void send(Trigger trigger, Event event) {
+            if (trigger == null) {
+                throw new IllegalArgumentException("Trigger must be not null");
+            }
+            pending.add(new PendingAction(trigger, event));
+        }
+
+        @Override
+        public void updateResult(Action action) {
+            actionsService.updateResult(action);
+        }
+
+        @Override
+        public Page<Action> getActions(String tenantId, ActionsCriteria criteria, Pager pager) throws Exception {
+            return actionsService.getActions(tenantId, criteria, pager);
+        }
+
+        @Override
+        public int deleteActions(String tenantId, ActionsCriteria criteria) throws Exception {
+            return actionsService.deleteActions(tenantId, criteria);
+        }
+
+        @Override
+        public void addListener(ActionListener listener) {
+            actionsService.addListener(listener);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retention of alerts, events and actions history.
+ *
+ * A retention is defined in days by hawkular-alerts.retention-[alerts|events|actions] and can be overridden per tenant
+ * with hawkular-alerts.retention-[alerts|events|actions].[tenantId]. A retention of 0, the default, keeps the data
+ * until it is deleted.
+ *
+ * Rows are written with a TTL of the rest of the retention, computed from the ctime of the alert, event or action, so
+ * all the rows of an alert expire together even if some of them are written later. Rows written before a retention
+ * was defined have no TTL, they are removed by the purge of {@link RetentionManagerImpl}. Alerts are written with
+ * a longer TTL, so the purge removes them before they expire and updates the counters of unresolved alerts.
+ *
+ * @author Lucas Ponce
+ */
+public class Retention {
+    private static final String RETENTION = "hawkular-alerts.retention-";
+    private static final String RETENTION_ENV = "RETENTION_";
+    private static final String RETENTION_DEFAULT = "0";
+
+    /*
+        Max TTL accepted by Cassandra, 20 years in seconds
+     */
+    static final int MAX_TTL = 630720000;
+
+    public enum Type {
+        ALERTS, EVENTS, ACTIONS
+    }
+
+    private static final Retention instance = new Retention();
+
+    private final Map<Type, Long> defaults = new EnumMap<>(Type.class);
+    private final Map<String, Long> tenants = new ConcurrentHashMap<>();
+
+    Retention() {
+        for (Type type : Type.values()) {
+            defaults.put(type, days(AlertProperties.getProperty(RETENTION + type.name().toLowerCase(),
+                    RETENTION_ENV + type.name(), RETENTION_DEFAULT)));
+        }
+    }
+
+    public static Retention getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param tenantId the tenant
+     * @param type the type of data
+     * @return the retention in ms of the type of data for the tenant, 0 if the data is kept until deleted
+     */
+    public long getRetention(String tenantId, Type type) {
+        return tenants.computeIfAbsent(type.name() + ":" + tenantId, key -> {
+            String tenantRetention = AlertProperties.getProperty(RETENTION + type.name().toLowerCase() + "." + tenantId,
+                    null);
+            return tenantRetention == null ? defaults.get(type) : days(tenantRetention);
+        });
+    }
+
+    /**
+     * @param tenantId the tenant
+     * @param type the type of data
+     * @param ctime the ctime of the alert, event or action
+     * @return the TTL in seconds to bind on the writes of the alert, event or action, 0 for no TTL
+     */
+    public int getTtl(String tenantId, Type type, long ctime) {
+        return getTtl(tenantId, type, ctime, System.currentTimeMillis());
+    }
+
+    int getTtl(String tenantId, Type type, long ctime, long now) {
+        long retention = getRetention(tenantId, type);
+        if (retention <= 0) {
+            return 0;
+        }
+        /*
+            Data already beyond its retention is still written, it expires right away
+         */
+        long ttl = TimeUnit.MILLISECONDS.toSeconds(ctime + retention - now + 999);
+        return (int) Math.max(1, Math.min(MAX_TTL, ttl));
+    }
+
+    private static long days(String value) {
+        return TimeUnit.DAYS.toMillis(Long.parseLong(value.trim()));
+    }
+}
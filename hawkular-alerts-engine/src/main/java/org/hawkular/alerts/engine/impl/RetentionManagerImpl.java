@@ -0,0 +1,458 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.EJB;
+import javax.ejb.Local;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+
+import org.hawkular.alerts.api.json.JsonUtil;
+import org.hawkular.alerts.api.model.action.Action;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.engine.log.MsgLogger;
+import org.hawkular.alerts.engine.service.PartitionManager;
+import org.hawkular.alerts.engine.service.RetentionManager;
+import org.infinispan.Cache;
+import org.jboss.logging.Logger;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Purge of the alerts, events and actions history beyond the {@link Retention} of their tenant.
+ *
+ * Rows written with a retention expire by their TTL. The purge removes the rows written before a retention was
+ * defined or shortened, and drops the time buckets beyond the retention as a whole: a partition delete is a single
+ * tombstone, instead of one per expired or deleted index row.
+ *
+ * For each expired bucket of alerts_ctimes, events_ctimes and actions_history_ctimes, the rows still indexed are
+ * deleted with their non time indexes, PURGE_BATCH_SIZE rows at a time and no more than PURGE_RATE deletes per second.
+ * Then the bucket partition is deleted and unregistered. Buckets of alerts_stimes and alerts_lifecycle only index
+ * alerts, they are dropped without further deletes.
+ *
+ * Once a batch of alerts is deleted, the alerts are removed from the {@link AlertsCache} and the unresolved ones are
+ * discounted from the {@link AlertCounters}.
+ *
+ * The purge runs every PURGE_PERIOD ms on the coordinator of the cluster. Its progress is reported on the engine
+ * status.
+ *
+ * @author Lucas Ponce
+ */
+@Singleton
+@Startup
+@Local(RetentionManager.class)
+@TransactionAttribute(value = TransactionAttributeType.NOT_SUPPORTED)
+public class RetentionManagerImpl implements RetentionManager {
+    private final MsgLogger msgLog = MsgLogger.LOGGER;
+    private final Logger log = Logger.getLogger(RetentionManagerImpl.class);
+
+    /*
+        PURGE_PERIOD defined in milliseconds, a value <= 0 disables the periodic purge
+     */
+    static final String PURGE_PERIOD = "hawkular-alerts.purge-period";
+    static final String PURGE_PERIOD_ENV = "PURGE_PERIOD";
+    static final String PURGE_PERIOD_DEFAULT = "3600000";
+
+    /*
+        PURGE_BATCH_SIZE defines the max number of alerts, events or actions read and deleted at once
+     */
+    private static final String PURGE_BATCH_SIZE = "hawkular-alerts.purge-batch-size";
+    private static final String PURGE_BATCH_SIZE_ENV = "PURGE_BATCH_SIZE";
+    private static final String PURGE_BATCH_SIZE_DEFAULT = "100";
+
+    /*
+        PURGE_RATE defines the max number of deletes per second issued by the purge
+     */
+    private static final String PURGE_RATE = "hawkular-alerts.purge-rate";
+    private static final String PURGE_RATE_ENV = "PURGE_RATE";
+    private static final String PURGE_RATE_DEFAULT = "1000";
+
+    /*
+        Delay of the first purge after startup, in milliseconds
+     */
+    private static final long PURGE_DELAY = 60 * 1000L;
+
+    private static final Map<String, Retention.Type> INDEX_TYPES = new HashMap<>();
+    private static final Map<String, String> DELETE_BUCKETS = new HashMap<>();
+
+    static {
+        INDEX_TYPES.put(TimeBuckets.ALERTS_CTIMES, Retention.Type.ALERTS);
+        INDEX_TYPES.put(TimeBuckets.ALERTS_STIMES, Retention.Type.ALERTS);
+        INDEX_TYPES.put(TimeBuckets.ALERTS_LIFECYCLE, Retention.Type.ALERTS);
+        INDEX_TYPES.put(TimeBuckets.EVENTS_CTIMES, Retention.Type.EVENTS);
+        INDEX_TYPES.put(TimeBuckets.ACTIONS_HISTORY_CTIMES, Retention.Type.ACTIONS);
+
+        DELETE_BUCKETS.put(TimeBuckets.ALERTS_CTIMES, CassStatement.DELETE_ALERT_CTIME_BUCKET);
+        DELETE_BUCKETS.put(TimeBuckets.ALERTS_STIMES, CassStatement.DELETE_ALERT_STIME_BUCKET);
+        DELETE_BUCKETS.put(TimeBuckets.ALERTS_LIFECYCLE, CassStatement.DELETE_ALERT_LIFECYCLE_BUCKET);
+        DELETE_BUCKETS.put(TimeBuckets.EVENTS_CTIMES, CassStatement.DELETE_EVENT_CTIME_BUCKET);
+        DELETE_BUCKETS.put(TimeBuckets.ACTIONS_HISTORY_CTIMES, CassStatement.DELETE_ACTION_HISTORY_CTIME_BUCKET);
+    }
+
+    private long period;
+    private int batchSize;
+    private int rate;
+    private RateLimiter rateLimiter;
+    private Timer purgeTimer;
+
+    /*
+        Progress of the running or last purge
+     */
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong bucketsPending = new AtomicLong(0);
+    private final AtomicLong bucketsPurged = new AtomicLong(0);
+    private final AtomicLong rowsDeleted = new AtomicLong(0);
+    private volatile long lastStart = 0;
+    private volatile long lastDuration = 0;
+    private volatile String currentBucket = "";
+
+    private final Retention retention = Retention.getInstance();
+
+    private final PayloadCodec codec = PayloadCodec.getInstance();
+
+    @EJB
+    PartitionManager partitionManager;
+
+    @Inject
+    @CassClusterSession
+    Session session;
+
+    @Resource(lookup = "java:jboss/infinispan/cache/hawkular-alerts/alerts")
+    private Cache<String, Object> alertsCacheStore;
+
+    private AlertsCache alertsCache = new AlertsCache(null, null);
+
+    @PostConstruct
+    public void init() {
+        alertsCache = new AlertsCache(alertsCacheStore, codec);
+        try {
+            period = new Long(AlertProperties.getProperty(PURGE_PERIOD, PURGE_PERIOD_ENV, PURGE_PERIOD_DEFAULT));
+            batchSize = new Integer(AlertProperties.getProperty(PURGE_BATCH_SIZE, PURGE_BATCH_SIZE_ENV,
+                    PURGE_BATCH_SIZE_DEFAULT));
+            rate = new Integer(AlertProperties.getProperty(PURGE_RATE, PURGE_RATE_ENV, PURGE_RATE_DEFAULT));
+            rateLimiter = RateLimiter.create(rate);
+            if (period > 0) {
+                purgeTimer = new Timer("RetentionManagerImpl-Timer", true);
+                purgeTimer.schedule(new PurgeTask(), PURGE_DELAY, period);
+            }
+        } catch (Throwable t) {
+            if (log.isDebugEnabled()) {
+                t.printStackTrace();
+            }
+            log.errorf("Failed to initialize: %s", t.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (purgeTimer != null) {
+            purgeTimer.cancel();
+        }
+    }
+
+    // The purge is guarded by the running flag, status can be read while a purge is running.
+    @Override
+    @Lock(LockType.READ)
+    public boolean purge() {
+        if (!partitionManager.isCoordinator() || !running.compareAndSet(false, true)) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        lastStart = start;
+        bucketsPending.set(0);
+        bucketsPurged.set(0);
+        rowsDeleted.set(0);
+        try {
+            List<ExpiredBucket> expiredBuckets = getExpiredBuckets(start);
+            bucketsPending.set(expiredBuckets.size());
+            for (ExpiredBucket expired : expiredBuckets) {
+                currentBucket = expired.toString();
+                purgeBucket(expired);
+                bucketsPurged.incrementAndGet();
+                bucketsPending.decrementAndGet();
+            }
+            if (bucketsPurged.get() > 0) {
+                log.infof("Purged [%d] time buckets and [%d] rows in [%d] ms", bucketsPurged.get(),
+                        rowsDeleted.get(), System.currentTimeMillis() - start);
+            }
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+        } finally {
+            currentBucket = "";
+            lastDuration = System.currentTimeMillis() - start;
+            running.set(false);
+        }
+        return true;
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public Map<String, String> getStatus() {
+        Map<String, String> status = new HashMap<>();
+        status.put("purge-period", String.valueOf(period));
+        status.put("purge-rate", String.valueOf(rate));
+        status.put("purge-running", String.valueOf(running.get()));
+        status.put("purge-last-start", String.valueOf(lastStart));
+        status.put("purge-last-duration", String.valueOf(lastDuration));
+        status.put("purge-current-bucket", currentBucket);
+        status.put("purge-buckets-pending", String.valueOf(bucketsPending.get()));
+        status.put("purge-buckets-purged", String.valueOf(bucketsPurged.get()));
+        status.put("purge-rows-deleted", String.valueOf(rowsDeleted.get()));
+        return status;
+    }
+
+    /*
+        A bucket is expired when its last ms is beyond the retention of its tenant
+     */
+    private List<ExpiredBucket> getExpiredBuckets(long now) throws Exception {
+        PreparedStatement selectIndexes = CassStatement.get(session, CassStatement.SELECT_TIME_BUCKETS_INDEXES);
+        List<ExpiredBucket> expiredBuckets = new ArrayList<>();
+        for (Row row : session.executeAsync(selectIndexes.bind()).get()) {
+            String tenantId = row.getString("tenantId");
+            String index = row.getString("name");
+            Retention.Type type = INDEX_TYPES.get(index);
+            long tenantRetention = type == null ? 0 : retention.getRetention(tenantId, type);
+            if (tenantRetention <= 0) {
+                continue;
+            }
+            long end = now - tenantRetention - TimeBuckets.SIZE;
+            for (Long bucket : TimeBuckets.getBuckets(session, tenantId, index, null, end)) {
+                expiredBuckets.add(new ExpiredBucket(tenantId, index, bucket));
+            }
+        }
+        return expiredBuckets;
+    }
+
+    private void purgeBucket(ExpiredBucket expired) throws Exception {
+        switch (expired.index) {
+            case TimeBuckets.ALERTS_CTIMES:
+                purgeIds(expired, CassStatement.SELECT_ALERT_CTIME_START_END, "alertId", this::purgeAlerts);
+                break;
+            case TimeBuckets.EVENTS_CTIMES:
+                purgeIds(expired, CassStatement.SELECT_EVENT_CTIME_START_END, "id", this::purgeEvents);
+                break;
+            case TimeBuckets.ACTIONS_HISTORY_CTIMES:
+                purgeActions(expired);
+                break;
+            default:
+                // Nothing else is indexed by the bucket
+        }
+        PreparedStatement deleteBucket = CassStatement.get(session, DELETE_BUCKETS.get(expired.index));
+        rateLimiter.acquire();
+        session.executeAsync(deleteBucket.bind(expired.tenantId, expired.bucket)).get();
+        TimeBuckets.remove(session, expired.tenantId, expired.index, expired.bucket);
+    }
+
+    private void purgeIds(ExpiredBucket expired, String selectStatement, String idColumn, IdsPurge purge)
+            throws Exception {
+        PreparedStatement selectIds = CassStatement.get(session, selectStatement);
+        Statement select = selectIds.bind(expired.tenantId, expired.bucket, TimeBuckets.start(expired.bucket, null),
+                TimeBuckets.end(expired.bucket, null)).setFetchSize(batchSize);
+        List<String> ids = new ArrayList<>(batchSize);
+        for (Row row : session.execute(select)) {
+            ids.add(row.getString(idColumn));
+            if (ids.size() == batchSize) {
+                purge.purge(expired.tenantId, ids);
+                ids.clear();
+            }
+        }
+        if (!ids.isEmpty()) {
+            purge.purge(expired.tenantId, ids);
+        }
+    }
+
+    /*
+        Lifecycle and status time rows of the alerts are not deleted, their buckets are dropped once expired.
+        Counters are not idempotent, a failed update is logged and not retried.
+     */
+    private void purgeAlerts(String tenantId, List<String> alertIds) throws Exception {
+        PreparedStatement selectAlerts = CassStatement.get(session, CassStatement.SELECT_ALERTS_BY_IDS);
+        PreparedStatement deleteAlert = CassStatement.get(session, CassStatement.DELETE_ALERT);
+        PreparedStatement deleteAlertTrigger = CassStatement.get(session, CassStatement.DELETE_ALERT_TRIGGER);
+        PreparedStatement deleteTag = CassStatement.get(session, CassStatement.DELETE_TAG);
+        List<Statement> deletes = new ArrayList<>();
+        List<String> deleted = new ArrayList<>();
+        AlertCounters counters = new AlertCounters();
+        for (Row row : session.executeAsync(selectAlerts.bind(tenantId, alertIds)).get()) {
+            Alert a = codec.decode(row.getBytes("payloadBin"), row.getString("payload"), Alert.class, true);
+            deletes.add(deleteAlert.bind(tenantId, a.getAlertId()));
+            deletes.add(deleteAlertTrigger.bind(tenantId, a.getTriggerId(), a.getAlertId()));
+            a.getTags().forEach((name, value) -> deletes.add(deleteTag.bind(tenantId, TagType.ALERT.name(), name,
+                    value, a.getAlertId())));
+            deleted.add(a.getAlertId());
+            counters.remove(a);
+        }
+        execute(deletes);
+        deleted.forEach(alertId -> alertsCache.remove(tenantId, alertId));
+        try {
+            counters.execute(session);
+        } catch (Exception e) {
+            msgLog.errorDatabaseException(e.getMessage());
+        }
+    }
+
+    private void purgeEvents(String tenantId, List<String> eventIds) throws Exception {
+        PreparedStatement selectEvents = CassStatement.get(session, CassStatement.SELECT_EVENTS_BY_IDS);
+        PreparedStatement deleteEvent = CassStatement.get(session, CassStatement.DELETE_EVENT);
+        PreparedStatement deleteEventCategory = CassStatement.get(session, CassStatement.DELETE_EVENT_CATEGORY);
+        PreparedStatement deleteEventTrigger = CassStatement.get(session, CassStatement.DELETE_EVENT_TRIGGER);
+        PreparedStatement deleteTag = CassStatement.get(session, CassStatement.DELETE_TAG);
+        List<Statement> deletes = new ArrayList<>();
+        for (Row row : session.executeAsync(selectEvents.bind(tenantId, eventIds)).get()) {
+            Event e = codec.decode(row.getBytes("payloadBin"), row.getString("payload"), Event.class, true);
+            deletes.add(deleteEvent.bind(tenantId, e.getId()));
+            deletes.add(deleteEventCategory.bind(tenantId, e.getCategory(), e.getId()));
+            if (null != e.getTrigger()) {
+                deletes.add(deleteEventTrigger.bind(tenantId, e.getTrigger().getId(), e.getId()));
+            }
+            e.getTags().forEach((name, value) -> deletes.add(deleteTag.bind(tenantId, TagType.EVENT.name(), name,
+                    value, e.getId())));
+        }
+        execute(deletes);
+    }
+
+    private void purgeActions(ExpiredBucket expired) throws Exception {
+        PreparedStatement selectCtimes = CassStatement.get(session,
+                CassStatement.SELECT_ACTION_HISTORY_CTIME_START_END);
+        Statement select = selectCtimes.bind(expired.tenantId, expired.bucket,
+                TimeBuckets.start(expired.bucket, null), TimeBuckets.end(expired.bucket, null))
+                .setFetchSize(batchSize);
+        List<Row> keys = new ArrayList<>(batchSize);
+        for (Row row : session.execute(select)) {
+            keys.add(row);
+            if (keys.size() == batchSize) {
+                execute(deleteActions(expired.tenantId, keys));
+                keys.clear();
+            }
+        }
+        if (!keys.isEmpty()) {
+            execute(deleteActions(expired.tenantId, keys));
+        }
+    }
+
+    /*
+        The result of an action is read from its payload, it is part of the key of actions_history_results. The payload
+        of a digest also has the events it is indexed under on actions_history_alerts.
+     */
+    private List<Statement> deleteActions(String tenantId, List<Row> keys) throws Exception {
+        PreparedStatement selectActionHistory = CassStatement.get(session, CassStatement.SELECT_ACTION_HISTORY);
+        PreparedStatement deleteActionHistory = CassStatement.get(session, CassStatement.DELETE_ACTION_HISTORY);
+        PreparedStatement deleteActionHistoryAction = CassStatement.get(session,
+                CassStatement.DELETE_ACTION_HISTORY_ACTION);
+        PreparedStatement deleteActionHistoryAlert = CassStatement.get(session,
+                CassStatement.DELETE_ACTION_HISTORY_ALERT);
+        PreparedStatement deleteActionHistoryResult = CassStatement.get(session,
+                CassStatement.DELETE_ACTION_HISTORY_RESULT);
+        List<ResultSetFuture> futures = new ArrayList<>(keys.size());
+        for (Row key : keys) {
+            futures.add(session.executeAsync(selectActionHistory.bind(tenantId, key.getString("actionPlugin"),
+                    key.getString("actionId"), key.getString("alertId"), key.getLong("ctime"))));
+        }
+        List<ResultSet> actions = Futures.allAsList(futures).get();
+        List<Statement> deletes = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            String actionPlugin = keys.get(i).getString("actionPlugin");
+            String actionId = keys.get(i).getString("actionId");
+            String alertId = keys.get(i).getString("alertId");
+            long ctime = keys.get(i).getLong("ctime");
+            Row payload = actions.get(i).one();
+            if (payload != null) {
+                Action action = JsonUtil.fromJson(payload.getString("payload"), Action.class);
+                deletes.add(deleteActionHistoryResult.bind(tenantId, action.getResult(), actionPlugin, actionId,
+                        alertId, ctime));
+                for (String eventId : ActionsHistoryWriter.digestEventIds(alertId, action)) {
+                    deletes.add(deleteActionHistoryAlert.bind(tenantId, eventId, actionPlugin, actionId, ctime));
+                }
+            }
+            deletes.add(deleteActionHistory.bind(tenantId, actionPlugin, actionId, alertId, ctime));
+            deletes.add(deleteActionHistoryAction.bind(tenantId, actionId, actionPlugin, alertId, ctime));
+            deletes.add(deleteActionHistoryAlert.bind(tenantId, alertId, actionPlugin, actionId, ctime));
+        }
+        return deletes;
+    }
+
+    private void execute(List<Statement> deletes) throws Exception {
+        if (deletes.isEmpty()) {
+            return;
+        }
+        List<ResultSetFuture> futures = new ArrayList<>(deletes.size());
+        for (Statement delete : deletes) {
+            rateLimiter.acquire();
+            futures.add(session.executeAsync(delete));
+        }
+        Futures.allAsList(futures).get();
+        rowsDeleted.addAndGet(deletes.size());
+    }
+
+    @FunctionalInterface
+    private interface IdsPurge {
+        void purge(String tenantId, List<String> ids) throws Exception;
+    }
+
+    private static class ExpiredBucket {
+        private final String tenantId;
+        private final String index;
+        private final long bucket;
+
+        ExpiredBucket(String tenantId, String index, long bucket) {
+            this.tenantId = tenantId;
+            this.index = index;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public String toString() {
+            return tenantId + ":" + index + ":" + bucket;
+        }
+    }
+
+    private class PurgeTask extends TimerTask {
+        @Override
+        public void run() {
+            try {
+                purge();
+            } catch (Exception e) {
+                log.errorf("Purge failed: %s", e.getMessage());
+            }
+        }
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.hawkular.alerts.engine.impl;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import javax.ejb.EJB;
@@ -26,7 +27,10 @@ import javax.ejb.TransactionAttributeType;
 import javax.inject.Inject;
 
 import org.hawkular.alerts.api.services.StatusService;
+import org.hawkular.alerts.engine.service.IncomingDataManager;
 import org.hawkular.alerts.engine.service.PartitionManager;
+import org.hawkular.alerts.engine.service.RetentionManager;
+import org.hawkular.alerts.engine.util.EngineMetrics;
 
 import com.datastax.driver.core.Session;
 
@@ -44,6 +48,12 @@ public class StatusServiceImpl implements StatusService {
     @EJB
     PartitionManager partitionManager;
 
+    @EJB
+    IncomingDataManager incomingDataManager;
+
+    @EJB
+    RetentionManager retentionManager;
+
     @Inject
     @CassClusterSession
     Session session;
@@ -62,4 +72,12 @@ public class StatusServiceImpl implements StatusService {
     public Map<String, String> getDistributedStatus() {
         return partitionManager.getStatus();
     }
+
+    @Override
+    public Map<String, String> getEngineStatus() {
+        Map<String, String> status = new HashMap<>(incomingDataManager.getStatus());
+        status.putAll(EngineMetrics.getInstance().getMetrics());
+        status.putAll(retentionManager.getStatus());
+        return status;
+    }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.hawkular.alerts.engine.tags.ExpressionTagQueryParser;
+
+/**
+ * Execution of a tag query over the tags index.
+ *
+ * Each tag name used by the expression is read once, into an inverted index of its values to the tagged ids, and
+ * value expressions are compiled once and tested once per distinct value instead of once per tagged id. The ids of
+ * the whole tenant are read only when a "not tag" expression can not be resolved as a difference, and at most once.
+ *
+ * An executor is used for a single query, the index is not kept between queries as tags can be written by any node.
+ *
+ * @author Lucas Ponce
+ */
+class TagQueryExecutor {
+
+    /**
+     * Read the values of a tag name.
+     */
+    @FunctionalInterface
+    interface TagLoader {
+        /**
+         * @param tagName the tag name
+         * @return the ids tagged with the tag name, grouped by tag value
+         * @throws Exception on any problem
+         */
+        Map<String, Set<String>> load(String tagName) throws Exception;
+    }
+
+    /**
+     * Read all the ids of the tenant.
+     */
+    @FunctionalInterface
+    interface IdsLoader {
+        Set<String> load() throws Exception;
+    }
+
+    private final TagLoader tagLoader;
+    private final IdsLoader idsLoader;
+    private final Map<String, Map<String, Set<String>>> index = new HashMap<>();
+    private Set<String> allIds;
+
+    TagQueryExecutor(TagLoader tagLoader, IdsLoader idsLoader) {
+        this.tagLoader = tagLoader;
+        this.idsLoader = idsLoader;
+    }
+
+    /**
+     * @param tagQuery the tag query expression
+     * @return the ids matching the expression
+     * @throws Exception on any problem
+     */
+    Set<String> resolve(String tagQuery) throws Exception {
+        return new ExpressionTagQueryParser(this::resolve).resolve(tagQuery);
+    }
+
+    /*
+        The parser combines the results, so a new set is always returned
+     */
+    private Set<String> resolve(List<String> tokens) throws Exception {
+        Set<String> result = new HashSet<>();
+        if (tokens == null) {
+            return result;
+        }
+        if (tokens.size() == 1) {
+            // tag
+            getValues(tokens.get(0)).values().forEach(result::addAll);
+        } else if (tokens.size() == 2) {
+            // not tag
+            if (allIds == null) {
+                allIds = idsLoader.load();
+            }
+            result.addAll(allIds);
+            getValues(tokens.get(1)).values().forEach(result::removeAll);
+        } else {
+            String op;
+            String regexp;
+            if (tokens.size() == 3) {
+                op = tokens.get(1);
+                regexp = tokens.get(2);
+            } else {
+                // not in [array]
+                op = tokens.get(1) + tokens.get(2);
+                regexp = tokens.get(3);
+            }
+            Predicate<String> matches = AlertsQueryPlanner.compileTagValue(op, regexp);
+            for (Map.Entry<String, Set<String>> value : getValues(tokens.get(0)).entrySet()) {
+                if (matches.test(value.getKey())) {
+                    result.addAll(value.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    private Map<String, Set<String>> getValues(String tagName) throws Exception {
+        Map<String, Set<String>> values = index.get(tagName);
+        if (values == null) {
+            values = tagLoader.load(tagName);
+            index.put(tagName, values);
+        }
+        return values;
+    }
+}
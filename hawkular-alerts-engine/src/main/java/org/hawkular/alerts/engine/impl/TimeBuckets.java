@@ -0,0 +1,204 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.google.common.util.concurrent.Futures;
+
+/**
+ * Time buckets of the time indexes.
+ *
+ * The time indexes (alerts_ctimes, alerts_stimes, alerts_lifecycle, events_ctimes and actions_history_ctimes) are
+ * partitioned by (tenantId, bucket), so the partitions of a busy tenant stay bounded. A time range is read with one
+ * query per bucket of the range.
+ *
+ * The buckets written for a tenant are registered on time_buckets, so open ranges only visit the buckets with data.
+ * Buckets are registered before the index rows are written: a registered bucket can be empty, but an index row is
+ * never in a bucket not registered. Buckets are not unregistered on deletes, empty buckets are cheap to read. Buckets
+ * beyond the retention of their tenant are removed as a whole by the purge, see {@link RetentionManagerImpl}.
+ *
+ * Each node caches the buckets it has registered. The purge can remove a bucket on any node, so cached registrations
+ * expire after half the purge period and the bucket is registered again, the registration is an idempotent write.
+ *
+ * @author Lucas Ponce
+ */
+class TimeBuckets {
+
+    /**
+     * Size of a bucket, one day. Stored rows depend on it, the schema updates use the same value.
+     */
+    static final long SIZE = 24 * 60 * 60 * 1000L;
+
+    static final String ALERTS_CTIMES = "alerts_ctimes";
+    static final String ALERTS_STIMES = "alerts_stimes";
+    static final String ALERTS_LIFECYCLE = "alerts_lifecycle";
+    static final String EVENTS_CTIMES = "events_ctimes";
+    static final String ACTIONS_HISTORY_CTIMES = "actions_history_ctimes";
+
+    private static final String SEPARATOR = ":";
+    private static final int MAX_REGISTERED = 10000;
+    private static final long REGISTERED_TTL_DEFAULT = 10 * 60 * 1000L;
+
+    /*
+        Time a registration is cached, shorter than the purge period so a bucket removed by another node is
+        registered again before the next purge
+     */
+    private static final long REGISTERED_TTL;
+
+    static {
+        long purgePeriod = Long.parseLong(AlertProperties.getProperty(RetentionManagerImpl.PURGE_PERIOD,
+                RetentionManagerImpl.PURGE_PERIOD_ENV, RetentionManagerImpl.PURGE_PERIOD_DEFAULT));
+        REGISTERED_TTL = purgePeriod > 0 ? purgePeriod / 2 : REGISTERED_TTL_DEFAULT;
+    }
+
+    /*
+        Buckets registered by this node and the time of their registration, to avoid a registry write per index row
+     */
+    private static final Map<String, Long> registered = new ConcurrentHashMap<>();
+
+    /**
+     * @param time a time in ms
+     * @return the bucket of the time
+     */
+    static long bucket(long time) {
+        return time - Math.floorMod(time, SIZE);
+    }
+
+    /**
+     * @param bucket a bucket
+     * @param start the start of a range, null for an open range
+     * @return the start of the range on the bucket
+     */
+    static long start(long bucket, Long start) {
+        return start == null ? bucket : Math.max(bucket, start);
+    }
+
+    /**
+     * @param bucket a bucket
+     * @param end the end of a range, null for an open range
+     * @return the end of the range on the bucket
+     */
+    static long end(long bucket, Long end) {
+        long last = bucket + SIZE - 1;
+        return end == null ? last : Math.min(last, end);
+    }
+
+    /**
+     * @param session the Cassandra session
+     * @param tenantId the tenant of the index
+     * @param index the index name
+     * @param start the start of the range, null for an open range
+     * @param end the end of the range, null for an open range
+     * @return the registered buckets of the range, in ascending order
+     * @throws Exception on any problem
+     */
+    static List<Long> getBuckets(Session session, String tenantId, String index, Long start, Long end)
+            throws Exception {
+        PreparedStatement selectBuckets = CassStatement.get(session, CassStatement.SELECT_TIME_BUCKETS);
+        List<Long> buckets = new ArrayList<>();
+        for (Row row : session.executeAsync(selectBuckets.bind(tenantId, index,
+                start == null ? Long.MIN_VALUE : bucket(start), end == null ? Long.MAX_VALUE : bucket(end))).get()) {
+            buckets.add(row.getLong("bucket"));
+        }
+        return buckets;
+    }
+
+    /**
+     * Unregister a bucket, once its partition has been deleted.
+     *
+     * @param session the Cassandra session
+     * @param tenantId the tenant of the index
+     * @param index the index name
+     * @param bucket the bucket
+     * @throws Exception on any problem
+     */
+    static void remove(Session session, String tenantId, String index, long bucket) throws Exception {
+        PreparedStatement deleteBucket = CassStatement.get(session, CassStatement.DELETE_TIME_BUCKET);
+        session.executeAsync(deleteBucket.bind(tenantId, index, bucket)).get();
+        registered.remove(tenantId + SEPARATOR + index + SEPARATOR + bucket);
+    }
+
+    /**
+     * Registration of the buckets of the index rows of a write, executed before the rows are written.
+     */
+    static class Registration {
+        private final Session session;
+        private final Map<String, Object[]> pending = new HashMap<>();
+
+        Registration(Session session) {
+            this.session = session;
+        }
+
+        /**
+         * @param tenantId the tenant of the index row
+         * @param index the index name
+         * @param time the time of the index row
+         * @return this registration
+         */
+        Registration add(String tenantId, String index, long time) {
+            long bucket = bucket(time);
+            String key = tenantId + SEPARATOR + index + SEPARATOR + bucket;
+            Long registration = registered.get(key);
+            if ((registration == null || expired(registration, System.currentTimeMillis()))
+                    && !pending.containsKey(key)) {
+                pending.put(key, new Object[] {tenantId, index, bucket});
+            }
+            return this;
+        }
+
+        /**
+         * Write the buckets not registered yet.
+         *
+         * @throws Exception on any problem, the index rows must not be written then
+         */
+        void execute() throws Exception {
+            if (pending.isEmpty()) {
+                return;
+            }
+            PreparedStatement insertBucket = CassStatement.get(session, CassStatement.INSERT_TIME_BUCKET);
+            List<ResultSetFuture> futures = new ArrayList<>(pending.size());
+            for (Object[] values : pending.values()) {
+                futures.add(session.executeAsync(insertBucket.bind(values)));
+            }
+            Futures.allAsList(futures).get();
+            long now = System.currentTimeMillis();
+            if (registered.size() > MAX_REGISTERED) {
+                registered.values().removeIf(registration -> expired(registration, now));
+                if (registered.size() > MAX_REGISTERED) {
+                    registered.clear();
+                }
+            }
+            for (String key : pending.keySet()) {
+                registered.put(key, now);
+            }
+            pending.clear();
+        }
+
+        private static boolean expired(long registration, long now) {
+            return now - registration > REGISTERED_TTL;
+        }
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import org.hawkular.alerts.api.model.Severity;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.services.AlertsCriteria;
+import org.hawkular.alerts.api.services.EventsCriteria;
+import org.jboss.logging.Logger;
+
+/**
+ * In-process publish/subscribe of the Alerts and Events stored by this node, used by the REST watchers.
+ *
+ * The AlertsService publishes the Alerts and Events on insertion and the Alerts on lifecycle updates. Each
+ * subscription matches the published items in memory against its criteria and buffers the matching ones. Criteria
+ * and tag query are compiled once on subscription. Buffers are bounded, publishing never blocks: when a subscriber
+ * does not keep up, its oldest buffered items are dropped. A subscription listener is signaled once per publication
+ * with matching items, so subscribers can be driven by the delivery instead of waiting on their buffer.
+ *
+ * With an executor, publications are queued and delivered to the subscriptions by a single task off the write path.
+ * The queue holds up to PUBLISH_QUEUE_SIZE publications, the oldest ones are dropped when delivery does not keep up.
+ * Without an executor, publications are delivered on the publisher thread.
+ *
+ * Time criteria are not used on subscriptions, watchers apply them only to their initial query.
+ *
+ * @author Lucas Ponce
+ */
+public class WatchHub {
+    private static final Logger log = Logger.getLogger(WatchHub.class);
+
+    /*
+        PUBLISH_QUEUE_SIZE defines the max number of publications pending of delivery
+     */
+    private static final String PUBLISH_QUEUE_SIZE = "hawkular-alerts.watch-publish-queue-size";
+    private static final String PUBLISH_QUEUE_SIZE_ENV = "WATCH_PUBLISH_QUEUE_SIZE";
+    private static final String PUBLISH_QUEUE_SIZE_DEFAULT = "1000";
+
+    private static final WatchHub instance = new WatchHub();
+
+    private final Set<Subscription<Alert>> alertSubscriptions = new CopyOnWriteArraySet<>();
+    private final Set<Subscription<Event>> eventSubscriptions = new CopyOnWriteArraySet<>();
+    private final ArrayBlockingQueue<Runnable> publications = new ArrayBlockingQueue<>(Math.max(1,
+            Integer.parseInt(AlertProperties.getProperty(PUBLISH_QUEUE_SIZE, PUBLISH_QUEUE_SIZE_ENV,
+                    PUBLISH_QUEUE_SIZE_DEFAULT))));
+    private final AtomicBoolean delivering = new AtomicBoolean(false);
+    private final AtomicLong droppedPublications = new AtomicLong(0);
+    private volatile Executor executor;
+
+    public static WatchHub getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param executor executor delivering the publications off the write path, null to deliver them on the
+     *                 publisher thread
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @param tenantIds tenants watched
+     * @param criteria non time criteria of the watched alerts, null for all alerts
+     * @param capacity max number of alerts buffered for the subscriber
+     * @return a new subscription, it must be closed by the subscriber
+     * @throws IllegalArgumentException if the tag query is malformed
+     */
+    public Subscription<Alert> subscribeAlerts(Set<String> tenantIds, AlertsCriteria criteria, int capacity) {
+        boolean thin = criteria != null && criteria.isThin();
+        Subscription<Alert> subscription = new Subscription<>(tenantIds, alertsFilter(criteria), thin, capacity,
+                alertSubscriptions);
+        alertSubscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * @param tenantIds tenants watched
+     * @param criteria non time criteria of the watched events, null for all events
+     * @param capacity max number of events buffered for the subscriber
+     * @return a new subscription, it must be closed by the subscriber
+     * @throws IllegalArgumentException if the tag query is malformed
+     */
+    public Subscription<Event> subscribeEvents(Set<String> tenantIds, EventsCriteria criteria, int capacity) {
+        boolean thin = criteria != null && criteria.isThin();
+        Subscription<Event> subscription = new Subscription<>(tenantIds, eventsFilter(criteria), thin, capacity,
+                eventSubscriptions);
+        eventSubscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * @return the number of active subscriptions
+     */
+    public int getSubscriptions() {
+        return alertSubscriptions.size() + eventSubscriptions.size();
+    }
+
+    /**
+     * @return the number of publications dropped as the delivery did not keep up
+     */
+    public long getDroppedPublications() {
+        return droppedPublications.get();
+    }
+
+    void publishAlerts(Collection<Alert> alerts) {
+        if (alertSubscriptions.isEmpty() || alerts.isEmpty()) {
+            return;
+        }
+        Collection<Alert> published = new ArrayList<>(alerts);
+        publish(() -> deliver(published, alertSubscriptions, Alert.class));
+    }
+
+    void publishEvents(Collection<Event> events) {
+        if (eventSubscriptions.isEmpty() || events.isEmpty()) {
+            return;
+        }
+        Collection<Event> published = new ArrayList<>(events);
+        publish(() -> deliver(published, eventSubscriptions, Event.class));
+    }
+
+    private void publish(Runnable publication) {
+        Executor current = executor;
+        if (current == null) {
+            publication.run();
+            return;
+        }
+        while (!publications.offer(publication)) {
+            if (publications.poll() != null) {
+                droppedPublications.incrementAndGet();
+            }
+        }
+        schedule(current);
+    }
+
+    /*
+        A single delivery task is scheduled at a time, so publications are delivered in order and use a single thread
+     */
+    private void schedule(Executor current) {
+        if (!delivering.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            current.execute(this::deliverPublications);
+        } catch (RejectedExecutionException e) {
+            log.debugf("Publications delivered on the publisher thread: %s", e.getMessage());
+            deliverPublications();
+        }
+    }
+
+    private void deliverPublications() {
+        try {
+            Runnable publication;
+            while ((publication = publications.poll()) != null) {
+                publication.run();
+            }
+        } finally {
+            delivering.set(false);
+        }
+        // A publication queued after the last poll but before the release is not left behind
+        Executor current = executor;
+        if (!publications.isEmpty() && current != null) {
+            schedule(current);
+        }
+    }
+
+    /*
+        Published items are shared between subscribers, thin subscribers share a thin copy created once per item
+     */
+    private static <T extends Event> void deliver(Collection<T> items, Set<Subscription<T>> subscriptions,
+                                                  Class<T> clazz) {
+        for (T item : items) {
+            T thinItem = null;
+            for (Subscription<T> subscription : subscriptions) {
+                if (!subscription.matches(item)) {
+                    continue;
+                }
+                if (!subscription.thin) {
+                    subscription.offer(item);
+                    continue;
+                }
+                try {
+                    if (thinItem == null) {
+                        thinItem = thin(item, clazz);
+                    }
+                    subscription.offer(thinItem);
+                } catch (Exception e) {
+                    log.debugf("Error creating thin %s for watchers: %s", item.getId(), e.getMessage());
+                }
+            }
+        }
+        for (Subscription<T> subscription : subscriptions) {
+            subscription.signal();
+        }
+    }
+
+    private static Predicate<Alert> alertsFilter(AlertsCriteria criteria) {
+        if (criteria == null) {
+            return alert -> true;
+        }
+        AlertsCriteria watched = new AlertsCriteria();
+        watched.setAlertId(criteria.getAlertId());
+        watched.setAlertIds(criteria.getAlertIds());
+        watched.setTriggerId(criteria.getTriggerId());
+        watched.setTriggerIds(criteria.getTriggerIds());
+        Set<Severity> severities = new HashSet<>();
+        if (criteria.getSeverities() != null) {
+            severities.addAll(criteria.getSeverities());
+        } else if (criteria.getSeverity() != null) {
+            severities.add(criteria.getSeverity());
+        }
+        Set<Alert.Status> statuses = new HashSet<>();
+        if (criteria.getStatusSet() != null) {
+            statuses.addAll(criteria.getStatusSet());
+        } else if (criteria.getStatus() != null) {
+            statuses.add(criteria.getStatus());
+        }
+        Predicate<Event> tagQuery = compileTagQuery(criteria.getTagQuery());
+        return alert -> AlertsQueryPlanner.matches(alert, watched, null)
+                && (severities.isEmpty() || severities.contains(alert.getSeverity()))
+                && (statuses.isEmpty() || statuses.contains(alert.getStatus()))
+                && tagQuery.test(alert);
+    }
+
+    private static Predicate<Event> eventsFilter(EventsCriteria criteria) {
+        if (criteria == null) {
+            return event -> true;
+        }
+        EventsCriteria watched = new EventsCriteria();
+        watched.setEventId(criteria.getEventId());
+        watched.setEventIds(criteria.getEventIds());
+        watched.setTriggerId(criteria.getTriggerId());
+        watched.setTriggerIds(criteria.getTriggerIds());
+        watched.setCategory(criteria.getCategory());
+        watched.setCategories(criteria.getCategories());
+        Predicate<Event> tagQuery = compileTagQuery(criteria.getTagQuery());
+        return event -> AlertsQueryPlanner.matches(event, watched) && tagQuery.test(event);
+    }
+
+    private static Predicate<Event> compileTagQuery(String tagQuery) {
+        if (tagQuery == null || tagQuery.isEmpty()) {
+            return event -> true;
+        }
+        try {
+            return AlertsQueryPlanner.compileTagQuery(tagQuery);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Tag query [" + tagQuery + "] not valid: " + e.getMessage(), e);
+        }
+    }
+
+    private static <T extends Event> T thin(T item, Class<T> clazz) {
+        PayloadCodec codec = PayloadCodec.getInstance();
+        Object payload = codec.encode(item);
+        return payload instanceof ByteBuffer ? codec.decode((ByteBuffer) payload, null, clazz, true)
+                : codec.decode(null, (String) payload, clazz, true);
+    }
+
+    /**
+     * A subscriber of the hub. Items are taken with {@link #poll(long)} and {@link #drain(Collection)}, or drained
+     * when the {@link #setListener(Runnable)} listener is signaled.
+     */
+    public static class Subscription<T extends Event> implements AutoCloseable {
+        private final Set<String> tenantIds;
+        private final Predicate<T> filter;
+        private final boolean thin;
+        private final ArrayBlockingQueue<T> buffer;
+        private final Set<Subscription<T>> subscriptions;
+        private final AtomicLong dropped = new AtomicLong(0);
+        private final AtomicBoolean offered = new AtomicBoolean(false);
+        private volatile Runnable listener;
+        private volatile boolean closed = false;
+
+        private Subscription(Set<String> tenantIds, Predicate<T> filter, boolean thin, int capacity,
+                             Set<Subscription<T>> subscriptions) {
+            if (tenantIds == null || tenantIds.isEmpty()) {
+                throw new IllegalArgumentException("TenantIds must be not null");
+            }
+            this.tenantIds = new HashSet<>(tenantIds);
+            this.filter = filter;
+            this.thin = thin;
+            this.buffer = new ArrayBlockingQueue<>(Math.max(1, capacity));
+            this.subscriptions = subscriptions;
+        }
+
+        boolean matches(T item) {
+            if (closed || !tenantIds.contains(item.getTenantId())) {
+                return false;
+            }
+            try {
+                return filter.test(item);
+            } catch (Exception e) {
+                log.debugf("Error matching %s on watcher: %s", item.getId(), e.getMessage());
+                return false;
+            }
+        }
+
+        void offer(T item) {
+            while (!buffer.offer(item)) {
+                if (buffer.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+            }
+            offered.set(true);
+        }
+
+        /*
+            Invoked on the delivering thread once the items of a publication are offered
+         */
+        void signal() {
+            Runnable current = listener;
+            if (current != null && offered.compareAndSet(true, false)) {
+                try {
+                    current.run();
+                } catch (Exception e) {
+                    log.debugf("Error signaling watcher: %s", e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * @param listener signaled on the delivering thread when new items are buffered, it must not block.
+         *                 Items buffered before the listener is set are not signaled.
+         */
+        public void setListener(Runnable listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * @param timeout max ms to wait for an item
+         * @return the next item, null if none arrived on time
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public T poll(long timeout) throws InterruptedException {
+            return buffer.poll(timeout, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * @param items collection where the buffered items are moved, without waiting
+         * @return the number of items moved
+         */
+        public int drain(Collection<T> items) {
+            return buffer.drainTo(items);
+        }
+
+        /**
+         * @return the number of items dropped as the buffer was full
+         */
+        public long getDropped() {
+            return dropped.get();
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            listener = null;
+            subscriptions.remove(this);
+            buffer.clear();
+        }
+    }
+}
@@ -59,6 +59,37 @@ public interface AlertsEngine {
      */
     void sendEvents(TreeSet<Event> events) throws Exception;
 
+    /**
+     * This method has LockType.READ.
+     *
+     * @return the number of Data and Events accepted but not yet evaluated by the rules engine.
+     */
+    int getPendingSize();
+
+    /**
+     * Request to discard pending Data not yet evaluated, keeping only the most recent one per dataId.
+     * This is used to shed load when the ingestion capacity is exhausted. The pending Data are shed by the rules
+     * engine thread before its next evaluation, which is requested immediately. Pending Events are never shed.
+     * This method has LockType.READ.
+     */
+    void requestShed();
+
+    /**
+     * This method has LockType.READ.
+     *
+     * @return the number of pending Data discarded by load shedding.
+     */
+    long getShedSize();
+
+    /**
+     * Run a callback once the Data and Events sent before it are drained for evaluation.
+     * This is used to free the ingestion capacity. The callback is run by the rules engine thread.
+     * This method has LockType.READ.
+     *
+     * @param callback the callback to run after the next evaluation
+     */
+    void afterEvaluation(Runnable callback);
+
     /**
      * Reload all Triggers.
      */
@@ -16,6 +16,8 @@
  */
 package org.hawkular.alerts.engine.service;
 
+import java.util.Map;
+
 import org.hawkular.alerts.engine.impl.IncomingDataManagerImpl.IncomingData;
 import org.hawkular.alerts.engine.impl.IncomingDataManagerImpl.IncomingEvents;
 
@@ -27,8 +29,21 @@ import org.hawkular.alerts.engine.impl.IncomingDataManagerImpl.IncomingEvents;
  */
 public interface IncomingDataManager {
 
+    /**
+     * @param incomingData the data to buffer for evaluation
+     * @throws org.hawkular.alerts.api.exception.IngestionRejectedException if the ingestion capacity is exhausted
+     */
     void bufferData(IncomingData incomingData);
 
+    /**
+     * @param incomingEvents the events to buffer for evaluation
+     * @throws org.hawkular.alerts.api.exception.IngestionRejectedException if the ingestion capacity is exhausted
+     */
     void bufferEvents(IncomingEvents incomingEvents);
 
+    /**
+     * @return ingestion capacity, policy and queue-depth counters
+     */
+    Map<String, String> getStatus();
+
 }
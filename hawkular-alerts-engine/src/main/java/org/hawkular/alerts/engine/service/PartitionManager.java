@@ -72,6 +72,15 @@ public interface PartitionManager {
      */
     boolean isDistributed();
 
+    /**
+     * Detects if the current node coordinates the cluster.
+     * Tasks that must run on a single node of the cluster are executed by the coordinator.
+     *
+     * @return true if the current node is the coordinator of the cluster or PartitionManager is not distributed.
+     *         false otherwise
+     */
+    boolean isCoordinator();
+
     /**
      * Show additional information about partition status.
      * In distributed scenarios
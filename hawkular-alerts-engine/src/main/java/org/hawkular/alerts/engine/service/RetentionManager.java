@@ -0,0 +1,40 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.service;
+
+import java.util.Map;
+
+/**
+ * Interface that allows to purge the alerts, events and actions history beyond the retention of their tenant.
+ *
+ * @author Lucas Ponce
+ */
+public interface RetentionManager {
+
+    /**
+     * Purge the time buckets beyond the retention of their tenant.
+     * It is a no-op if a purge is already running or if the current node is not the coordinator of the cluster.
+     *
+     * @return true if the purge was executed
+     */
+    boolean purge();
+
+    /**
+     * @return purge settings and progress counters of the running or last purge
+     */
+    Map<String, String> getStatus();
+}
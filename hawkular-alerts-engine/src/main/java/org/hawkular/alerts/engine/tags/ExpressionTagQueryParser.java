@@ -23,9 +23,12 @@ import static org.hawkular.alerts.engine.tags.ExpressionTagQueryParser.Expressio
 
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.Stack;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import org.antlr.v4.runtime.ANTLRErrorListener;
 import org.antlr.v4.runtime.ANTLRInputStream;
@@ -125,6 +128,27 @@ public class ExpressionTagQueryParser extends TagQueryBaseListener implements AN
         this.resolver = resolver;
     }
 
+    /*
+        Used only to compile expressions, there is no resolver
+     */
+    private ExpressionTagQueryParser() {
+    }
+
+    /**
+     * Compile an expression once, to test it on many items without parsing it again.
+     *
+     * @param expression the tag query expression
+     * @param compiler function compiling the tokens of a single tag expression into a predicate
+     * @param <T> type of the items tested
+     * @return a predicate of the items matching the expression
+     * @throws Exception if the expression is malformed
+     */
+    public static <T> Predicate<T> compile(String expression, Function<List<String>, Predicate<T>> compiler)
+            throws Exception {
+        ExpressionTagQueryParser parser = new ExpressionTagQueryParser();
+        return parser.compilePrefix(parser.parse(expression), compiler);
+    }
+
     public Set<String> resolve(String expression) throws Exception {
         String prefix = parse(expression);
         Set<String> result;
@@ -340,27 +364,28 @@ public class ExpressionTagQueryParser extends TagQueryBaseListener implements AN
     }
 
     private Set<String> andOr(boolean isAnd, String left, String right) throws Exception {
-        Set<String> leftResult;
-        if (left.startsWith(AND)) {
-            leftResult = andOr(true, left(left), right(left));
-        } else if (left.startsWith(OR)) {
-            leftResult = andOr(false, left(left), right(left));
-        } else {
-            leftResult = resolver.resolve(left);
+        if (isAnd && isNotTag(left) && !isNotTag(right)) {
+            String swap = left;
+            left = right;
+            right = swap;
         }
+        Set<String> leftResult = evaluate(left);
         // Shorcutting the AND operator
         if (isAnd && (leftResult == null || leftResult.isEmpty())) {
             return leftResult;
         }
-        Set<String> rightResult;
-        if (right.startsWith(AND)) {
-            rightResult = andOr(true, left(right), right(right));
-        } else if (right.startsWith(OR)) {
-            rightResult = andOr(false, left(right), right(right));
-        } else {
-            rightResult = resolver.resolve(right);
+        // <exp> and not <tag> is resolved as a difference, the resolver does not need to resolve the untagged ids
+        if (isAnd && isNotTag(right)) {
+            leftResult.removeAll(resolver.resolve(Collections.singletonList(getTokens(right).get(1))));
+            return leftResult;
         }
+        Set<String> rightResult = evaluate(right);
         if (isAnd) {
+            // Intersection iterates the smaller set
+            if (rightResult.size() < leftResult.size()) {
+                rightResult.retainAll(leftResult);
+                return rightResult;
+            }
             leftResult.retainAll(rightResult);
         } else {
             leftResult.addAll(rightResult);
@@ -368,4 +393,32 @@ public class ExpressionTagQueryParser extends TagQueryBaseListener implements AN
         return leftResult;
     }
 
+    private Set<String> evaluate(String exp) throws Exception {
+        if (exp.startsWith(AND)) {
+            return andOr(true, left(exp), right(exp));
+        } else if (exp.startsWith(OR)) {
+            return andOr(false, left(exp), right(exp));
+        } else {
+            return resolver.resolve(exp);
+        }
+    }
+
+    private <T> Predicate<T> compilePrefix(String exp, Function<List<String>, Predicate<T>> compiler) {
+        if (exp.startsWith(AND)) {
+            return compilePrefix(left(exp), compiler).and(compilePrefix(right(exp), compiler));
+        } else if (exp.startsWith(OR)) {
+            return compilePrefix(left(exp), compiler).or(compilePrefix(right(exp), compiler));
+        } else {
+            return compiler.apply(getTokens(exp));
+        }
+    }
+
+    private boolean isNotTag(String exp) {
+        if (exp.startsWith(AND + "(") || exp.startsWith(OR + "(")) {
+            return false;
+        }
+        List<String> tokens = getTokens(exp);
+        return tokens != null && tokens.size() == 2 && NOT.equals(tokens.get(0));
+    }
+
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.jboss.logging.Logger;
+
+/**
+ * Registry of the engine metrics, recorded on every firing cycle.
+ *
+ * Latencies (ms) and per cycle counts are kept in HDR histograms since start or last reset. Recording is lock-free
+ * and can be done from any thread. Metrics are exposed through StatusService.getEngineStatus() and JMX.
+ *
+ * <ul>
+ * <li>ingestion-delay: time the oldest Data or Event of a cycle waited since it was sent to the engine</li>
+ * <li>firing-time: time of the rules engine firing per cycle</li>
+ * <li>batching-time: time of the Data batching per session and cycle</li>
+ * <li>deferred-data: Data deferred to the next cycle per session and cycle</li>
+ * <li>alerts: Alerts generated per cycle</li>
+ * <li>events: Events generated per cycle</li>
+ * <li>persistence-time: time of the persistence of the Alerts and Events per cycle, retries included</li>
+ * <li>facts: facts in working memory after the last firing (gauge)</li>
+ * </ul>
+ *
+ * @author Lucas Ponce
+ */
+public class EngineMetrics implements EngineMetricsMXBean {
+    private static final Logger log = Logger.getLogger(EngineMetrics.class);
+
+    public static final String OBJECT_NAME = "org.hawkular.alerts:type=EngineMetrics";
+
+    private static final String PREFIX = "metrics-";
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private static final EngineMetrics instance = new EngineMetrics();
+
+    private final Histogram ingestionDelay = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    private final Histogram firingTime = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    private final Histogram batchingTime = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    private final Histogram deferredData = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    private final Histogram alerts = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    private final Histogram events = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    private final Histogram persistenceTime = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    private final AtomicLong facts = new AtomicLong(0);
+
+    private EngineMetrics() {
+    }
+
+    public static EngineMetrics getInstance() {
+        return instance;
+    }
+
+    public void recordIngestionDelay(long ms) {
+        record(ingestionDelay, ms);
+    }
+
+    public void recordFiringTime(long ms) {
+        record(firingTime, ms);
+    }
+
+    public void recordBatchingTime(long ms) {
+        record(batchingTime, ms);
+    }
+
+    public void recordDeferredData(int deferred) {
+        record(deferredData, deferred);
+    }
+
+    public void recordAlerts(int numAlerts) {
+        record(alerts, numAlerts);
+    }
+
+    public void recordEvents(int numEvents) {
+        record(events, numEvents);
+    }
+
+    public void recordPersistenceTime(long ms) {
+        record(persistenceTime, ms);
+    }
+
+    public void setFacts(long numFacts) {
+        facts.set(numFacts);
+    }
+
+    private void record(Histogram histogram, long value) {
+        // Clock adjustments could produce negative latencies
+        histogram.recordValue(Math.max(0, value));
+    }
+
+    /**
+     * @return Map with the metrics, histograms are summarized as count, mean, p50, p90, p99 and max
+     */
+    @Override
+    public Map<String, String> getMetrics() {
+        Map<String, String> metrics = new HashMap<>();
+        metrics.put(PREFIX + "ingestion-delay", summary(ingestionDelay));
+        metrics.put(PREFIX + "firing-time", summary(firingTime));
+        metrics.put(PREFIX + "batching-time", summary(batchingTime));
+        metrics.put(PREFIX + "deferred-data", summary(deferredData));
+        metrics.put(PREFIX + "alerts", summary(alerts));
+        metrics.put(PREFIX + "events", summary(events));
+        metrics.put(PREFIX + "persistence-time", summary(persistenceTime));
+        metrics.put(PREFIX + "facts", String.valueOf(facts.get()));
+        return metrics;
+    }
+
+    private String summary(Histogram histogram) {
+        Histogram copy = histogram.copy();
+        return String.format("count=%d,mean=%.2f,p50=%d,p90=%d,p99=%d,max=%d",
+                copy.getTotalCount(), copy.getMean(), copy.getValueAtPercentile(50.0),
+                copy.getValueAtPercentile(90.0), copy.getValueAtPercentile(99.0), copy.getMaxValue());
+    }
+
+    @Override
+    public long getFiringTimeMax() {
+        return firingTime.getMaxValue();
+    }
+
+    @Override
+    public double getFiringTimeP99() {
+        return firingTime.getValueAtPercentile(99.0);
+    }
+
+    @Override
+    public long getIngestionDelayMax() {
+        return ingestionDelay.getMaxValue();
+    }
+
+    @Override
+    public double getIngestionDelayP99() {
+        return ingestionDelay.getValueAtPercentile(99.0);
+    }
+
+    @Override
+    public long getFacts() {
+        return facts.get();
+    }
+
+    @Override
+    public void reset() {
+        ingestionDelay.reset();
+        firingTime.reset();
+        batchingTime.reset();
+        deferredData.reset();
+        alerts.reset();
+        events.reset();
+        persistenceTime.reset();
+    }
+
+    /**
+     * Register the JMX view on the platform MBeanServer, replacing a previous registration (i.e. on redeploy).
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (Exception e) {
+            log.warnf("Engine metrics cannot be registered on JMX: %s", e.getMessage());
+        }
+    }
+
+    public void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            log.debugf("Engine metrics cannot be unregistered from JMX: %s", e.getMessage());
+        }
+    }
+}
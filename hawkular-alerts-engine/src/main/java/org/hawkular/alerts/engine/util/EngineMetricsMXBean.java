@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.util;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link EngineMetrics}, registered as <code>org.hawkular.alerts:type=EngineMetrics</code>.
+ *
+ * @author Lucas Ponce
+ */
+public interface EngineMetricsMXBean {
+
+    /**
+     * @return Map of metric name to its current value, as exposed on the /status endpoint
+     */
+    Map<String, String> getMetrics();
+
+    long getFiringTimeMax();
+
+    double getFiringTimeP99();
+
+    long getIngestionDelayMax();
+
+    double getIngestionDelayP99();
+
+    long getFacts();
+
+    /**
+     * Discard all the recorded values.
+     */
+    void reset();
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+
+/**
+ * A multi-producer/single-consumer buffer for incoming Data and Events.
+ *
+ * Producers append without locking. The consumer drains the buffer into a <code>TreeSet</code>, so natural
+ * ordering and duplicate removal are applied once per drain instead of once per incoming batch. For Data this
+ * means (id ASC, timestamp ASC), as expected by the rules engine batching.
+ *
+ * @author Lucas Ponce
+ */
+public class PendingQueue<T extends Comparable<T>> {
+
+    private final ConcurrentLinkedQueue<T> queue = new ConcurrentLinkedQueue<>();
+
+    /*
+        Approximate number of buffered elements, duplicates are counted until the next drain
+     */
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    /*
+        Time of the first add since the last drain, 0 if nothing was added
+     */
+    private final AtomicLong oldestAdd = new AtomicLong(0);
+
+    /**
+     * @param elements the elements to buffer
+     * @return the approximate number of buffered elements after the add
+     */
+    public int addAll(Collection<T> elements) {
+        if (elements == null || elements.isEmpty()) {
+            return size.get();
+        }
+        oldestAdd.compareAndSet(0, System.currentTimeMillis());
+        queue.addAll(elements);
+        return size.addAndGet(elements.size());
+    }
+
+    /**
+     * Remove the buffered elements. Elements added concurrently may be left for the next drain.
+     * It should be invoked by a single consumer.
+     *
+     * @return the drained elements in natural ordering
+     */
+    public TreeSet<T> drain() {
+        oldestAdd.set(0);
+        TreeSet<T> result = new TreeSet<>();
+        int drained = 0;
+        T element;
+        while ((element = queue.poll()) != null) {
+            result.add(element);
+            drained++;
+        }
+        size.addAndGet(-drained);
+        return result;
+    }
+
+    /**
+     * Discard buffered elements keeping only the most recent one of every group of <code>same</code> elements.
+     * Natural ordering must place elements of the same group together and time-ordered, as Data and Events do.
+     * As it drains the buffer, it should be invoked by the single consumer.
+     *
+     * @param same the predicate that identifies elements of the same group (i.e. same dataId)
+     * @return the number of discarded elements
+     */
+    public int shed(BiPredicate<T, T> same) {
+        long oldest = oldestAdd.get();
+        TreeSet<T> drained = drain();
+        List<T> kept = new ArrayList<>();
+        T previous = null;
+        for (T element : drained) {
+            if (previous != null && !same.test(previous, element)) {
+                kept.add(previous);
+            }
+            previous = element;
+        }
+        if (previous != null) {
+            kept.add(previous);
+        }
+        addAll(kept);
+        if (oldest > 0 && !kept.isEmpty()) {
+            // Kept elements were waiting since before the shed
+            oldestAdd.accumulateAndGet(oldest, Math::min);
+        }
+        return drained.size() - kept.size();
+    }
+
+    public void clear() {
+        drain();
+    }
+
+    public boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @return the time of the first add since the last drain, approximately the time the oldest buffered element
+     *         was added, or 0 if nothing was added
+     */
+    public long getOldestAddTime() {
+        return oldestAdd.get();
+    }
+
+    @Override
+    public String toString() {
+        return "PendingQueue [size=" + size.get() + "]";
+    }
+}
@@ -26,3 +26,4 @@ include '/org/hawkular/alerts/schema/updates/schema-1.2.3.groovy'
 include '/org/hawkular/alerts/schema/updates/schema-1.4.0.groovy'
 include '/org/hawkular/alerts/schema/updates/schema-1.5.0.groovy'
 include '/org/hawkular/alerts/schema/updates/schema-1.6.0.groovy'
+include '/org/hawkular/alerts/schema/updates/schema-1.8.0.groovy'
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.datastax.driver.core.ConsistencyLevel
+import com.datastax.driver.core.SimpleStatement
+import com.fasterxml.jackson.databind.ObjectMapper
+
+setKeyspace keyspace
+
+schemaChange {
+  version '6.0'
+  author 'lponce'
+  tags '1.8.x'
+  cql "ALTER TABLE alerts ADD payloadBin blob"
+  verify { columnExists(keyspace, 'alerts', 'payloadBin') }
+}
+
+schemaChange {
+  version '6.1'
+  author 'lponce'
+  tags '1.8.x'
+  cql "ALTER TABLE events ADD payloadBin blob"
+  verify { columnExists(keyspace, 'events', 'payloadBin') }
+}
+
+/*
+    Time indexes are partitioned by (tenantId, bucket) instead of tenantId, so a busy tenant does not grow unbounded
+    partitions. The buckets written for a tenant are registered on time_buckets. Bucket size is one day, it must match
+    TimeBuckets.SIZE.
+
+    A partition key can not be altered, so the time indexes are moved to new *_bucketed tables.
+ */
+
+schemaChange {
+  version '6.2'
+  author 'lponce'
+  tags '1.8.x'
+  cql """
+CREATE TABLE time_buckets (
+    tenantId text,
+    name text,
+    bucket bigint,
+    PRIMARY KEY ((tenantId, name), bucket)
+)
+"""
+  verify { tableExists(keyspace, 'time_buckets') }
+}
+
+schemaChange {
+  version '6.3'
+  author 'lponce'
+  tags '1.8.x'
+  cql """
+CREATE TABLE actions_history_ctimes_bucketed (
+    tenantId text,
+    bucket bigint,
+    actionPlugin text,
+    actionId text,
+    alertId text,
+    ctime bigint,
+    PRIMARY KEY ((tenantId, bucket), ctime, actionPlugin, actionId, alertId)
+)
+"""
+  verify { tableExists(keyspace, 'actions_history_ctimes_bucketed') }
+}
+
+schemaChange {
+  version '6.4'
+  author 'lponce'
+  tags '1.8.x'
+  cql """
+CREATE TABLE alerts_ctimes_bucketed (
+    tenantId text,
+    bucket bigint,
+    alertId text,
+    ctime bigint,
+    PRIMARY KEY ((tenantId, bucket), ctime, alertId)
+)
+"""
+  verify { tableExists(keyspace, 'alerts_ctimes_bucketed') }
+}
+
+schemaChange {
+  version '6.5'
+  author 'lponce'
+  tags '1.8.x'
+  cql """
+CREATE TABLE alerts_stimes_bucketed (
+    tenantId text,
+    bucket bigint,
+    alertId text,
+    stime bigint,
+    PRIMARY KEY ((tenantId, bucket), stime, alertId)
+)
+"""
+  verify { tableExists(keyspace, 'alerts_stimes_bucketed') }
+}
+
+schemaChange {
+  version '6.6'
+  author 'lponce'
+  tags '1.8.x'
+  cql """
+CREATE TABLE alerts_lifecycle_bucketed (
+    tenantId text,
+    bucket bigint,
+    alertId text,
+    status text,
+    stime bigint,
+    PRIMARY KEY ((tenantId, bucket), status, stime, alertId)
+)
+"""
+  verify { tableExists(keyspace, 'alerts_lifecycle_bucketed') }
+}
+
+schemaChange {
+  version '6.7'
+  author 'lponce'
+  tags '1.8.x'
+  cql """
+CREATE TABLE events_ctimes_bucketed (
+    tenantId text,
+    bucket bigint,
+    id text,
+    ctime bigint,
+    PRIMARY KEY ((tenantId, bucket), ctime, id)
+)
+"""
+  verify { tableExists(keyspace, 'events_ctimes_bucketed') }
+}
+
+/*
+    Counters of the unresolved alerts by tenant and by trigger, for status and severity.
+ */
+
+schemaChange {
+  version '6.8'
+  author 'lponce'
+  tags '1.8.x'
+  cql """
+CREATE TABLE alerts_counters (
+    tenantId text,
+    status text,
+    severity text,
+    total counter,
+    PRIMARY KEY (tenantId, status, severity)
+)
+"""
+  verify { tableExists(keyspace, 'alerts_counters') }
+}
+
+schemaChange {
+  version '6.9'
+  author 'lponce'
+  tags '1.8.x'
+  cql """
+CREATE TABLE alerts_triggers_counters (
+    tenantId text,
+    triggerId text,
+    status text,
+    severity text,
+    total counter,
+    PRIMARY KEY (tenantId, triggerId, status, severity)
+)
+"""
+  verify { tableExists(keyspace, 'alerts_triggers_counters') }
+}
+
+/*
+    A digest of aggregated actions is a single row of actions_history, indexed on actions_history_alerts under each of
+    its events. The rows indexed under the events other than the one of the history row carry its alertId on
+    historyAlertId.
+ */
+
+schemaChange {
+  version '6.10'
+  author 'lponce'
+  tags '1.8.x'
+  cql "ALTER TABLE actions_history_alerts ADD historyAlertId text"
+  verify { columnExists(keyspace, 'actions_history_alerts', 'historyAlertId') }
+}
+
+/*
+    Data migrations run once, a row of sys_config records their completion. A migration that fails is run again on
+    the next start.
+ */
+
+def executeMigrationCQL(String cql) {
+  def statement = new SimpleStatement(cql)
+  statement.consistencyLevel = ConsistencyLevel.LOCAL_QUORUM
+  return session.execute(statement)
+}
+
+def migrationDone(String migration) {
+  return executeMigrationCQL("SELECT value FROM ${keyspace}.sys_config " +
+      "WHERE config_id = 'org.hawkular.alerts' AND name = '$migration'".toString()).one() != null
+}
+
+def markMigrationDone(String migration) {
+  executeMigrationCQL("INSERT INTO ${keyspace}.sys_config (config_id, name, value) " +
+      "VALUES ('org.hawkular.alerts', '$migration', '${System.currentTimeMillis()}')".toString())
+}
+
+/*
+    Rows of the old time indexes are copied into their bucket. Writes are idempotent, a failed copy is run again.
+
+    The old tables are kept in this release, so nodes not upgraded yet keep working during a rolling upgrade. They are
+    dropped by the schema of a later release, once all nodes use the *_bucketed tables.
+ */
+def copyToBuckets(String table, String timeColumn, List<String> columns) {
+  if (tableDoesNotExist(keyspace, table)) {
+    return
+  }
+  long bucketSize = 24 * 60 * 60 * 1000L
+  logger.info("Copying table $table to ${table}_bucketed")
+  def names = columns.join(', ')
+  def insertRow = session.prepare("INSERT INTO ${keyspace}.${table}_bucketed (bucket, $names) " +
+      "VALUES (?, ${columns.collect { '?' }.join(', ')})".toString())
+  insertRow.consistencyLevel = ConsistencyLevel.LOCAL_QUORUM
+  def insertBucket = session.prepare("INSERT INTO ${keyspace}.time_buckets (tenantId, name, bucket) " +
+      "VALUES (?, ?, ?)".toString())
+  insertBucket.consistencyLevel = ConsistencyLevel.LOCAL_QUORUM
+  def select = new SimpleStatement("SELECT $names FROM ${keyspace}.${table}".toString())
+  select.fetchSize = 1000
+  def buckets = [] as Set
+  def futures = []
+  long rows = 0
+  session.execute(select).each { row ->
+    long time = row.getLong(timeColumn)
+    long bucket = time - Math.floorMod(time, bucketSize)
+    String tenantId = row.getString('tenantId')
+    if (buckets.add("$tenantId:$bucket".toString())) {
+      futures << session.executeAsync(insertBucket.bind(tenantId, table, bucket))
+    }
+    futures << session.executeAsync(insertRow.bind(([bucket] + columns.collect { row.getObject(it) }) as Object[]))
+    rows++
+    if (futures.size() >= 100) {
+      futures.each { it.getUninterruptibly() }
+      futures.clear()
+    }
+  }
+  futures.each { it.getUninterruptibly() }
+  logger.info("Copied $rows rows of table $table")
+}
+
+if (!migrationDone('time-buckets-migration')) {
+  copyToBuckets('actions_history_ctimes', 'ctime', ['tenantId', 'ctime', 'actionPlugin', 'actionId', 'alertId'])
+  copyToBuckets('alerts_ctimes', 'ctime', ['tenantId', 'ctime', 'alertId'])
+  copyToBuckets('alerts_stimes', 'stime', ['tenantId', 'stime', 'alertId'])
+  copyToBuckets('alerts_lifecycle', 'stime', ['tenantId', 'status', 'stime', 'alertId'])
+  copyToBuckets('events_ctimes', 'ctime', ['tenantId', 'ctime', 'id'])
+  markMigrationDone('time-buckets-migration')
+}
+
+/*
+    Counters are seeded once with the unresolved alerts stored before this release, read from their json payloads.
+    Binary payloads are only written by this release, once the counters are seeded. A seed that failed is discarded
+    and run again, counter updates are not idempotent.
+ */
+if (!migrationDone('alerts-counters-seed')) {
+  logger.info("Counting unresolved alerts")
+  executeMigrationCQL("TRUNCATE ${keyspace}.alerts_counters".toString())
+  executeMigrationCQL("TRUNCATE ${keyspace}.alerts_triggers_counters".toString())
+  def mapper = new ObjectMapper()
+  def counts = [:]
+  long skipped = 0
+  def select = new SimpleStatement("SELECT payload FROM ${keyspace}.alerts".toString())
+  select.fetchSize = 1000
+  session.execute(select).each { row ->
+    String payload = row.getString('payload')
+    if (payload == null) {
+      skipped++
+      return
+    }
+    def alert = mapper.readTree(payload)
+    String status = alert.path('status').asText(null)
+    String severity = alert.path('severity').asText(null)
+    if (status != null && status != 'RESOLVED' && severity != null) {
+      def key = [alert.path('tenantId').asText(), alert.path('trigger').path('id').asText(), status, severity]
+      counts[key] = (counts[key] ?: 0L) + 1
+    }
+  }
+  def updateCounter = session.prepare("UPDATE ${keyspace}.alerts_counters SET total = total + ? " +
+      "WHERE tenantId = ? AND status = ? AND severity = ?".toString())
+  updateCounter.consistencyLevel = ConsistencyLevel.LOCAL_QUORUM
+  def updateTriggerCounter = session.prepare("UPDATE ${keyspace}.alerts_triggers_counters SET total = total + ? " +
+      "WHERE tenantId = ? AND triggerId = ? AND status = ? AND severity = ?".toString())
+  updateTriggerCounter.consistencyLevel = ConsistencyLevel.LOCAL_QUORUM
+  def tenantCounts = [:]
+  counts.each { key, count ->
+    def tenantKey = [key[0], key[2], key[3]]
+    tenantCounts[tenantKey] = (tenantCounts[tenantKey] ?: 0L) + count
+    session.execute(updateTriggerCounter.bind(count as Long, key[0], key[1], key[2], key[3]))
+  }
+  tenantCounts.each { key, count ->
+    session.execute(updateCounter.bind(count as Long, key[0], key[1], key[2]))
+  }
+  if (skipped > 0) {
+    logger.warn("Skipped $skipped alerts without json payload")
+  }
+  logger.info("Counted unresolved alerts of ${tenantCounts.keySet().collect { it[0] }.unique().size()} tenants")
+  markMigrationDone('alerts-counters-seed')
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.hawkular.alerts.api.model.condition.AvailabilityCondition;
+import org.hawkular.alerts.api.model.condition.CompareCondition;
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.EventCondition;
+import org.hawkular.alerts.api.model.condition.MissingCondition;
+import org.hawkular.alerts.api.model.condition.ThresholdCondition;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.data.AvailabilityType;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.event.EventType;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.engine.impl.DroolsRulesEngineImpl;
+import org.hawkular.alerts.engine.impl.FastPathRulesSession;
+import org.hawkular.alerts.engine.service.RulesEngine;
+import org.jboss.logging.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test of RulesEngine implementation with simple triggers evaluated on the fast path.
+ *
+ * @author Lucas Ponce
+ */
+public class FastPathRulesEngineTest {
+    private static final Logger log = Logger.getLogger(FastPathRulesEngineTest.class);
+    private static final String RULES_FAST_PATH = "hawkular-alerts.rules-fast-path";
+
+    RulesEngine rulesEngine;
+    List<Alert> alerts = new ArrayList<>();
+    Set<Dampening> pendingTimeouts = new HashSet<>();
+    Map<Trigger, List<Set<ConditionEval>>> autoResolvedTriggers = new HashMap<>();
+    Set<Trigger> disabledTriggers = new HashSet<>();
+    List<Event> outputEvents = new ArrayList<>();
+
+    @Before
+    public void before() {
+        System.setProperty(RULES_FAST_PATH, "true");
+        try {
+            rulesEngine = new DroolsRulesEngineImpl();
+        } finally {
+            System.clearProperty(RULES_FAST_PATH);
+        }
+        rulesEngine.addGlobal("log", log);
+        rulesEngine.addGlobal("alerts", alerts);
+        rulesEngine.addGlobal("events", outputEvents);
+        rulesEngine.addGlobal("pendingTimeouts", pendingTimeouts);
+        rulesEngine.addGlobal("autoResolvedTriggers", autoResolvedTriggers);
+        rulesEngine.addGlobal("disabledTriggers", disabledTriggers);
+    }
+
+    @After
+    public void after() {
+        rulesEngine.reset();
+        alerts.clear();
+        outputEvents.clear();
+        disabledTriggers.clear();
+    }
+
+    @Test
+    public void supportedTest() {
+        Trigger t = new Trigger("tenant", "trigger-1", "Simple");
+        ThresholdCondition threshold = new ThresholdCondition("tenant", "trigger-1", "data-1",
+                ThresholdCondition.Operator.GT, 10.0);
+        assertTrue(FastPathRulesSession.isSupported(t, Arrays.asList(threshold)));
+        assertTrue(FastPathRulesSession.isSupported(t, Arrays.asList(threshold,
+                Dampening.forStrict("tenant", "trigger-1", Mode.FIRING, 3))));
+
+        assertFalse(FastPathRulesSession.isSupported(t, new ArrayList<>()));
+        assertFalse(FastPathRulesSession.isSupported(t, Arrays.asList(threshold,
+                Dampening.forStrictTimeout("tenant", "trigger-1", Mode.FIRING, 1000))));
+        assertFalse(FastPathRulesSession.isSupported(t, Arrays.asList(threshold,
+                new EventCondition("tenant", "trigger-1", Mode.FIRING, "app-1"))));
+        assertFalse(FastPathRulesSession.isSupported(t, Arrays.asList(threshold,
+                new MissingCondition("tenant", "trigger-1", "data-1", 1000))));
+
+        t.setAutoResolve(true);
+        assertFalse(FastPathRulesSession.isSupported(t, Arrays.asList(threshold)));
+    }
+
+    @Test
+    public void thresholdDampeningTest() {
+        Trigger t = new Trigger("tenant", "trigger-1", "Threshold");
+        t.setEnabled(true);
+        ThresholdCondition c = new ThresholdCondition("tenant", "trigger-1", "data-1",
+                ThresholdCondition.Operator.GT, 10.0);
+        Dampening d = Dampening.forStrict("tenant", "trigger-1", Mode.FIRING, 2);
+        rulesEngine.addFact(t);
+        rulesEngine.addFact(c);
+        rulesEngine.addFact(d);
+
+        TreeSet<Data> datums = new TreeSet<>();
+        datums.add(Data.forNumeric("tenant", "data-1", 1000, 15.0));
+        datums.add(Data.forNumeric("tenant", "data-1", 2000, 5.0));
+        datums.add(Data.forNumeric("tenant", "data-1", 3000, 20.0));
+        datums.add(Data.forNumeric("tenant", "data-1", 4000, 25.0));
+        rulesEngine.addData(datums);
+        rulesEngine.fire();
+
+        assertEquals(alerts.toString(), 1, alerts.size());
+        Alert a = alerts.get(0);
+        assertEquals("trigger-1", a.getTriggerId());
+        assertEquals(2, a.getEvalSets().size());
+
+        Dampening loaded = (Dampening) rulesEngine.getFact(d);
+        assertNotNull(loaded);
+        assertEquals(0, loaded.getNumTrueEvals());
+
+        rulesEngine.removeFact(t);
+        assertNull(rulesEngine.getFact(t));
+        assertNull(rulesEngine.getFact(d));
+    }
+
+    @Test
+    public void compareAcrossFiringsTest() {
+        Trigger t = new Trigger("tenant", "trigger-1", "Compare");
+        t.setEnabled(true);
+        CompareCondition c = new CompareCondition("tenant", "trigger-1", "heapused",
+                CompareCondition.Operator.GT, 0.80, "heapmax");
+        rulesEngine.addFact(t);
+        rulesEngine.addFact(c);
+
+        rulesEngine.addData(new TreeSet<>(Arrays.asList(Data.forNumeric("tenant", "heapused", 1000, 90.0))));
+        rulesEngine.fire();
+        assertTrue(alerts.isEmpty());
+
+        rulesEngine.addData(new TreeSet<>(Arrays.asList(Data.forNumeric("tenant", "heapmax", 2000, 100.0))));
+        rulesEngine.fire();
+        assertEquals(alerts.toString(), 1, alerts.size());
+    }
+
+    @Test
+    public void autoDisableTest() {
+        Trigger t = new Trigger("tenant", "trigger-1", "Availability");
+        t.setEnabled(true);
+        t.setAutoDisable(true);
+        rulesEngine.addFact(t);
+        rulesEngine.addFact(new AvailabilityCondition("tenant", "trigger-1", "avail-1",
+                AvailabilityCondition.Operator.DOWN));
+
+        TreeSet<Data> datums = new TreeSet<>();
+        datums.add(Data.forAvailability("tenant", "avail-1", 1000, AvailabilityType.DOWN));
+        datums.add(Data.forAvailability("tenant", "avail-1", 2000, AvailabilityType.DOWN));
+        rulesEngine.addData(datums);
+        rulesEngine.fire();
+
+        assertEquals(alerts.toString(), 1, alerts.size());
+        assertEquals(1, disabledTriggers.size());
+        assertNull(rulesEngine.getFact(t));
+    }
+
+    @Test
+    public void chainedOnFastPathTest() {
+        Trigger producer = new Trigger("tenant", "producer", "Threshold event");
+        producer.setEventType(EventType.EVENT);
+        producer.setEnabled(true);
+        rulesEngine.addFact(producer);
+        rulesEngine.addFact(new ThresholdCondition("tenant", "producer", "data-1",
+                ThresholdCondition.Operator.GT, 10.0));
+
+        Trigger consumer = new Trigger("tenant", "consumer", "Chained on producer");
+        consumer.setEnabled(true);
+        rulesEngine.addFact(consumer);
+        rulesEngine.addFact(new EventCondition("tenant", "consumer", Mode.FIRING, "producer"));
+
+        rulesEngine.addData(new TreeSet<>(Arrays.asList(Data.forNumeric("tenant", "data-1", 1000, 15.0))));
+        rulesEngine.fire();
+
+        assertEquals(outputEvents.toString(), 1, outputEvents.size());
+        assertEquals(alerts.toString(), 1, alerts.size());
+        assertEquals("consumer", alerts.get(0).getTriggerId());
+    }
+}
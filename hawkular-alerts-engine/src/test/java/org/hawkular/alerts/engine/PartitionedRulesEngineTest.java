@@ -0,0 +1,171 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import org.hawkular.alerts.api.model.condition.Condition;
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.EventCondition;
+import org.hawkular.alerts.api.model.condition.ThresholdCondition;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.event.EventCategory;
+import org.hawkular.alerts.api.model.event.EventType;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.engine.StandaloneAlerts.StandaloneExecutorService;
+import org.hawkular.alerts.engine.impl.DroolsRulesEngineImpl;
+import org.hawkular.alerts.engine.service.RulesEngine;
+import org.jboss.logging.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test of RulesEngine implementation with triggers partitioned across several sessions.
+ *
+ * @author Lucas Ponce
+ */
+public class PartitionedRulesEngineTest {
+    private static final Logger log = Logger.getLogger(PartitionedRulesEngineTest.class);
+    private static final String RULES_SESSIONS = "hawkular-alerts.rules-sessions";
+
+    RulesEngine rulesEngine;
+    StandaloneExecutorService executor = new StandaloneExecutorService(4);
+    List<Alert> alerts = new ArrayList<>();
+    Set<Dampening> pendingTimeouts = new HashSet<>();
+    Map<Trigger, List<Set<ConditionEval>>> autoResolvedTriggers = new HashMap<>();
+    Set<Trigger> disabledTriggers = new HashSet<>();
+    List<Event> outputEvents = new ArrayList<>();
+
+    @Before
+    public void before() {
+        System.setProperty(RULES_SESSIONS, "4");
+        try {
+            rulesEngine = new DroolsRulesEngineImpl();
+            ((DroolsRulesEngineImpl) rulesEngine).setExecutor(executor);
+        } finally {
+            System.clearProperty(RULES_SESSIONS);
+        }
+        rulesEngine.addGlobal("log", log);
+        rulesEngine.addGlobal("alerts", alerts);
+        rulesEngine.addGlobal("events", outputEvents);
+        rulesEngine.addGlobal("pendingTimeouts", pendingTimeouts);
+        rulesEngine.addGlobal("autoResolvedTriggers", autoResolvedTriggers);
+        rulesEngine.addGlobal("disabledTriggers", disabledTriggers);
+    }
+
+    @After
+    public void after() {
+        rulesEngine.reset();
+        executor.shutdown();
+        alerts.clear();
+        outputEvents.clear();
+    }
+
+    @Test
+    public void partitionedThresholdTest() {
+        int numTriggers = 50;
+        TreeSet<Data> datums = new TreeSet<>();
+        for (int i = 0; i < numTriggers; i++) {
+            Trigger t = new Trigger("tenant", "trigger-" + i, "Threshold-" + i);
+            t.setEnabled(true);
+            ThresholdCondition c = new ThresholdCondition("tenant", "trigger-" + i, "data-" + i,
+                    ThresholdCondition.Operator.GT, 10.0);
+            rulesEngine.addFact(t);
+            rulesEngine.addFact(c);
+            datums.add(Data.forNumeric("tenant", "data-" + i, 1000, 15.0));
+            datums.add(Data.forNumeric("tenant", "data-" + i, 2000, 5.0));
+            datums.add(Data.forNumeric("tenant", "data-" + i, 3000, 20.0));
+        }
+        // Data not referenced by any condition
+        datums.add(Data.forNumeric("tenant", "unknown", 1000, 15.0));
+
+        rulesEngine.addData(datums);
+        rulesEngine.fire();
+
+        assertEquals(2 * numTriggers, alerts.size());
+        Set<String> triggerIds = new HashSet<>();
+        alerts.stream().forEach(a -> triggerIds.add(a.getTriggerId()));
+        assertEquals(numTriggers, triggerIds.size());
+
+        Trigger t0 = new Trigger("tenant", "trigger-0", "Threshold-0");
+        assertNotNull(rulesEngine.getFact(t0));
+        rulesEngine.removeFact(t0);
+        rulesEngine.removeFacts(f -> f instanceof Condition && ((Condition) f).getTriggerId().equals("trigger-0"));
+        assertNull(rulesEngine.getFact(t0));
+
+        alerts.clear();
+        datums.clear();
+        datums.add(Data.forNumeric("tenant", "data-0", 4000, 15.0));
+        datums.add(Data.forNumeric("tenant", "data-1", 4000, 15.0));
+        rulesEngine.addData(datums);
+        rulesEngine.fire();
+
+        assertEquals(alerts.toString(), 1, alerts.size());
+        assertEquals("trigger-1", alerts.get(0).getTriggerId());
+    }
+
+    @Test
+    public void partitionedChainedEventsTest() {
+        // Enough triggers to spread the chain across sessions
+        int numTriggers = 8;
+        List<String> producerIds = new ArrayList<>();
+        for (int i = 0; i < numTriggers; i++) {
+            Trigger t = new Trigger("tenant", "producer-" + i, "App-" + i + " DOWN");
+            t.setEventType(EventType.EVENT);
+            t.setEnabled(true);
+            rulesEngine.addFact(t);
+            rulesEngine.addFact(new EventCondition("tenant", t.getId(), Mode.FIRING, "app-" + i, "text == 'DOWN'"));
+            producerIds.add(t.getId());
+        }
+        for (int i = 0; i < numTriggers; i++) {
+            Trigger t = new Trigger("tenant", "consumer-" + i, "Chained on producer-" + i);
+            t.setEnabled(true);
+            rulesEngine.addFact(t);
+            rulesEngine.addFact(new EventCondition("tenant", t.getId(), Mode.FIRING, producerIds.get(i)));
+        }
+
+        TreeSet<Event> inputEvents = new TreeSet<>();
+        for (int i = 0; i < numTriggers; i++) {
+            inputEvents.add(new Event("tenant", UUID.randomUUID().toString(), 1000, "app-" + i,
+                    EventCategory.DEPLOYMENT.name(), "DOWN"));
+        }
+
+        rulesEngine.addEvents(inputEvents);
+        rulesEngine.fire();
+
+        assertEquals(outputEvents.toString(), numTriggers, outputEvents.size());
+        assertEquals(alerts.toString(), numTriggers, alerts.size());
+        assertTrue(alerts.stream().allMatch(a -> a.getTriggerId().startsWith("consumer-")));
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hawkular.alerts.api.model.action.Action;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Lucas Ponce
+ */
+public class ActionsAggregatorTest {
+
+    private List<Action> processed;
+    private List<Action> inserted;
+    private ActionsAggregator aggregator;
+
+    @Before
+    public void before() {
+        System.setProperty("hawkular-alerts.actions-aggregation-window.digest", "200");
+        System.setProperty("hawkular-alerts.actions-aggregation-max-events", "3");
+        processed = new CopyOnWriteArrayList<>();
+        inserted = new CopyOnWriteArrayList<>();
+        AlertsContext alertsContext = new AlertsContext();
+        alertsContext.registerActionListener(action -> processed.add(action));
+        aggregator = new ActionsAggregator();
+        aggregator.setAlertsContext(alertsContext);
+        aggregator.setHistoryWriter(new ActionsHistoryWriter() {
+            @Override
+            public void insert(Action action) {
+                inserted.add(action);
+            }
+        });
+        aggregator.init();
+    }
+
+    @After
+    public void after() {
+        aggregator.shutdown();
+        System.clearProperty("hawkular-alerts.actions-aggregation-window.digest");
+        System.clearProperty("hawkular-alerts.actions-aggregation-max-events");
+    }
+
+    private Action newAction(String actionPlugin, String actionId, String eventId) {
+        Event event = new Event("tenant", eventId, "category", "text");
+        return new Action("tenant", actionPlugin, actionId, event);
+    }
+
+    @Test
+    public void noWindowTest() {
+        aggregator.send(newAction("direct", "action-1", "event-1"));
+        aggregator.send(newAction("direct", "action-1", "event-2"));
+
+        assertEquals(2, processed.size());
+        assertEquals(2, inserted.size());
+        assertNull(processed.get(0).getEvents());
+    }
+
+    @Test
+    public void windowTest() throws Exception {
+        aggregator.send(newAction("digest", "action-1", "event-1"));
+        aggregator.send(newAction("digest", "action-1", "event-2"));
+        // Duplicated events are discarded
+        aggregator.send(newAction("digest", "action-1", "event-2"));
+        aggregator.send(newAction("digest", "action-2", "event-3"));
+        assertTrue(processed.isEmpty());
+
+        for (int i = 0; i < 50 && processed.size() < 2; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(2, processed.size());
+        assertEquals(2, inserted.size());
+
+        Action digest = processed.stream().filter(a -> a.getActionId().equals("action-1")).findFirst().get();
+        assertEquals("event-1", digest.getEventId());
+        assertEquals(2, digest.getEvents().size());
+        assertEquals("event-2", digest.getEvents().get(1).getId());
+        assertEquals(2, digest.getEventIds().size());
+
+        Action single = processed.stream().filter(a -> a.getActionId().equals("action-2")).findFirst().get();
+        assertNull(single.getEvents());
+    }
+
+    @Test
+    public void maxEventsTest() throws Exception {
+        aggregator.send(newAction("digest", "action-1", "event-1"));
+        aggregator.send(newAction("digest", "action-1", "event-2"));
+        aggregator.send(newAction("digest", "action-1", "event-3"));
+
+        // A full digest is sent before the end of its window, and only once
+        assertEquals(1, processed.size());
+        assertEquals(3, processed.get(0).getEvents().size());
+
+        aggregator.send(newAction("digest", "action-1", "event-4"));
+        Thread.sleep(500);
+        assertEquals(2, processed.size());
+        assertEquals("event-4", processed.get(1).getEventId());
+    }
+
+    @Test
+    public void lifecycleTest() throws Exception {
+        Trigger trigger = new Trigger("tenant", "trigger-1", "trigger-1");
+        Alert open = new Alert("tenant", trigger, null);
+        Alert acked = new Alert("tenant", trigger, null);
+        acked.setId(open.getId());
+        acked.addLifecycle(Alert.Status.ACKNOWLEDGED, "user", System.currentTimeMillis());
+
+        aggregator.send(new Action("tenant", "digest", "action-1", open));
+        aggregator.send(new Action("tenant", "digest", "action-1", acked));
+        // Only the same alert with the same status is discarded
+        aggregator.send(new Action("tenant", "digest", "action-1", acked));
+
+        for (int i = 0; i < 50 && processed.isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, processed.size());
+        Action digest = processed.get(0);
+        assertEquals(2, digest.getEvents().size());
+        assertEquals(Alert.Status.OPEN, ((Alert) digest.getEvents().get(0)).getStatus());
+        assertEquals(Alert.Status.ACKNOWLEDGED, ((Alert) digest.getEvents().get(1)).getStatus());
+        assertEquals(1, digest.getEventIds().size());
+        assertEquals(open.getId(), digest.getEventIds().get(0));
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.alerts.api.model.action.Action;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.engine.impl.ActionsHistoryWriter.ActionKey;
+import org.hawkular.alerts.engine.impl.ActionsHistoryWriter.Pending;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Lucas Ponce
+ */
+public class ActionsHistoryWriterTest {
+
+    private static final String FLUSH_PERIOD = "hawkular-alerts.action-history-flush-period";
+    private static final String BATCH_SIZE = "hawkular-alerts.action-history-batch-size";
+    private static final String QUEUE_SIZE = "hawkular-alerts.action-history-queue-size";
+
+    private List<String> written;
+    private List<String> reads;
+    private Map<String, String> stored;
+    private ActionsHistoryWriter writer;
+
+    @Before
+    public void before() {
+        // Flushes are only triggered by the tests
+        System.setProperty(FLUSH_PERIOD, "600000");
+        System.setProperty(BATCH_SIZE, "100");
+        System.setProperty(QUEUE_SIZE, "2");
+        written = new CopyOnWriteArrayList<>();
+        reads = new CopyOnWriteArrayList<>();
+        stored = new ConcurrentHashMap<>();
+        writer = new ActionsHistoryWriter() {
+            @Override
+            void writeHistory(Map<ActionKey, Pending> flushed) throws Exception {
+                flushed.forEach((key, p) -> written.add(key.actionId + ":" + (p.insert ? "insert" : "update") + ":"
+                        + p.oldResult + ":" + p.action.getResult()));
+            }
+
+            @Override
+            List<String> readStoredResults(List<ActionKey> keys) throws Exception {
+                List<String> results = new ArrayList<>();
+                for (ActionKey key : keys) {
+                    reads.add(key.actionId);
+                    results.add(stored.get(key.actionId));
+                }
+                return results;
+            }
+        };
+        writer.init();
+    }
+
+    @After
+    public void after() {
+        writer.shutdown();
+        System.clearProperty(FLUSH_PERIOD);
+        System.clearProperty(BATCH_SIZE);
+        System.clearProperty(QUEUE_SIZE);
+    }
+
+    private Action newAction(String actionId, long ctime, String result) {
+        Action action = new Action("tenant", "email", actionId, new Event("tenant", "event-1", "category", "text"));
+        action.setCtime(ctime);
+        action.setResult(result);
+        return action;
+    }
+
+    @Test
+    public void mergeTest() throws Exception {
+        writer.insert(newAction("action-1", 1, null));
+        writer.update(newAction("action-1", 1, "OK"));
+
+        // The update is merged into the pending insert and its permit released
+        assertEquals(1, writer.getPending());
+
+        writer.flush();
+        assertEquals(0, writer.getPending());
+        assertEquals(1, written.size());
+        assertEquals("action-1:insert:null:OK", written.get(0));
+        assertTrue(reads.isEmpty());
+    }
+
+    @Test
+    public void resultBeforeInsertTest() throws Exception {
+        // A synchronous plugin reports the result before the insert of its action
+        writer.update(newAction("action-1", 1, "OK"));
+        writer.insert(newAction("action-1", 1, null));
+        assertEquals(1, writer.getPending());
+
+        writer.flush();
+        assertEquals(1, written.size());
+        assertEquals("action-1:insert:null:OK", written.get(0));
+    }
+
+    @Test
+    public void resultsTest() throws Exception {
+        writer.insert(newAction("action-1", 1, null));
+        writer.flush();
+
+        // The result last written is known, the old results row is deleted without reading the history
+        writer.update(newAction("action-1", 1, "OK"));
+        writer.flush();
+        assertEquals("action-1:update:WAITING:OK", written.get(1));
+        assertTrue(reads.isEmpty());
+
+        // Results not written recently are read back, actions not found have no old result
+        stored.put("action-2", "WAITING");
+        writer.update(newAction("action-2", 2, "FAILED"));
+        writer.update(newAction("action-3", 3, "OK"));
+        writer.flush();
+        assertEquals(2, reads.size());
+        assertTrue(written.contains("action-2:update:WAITING:FAILED"));
+        assertTrue(written.contains("action-3:update:null:OK"));
+
+        writer.update(newAction("action-2", 2, "OK"));
+        writer.flush();
+        assertEquals(2, reads.size());
+        assertEquals("action-2:update:FAILED:OK", written.get(written.size() - 1));
+    }
+
+    @Test
+    public void queueBoundTest() throws Exception {
+        writer.insert(newAction("action-1", 1, null));
+        writer.insert(newAction("action-2", 2, null));
+        assertEquals(2, writer.getPending());
+
+        // The queue is full, a new action waits for a flush
+        CountDownLatch queued = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                writer.insert(newAction("action-3", 3, null));
+                queued.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        assertFalse(queued.await(200, TimeUnit.MILLISECONDS));
+
+        writer.flush();
+        assertTrue(queued.await(5, TimeUnit.SECONDS));
+        assertEquals(1, writer.getPending());
+        assertEquals(2, written.size());
+
+        writer.flush();
+        assertEquals(0, writer.getPending());
+        assertEquals(3, written.size());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Timer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Lucas Ponce
+ */
+public class AdaptiveFiringTest {
+
+    private Timer timer;
+    private AtomicInteger firings;
+    private AdaptiveFiring adaptiveFiring;
+
+    @Before
+    public void before() {
+        timer = new Timer("AdaptiveFiringTest-Timer", true);
+        firings = new AtomicInteger(0);
+        adaptiveFiring = new AdaptiveFiring(timer, () -> {
+            adaptiveFiring.fired();
+            firings.incrementAndGet();
+        }, 10, 100, 0);
+    }
+
+    @After
+    public void after() {
+        timer.cancel();
+    }
+
+    private void waitFirings(int expected) throws Exception {
+        for (int i = 0; i < 50 && firings.get() < expected; i++) {
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void ageTest() throws Exception {
+        assertTrue(adaptiveFiring.request(1));
+        // Pending work is batched until it is firingAge ms old
+        assertFalse(adaptiveFiring.request(2));
+        assertFalse(adaptiveFiring.request(3));
+        assertEquals(0, firings.get());
+
+        waitFirings(1);
+        Thread.sleep(200);
+        assertEquals(1, firings.get());
+        assertFalse(adaptiveFiring.isScheduled());
+    }
+
+    @Test
+    public void sizeTest() throws Exception {
+        assertTrue(adaptiveFiring.request(1));
+        // Reaching firingSize supersedes the aged firing, which is cancelled
+        assertTrue(adaptiveFiring.request(10));
+        waitFirings(1);
+        Thread.sleep(200);
+        assertEquals(1, firings.get());
+    }
+
+    @Test
+    public void periodicFiringTest() throws Exception {
+        assertTrue(adaptiveFiring.request(1));
+
+        // A periodic firing in between does not release the scheduled one-shot firing
+        adaptiveFiring.fired();
+        assertTrue(adaptiveFiring.isScheduled());
+        assertFalse(adaptiveFiring.request(1));
+        assertFalse(adaptiveFiring.request(1));
+
+        waitFirings(1);
+        Thread.sleep(200);
+        assertEquals(1, firings.get());
+
+        // Once the one-shot firing runs new work requests a new one
+        assertTrue(adaptiveFiring.request(1));
+        waitFirings(2);
+        assertEquals(2, firings.get());
+    }
+
+    @Test
+    public void disabledTest() throws Exception {
+        AdaptiveFiring disabled = new AdaptiveFiring(timer, firings::incrementAndGet, 10, 0, 0);
+        assertFalse(disabled.request(100));
+        assertFalse(disabled.isScheduled());
+    }
+
+    @Test
+    public void cancelledTimerTest() throws Exception {
+        timer.cancel();
+        assertFalse(adaptiveFiring.request(1));
+        assertFalse(adaptiveFiring.isScheduled());
+    }
+}
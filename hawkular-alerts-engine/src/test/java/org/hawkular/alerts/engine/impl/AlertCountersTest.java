@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.hawkular.alerts.api.model.Severity;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Alert.Status;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.engine.impl.AlertCounters.Counter;
+import org.junit.Test;
+
+/**
+ * @author Lucas Ponce
+ */
+public class AlertCountersTest {
+
+    private Alert newAlert(String triggerId, Severity severity) {
+        Trigger trigger = new Trigger("tenant", triggerId, triggerId);
+        trigger.setSeverity(severity);
+        return new Alert("tenant", trigger, null);
+    }
+
+    private long delta(AlertCounters counters, String triggerId, Status status, Severity severity) {
+        return counters.getDeltas().getOrDefault(new Counter("tenant", triggerId, status, severity), 0L);
+    }
+
+    @Test
+    public void lifecycleTest() {
+        Alert a1 = newAlert("trigger-1", Severity.HIGH);
+        Alert a2 = newAlert("trigger-1", Severity.HIGH);
+        Alert a3 = newAlert("trigger-2", Severity.LOW);
+
+        AlertCounters counters = new AlertCounters().add(a1).add(a2).add(a3);
+        assertEquals(2, delta(counters, "trigger-1", Status.OPEN, Severity.HIGH));
+        assertEquals(1, delta(counters, "trigger-2", Status.OPEN, Severity.LOW));
+
+        counters = new AlertCounters();
+        a1.addLifecycle(Status.ACKNOWLEDGED, "user", 1);
+        counters.move(a1, Status.OPEN);
+        assertEquals(-1, delta(counters, "trigger-1", Status.OPEN, Severity.HIGH));
+        assertEquals(1, delta(counters, "trigger-1", Status.ACKNOWLEDGED, Severity.HIGH));
+
+        // Resolved alerts are not counted
+        a1.addLifecycle(Status.RESOLVED, "user", 2);
+        counters.move(a1, Status.ACKNOWLEDGED);
+        assertEquals(-1, delta(counters, "trigger-1", Status.OPEN, Severity.HIGH));
+        assertEquals(0, delta(counters, "trigger-1", Status.ACKNOWLEDGED, Severity.HIGH));
+        assertEquals(0, delta(counters, "trigger-1", Status.RESOLVED, Severity.HIGH));
+
+        // Deltas that cancel out are not written
+        counters = new AlertCounters().add(a3).remove(a3).remove(a1);
+        Map<Counter, Long> deltas = counters.getDeltas();
+        assertTrue(deltas.toString(), deltas.isEmpty());
+
+        // Same status, no change
+        a2.addLifecycle(Status.OPEN, "user", 3);
+        assertTrue(new AlertCounters().move(a2, Status.OPEN).getDeltas().isEmpty());
+    }
+}
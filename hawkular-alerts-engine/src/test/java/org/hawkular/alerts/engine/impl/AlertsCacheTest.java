@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.ThresholdCondition;
+import org.hawkular.alerts.api.model.condition.ThresholdConditionEval;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.infinispan.Cache;
+import org.infinispan.manager.DefaultCacheManager;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * @author Lucas Ponce
+ */
+public class AlertsCacheTest {
+
+    private static DefaultCacheManager cacheManager;
+    private static Cache<String, Object> cache;
+
+    @BeforeClass
+    public static void startCache() {
+        cacheManager = new DefaultCacheManager();
+        cache = cacheManager.getCache("alerts");
+    }
+
+    @AfterClass
+    public static void stopCache() {
+        cacheManager.stop();
+    }
+
+    @Before
+    public void clearCache() {
+        cache.clear();
+    }
+
+    private Alert newAlert() {
+        Trigger trigger = new Trigger("tenant", "trigger-1", "Trigger 1");
+        ThresholdCondition condition = new ThresholdCondition("tenant", "trigger-1", "heap",
+                ThresholdCondition.Operator.GT, 300.0);
+        Dampening dampening = Dampening.forStrict("tenant", "trigger-1", Mode.FIRING, 1);
+        Set<ConditionEval> evals = new HashSet<>();
+        evals.add(new ThresholdConditionEval(condition, Data.forNumeric("tenant", "heap", 1, 350.0)));
+        List<Set<ConditionEval>> evalSets = new ArrayList<>();
+        evalSets.add(evals);
+        return new Alert("tenant", trigger, dampening, evalSets);
+    }
+
+    @Test
+    public void writeThroughTest() {
+        for (PayloadCodec.Format format : PayloadCodec.Format.values()) {
+            cache.clear();
+            PayloadCodec codec = new PayloadCodec(format);
+            AlertsCache alertsCache = new AlertsCache(cache, codec);
+            Alert alert = newAlert();
+
+            assertNull(alertsCache.get("tenant", alert.getAlertId(), false));
+
+            alertsCache.put(alert, codec.encode(alert));
+            Alert cached = alertsCache.get("tenant", alert.getAlertId(), false);
+            assertNotNull(cached);
+            assertEquals(alert.getAlertId(), cached.getAlertId());
+            assertEquals(1, cached.getEvalSets().size());
+            assertNull(alertsCache.get("tenant", alert.getAlertId(), true).getEvalSets());
+            assertNull(alertsCache.get("tenant2", alert.getAlertId(), false));
+
+            // Every lookup is a copy
+            cached.addLifecycle(Alert.Status.ACKNOWLEDGED, "user", System.currentTimeMillis());
+            assertEquals(Alert.Status.OPEN, alertsCache.get("tenant", alert.getAlertId(), false).getStatus());
+
+            // Resolved alerts are removed
+            alert.addLifecycle(Alert.Status.RESOLVED, "user", System.currentTimeMillis());
+            alertsCache.put(alert, codec.encode(alert));
+            assertNull(alertsCache.get("tenant", alert.getAlertId(), false));
+        }
+    }
+
+    @Test
+    public void readThroughTest() {
+        PayloadCodec codec = new PayloadCodec(PayloadCodec.Format.SMILE);
+        AlertsCache alertsCache = new AlertsCache(cache, codec);
+
+        Alert open = newAlert();
+        ByteBuffer payloadBin = (ByteBuffer) codec.encode(open);
+        alertsCache.putForExternalRead(open, payloadBin, null);
+        assertTrue(payloadBin.hasRemaining());
+        assertEquals(open.getAlertId(), alertsCache.get("tenant", open.getAlertId(), false).getAlertId());
+
+        alertsCache.remove("tenant", open.getAlertId());
+        assertNull(alertsCache.get("tenant", open.getAlertId(), false));
+
+        // Only open alerts are cached on reads
+        Alert resolved = newAlert();
+        resolved.addLifecycle(Alert.Status.RESOLVED, "user", System.currentTimeMillis());
+        alertsCache.putForExternalRead(resolved, null, (String) new PayloadCodec(PayloadCodec.Format.JSON)
+                .encode(resolved));
+        assertNull(alertsCache.get("tenant", resolved.getAlertId(), false));
+    }
+
+    @Test
+    public void noCacheTest() {
+        PayloadCodec codec = new PayloadCodec(PayloadCodec.Format.JSON);
+        AlertsCache alertsCache = new AlertsCache(null, codec);
+        Alert alert = newAlert();
+
+        alertsCache.put(alert, codec.encode(alert));
+        assertNull(alertsCache.get("tenant", alert.getAlertId(), false));
+    }
+}
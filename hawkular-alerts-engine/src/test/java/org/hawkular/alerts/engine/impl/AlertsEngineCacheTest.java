@@ -16,9 +16,13 @@
  */
 package org.hawkular.alerts.engine.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import org.hawkular.alerts.engine.impl.AlertsEngineCache.DataEntry;
 import org.junit.Test;
 
@@ -55,4 +59,46 @@ public class AlertsEngineCacheTest {
         assertFalse(cache.isDataIdActive("o1", "d3"));
     }
 
+    @Test
+    public void dataEntriesTest() {
+        AlertsEngineCache cache = new AlertsEngineCache();
+
+        DataEntry entry1 = new DataEntry("o1", "t1", "t1-FIRING-1-1", "d1");
+        DataEntry entry2 = new DataEntry("o1", "t1", "t1-FIRING-2-2", "d1");
+        DataEntry entry3 = new DataEntry("o1", "t2", "t2-FIRING-1-1", "d1");
+        DataEntry entry4 = new DataEntry("o2", "t1", "t1-FIRING-1-1", "d1");
+
+        cache.add(entry1);
+        cache.add(entry2);
+        cache.add(entry3);
+        cache.add(entry4);
+        assertTrue(cache.isDataIdActive("o1", "d1"));
+        assertFalse(cache.isDataIdActive("o1", "d2"));
+
+        Set<DataEntry> expected = new HashSet<>();
+        expected.add(entry1);
+        expected.add(entry2);
+        expected.add(entry3);
+        assertEquals(expected, cache.getDataEntries("o1", "d1"));
+        assertTrue(cache.getDataEntries("o1", "d2").isEmpty());
+
+        // Removing a trigger releases all its conditions, other triggers and tenants keep theirs
+        cache.remove("o1", "t1");
+        expected.remove(entry1);
+        expected.remove(entry2);
+        assertEquals(expected, cache.getDataEntries("o1", "d1"));
+        assertEquals(1, cache.getDataEntries("o2", "d1").size());
+
+        cache.remove("o1", "t2");
+        assertTrue(cache.getDataEntries("o1", "d1").isEmpty());
+        assertFalse(cache.isDataIdActive("o1", "d1"));
+        assertTrue(cache.isDataIdActive("o2", "d1"));
+
+        cache.remove("o1", "t2");
+        assertTrue(cache.isDataIdActive("o2", "d1"));
+
+        cache.clear();
+        assertFalse(cache.isDataIdActive("o2", "d1"));
+    }
+
 }
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.services.AlertsCriteria;
+import org.hawkular.alerts.engine.impl.AlertsQueryPlanner.Index;
+import org.junit.Test;
+
+/**
+ * @author Lucas Ponce
+ */
+public class AlertsQueryPlannerTest {
+
+    private Alert newAlert(String triggerId, long ctime) {
+        Alert alert = new Alert("tenant", new Trigger("tenant", triggerId, triggerId), null);
+        alert.setCtime(ctime);
+        alert.getLifecycle().clear();
+        alert.addLifecycle(Alert.Status.OPEN, "system", ctime);
+        return alert;
+    }
+
+    @Test
+    public void indexesTest() {
+        AlertsCriteria criteria = new AlertsCriteria();
+        assertTrue(AlertsQueryPlanner.getIndexes(criteria).isEmpty());
+
+        criteria.setTriggerId("trigger-1");
+        criteria.setStartTime(1000L);
+        criteria.setTagQuery("app");
+        assertEquals(Arrays.asList(Index.TRIGGERS, Index.CTIME, Index.TAGS), AlertsQueryPlanner.getIndexes(criteria));
+
+        criteria.setAlertId("alert-1");
+        criteria.setEndAckTime(2000L);
+        assertEquals(Arrays.asList(Index.ALERT_IDS, Index.TRIGGERS, Index.ACK_TIME, Index.CTIME, Index.TAGS),
+                AlertsQueryPlanner.getIndexes(criteria));
+    }
+
+    @Test
+    public void chooseDriverTest() {
+        Map<Index, Long> estimations = new EnumMap<>(Index.class);
+        estimations.put(Index.CTIME, 1001L);
+        estimations.put(Index.TRIGGERS, 35L);
+        estimations.put(Index.TAGS, AlertsQueryPlanner.UNKNOWN);
+        assertEquals(Index.TRIGGERS, AlertsQueryPlanner.chooseDriver(estimations));
+
+        // Same estimation, the first index is preferred
+        estimations.put(Index.CTIME, 35L);
+        assertEquals(Index.TRIGGERS, AlertsQueryPlanner.chooseDriver(estimations));
+
+        estimations.put(Index.CTIME, 0L);
+        assertEquals(Index.CTIME, AlertsQueryPlanner.chooseDriver(estimations));
+
+        estimations.clear();
+        estimations.put(Index.TAGS, AlertsQueryPlanner.UNKNOWN);
+        assertEquals(Index.TAGS, AlertsQueryPlanner.chooseDriver(estimations));
+    }
+
+    @Test
+    public void matchesTest() {
+        Alert alert = newAlert("trigger-1", 1500L);
+        alert.addLifecycle(Alert.Status.ACKNOWLEDGED, "user", 1600L);
+
+        AlertsCriteria criteria = new AlertsCriteria();
+        criteria.setTriggerIds(Arrays.asList("trigger-1", "trigger-2"));
+        criteria.setStartTime(1000L);
+        criteria.setEndTime(2000L);
+        assertTrue(AlertsQueryPlanner.matches(alert, criteria, Index.TRIGGERS));
+        assertTrue(AlertsQueryPlanner.matches(alert, criteria, Index.CTIME));
+
+        criteria.setEndTime(1400L);
+        assertFalse(AlertsQueryPlanner.matches(alert, criteria, Index.TRIGGERS));
+        // The driver criterion is not checked again
+        assertTrue(AlertsQueryPlanner.matches(alert, criteria, Index.CTIME));
+
+        criteria = new AlertsCriteria();
+        criteria.setStartAckTime(1550L);
+        assertTrue(AlertsQueryPlanner.matches(alert, criteria, Index.CTIME));
+        criteria.setStartResolvedTime(1550L);
+        assertFalse(AlertsQueryPlanner.matches(alert, criteria, Index.CTIME));
+
+        criteria = new AlertsCriteria();
+        criteria.setStartStatusTime(1550L);
+        criteria.setEndStatusTime(1650L);
+        assertTrue(AlertsQueryPlanner.matches(alert, criteria, Index.TRIGGERS));
+
+        criteria.setAlertIds(Arrays.asList("alert-x", "alert-y"));
+        assertFalse(AlertsQueryPlanner.matches(alert, criteria, Index.STATUS_TIME));
+        assertTrue(AlertsQueryPlanner.matches(alert, criteria, Index.ALERT_IDS));
+    }
+
+    @Test
+    public void tagQueryTest() throws Exception {
+        Alert a1 = newAlert("trigger-1", 1000L);
+        a1.addTag("app", "appA");
+        Alert a2 = newAlert("trigger-2", 1000L);
+        a2.addTag("app", "appB");
+        a2.addTag("host", "host1");
+        Alert a3 = newAlert("trigger-3", 1000L);
+
+        AlertsQueryPlanner.TagValueFilter equals = (op, regexps, value) -> op.equals("=") == value.equals(regexps);
+
+        List<Alert> alerts = new ArrayList<>(Arrays.asList(a1, a2, a3));
+        AlertsQueryPlanner.filterByTagQuery(alerts, "app", equals);
+        assertEquals(Arrays.asList(a1, a2), alerts);
+
+        alerts = new ArrayList<>(Arrays.asList(a1, a2, a3));
+        AlertsQueryPlanner.filterByTagQuery(alerts, "not host", equals);
+        assertEquals(Arrays.asList(a1, a3), alerts);
+
+        alerts = new ArrayList<>(Arrays.asList(a1, a2, a3));
+        AlertsQueryPlanner.filterByTagQuery(alerts, "app = appB or host", equals);
+        assertEquals(Arrays.asList(a2), alerts);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * @author Lucas Ponce
+ */
+public class PageCursorTest {
+
+    @Test
+    public void encodeDecodeTest() {
+        PageCursor cursor = new PageCursor(true, 1499345678901L, "trigger-1:1499345678901:5d2e-ab");
+        String token = cursor.encode();
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+
+        PageCursor decoded = PageCursor.decode(token, true);
+        assertTrue(decoded.descending);
+        assertEquals(1499345678901L, decoded.ctime);
+        assertEquals("trigger-1:1499345678901:5d2e-ab", decoded.id);
+
+        decoded = PageCursor.decode(new PageCursor(false, 0L, "event-1").encode(), false);
+        assertFalse(decoded.descending);
+        assertEquals(0L, decoded.ctime);
+        assertEquals("event-1", decoded.id);
+    }
+
+    @Test
+    public void firstPageTest() {
+        assertNull(PageCursor.decode(null, true));
+        assertNull(PageCursor.decode("", false));
+    }
+
+    @Test
+    public void invalidTest() {
+        String[] tokens = {"not-a-cursor", "%%%", new PageCursor(false, 10L, "id").encode()};
+        for (String token : tokens) {
+            try {
+                PageCursor.decode(token, true);
+                fail("Cursor " + token + " should be rejected");
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+}
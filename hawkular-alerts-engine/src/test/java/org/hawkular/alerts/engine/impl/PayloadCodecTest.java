@@ -0,0 +1,112 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hawkular.alerts.api.json.JsonUtil;
+import org.hawkular.alerts.api.model.condition.ConditionEval;
+import org.hawkular.alerts.api.model.condition.ThresholdCondition;
+import org.hawkular.alerts.api.model.condition.ThresholdConditionEval;
+import org.hawkular.alerts.api.model.dampening.Dampening;
+import org.hawkular.alerts.api.model.data.Data;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Mode;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.junit.Test;
+
+/**
+ * @author Lucas Ponce
+ */
+public class PayloadCodecTest {
+
+    private Alert newAlert() {
+        Trigger trigger = new Trigger("tenant", "trigger-1", "Trigger 1");
+        trigger.addTag("app", "thevault");
+        ThresholdCondition condition = new ThresholdCondition("tenant", "trigger-1", "heap",
+                ThresholdCondition.Operator.GT, 300.0);
+        Dampening dampening = Dampening.forStrict("tenant", "trigger-1", Mode.FIRING, 1);
+        Set<ConditionEval> evals = new HashSet<>();
+        evals.add(new ThresholdConditionEval(condition, Data.forNumeric("tenant", "heap", 1, 350.0)));
+        List<Set<ConditionEval>> evalSets = new ArrayList<>();
+        evalSets.add(evals);
+        return new Alert("tenant", trigger, dampening, evalSets);
+    }
+
+    @Test
+    public void smileTest() {
+        PayloadCodec codec = new PayloadCodec(PayloadCodec.Format.SMILE);
+        assertTrue(codec.isBinary());
+
+        Alert alert = newAlert();
+        ByteBuffer payload = (ByteBuffer) codec.encode(alert);
+        assertEquals(PayloadCodec.SMILE_V1, payload.get(0));
+        assertTrue(payload.remaining() < JsonUtil.toJson(alert).length());
+
+        Alert decoded = codec.decode(payload, null, Alert.class, false);
+        assertEquals(alert, decoded);
+        assertEquals(1, decoded.getEvalSets().size());
+        assertEquals("thevault", decoded.getTags().get("app"));
+        assertEquals(alert.getTrigger().getId(), decoded.getTrigger().getId());
+
+        Alert thin = codec.decode(payload, null, Alert.class, true);
+        assertEquals(alert, thin);
+        assertNull(thin.getEvalSets());
+
+        Event event = new Event(alert);
+        Event decodedEvent = codec.decode((ByteBuffer) codec.encode(event), null, Event.class, false);
+        assertEquals(event, decodedEvent);
+    }
+
+    @Test
+    public void jsonTest() {
+        PayloadCodec codec = new PayloadCodec(PayloadCodec.Format.JSON);
+        assertFalse(codec.isBinary());
+
+        Alert alert = newAlert();
+        String payload = (String) codec.encode(alert);
+        assertEquals(JsonUtil.toJson(alert), payload);
+
+        // Rows with JSON payloads are readable with any format
+        PayloadCodec smileCodec = new PayloadCodec(PayloadCodec.Format.SMILE);
+        assertEquals(alert, smileCodec.decode(null, payload, Alert.class, false));
+        assertEquals(alert, smileCodec.decode(ByteBuffer.allocate(0), payload, Alert.class, false));
+    }
+
+    @Test
+    public void unknownVersionTest() {
+        PayloadCodec codec = new PayloadCodec(PayloadCodec.Format.SMILE);
+        ByteBuffer payload = ByteBuffer.wrap(new byte[] {(byte) 99, 1, 2, 3});
+        try {
+            codec.decode(payload, null, Alert.class, false);
+            fail("Unknown payload version should fail");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.services.ActionsService;
+import org.hawkular.alerts.api.services.AlertsService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Lucas Ponce
+ */
+public class PersistenceStageTest {
+
+    private ExecutorService executor;
+    private List<String> calls;
+    private AtomicInteger failures;
+    private AtomicInteger eventFailures;
+    private CountDownLatch release;
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(4);
+        calls = new CopyOnWriteArrayList<>();
+        failures = new AtomicInteger(0);
+        eventFailures = new AtomicInteger(0);
+        release = new CountDownLatch(0);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    private AlertsService alertsService() {
+        return (AlertsService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{AlertsService.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("addAlerts")) {
+                        release.await();
+                        if (failures.getAndDecrement() > 0) {
+                            throw new Exception("Backend not available");
+                        }
+                        calls.add("addAlerts-" + ((Collection) args[0]).size());
+                    } else if (method.getName().equals("persistEvents")) {
+                        if (eventFailures.getAndDecrement() > 0) {
+                            throw new Exception("Backend not available");
+                        }
+                        calls.add("persistEvents-" + ((Collection) args[0]).size());
+                    }
+                    return null;
+                });
+    }
+
+    private ActionsService actionsService() {
+        return (ActionsService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[]{ActionsService.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("send")) {
+                        calls.add("send-" + ((Trigger) args[0]).getId());
+                    }
+                    return null;
+                });
+    }
+
+    @Test
+    public void asyncSubmitTest() throws Exception {
+        release = new CountDownLatch(1);
+        PersistenceStage stage = new PersistenceStage(alertsService(), actionsService(), executor, 2, 0, 0);
+
+        Trigger trigger = new Trigger("tenant", "trigger-1", "Trigger 1");
+        Alert alert = new Alert("tenant", trigger, null, null);
+        stage.getActions().send(trigger, alert);
+        stage.submit(Collections.singletonList(alert), Collections.emptyList());
+
+        // Submit returns while the cycle is blocked on the backend, the action is not sent yet
+        assertEquals(1, stage.getInFlight());
+        assertTrue(calls.isEmpty());
+
+        release.countDown();
+        assertTrue(stage.await(5000));
+        assertEquals(0, stage.getInFlight());
+        assertEquals(3, calls.size());
+        assertEquals("addAlerts-1", calls.get(0));
+        assertEquals("persistEvents-0", calls.get(1));
+        assertEquals("send-trigger-1", calls.get(2));
+    }
+
+    @Test
+    public void retryTest() throws Exception {
+        failures.set(2);
+        PersistenceStage stage = new PersistenceStage(alertsService(), actionsService(), executor, 2, 3, 10);
+
+        Trigger trigger = new Trigger("tenant", "trigger-1", "Trigger 1");
+        Event event = new Event("tenant", trigger, null, null);
+        stage.submit(Collections.emptyList(), Collections.singletonList(event));
+
+        assertTrue(stage.await(5000));
+        assertEquals(2, calls.size());
+        assertEquals("addAlerts-0", calls.get(0));
+        assertEquals("persistEvents-1", calls.get(1));
+    }
+
+    @Test
+    public void syncSubmitTest() throws Exception {
+        failures.set(5);
+        PersistenceStage stage = new PersistenceStage(alertsService(), actionsService(), executor, 0, 1, 0);
+
+        Trigger trigger = new Trigger("tenant", "trigger-1", "Trigger 1");
+        Alert alert = new Alert("tenant", trigger, null, null);
+        stage.getActions().send(trigger, alert);
+        stage.submit(Collections.singletonList(alert), Collections.emptyList());
+
+        // Persistence failed after the retry, the action is dropped
+        assertTrue(calls.isEmpty());
+        assertEquals(3, failures.get());
+    }
+
+    @Test
+    public void retryFailedStepTest() throws Exception {
+        eventFailures.set(1);
+        PersistenceStage stage = new PersistenceStage(alertsService(), actionsService(), executor, 0, 1, 0);
+
+        Trigger trigger = new Trigger("tenant", "trigger-1", "Trigger 1");
+        Alert alert = new Alert("tenant", trigger, null, null);
+        Event event = new Event("tenant", trigger, null, null);
+        stage.getActions().send(trigger, alert);
+        stage.submit(Collections.singletonList(alert), Collections.singletonList(event));
+
+        // Alerts are not added again when only the events failed
+        assertEquals(3, calls.size());
+        assertEquals("addAlerts-1", calls.get(0));
+        assertEquals("persistEvents-1", calls.get(1));
+        assertEquals("send-trigger-1", calls.get(2));
+    }
+
+    @Test
+    public void dropActionsNotPersistedTest() throws Exception {
+        eventFailures.set(5);
+        PersistenceStage stage = new PersistenceStage(alertsService(), actionsService(), executor, 0, 1, 0);
+
+        Trigger trigger1 = new Trigger("tenant", "trigger-1", "Trigger 1");
+        Alert alert = new Alert("tenant", trigger1, null, null);
+        Trigger trigger2 = new Trigger("tenant", "trigger-2", "Trigger 2");
+        Event event = new Event("tenant", trigger2, null, null);
+        stage.getActions().send(trigger1, alert);
+        stage.getActions().send(trigger2, event);
+        stage.submit(Collections.singletonList(alert), Collections.singletonList(event));
+
+        // Only the action of the persisted Alert is sent
+        assertEquals(2, calls.size());
+        assertEquals("addAlerts-1", calls.get(0));
+        assertEquals("send-trigger-1", calls.get(1));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * @author Lucas Ponce
+ */
+public class RetentionTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @BeforeClass
+    public static void setRetentions() {
+        System.setProperty("hawkular-alerts.retention-alerts", "30");
+        System.setProperty("hawkular-alerts.retention-alerts.tenant2", "7");
+        System.setProperty("hawkular-alerts.retention-events.tenant2", "0");
+    }
+
+    @AfterClass
+    public static void clearRetentions() {
+        System.clearProperty("hawkular-alerts.retention-alerts");
+        System.clearProperty("hawkular-alerts.retention-alerts.tenant2");
+        System.clearProperty("hawkular-alerts.retention-events.tenant2");
+    }
+
+    @Test
+    public void retentionTest() {
+        Retention retention = new Retention();
+
+        assertEquals(30 * DAY, retention.getRetention("tenant1", Retention.Type.ALERTS));
+        assertEquals(7 * DAY, retention.getRetention("tenant2", Retention.Type.ALERTS));
+        assertEquals(0, retention.getRetention("tenant1", Retention.Type.EVENTS));
+        assertEquals(0, retention.getRetention("tenant2", Retention.Type.EVENTS));
+        assertEquals(0, retention.getRetention("tenant1", Retention.Type.ACTIONS));
+    }
+
+    @Test
+    public void ttlTest() {
+        Retention retention = new Retention();
+        long now = 1000 * DAY;
+
+        // No retention, no TTL
+        assertEquals(0, retention.getTtl("tenant1", Retention.Type.EVENTS, now, now));
+
+        // TTL is the rest of the retention from the ctime
+        assertEquals(TimeUnit.DAYS.toSeconds(30), retention.getTtl("tenant1", Retention.Type.ALERTS, now, now));
+        assertEquals(TimeUnit.DAYS.toSeconds(20),
+                retention.getTtl("tenant1", Retention.Type.ALERTS, now - 10 * DAY, now));
+        assertEquals(TimeUnit.DAYS.toSeconds(7), retention.getTtl("tenant2", Retention.Type.ALERTS, now, now));
+        assertEquals(1, retention.getTtl("tenant1", Retention.Type.ALERTS, now - 30 * DAY + 1, now));
+
+        // Data beyond its retention expires right away
+        assertEquals(1, retention.getTtl("tenant1", Retention.Type.ALERTS, now - 40 * DAY, now));
+    }
+}
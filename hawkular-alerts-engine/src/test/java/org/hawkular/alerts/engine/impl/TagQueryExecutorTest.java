@@ -0,0 +1,106 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * @author Lucas Ponce
+ */
+public class TagQueryExecutorTest {
+
+    private Map<String, Map<String, Set<String>>> tags = new HashMap<>();
+    private Set<String> allIds = new HashSet<>();
+    private Map<String, AtomicInteger> tagLoads = new HashMap<>();
+    private AtomicInteger idsLoads = new AtomicInteger(0);
+
+    private void tag(String id, String name, String value) {
+        allIds.add(id);
+        tags.computeIfAbsent(name, n -> new HashMap<>()).computeIfAbsent(value, v -> new HashSet<>()).add(id);
+    }
+
+    private TagQueryExecutor newExecutor() {
+        return new TagQueryExecutor(name -> {
+            tagLoads.computeIfAbsent(name, n -> new AtomicInteger(0)).incrementAndGet();
+            return tags.getOrDefault(name, new HashMap<>());
+        }, () -> {
+            idsLoads.incrementAndGet();
+            return allIds;
+        });
+    }
+
+    private Set<String> ids(String... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+
+    @Test
+    public void resolveTest() throws Exception {
+        tag("id1", "app", "appA");
+        tag("id1", "host", "host1");
+        tag("id2", "app", "appB");
+        tag("id2", "host", "host2");
+        tag("id3", "app", "appC");
+        allIds.add("id4");
+
+        assertEquals(ids("id1", "id2", "id3"), newExecutor().resolve("app"));
+        assertEquals(ids("id1", "id2"), newExecutor().resolve("app = 'app[AB]'"));
+        assertEquals(ids("id3"), newExecutor().resolve("app != 'app[AB]'"));
+        assertEquals(ids("id2"), newExecutor().resolve("app = appB"));
+        assertEquals(ids("id1", "id3"), newExecutor().resolve("app in ['appA', appC]"));
+        assertEquals(ids("id2"), newExecutor().resolve("app not in ['appA', appC]"));
+        assertEquals(ids("id3", "id4"), newExecutor().resolve("not host"));
+        assertEquals(ids("id3"), newExecutor().resolve("app and not host"));
+        assertEquals(ids("id3"), newExecutor().resolve("not host and app"));
+        assertEquals(ids("id2", "id3", "id4"), newExecutor().resolve("app = appB or not host"));
+
+        // Resolver results are not shared with the index
+        assertEquals(ids("id1", "id2", "id3"), newExecutor().resolve("app"));
+        assertTrue(allIds.contains("id4"));
+    }
+
+    @Test
+    public void loadsTest() throws Exception {
+        tag("id1", "app", "appA");
+        tag("id2", "app", "appB");
+        tag("id2", "host", "host2");
+
+        TagQueryExecutor executor = newExecutor();
+        assertEquals(ids("id1"), executor.resolve("app = appA or (app = 'appC' and not host)"));
+        assertEquals(ids("id1"), executor.resolve("app and not host"));
+
+        // Each tag is read once per executor, the untagged ids are resolved as a difference
+        assertEquals(1, tagLoads.get("app").get());
+        assertEquals(1, tagLoads.get("host").get());
+        assertEquals(0, idsLoads.get());
+
+        executor.resolve("not app or not host");
+        executor.resolve("not host");
+        assertEquals(1, idsLoads.get());
+        assertFalse(tagLoads.containsKey("other"));
+    }
+}
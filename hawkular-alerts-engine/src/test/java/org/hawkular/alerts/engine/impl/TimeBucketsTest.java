@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * @author Lucas Ponce
+ */
+public class TimeBucketsTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    @Test
+    public void bucketTest() {
+        assertEquals(0L, TimeBuckets.bucket(0L));
+        assertEquals(0L, TimeBuckets.bucket(DAY - 1));
+        assertEquals(DAY, TimeBuckets.bucket(DAY));
+        assertEquals(17000 * DAY, TimeBuckets.bucket(17000 * DAY + 12345L));
+        assertEquals(-DAY, TimeBuckets.bucket(-1L));
+    }
+
+    @Test
+    public void rangeTest() {
+        long bucket = TimeBuckets.bucket(17000 * DAY);
+
+        // Open ranges cover the whole bucket
+        assertEquals(bucket, TimeBuckets.start(bucket, null));
+        assertEquals(bucket + DAY - 1, TimeBuckets.end(bucket, null));
+
+        // Ranges are clamped to the bucket
+        assertEquals(bucket, TimeBuckets.start(bucket, bucket - 5000L));
+        assertEquals(bucket + 5000L, TimeBuckets.start(bucket, bucket + 5000L));
+        assertEquals(bucket + 6000L, TimeBuckets.end(bucket, bucket + 6000L));
+        assertEquals(bucket + DAY - 1, TimeBuckets.end(bucket, bucket + 2 * DAY));
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hawkular.alerts.api.model.Severity;
+import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.api.model.trigger.Trigger;
+import org.hawkular.alerts.api.services.AlertsCriteria;
+import org.hawkular.alerts.api.services.EventsCriteria;
+import org.hawkular.alerts.engine.impl.WatchHub.Subscription;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author Lucas Ponce
+ */
+public class WatchHubTest {
+
+    private final WatchHub hub = WatchHub.getInstance();
+
+    @After
+    public void syncDelivery() {
+        hub.setExecutor(null);
+    }
+
+    private Alert newAlert(String tenantId, String triggerId, Severity severity) {
+        Trigger trigger = new Trigger(tenantId, triggerId, triggerId);
+        trigger.setSeverity(severity);
+        return new Alert(tenantId, trigger, null);
+    }
+
+    @Test
+    public void alertsCriteriaTest() throws Exception {
+        AlertsCriteria criteria = new AlertsCriteria();
+        criteria.setSeverity(Severity.CRITICAL);
+        criteria.setStartTime(System.currentTimeMillis() + 60000L);
+        try (Subscription<Alert> subscription = hub.subscribeAlerts(Collections.singleton("tenant"), criteria, 10)) {
+            Alert critical = newAlert("tenant", "trigger-1", Severity.CRITICAL);
+            hub.publishAlerts(Arrays.asList(critical, newAlert("tenant", "trigger-1", Severity.LOW),
+                    newAlert("other-tenant", "trigger-1", Severity.CRITICAL)));
+
+            // Time criteria are not used on subscriptions
+            assertEquals(critical, subscription.poll(1000));
+            assertNull(subscription.poll(10));
+        }
+    }
+
+    @Test
+    public void eventsTagQueryTest() throws Exception {
+        EventsCriteria criteria = new EventsCriteria();
+        criteria.setTagQuery("app = appA");
+        try (Subscription<Event> subscription = hub.subscribeEvents(Collections.singleton("tenant"), criteria, 10)) {
+            Event e1 = new Event("tenant", "event-1", "category", "text");
+            e1.addTag("app", "appA");
+            Event e2 = new Event("tenant", "event-2", "category", "text");
+            e2.addTag("app", "appB");
+            hub.publishEvents(Arrays.asList(e1, e2));
+
+            List<Event> events = new ArrayList<>();
+            subscription.drain(events);
+            assertEquals(Collections.singletonList(e1), events);
+        }
+    }
+
+    @Test
+    public void compiledTagQueryTest() throws Exception {
+        EventsCriteria criteria = new EventsCriteria();
+        criteria.setTagQuery("(app in ['appA','appB'] and not env) or owner = 'ops.*'");
+        try (Subscription<Event> subscription = hub.subscribeEvents(Collections.singleton("tenant"), criteria, 10)) {
+            Event e1 = new Event("tenant", "event-1", "category", "text");
+            e1.addTag("app", "appA");
+            Event e2 = new Event("tenant", "event-2", "category", "text");
+            e2.addTag("app", "appB");
+            e2.addTag("env", "prod");
+            Event e3 = new Event("tenant", "event-3", "category", "text");
+            e3.addTag("owner", "ops-team");
+            hub.publishEvents(Arrays.asList(e1, e2, e3));
+
+            List<Event> events = new ArrayList<>();
+            subscription.drain(events);
+            assertEquals(Arrays.asList(e1, e3), events);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedTagQueryTest() throws Exception {
+        EventsCriteria criteria = new EventsCriteria();
+        criteria.setTagQuery("app = *");
+        hub.subscribeEvents(Collections.singleton("tenant"), criteria, 10);
+    }
+
+    @Test
+    public void asyncDeliveryTest() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        hub.setExecutor(executor);
+        try (Subscription<Event> subscription = hub.subscribeEvents(Collections.singleton("tenant"), null, 10)) {
+            for (int i = 0; i < 5; i++) {
+                hub.publishEvents(Collections.singletonList(new Event("tenant", "event-" + i, "category", "text")));
+            }
+
+            // Publications are delivered in order off the publisher thread
+            for (int i = 0; i < 5; i++) {
+                assertEquals("event-" + i, subscription.poll(5000).getId());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void boundedBufferTest() throws Exception {
+        Subscription<Event> subscription = hub.subscribeEvents(Collections.singleton("tenant"), null, 2);
+        int subscriptions = hub.getSubscriptions();
+        List<Event> published = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            published.add(new Event("tenant", "event-" + i, "category", "text"));
+        }
+        hub.publishEvents(published);
+
+        // Oldest items are dropped, publishing does not block
+        assertEquals(3, subscription.getDropped());
+        assertEquals("event-3", subscription.poll(10).getId());
+        assertEquals("event-4", subscription.poll(10).getId());
+
+        subscription.close();
+        assertTrue(subscription.isClosed());
+        assertEquals(subscriptions - 1, hub.getSubscriptions());
+        hub.publishEvents(published);
+        assertNull(subscription.poll(10));
+    }
+
+    @Test
+    public void listenerTest() throws Exception {
+        try (Subscription<Event> subscription = hub.subscribeEvents(Collections.singleton("tenant"), null, 10)) {
+            AtomicInteger signals = new AtomicInteger(0);
+            List<Event> drained = new ArrayList<>();
+            subscription.setListener(() -> {
+                signals.incrementAndGet();
+                subscription.drain(drained);
+            });
+            hub.publishEvents(Arrays.asList(new Event("tenant", "event-1", "category", "text"),
+                    new Event("tenant", "event-2", "category", "text")));
+
+            // A publication is signaled once, after all its items are buffered
+            assertEquals(1, signals.get());
+            assertEquals(2, drained.size());
+
+            // Non matching publications are not signaled
+            hub.publishEvents(Collections.singletonList(new Event("other", "event-3", "category", "text")));
+            assertEquals(1, signals.get());
+
+            subscription.close();
+            hub.publishEvents(Collections.singletonList(new Event("tenant", "event-4", "category", "text")));
+            assertEquals(1, signals.get());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author Lucas Ponce
+ */
+public class EngineMetricsTest {
+
+    @After
+    public void reset() {
+        EngineMetrics.getInstance().reset();
+    }
+
+    @Test
+    public void recordTest() {
+        EngineMetrics metrics = EngineMetrics.getInstance();
+        metrics.reset();
+        for (int i = 1; i <= 100; i++) {
+            metrics.recordFiringTime(i);
+        }
+        metrics.recordIngestionDelay(-5);
+        metrics.setFacts(42);
+
+        assertEquals(100, metrics.getFiringTimeMax());
+        assertTrue(metrics.getFiringTimeP99() >= 99);
+        assertEquals(0, metrics.getIngestionDelayMax());
+        assertEquals(42, metrics.getFacts());
+
+        Map<String, String> status = metrics.getMetrics();
+        assertEquals(8, status.size());
+        assertTrue(status.get("metrics-firing-time").startsWith("count=100,"));
+        assertTrue(status.get("metrics-alerts").startsWith("count=0,"));
+        assertEquals("42", status.get("metrics-facts"));
+
+        metrics.reset();
+        assertEquals(0, metrics.getFiringTimeMax());
+        assertTrue(metrics.getMetrics().get("metrics-firing-time").startsWith("count=0,"));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.engine.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+
+import org.hawkular.alerts.api.model.data.Data;
+import org.junit.Test;
+
+/**
+ * @author Lucas Ponce
+ */
+public class PendingQueueTest {
+
+    @Test
+    public void drainOrderTest() {
+        PendingQueue<Data> pending = new PendingQueue<>();
+        pending.addAll(Arrays.asList(Data.forNumeric("tenant", "b", 2, 1.0), Data.forNumeric("tenant", "a", 3, 1.0)));
+        pending.addAll(Arrays.asList(Data.forNumeric("tenant", "a", 1, 1.0), Data.forNumeric("tenant", "b", 1, 1.0)));
+        // Duplicated
+        pending.addAll(Arrays.asList(Data.forNumeric("tenant", "a", 1, 1.0)));
+
+        assertEquals(5, pending.size());
+
+        TreeSet<Data> drained = pending.drain();
+        assertEquals(4, drained.size());
+        assertTrue(pending.isEmpty());
+        assertEquals(0, pending.size());
+
+        List<Data> ordered = new ArrayList<>(drained);
+        assertEquals("a", ordered.get(0).getId());
+        assertEquals(1, ordered.get(0).getTimestamp());
+        assertEquals("a", ordered.get(1).getId());
+        assertEquals(3, ordered.get(1).getTimestamp());
+        assertEquals("b", ordered.get(2).getId());
+        assertEquals(1, ordered.get(2).getTimestamp());
+        assertEquals("b", ordered.get(3).getId());
+        assertEquals(2, ordered.get(3).getTimestamp());
+    }
+
+    @Test
+    public void shedTest() {
+        PendingQueue<Data> pending = new PendingQueue<>();
+        pending.addAll(Arrays.asList(Data.forNumeric("tenant", "a", 1, 1.0), Data.forNumeric("tenant", "a", 2, 2.0),
+                Data.forNumeric("tenant", "a", 3, 3.0), Data.forNumeric("tenant", "b", 1, 1.0),
+                Data.forNumeric("tenant", "c", 1, 1.0), Data.forNumeric("tenant", "c", 2, 2.0)));
+
+        assertEquals(3, pending.shed((d1, d2) -> d1.same(d2)));
+        assertEquals(3, pending.size());
+
+        List<Data> kept = new ArrayList<>(pending.drain());
+        assertEquals("a", kept.get(0).getId());
+        assertEquals(3, kept.get(0).getTimestamp());
+        assertEquals("b", kept.get(1).getId());
+        assertEquals(1, kept.get(1).getTimestamp());
+        assertEquals("c", kept.get(2).getId());
+        assertEquals(2, kept.get(2).getTimestamp());
+    }
+
+    @Test
+    public void concurrentProducersTest() throws Exception {
+        PendingQueue<Data> pending = new PendingQueue<>();
+        int producers = 8;
+        int batches = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            final String dataId = "data-" + p;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < batches; i++) {
+                        pending.addAll(Arrays.asList(Data.forNumeric("tenant", dataId, i, (double) i)));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        TreeSet<Data> all = new TreeSet<>();
+        start.countDown();
+        while (done.getCount() > 0) {
+            all.addAll(pending.drain());
+        }
+        all.addAll(pending.drain());
+
+        assertEquals(producers * batches, all.size());
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    public void oldestAddTimeTest() {
+        PendingQueue<Data> pending = new PendingQueue<>();
+        assertEquals(0, pending.getOldestAddTime());
+
+        long before = System.currentTimeMillis();
+        pending.addAll(Arrays.asList(Data.forNumeric("tenant", "a", 1, 1.0)));
+        long oldest = pending.getOldestAddTime();
+        assertTrue(oldest >= before);
+
+        pending.addAll(Arrays.asList(Data.forNumeric("tenant", "a", 2, 1.0)));
+        assertEquals(oldest, pending.getOldestAddTime());
+
+        pending.shed((d1, d2) -> d1.getId().equals(d2.getId()));
+        assertEquals(oldest, pending.getOldestAddTime());
+
+        pending.drain();
+        assertEquals(0, pending.getOldestAddTime());
+    }
+}
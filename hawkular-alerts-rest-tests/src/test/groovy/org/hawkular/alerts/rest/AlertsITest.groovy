@@ -16,6 +16,7 @@
  */
 package org.hawkular.alerts.rest
 
+import org.hawkular.alerts.api.model.data.Data
 import org.junit.Test
 
 /**
@@ -119,4 +120,31 @@ class AlertsITest extends AbstractITestBase {
         assert resp.status == 200 : resp.status
     }
 
+    @Test
+    void getAlertsSummary() {
+        def resp = client.get(path: "summary")
+        assert resp.status == 200 : resp.status
+        assert resp.data.total != null
+
+        resp = client.get(path: "summary", query: [triggerIds:"Trigger-01,Trigger-02"] )
+        assert resp.status == 200 : resp.status
+        assert resp.data.triggers.size() == 2
+
+        resp = client.get(path: "summary", query: [triggrIds:"Trigger-01"] )
+        assert resp.status == 400 : resp.status
+    }
+
+    @Test
+    void sendDataOverCapacity() {
+        // The test server runs with hawkular-alerts.ingestion-capacity=50000, a larger batch is always rejected
+        long now = System.currentTimeMillis()
+        Collection<Data> datums = new ArrayList<>()
+        for (int i = 0; i < 50001; i++) {
+            datums.add(Data.forNumeric(testTenant, "test-capacity", now + i, i))
+        }
+        def resp = client.post(path: "data", body: datums)
+        assert resp.status == 429 : resp.status
+        assert resp.data.errorMsg != null
+    }
+
 }
@@ -77,6 +77,16 @@
       <replicated-cache name="globalActions" mode="ASYNC">
         <transaction mode="BATCH"/>
       </replicated-cache>
+      <replicated-cache name="actions" mode="ASYNC">
+        <transaction mode="BATCH"/>
+      </replicated-cache>
+      <replicated-cache name="actionPlugins" mode="ASYNC">
+        <transaction mode="BATCH"/>
+      </replicated-cache>
+      <invalidation-cache name="alerts" mode="SYNC">
+        <eviction strategy="LRU" max-entries="10000"/>
+        <expiration lifespan="600000"/>
+      </invalidation-cache>
     </cache-container>
   </xsl:template>
 
@@ -45,6 +45,12 @@
       <local-cache name="dataIds" />
       <local-cache name="schema"/>
       <local-cache name="globalActions" />
+      <local-cache name="actions" />
+      <local-cache name="actionPlugins" />
+      <local-cache name="alerts">
+        <eviction strategy="LRU" max-entries="10000"/>
+        <expiration lifespan="600000"/>
+      </local-cache>
     </cache-container>
   </xsl:template>
 
@@ -32,6 +32,7 @@ import java.util.Map;
 import java.util.Set;
 
 import javax.ejb.EJB;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -42,12 +43,15 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
 import org.hawkular.alerts.api.model.data.Data;
 import org.hawkular.alerts.api.model.event.Alert;
+import org.hawkular.alerts.api.model.event.AlertsSummary;
 import org.hawkular.alerts.api.model.paging.Page;
 import org.hawkular.alerts.api.model.paging.Pager;
 import org.hawkular.alerts.api.services.AlertsCriteria;
@@ -188,6 +192,10 @@ public class AlertsHandler {
             @ApiParam(required = false, value = "Return only thin alerts, do not include: evalSets, resolvedEvalSets.")
             @QueryParam("thin")
             final Boolean thin,
+            @ApiParam(required = false, value = "Stream all the alerts in a chunked response, in ctime order. + \n" +
+                    "per_page defines the number of alerts fetched at a time.")
+            @QueryParam("stream")
+            final Boolean stream,
             @Context
             final UriInfo uri) {
         try {
@@ -207,6 +215,9 @@ public class AlertsHandler {
             AlertsCriteria criteria = new AlertsCriteria(startTime, endTime, alertIds, triggerIds, statuses, severities,
                     unifiedTagQuery, startResolvedTime, endResolvedTime, startAckTime, endAckTime, startStatusTime,
                     endStatusTime, thin);
+            if (stream != null && stream) {
+                return ResponseUtil.streamingOk(pager, p -> alertsService.getAlerts(tenantId, criteria, p));
+            }
             Page<Alert> alertPage = alertsService.getAlerts(tenantId, criteria, pager);
             log.debugf("Alerts: %s", alertPage);
             if (isEmpty(alertPage)) {
@@ -258,7 +269,7 @@ public class AlertsHandler {
             @ApiResponse(code = 200, message = "Errors will close the stream. Description is sent before stream is closed.", response = ResponseUtil.ApiError.class)
     })
     @QueryParamValidation(name = "watchAlerts")
-    public Response watchAlerts(
+    public void watchAlerts(
             @ApiParam(required = false, value = "Filter out alerts created before this time.",
                     allowableValues = "Timestamp in millisecond since epoch.")
             @QueryParam("startTime")
@@ -324,7 +335,11 @@ public class AlertsHandler {
             @QueryParam("thin")
             final Boolean thin,
             @Context
-            final UriInfo uri) {
+            final UriInfo uri,
+            @Context
+            final HttpServletRequest request,
+            @Suspended
+            final AsyncResponse asyncResponse) {
         try {
             ResponseUtil.checkForUnknownQueryParams(uri, queryParamValidationMap.get("watchAlerts"));
 
@@ -338,15 +353,47 @@ public class AlertsHandler {
                     severities,
                     unifiedTagQuery, startResolvedTime, endResolvedTime, startAckTime, endAckTime, startStatusTime,
                     endStatusTime, thin);
-            return Response.ok(streamWatcher.watchAlerts(Collections.singleton(tenantId), criteria, watchInterval))
-                    .build();
+            streamWatcher.watchAlerts(asyncResponse, request, Collections.singleton(tenantId), criteria, watchInterval);
         } catch (Exception e) {
             log.debug(e.getMessage(), e);
             if (e instanceof IllegalArgumentException ||
                     (e.getCause() != null && e.getCause() instanceof IllegalArgumentException)) {
-                return ResponseUtil.badRequest("Bad arguments: " + e.getMessage());
+                asyncResponse.resume(ResponseUtil.badRequest("Bad arguments: " + e.getMessage()));
+                return;
             }
-            return ResponseUtil.internalError(e);
+            asyncResponse.resume(ResponseUtil.internalError(e));
+        }
+    }
+
+    @GET
+    @Path("/summary")
+    @Produces(APPLICATION_JSON)
+    @ApiOperation(value = "Get the number of unresolved alerts by status and severity.",
+            notes = "Counts are maintained on every alert write, not computed from a query of the alerts. + \n" +
+                    "Resolved alerts are not counted.",
+            response = AlertsSummary.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successfully fetched the alerts summary."),
+            @ApiResponse(code = 400, message = "Bad Request/Invalid Parameters.", response = ApiError.class),
+            @ApiResponse(code = 500, message = "Internal server error.", response = ApiError.class)
+    })
+    @QueryParamValidation(name = "getAlertsSummary")
+    public Response getAlertsSummary(
+            @ApiParam(required = false, value = "Include the summary of these triggers.",
+                    allowableValues = "Comma separated list of trigger IDs.")
+            @QueryParam("triggerIds")
+            final String triggerIds,
+            @Context
+            final UriInfo uri) {
+        try {
+            ResponseUtil.checkForUnknownQueryParams(uri, queryParamValidationMap.get("getAlertsSummary"));
+            Collection<String> triggerIdList = isEmpty(triggerIds) ? null : Arrays.asList(triggerIds.split(","));
+            AlertsSummary summary = alertsService.getAlertsSummary(tenantId, triggerIdList);
+            log.debugf("Alerts summary: %s", summary);
+            return ResponseUtil.ok(summary);
+
+        } catch (Exception e) {
+            return ResponseUtil.onException(e, log);
         }
     }
 
@@ -768,6 +815,8 @@ public class AlertsHandler {
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Success, data added."),
             @ApiResponse(code = 400, message = "Bad Request/Invalid Parameters.", response = ApiError.class),
+            @ApiResponse(code = 429, message = "Ingestion capacity exhausted, retry later.",
+                    response = ApiError.class),
             @ApiResponse(code = 500, message = "Internal server error.", response = ApiError.class)
     })
     public Response sendData(
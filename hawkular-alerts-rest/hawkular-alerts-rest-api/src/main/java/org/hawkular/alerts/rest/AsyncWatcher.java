@@ -0,0 +1,221 @@
+/*
+ * Copyright 2015-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.alerts.rest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.hawkular.alerts.api.json.JsonUtil;
+import org.hawkular.alerts.api.model.event.Event;
+import org.hawkular.alerts.engine.impl.WatchHub.Subscription;
+import org.jboss.logging.Logger;
+
+/**
+ * Streams a {@link Subscription} to a watcher without holding a thread.
+ *
+ * The response is written with servlet non-blocking output. Items are drained from the subscription when the hub
+ * signals a delivery or when the client is ready to accept more output, a slow client leaves the items in the bounded
+ * subscription buffer. A keep-alive is written on every watchInterval without activity.
+ *
+ * The response is written outside JAX-RS, so the CORS headers of the response filter are copied here.
+ *
+ * @author Lucas Ponce
+ */
+class AsyncWatcher<T extends Event> implements WriteListener, AsyncListener {
+    private static final Logger log = Logger.getLogger(AsyncWatcher.class);
+    private static final long CLEAN_INTERVAL = 10 * 1000;
+    private static final byte[] KEEP_ALIVE = new byte[] { 0 };
+
+    private final AsyncContext asyncContext;
+    private final Subscription<T> subscription;
+    private final Function<T, StreamWatcher.WatchedId> watchedId;
+    private final Deque<byte[]> pending = new ArrayDeque<>();
+    private final Set<StreamWatcher.WatchedId> watchedIds = new HashSet<>();
+    private final List<T> items = new ArrayList<>();
+    private ServletOutputStream output;
+    private volatile ScheduledFuture<?> keepAlive;
+    private long lastWatched = System.currentTimeMillis();
+    private volatile long lastWrite = System.currentTimeMillis();
+    private volatile boolean closed = false;
+
+    AsyncWatcher(AsyncContext asyncContext, Subscription<T> subscription,
+                 Function<T, StreamWatcher.WatchedId> watchedId) {
+        this.asyncContext = asyncContext;
+        this.subscription = subscription;
+        this.watchedId = watchedId;
+    }
+
+    /**
+     * @param initialItems items of the initial query, written before the pushed ones
+     * @param scheduler scheduler of the keep-alive
+     * @param keepAliveMs ms without activity before a keep-alive is written
+     * @throws IOException if the response output cannot be opened
+     */
+    void start(Collection<T> initialItems, ScheduledExecutorService scheduler, long keepAliveMs) throws IOException {
+        asyncContext.setTimeout(0);
+        HttpServletRequest request = (HttpServletRequest) asyncContext.getRequest();
+        HttpServletResponse response = (HttpServletResponse) asyncContext.getResponse();
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/json");
+        String origin = request.getHeader("Origin");
+        if (origin != null) {
+            response.setHeader("Access-Control-Allow-Origin", origin);
+            response.setHeader("Access-Control-Allow-Credentials", "true");
+        }
+        synchronized (this) {
+            if (initialItems != null) {
+                for (T item : initialItems) {
+                    pending.add(toLine(item));
+                    watchedIds.add(watchedId.apply(item));
+                }
+            }
+            output = response.getOutputStream();
+        }
+        asyncContext.addListener(this);
+        output.setWriteListener(this);
+        subscription.setListener(this::write);
+        keepAlive = scheduler.scheduleAtFixedRate(() -> {
+            if (System.currentTimeMillis() - lastWrite >= keepAliveMs) {
+                keepAlive();
+            }
+        }, keepAliveMs, keepAliveMs, TimeUnit.MILLISECONDS);
+        if (closed) {
+            keepAlive.cancel(false);
+        }
+    }
+
+    private synchronized void keepAlive() {
+        if (pending.isEmpty()) {
+            pending.add(KEEP_ALIVE);
+        }
+        write();
+    }
+
+    /*
+        Write the pending lines while the output is ready. The subscription is drained only when all pending lines
+        are written, so a slow client does not grow the pending lines but drops on the subscription buffer.
+     */
+    private synchronized void write() {
+        if (closed || output == null) {
+            return;
+        }
+        try {
+            while (output.isReady()) {
+                if (pending.isEmpty() && !drain()) {
+                    output.flush();
+                    return;
+                }
+                output.write(pending.poll());
+                lastWrite = System.currentTimeMillis();
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Watcher client disconnected");
+            close();
+        }
+    }
+
+    private boolean drain() {
+        if (subscription.isClosed()) {
+            return false;
+        }
+        if (System.currentTimeMillis() - lastWatched > CLEAN_INTERVAL) {
+            watchedIds.clear();
+            lastWatched = System.currentTimeMillis();
+        }
+        subscription.drain(items);
+        for (T item : items) {
+            if (watchedIds.add(watchedId.apply(item))) {
+                pending.add(toLine(item));
+            }
+        }
+        items.clear();
+        if (subscription.getDropped() > 0) {
+            log.debugf("Watcher dropped %s items, client is slower than the updates", subscription.getDropped());
+        }
+        return !pending.isEmpty();
+    }
+
+    private byte[] toLine(T item) {
+        return (JsonUtil.toJson(item) + "\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        subscription.close();
+        if (keepAlive != null) {
+            keepAlive.cancel(false);
+        }
+        try {
+            asyncContext.complete();
+        } catch (IllegalStateException e) {
+            log.debugf("Watcher already completed: %s", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onWritePossible() throws IOException {
+        write();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        log.debug("Watcher client disconnected");
+        close();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) throws IOException {
+        close();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) throws IOException {
+        close();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) throws IOException {
+        close();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) throws IOException {
+        // Nothing to do
+    }
+}
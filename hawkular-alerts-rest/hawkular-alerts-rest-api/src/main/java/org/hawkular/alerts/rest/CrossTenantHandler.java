@@ -29,11 +29,14 @@ import java.util.Set;
 import java.util.TreeSet;
 
 import javax.ejb.EJB;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
@@ -347,7 +350,7 @@ public class CrossTenantHandler {
             @ApiResponse(code = 200, message = "Errors will close the stream. Description is sent before stream is closed.", response = ResponseUtil.ApiError.class)
     })
     @QueryParamValidation(name = "watchAlerts")
-    public Response watchAlerts(
+    public void watchAlerts(
             @ApiParam(required = false, value = "Filter out alerts created before this time.",
                     allowableValues = "Timestamp in millisecond since epoch.")
             @QueryParam("startTime")
@@ -413,7 +416,11 @@ public class CrossTenantHandler {
             @QueryParam("thin")
             final Boolean thin,
             @Context
-            final UriInfo uri) {
+            final UriInfo uri,
+            @Context
+            final HttpServletRequest request,
+            @Suspended
+            final AsyncResponse asyncResponse) {
         try {
             ResponseUtil.checkForUnknownQueryParams(uri, queryParamValidationMap.get("findEvents"));
 
@@ -427,14 +434,15 @@ public class CrossTenantHandler {
             AlertsCriteria criteria = new AlertsCriteria(startTime, endTime, alertIds, triggerIds, statuses,
                     severities, unifiedTagQuery, startResolvedTime, endResolvedTime, startAckTime, endAckTime,
                     startStatusTime, endStatusTime, thin);
-            return Response.ok(streamWatcher.watchAlerts(tenantIds, criteria, watchInterval)).build();
+            streamWatcher.watchAlerts(asyncResponse, request, tenantIds, criteria, watchInterval);
 
         } catch (Exception e) {
             log.debug(e.getMessage(), e);
             if (e.getCause() != null && e.getCause() instanceof IllegalArgumentException) {
-                return ResponseUtil.badRequest("Bad arguments: " + e.getMessage());
+                asyncResponse.resume(ResponseUtil.badRequest("Bad arguments: " + e.getMessage()));
+                return;
             }
-            return ResponseUtil.internalError(e);
+            asyncResponse.resume(ResponseUtil.internalError(e));
         }
     }
 
@@ -479,7 +487,7 @@ public class CrossTenantHandler {
             @ApiResponse(code = 200, message = "Errors will close the stream. Description is sent before stream is closed.", response = ResponseUtil.ApiError.class)
     })
     @QueryParamValidation(name = "watchEvents")
-    public Response watchEvents(
+    public void watchEvents(
             @ApiParam(required = false, value = "Filter out events created before this time.",
                     allowableValues = "Timestamp in millisecond since epoch.")
             @QueryParam("startTime")
@@ -516,7 +524,11 @@ public class CrossTenantHandler {
             @QueryParam("thin")
             final Boolean thin,
             @Context
-            final UriInfo uri) {
+            final UriInfo uri,
+            @Context
+            final HttpServletRequest request,
+            @Suspended
+            final AsyncResponse asyncResponse) {
         try {
             ResponseUtil.checkForUnknownQueryParams(uri, queryParamValidationMap.get("findEvents"));
 
@@ -529,14 +541,15 @@ public class CrossTenantHandler {
             }
             EventsCriteria criteria = new EventsCriteria(startTime, endTime, eventIds, triggerIds, categories,
                     unifiedTagQuery, thin);
-            return Response.ok(streamWatcher.watchEvents(tenantIds, criteria, watchInterval)).build();
+            streamWatcher.watchEvents(asyncResponse, request, tenantIds, criteria, watchInterval);
 
         } catch (Exception e) {
             log.debug(e.getMessage(), e);
             if (e.getCause() != null && e.getCause() instanceof IllegalArgumentException) {
-                return ResponseUtil.badRequest("Bad arguments: " + e.getMessage());
+                asyncResponse.resume(ResponseUtil.badRequest("Bad arguments: " + e.getMessage()));
+                return;
             }
-            return ResponseUtil.internalError(e);
+            asyncResponse.resume(ResponseUtil.internalError(e));
         }
     }
 
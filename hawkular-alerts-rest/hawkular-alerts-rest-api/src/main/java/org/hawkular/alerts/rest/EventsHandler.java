@@ -33,6 +33,7 @@ import java.util.Map;
 import java.util.Set;
 
 import javax.ejb.EJB;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -43,6 +44,8 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
@@ -151,6 +154,8 @@ public class EventsHandler {
     @ApiResponses(value = {
             @ApiResponse(code = 200, message = "Success, Event Created."),
             @ApiResponse(code = 400, message = "Bad Request/Invalid Parameters.", response = ApiError.class),
+            @ApiResponse(code = 429, message = "Ingestion capacity exhausted, retry later.",
+                    response = ApiError.class),
             @ApiResponse(code = 500, message = "Internal server error.", response = ApiError.class)
     })
     public Response sendEvents(
@@ -302,6 +307,10 @@ public class EventsHandler {
             @ApiParam(required = false, value = "Return only thin events, do not include: evalSets.")
             @QueryParam("thin")
             final Boolean thin,
+            @ApiParam(required = false, value = "Stream all the events in a chunked response, in ctime order. + \n" +
+                    "per_page defines the number of events fetched at a time.")
+            @QueryParam("stream")
+            final Boolean stream,
             @Context
             final UriInfo uri) {
         try {
@@ -320,6 +329,9 @@ public class EventsHandler {
             }
             EventsCriteria criteria = new EventsCriteria(startTime, endTime, eventIds, triggerIds, categories,
                     unifiedTagQuery, thin);
+            if (stream != null && stream) {
+                return ResponseUtil.streamingOk(pager, p -> alertsService.getEvents(tenantId, criteria, p));
+            }
             Page<Event> eventPage = alertsService.getEvents(tenantId, criteria, pager);
             log.debugf("Events: %s", eventPage);
             if (isEmpty(eventPage)) {
@@ -369,7 +381,7 @@ public class EventsHandler {
             @ApiResponse(code = 200, message = "Errors will close the stream. Description is sent before stream is closed.", response = ResponseUtil.ApiError.class)
     })
     @QueryParamValidation(name = "watchEvents")
-    public Response watchEvents(
+    public void watchEvents(
             @ApiParam(required = false, value = "Filter out events created before this time.",
                     allowableValues = "Timestamp in millisecond since epoch.")
             @QueryParam("startTime")
@@ -406,7 +418,11 @@ public class EventsHandler {
             @QueryParam("thin")
             final Boolean thin,
             @Context
-            final UriInfo uri) {
+            final UriInfo uri,
+            @Context
+            final HttpServletRequest request,
+            @Suspended
+            final AsyncResponse asyncResponse) {
         try {
             ResponseUtil.checkForUnknownQueryParams(uri, queryParamValidationMap.get("watchEvents"));
 
@@ -418,15 +434,15 @@ public class EventsHandler {
             }
             EventsCriteria criteria = new EventsCriteria(startTime, endTime, eventIds, triggerIds, categories,
                     unifiedTagQuery, thin);
-            return Response.ok(streamWatcher.watchEvents(Collections.singleton(tenantId), criteria, watchInterval))
-                    .build();
+            streamWatcher.watchEvents(asyncResponse, request, Collections.singleton(tenantId), criteria, watchInterval);
 
         } catch (Exception e) {
             log.debug(e.getMessage(), e);
             if (e.getCause() != null && e.getCause() instanceof IllegalArgumentException) {
-                return ResponseUtil.badRequest("Bad arguments: " + e.getMessage());
+                asyncResponse.resume(ResponseUtil.badRequest("Bad arguments: " + e.getMessage()));
+                return;
             }
-            return ResponseUtil.internalError(e);
+            asyncResponse.resume(ResponseUtil.internalError(e));
         }
     }
 
@@ -36,7 +36,7 @@ import org.hawkular.alerts.api.model.paging.Pager;
 public class RequestUtil {
 
     public static final Set<String> PARAMS_PAGING = new HashSet<>(Arrays.asList(new String[] {
-            "page", "per_page", "sort", "order"
+            "page", "per_page", "sort", "order", "cursor"
     }));
 
     private RequestUtil() {
@@ -49,6 +49,7 @@ public class RequestUtil {
         String perPageS = params.getFirst("per_page");
         List<String> sort = params.get("sort");
         List<String> order = params.get("order");
+        String cursor = params.getFirst("cursor");
 
         int page = pageS == null ? 0 : Integer.parseInt(pageS);
         int perPage = perPageS == null ? PageContext.UNLIMITED_PAGE_SIZE : Integer.parseInt(perPageS);
@@ -69,6 +70,7 @@ public class RequestUtil {
             }
         }
 
-        return new Pager(page, perPage, ordering);
+        // cursor paging is requested with an empty cursor on the first page
+        return cursor == null ? new Pager(page, perPage, ordering) : new Pager(perPage, cursor, ordering);
     }
 }
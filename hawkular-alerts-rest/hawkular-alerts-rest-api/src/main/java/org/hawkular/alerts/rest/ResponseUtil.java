@@ -18,6 +18,7 @@ package org.hawkular.alerts.rest;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -27,16 +28,21 @@ import java.util.stream.Collectors;
 
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 
+import org.hawkular.alerts.api.exception.IngestionRejectedException;
 import org.hawkular.alerts.api.exception.NotFoundException;
+import org.hawkular.alerts.api.json.JsonUtil;
 import org.hawkular.alerts.api.model.paging.Page;
 import org.hawkular.alerts.api.model.paging.PageContext;
+import org.hawkular.alerts.api.model.paging.Pager;
 import org.hawkular.alerts.rest.json.Link;
 import org.jboss.logging.Logger;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
@@ -47,6 +53,21 @@ import io.swagger.annotations.ApiModelProperty;
  * @author Lucas Ponce
  */
 public class ResponseUtil {
+    private static final Logger log = Logger.getLogger(ResponseUtil.class);
+
+    // Not defined in JAX-RS 2.0 Response.Status
+    public static final int TOO_MANY_REQUESTS = 429;
+
+    // Page size used to fetch a streamed response when per_page is not defined
+    public static final int STREAM_PAGE_SIZE = 1000;
+
+    /**
+     * Fetch a page of results for a streamed response.
+     */
+    @FunctionalInterface
+    public interface PageFetcher<T> {
+        Page<T> fetch(Pager pager) throws Exception;
+    }
 
     public static Response internalError(Exception e) {
         if (e.getMessage() == null) {
@@ -82,6 +103,47 @@ public class ResponseUtil {
         return response.build();
     }
 
+    /**
+     * Stream a JSON array of results written as they are fetched, a cursor page at a time, so the memory used does
+     * not depend on the size of the results. The response has no length and it is sent chunked.
+     *
+     * The first page is fetched before the response is committed, so an invalid request is returned as an error.
+     * A failure on a later page can only abort the stream, the client gets a truncated array.
+     *
+     * @param pager the paging of the request, the cursor and page size are initialized if not present
+     * @param fetcher the query of the results
+     * @return the streamed response
+     * @throws Exception any problem fetching the first page
+     */
+    public static <T> Response streamingOk(Pager pager, PageFetcher<T> fetcher) throws Exception {
+        Pager streamPager = new Pager(pager.getPageSize() > 0 ? pager.getPageSize() : STREAM_PAGE_SIZE,
+                pager.isCursor() ? pager.getCursor() : "", pager.getOrder());
+        Page<T> first = fetcher.fetch(streamPager);
+        StreamingOutput stream = output -> {
+            try (JsonGenerator generator = JsonUtil.getMapper().getFactory().createGenerator(output)) {
+                generator.writeStartArray();
+                Page<T> page = first;
+                while (true) {
+                    for (T item : page) {
+                        generator.writeObject(item);
+                    }
+                    generator.flush();
+                    if (page.getNextCursor() == null) {
+                        break;
+                    }
+                    page = fetcher.fetch(streamPager.nextPage(page.getNextCursor()));
+                }
+                generator.writeEndArray();
+            } catch (IOException e) {
+                log.debugf("Streaming client disconnected: %s", e.getMessage());
+            } catch (Exception e) {
+                log.debug(e.getMessage(), e);
+                throw new IOException("Streaming aborted: " + e.getMessage(), e);
+            }
+        };
+        return Response.status(Response.Status.OK).entity(stream).type(APPLICATION_JSON_TYPE).build();
+    }
+
     public static Response ok() {
         return Response.status(Response.Status.OK).type(APPLICATION_JSON_TYPE).build();
     }
@@ -91,7 +153,18 @@ public class ResponseUtil {
                 .entity(new ApiError(message)).type(APPLICATION_JSON_TYPE).build();
     }
 
+    public static Response tooManyRequests(String message) {
+        return Response.status(TOO_MANY_REQUESTS)
+                .entity(new ApiError(message)).type(APPLICATION_JSON_TYPE).build();
+    }
+
     public static Response onException(Exception e, Logger log) {
+        if (e instanceof IngestionRejectedException) {
+            return tooManyRequests(e.getMessage());
+        }
+        if (null != e.getCause() && e.getCause() instanceof IngestionRejectedException) {
+            return tooManyRequests(e.getCause().getMessage());
+        }
         if (e instanceof NotFoundException) {
             return notFound(e.getMessage());
         }
@@ -144,6 +217,8 @@ public class ResponseUtil {
      * Create the paging headers for collections and attach them to the passed builder. Those are represented as
      * <i>Link:</i> http headers that carry the URL for the pages and the respective relation.
      * <p>In addition a <i>X-Total-Count</i> header is created that contains the whole collection size.</p>
+     * <p>Cursor pages are not counted, they carry only the <i>next</i> link with the cursor of the next page, if
+     * any.</p>
      *
      * @param builder    The ResponseBuilder that receives the headers
      * @param uriInfo    The uriInfo of the incoming request to build the urls
@@ -159,6 +234,18 @@ public class ResponseUtil {
 
         List<Link> links = new ArrayList<>();
 
+        if (pc.isCursor()) {
+            uriBuilder = uriInfo.getRequestUriBuilder();
+            StringBuilder linkHeader = new StringBuilder(new Link("current", uriBuilder.build().toString())
+                    .rfc5988String());
+            if (resultList.getNextCursor() != null) {
+                uriBuilder.replaceQueryParam("cursor", resultList.getNextCursor());
+                linkHeader.append(", ").append(new Link("next", uriBuilder.build().toString()).rfc5988String());
+            }
+            builder.header("Link", linkHeader.toString());
+            return;
+        }
+
         if (pc.isLimited() && resultList.getTotalSize() > (pc.getPageNumber() + 1) * pc.getPageSize()) {
             int nextPage = page + 1;
             uriBuilder = uriInfo.getRequestUriBuilder(); // adds ?q, ?per_page, ?page, etc. if needed
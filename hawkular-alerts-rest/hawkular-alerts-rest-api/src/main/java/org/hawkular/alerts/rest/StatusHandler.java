@@ -68,7 +68,21 @@ public class StatusHandler {
                     "\"Implementation-Version\":\"<Version>\", + \n" +
                     "\"Built-From-Git-SHA1\":\"<Git-SHA1>\", + \n" +
                     "\"distributed\":\"<true|false>\", + \n" +
-                    "\"members\":\"<comma list of nodes IDs>\" + \n" +
+                    "\"members\":\"<comma list of nodes IDs>\", + \n" +
+                    "\"ingestion-capacity\":\"<max data and events not yet evaluated>\", + \n" +
+                    "\"ingestion-policy\":\"<BLOCK|REJECT|DROP_OLDEST>\", + \n" +
+                    "\"ingestion-in-flight\":\"<data and events accepted and not yet evaluated>\", + \n" +
+                    "\"ingestion-pending\":\"<data and events waiting for evaluation>\", + \n" +
+                    "\"ingestion-rejected\":\"<data and events rejected>\", + \n" +
+                    "\"ingestion-dropped\":\"<data dropped>\", + \n" +
+                    "\"metrics-ingestion-delay\":\"<histogram summary>\", + \n" +
+                    "\"metrics-firing-time\":\"<histogram summary>\", + \n" +
+                    "\"metrics-batching-time\":\"<histogram summary>\", + \n" +
+                    "\"metrics-deferred-data\":\"<histogram summary>\", + \n" +
+                    "\"metrics-alerts\":\"<histogram summary>\", + \n" +
+                    "\"metrics-events\":\"<histogram summary>\", + \n" +
+                    "\"metrics-persistence-time\":\"<histogram summary>\", + \n" +
+                    "\"metrics-facts\":\"<facts in the rules engine>\" + \n" +
                     "}",
             response = String.class, responseContainer = "Map")
     public Response status(@Context ServletContext servletContext) {
@@ -85,6 +99,7 @@ public class StatusHandler {
             if (distributed) {
                 status.putAll(statusService.getDistributedStatus());
             }
+            status.putAll(statusService.getEngineStatus());
         } catch (Exception e) {
             status.put(STATUS, FAILED);
         }
@@ -18,15 +18,22 @@ package org.hawkular.alerts.rest;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 
+import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.Stateless;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
 
 import org.hawkular.alerts.api.json.JsonUtil;
@@ -39,10 +46,21 @@ import org.hawkular.alerts.api.model.paging.Pager;
 import org.hawkular.alerts.api.services.AlertsCriteria;
 import org.hawkular.alerts.api.services.AlertsService;
 import org.hawkular.alerts.api.services.EventsCriteria;
+import org.hawkular.alerts.api.services.StatusService;
+import org.hawkular.alerts.engine.impl.AlertProperties;
+import org.hawkular.alerts.engine.impl.WatchHub;
+import org.hawkular.alerts.engine.impl.WatchHub.Subscription;
 import org.jboss.logging.Logger;
 
 /**
- * Handle StreamingOutput logic for events/alerts Watchers.
+ * Handle the streaming logic for events/alerts Watchers.
+ *
+ * On a standalone server watchers subscribe to the {@link WatchHub}, new and updated alerts/events are pushed to the
+ * watcher as they are stored, without querying the backend after the initial query. The request is suspended and the
+ * response is written by an {@link AsyncWatcher} from the hub delivery task, so no thread is held per watcher.
+ *
+ * On a distributed server alerts/events are stored by any node, so watchers poll the backend on every watchInterval,
+ * holding a thread per watcher.
  *
  * @author Jay Shaughnessy
  * @author Lucas Ponce
@@ -56,9 +74,21 @@ public class StreamWatcher {
     private static final long CLEAN_INTERVAL = 10 * 1000;
     private static final long LEAP_INTERVAL = 1 * 1000;
 
+    private static final String WATCHER_BUFFER_SIZE = "hawkular-alerts.watcher-buffer-size";
+    private static final String WATCHER_BUFFER_SIZE_ENV = "WATCHER_BUFFER_SIZE";
+    private static final String WATCHER_BUFFER_SIZE_DEFAULT = "1000";
+    private static final int WATCHER_BUFFER_SIZE_VALUE = new Integer(AlertProperties.getProperty(WATCHER_BUFFER_SIZE,
+            WATCHER_BUFFER_SIZE_ENV, WATCHER_BUFFER_SIZE_DEFAULT));
+
     @EJB
     AlertsService alertsService;
 
+    @EJB
+    StatusService statusService;
+
+    @Resource
+    ManagedScheduledExecutorService scheduler;
+
     static {
         List<Order> ordering = new ArrayList<>();
         ordering.add(Order.by("stime", Order.Direction.ASCENDING));
@@ -68,7 +98,37 @@ public class StreamWatcher {
         ctimePager = new Pager(0, PageContext.UNLIMITED_PAGE_SIZE, ordering);
     }
 
-    public StreamingOutput watchAlerts(Set<String> tenantIds, AlertsCriteria criteria, Long watchInterval) {
+    public void watchAlerts(AsyncResponse asyncResponse, HttpServletRequest request, Set<String> tenantIds,
+                            AlertsCriteria criteria, Long watchInterval) {
+        if (statusService.isDistributed()) {
+            asyncResponse.resume(Response.ok(pollAlerts(tenantIds, criteria, watchInterval)).build());
+            return;
+        }
+        /*
+            Subscription is done before the initial query, so no alert is lost between them
+         */
+        Subscription<Alert> subscription;
+        try {
+            subscription = WatchHub.getInstance().subscribeAlerts(tenantIds, criteria, WATCHER_BUFFER_SIZE_VALUE);
+        } catch (IllegalArgumentException e) {
+            log.debug(e.getMessage(), e);
+            asyncResponse.resume(Response.ok(errorOutput(e)).build());
+            return;
+        }
+        Page<Alert> initialAlerts;
+        try {
+            initialAlerts = alertsService.getAlerts(tenantIds, criteria, stimePager);
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            subscription.close();
+            asyncResponse.resume(Response.ok(errorOutput(e)).build());
+            return;
+        }
+        watch(asyncResponse, request, subscription, initialAlerts,
+                alert -> new WatchedId(alert.getId(), alert.getCurrentLifecycle().getStime()), watchInterval);
+    }
+
+    private StreamingOutput pollAlerts(Set<String> tenantIds, AlertsCriteria criteria, Long watchInterval) {
         return output -> {
             Writer writer = new BufferedWriter(new OutputStreamWriter(output));
             Long startWatchTime = criteria.getEndStatusTime();
@@ -182,7 +242,73 @@ public class StreamWatcher {
         };
     }
 
-    public StreamingOutput watchEvents(Set<String> tenantIds, EventsCriteria criteria, Long watchInterval) {
+    public void watchEvents(AsyncResponse asyncResponse, HttpServletRequest request, Set<String> tenantIds,
+                            EventsCriteria criteria, Long watchInterval) {
+        if (statusService.isDistributed()) {
+            asyncResponse.resume(Response.ok(pollEvents(tenantIds, criteria, watchInterval)).build());
+            return;
+        }
+        Subscription<Event> subscription;
+        try {
+            subscription = WatchHub.getInstance().subscribeEvents(tenantIds, criteria, WATCHER_BUFFER_SIZE_VALUE);
+        } catch (IllegalArgumentException e) {
+            log.debug(e.getMessage(), e);
+            asyncResponse.resume(Response.ok(errorOutput(e)).build());
+            return;
+        }
+        Page<Event> initialEvents;
+        try {
+            initialEvents = alertsService.getEvents(tenantIds, criteria, ctimePager);
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
+            subscription.close();
+            asyncResponse.resume(Response.ok(errorOutput(e)).build());
+            return;
+        }
+        watch(asyncResponse, request, subscription, initialEvents, event -> new WatchedId(event.getId(),
+                event.getCtime()), watchInterval);
+    }
+
+    /*
+        Hand over the suspended request to an AsyncWatcher, which writes the initial items and then the items pushed
+        to the subscription from the hub delivery task, until the client disconnects. No thread is held meanwhile.
+     */
+    private <T extends Event> void watch(AsyncResponse asyncResponse, HttpServletRequest request,
+                                         Subscription<T> subscription, List<T> initialItems,
+                                         Function<T, WatchedId> watchedId, Long watchInterval) {
+        long keepAlive = watchInterval == null ? WATCHER_INTERVAL_DEFAULT : watchInterval * 1000;
+        AsyncWatcher<T> watcher;
+        try {
+            watcher = new AsyncWatcher<>(request.getAsyncContext(), subscription, watchedId);
+        } catch (IllegalStateException e) {
+            log.debug(e.getMessage(), e);
+            subscription.close();
+            asyncResponse.resume(ResponseUtil.internalError(e));
+            return;
+        }
+        try {
+            watcher.start(initialItems, scheduler, keepAlive);
+        } catch (Exception e) {
+            log.debug("Watcher client disconnected", e);
+            watcher.close();
+        }
+    }
+
+    private StreamingOutput errorOutput(Exception e) {
+        return output -> writeError(output, e);
+    }
+
+    private void writeError(OutputStream output, Exception e) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output));
+        try {
+            writer.write(JsonUtil.toJson(new ResponseUtil.ApiError(e.getMessage())) + "\r\n");
+            writer.flush();
+        } catch (IOException io) {
+            log.debug("Watcher client disconnected");
+        }
+    }
+
+    private StreamingOutput pollEvents(Set<String> tenantIds, EventsCriteria criteria, Long watchInterval) {
         return output -> {
             Writer writer = new BufferedWriter(new OutputStreamWriter(output));
             Long startWatchTime = criteria.getEndTime();
@@ -276,7 +402,7 @@ public class StreamWatcher {
         };
     }
 
-    private static class WatchedId {
+    static class WatchedId {
         String id;
         long stime;
 